@@ -0,0 +1,88 @@
+/*
+ * Copyright 2026 Ethan Ruffing
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ethanruffing.preferenceabstraction.benchmark;
+
+import com.ethanruffing.preferenceabstraction.AutoPreferences;
+import com.ethanruffing.preferenceabstraction.ConfigurationType;
+import org.apache.commons.configuration.ConfigurationException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time from constructing a store to reading its first value,
+ * for stores of increasing size. Each fork measures a genuinely cold first
+ * open, followed by repeated opens within the same JVM; the file itself is
+ * likely to be in the operating system's cache throughout. Lazily created
+ * stores are measured for comparison, without being used.
+ *
+ * @author Ethan Ruffing
+ * @since 2026-10-18
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 20)
+@Fork(5)
+public class ColdStartBenchmark {
+    @Param({"LOCAL", "HOME", "BINARY", "SYSTEM"})
+    private ConfigurationType type;
+
+    @Param({"10", "1000", "100000"})
+    private int size;
+
+    @Setup
+    public void setUp() throws ConfigurationException {
+        AutoPreferences prefs = Stores.open(type);
+        Stores.fill(prefs, size);
+        prefs.close();
+    }
+
+    @TearDown
+    public void tearDown() throws ConfigurationException {
+        Stores.dispose(Stores.reopen(type));
+    }
+
+    @Benchmark
+    public String open() throws ConfigurationException {
+        AutoPreferences prefs = Stores.reopen(type);
+        try {
+            return prefs.getString(Stores.key(size - 1), null);
+        } finally {
+            prefs.close();
+        }
+    }
+
+    @Benchmark
+    public AutoPreferences openLazy() {
+        AutoPreferences prefs = AutoPreferences.lazy(Stores.class, type);
+        prefs.close();
+        return prefs;
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2026 Ethan Ruffing
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ethanruffing.preferenceabstraction.benchmark;
+
+import com.ethanruffing.preferenceabstraction.AutoPreferences;
+import com.ethanruffing.preferenceabstraction.ConfigurationType;
+import org.apache.commons.configuration.ConfigurationException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures the throughput of durable puts from many threads into a single
+ * file-based store, where concurrent changes share a write.
+ *
+ * @author Ethan Ruffing
+ * @since 2026-10-18
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class ConcurrentPutBenchmark {
+    @Param({"LOCAL", "HOME", "BINARY"})
+    private ConfigurationType type;
+
+    private AutoPreferences prefs;
+    private final AtomicInteger threads = new AtomicInteger();
+
+    @Setup
+    public void setUp() throws ConfigurationException {
+        prefs = Stores.open(type);
+        Stores.fill(prefs, 100);
+    }
+
+    @TearDown
+    public void tearDown() {
+        Stores.dispose(prefs);
+    }
+
+    /**
+     * The key written by each thread.
+     */
+    @State(Scope.Thread)
+    public static class Writer {
+        private String key;
+        private int counter;
+
+        @Setup
+        public void setUp(ConcurrentPutBenchmark benchmark) {
+            key = "thread" + benchmark.threads.getAndIncrement();
+        }
+    }
+
+    @Benchmark
+    public void put(Writer writer) {
+        prefs.put(writer.key, ++writer.counter);
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2026 Ethan Ruffing
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ethanruffing.preferenceabstraction.benchmark;
+
+import com.ethanruffing.preferenceabstraction.AutoPreferences;
+import com.ethanruffing.preferenceabstraction.ConfigurationType;
+import com.ethanruffing.preferenceabstraction.PreferenceMigrationException;
+import org.apache.commons.configuration.ConfigurationException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures converting stores of increasing size from one type to another.
+ * The destination is emptied before each conversion, so that every run writes
+ * it from scratch.
+ *
+ * @author Ethan Ruffing
+ * @since 2026-10-18
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConvertBenchmark {
+    /**
+     * The source and destination types, separated by a colon.
+     */
+    @Param({"HOME:LOCAL", "HOME:BINARY", "HOME:SYSTEM", "BINARY:HOME",
+            "SYSTEM:HOME"})
+    private String route;
+
+    @Param({"10", "1000", "100000"})
+    private int size;
+
+    private AutoPreferences source;
+    private ConfigurationType destinationType;
+    private AutoPreferences destination;
+
+    @Setup
+    public void setUp() throws ConfigurationException {
+        String[] types = route.split(":");
+        destinationType = ConfigurationType.valueOf(types[1]);
+        source = Stores.open(ConfigurationType.valueOf(types[0]));
+        Stores.fill(source, size);
+    }
+
+    @TearDown
+    public void tearDown() throws ConfigurationException {
+        Stores.dispose(source);
+        Stores.dispose(Stores.reopen(destinationType));
+    }
+
+    @Setup(Level.Invocation)
+    public void emptyDestination() throws ConfigurationException {
+        Stores.dispose(Stores.reopen(destinationType));
+    }
+
+    @TearDown(Level.Invocation)
+    public void closeDestination() {
+        destination.close();
+    }
+
+    @Benchmark
+    public AutoPreferences convert() throws PreferenceMigrationException {
+        destination = source.convert(destinationType);
+        return destination;
+    }
+}
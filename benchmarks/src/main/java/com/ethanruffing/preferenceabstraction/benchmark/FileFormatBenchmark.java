@@ -0,0 +1,107 @@
+/*
+ * Copyright 2026 Ethan Ruffing
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ethanruffing.preferenceabstraction.benchmark;
+
+import com.ethanruffing.preferenceabstraction.AutoPreferences;
+import com.ethanruffing.preferenceabstraction.ConfigurationType;
+import com.ethanruffing.preferenceabstraction.FileFormat;
+import org.apache.commons.configuration.ConfigurationException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the file formats for stores of increasing size: the time to open a
+ * store and read a value, which parses the whole file, and the time to change
+ * a value, which rewrites the whole file for every format but the binary log.
+ * Opening a store from its startup snapshot is measured too; the binary log
+ * has none, so is read as usual.
+ *
+ * @author Ethan Ruffing
+ * @since 2026-10-18
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileFormatBenchmark {
+    @Param({"XML", "PROPERTIES", "JSON", "BINARY"})
+    private FileFormat format;
+
+    @Param({"10", "1000", "100000"})
+    private int size;
+
+    private AutoPreferences prefs;
+    private int i;
+
+    @Setup
+    public void setUp() throws ConfigurationException {
+        prefs = Stores.open(ConfigurationType.HOME, format);
+        // Deletes the snapshot on disposal, once the file has been deleted.
+        prefs.enableSnapshot();
+        Stores.fill(prefs, size);
+
+        AutoPreferences snapshotted = AutoPreferences.lazy(Stores.class,
+                ConfigurationType.HOME, format);
+        snapshotted.enableSnapshot();
+        snapshotted.load();
+        snapshotted.close();
+    }
+
+    @TearDown
+    public void tearDown() {
+        Stores.dispose(prefs);
+    }
+
+    @Benchmark
+    public String load() throws ConfigurationException {
+        AutoPreferences reopened = Stores.reopen(ConfigurationType.HOME,
+                format);
+        try {
+            return reopened.getString(Stores.key(size - 1), null);
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Benchmark
+    public String loadFromSnapshot() {
+        AutoPreferences reopened = AutoPreferences.lazy(Stores.class,
+                ConfigurationType.HOME, format);
+        reopened.enableSnapshot();
+        // Not closed, which would take the snapshot again.
+        return reopened.getString(Stores.key(size - 1), null);
+    }
+
+    @Benchmark
+    public void save() {
+        prefs.put(Stores.key(i++ % size), i);
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2026 Ethan Ruffing
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ethanruffing.preferenceabstraction.benchmark;
+
+import com.ethanruffing.preferenceabstraction.AutoPreferences;
+import com.ethanruffing.preferenceabstraction.ConfigurationType;
+import com.ethanruffing.preferenceabstraction.PreferenceKey;
+import org.apache.commons.configuration.ConfigurationException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput and latency of reading each type of value from each
+ * type of store.
+ *
+ * @author Ethan Ruffing
+ * @since 2026-10-18
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GetBenchmark {
+    private static final PreferenceKey.OfInt INT_KEY =
+            PreferenceKey.ofInt("int", 0);
+    private static final PreferenceKey.OfInt MISSING_KEY =
+            PreferenceKey.ofInt("missing", 0);
+
+    @Param({"LOCAL", "HOME", "BINARY", "SYSTEM"})
+    private ConfigurationType type;
+
+    private AutoPreferences prefs;
+
+    @Setup
+    public void setUp() throws ConfigurationException {
+        prefs = Stores.open(type);
+        prefs.put("boolean", true);
+        prefs.put("double", Math.PI);
+        prefs.put("float", (float) Math.E);
+        prefs.put("int", 42);
+        prefs.put("long", Long.MAX_VALUE);
+        prefs.put("string", "The quick brown fox");
+        prefs.flush();
+    }
+
+    @TearDown
+    public void tearDown() {
+        Stores.dispose(prefs);
+    }
+
+    @Benchmark
+    public boolean getBoolean() {
+        return prefs.getBoolean("boolean", false);
+    }
+
+    @Benchmark
+    public double getDouble() {
+        return prefs.getDouble("double", 0);
+    }
+
+    @Benchmark
+    public float getFloat() {
+        return prefs.getFloat("float", 0);
+    }
+
+    @Benchmark
+    public int getInt() {
+        return prefs.getInt("int", 0);
+    }
+
+    @Benchmark
+    public int getIntByKey() {
+        return prefs.get(INT_KEY);
+    }
+
+    @Benchmark
+    public long getLong() {
+        return prefs.getLong("long", 0);
+    }
+
+    @Benchmark
+    public String getString() {
+        return prefs.getString("string", null);
+    }
+
+    @Benchmark
+    public String getMissing() {
+        return prefs.getString("missing", null);
+    }
+
+    @Benchmark
+    public int getMissingByKey() {
+        return prefs.get(MISSING_KEY);
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2026 Ethan Ruffing
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ethanruffing.preferenceabstraction.benchmark;
+
+import com.ethanruffing.preferenceabstraction.AutoPreferences;
+import com.ethanruffing.preferenceabstraction.ConfigurationType;
+import org.apache.commons.configuration.ConfigurationException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures listing the keys of stores of increasing size, both in full and
+ * for a prefix matching a single key. Filtering the full list is measured for
+ * comparison with the sorted prefix query, and visiting every value with
+ * <code>forEach()</code> is compared with listing the keys and reading each.
+ *
+ * @author Ethan Ruffing
+ * @since 2026-10-18
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeysBenchmark {
+    @Param({"LOCAL", "HOME", "BINARY", "SYSTEM"})
+    private ConfigurationType type;
+
+    @Param({"10", "1000", "100000"})
+    private int size;
+
+    private AutoPreferences prefs;
+    private String prefix;
+
+    @Setup
+    public void setUp() throws ConfigurationException {
+        prefs = Stores.open(type);
+        Stores.fill(prefs, size);
+        prefix = Stores.key(size / 10);
+    }
+
+    @TearDown
+    public void tearDown() {
+        Stores.dispose(prefs);
+    }
+
+    @Benchmark
+    public List<String> getKeys() {
+        return prefs.getKeys();
+    }
+
+    @Benchmark
+    public List<String> getKeysWithPrefix() {
+        return prefs.getKeys(prefix);
+    }
+
+    @Benchmark
+    public List<String> filterKeys() {
+        List<String> matching = new ArrayList<>();
+        for (String key : prefs.getKeys())
+            if (key.startsWith(prefix))
+                matching.add(key);
+        return matching;
+    }
+
+    @Benchmark
+    public void readByKey(Blackhole blackhole) {
+        for (String key : prefs.getKeys())
+            blackhole.consume(prefs.getObject(key, null));
+    }
+
+    @Benchmark
+    public void forEach(Blackhole blackhole) {
+        prefs.forEach((key, value) -> blackhole.consume(value));
+    }
+}
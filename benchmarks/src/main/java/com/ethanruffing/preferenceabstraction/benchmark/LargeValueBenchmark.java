@@ -0,0 +1,89 @@
+/*
+ * Copyright 2026 Ethan Ruffing
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ethanruffing.preferenceabstraction.benchmark;
+
+import com.ethanruffing.preferenceabstraction.AutoPreferences;
+import com.ethanruffing.preferenceabstraction.ConfigurationType;
+import org.apache.commons.configuration.ConfigurationException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures storing and reading byte arrays and objects in the system store
+ * at sizes beyond what it can hold as a single value, which are split into
+ * chunks. Run with <code>-prof gc</code> to see the memory each operation
+ * allocates.
+ *
+ * @author Ethan Ruffing
+ * @since 2026-10-18
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LargeValueBenchmark {
+    @Param({"1024", "65536", "1048576"})
+    private int size;
+
+    private AutoPreferences prefs;
+    private byte[] bytes;
+
+    @Setup
+    public void setUp() throws ConfigurationException {
+        prefs = Stores.open(ConfigurationType.SYSTEM);
+        prefs.setObjectCacheSize(0);
+        bytes = new byte[size];
+        new Random(42).nextBytes(bytes);
+        prefs.put("object", (Object) bytes);
+        prefs.flush();
+    }
+
+    @TearDown
+    public void tearDown() {
+        Stores.dispose(prefs);
+    }
+
+    @Benchmark
+    public void putBytes() {
+        prefs.put("written", bytes);
+    }
+
+    @Benchmark
+    public void putObject() {
+        prefs.put("written", (Object) bytes);
+    }
+
+    @Benchmark
+    public Object getObject() {
+        return prefs.getObject("object", null);
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2026 Ethan Ruffing
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ethanruffing.preferenceabstraction.benchmark;
+
+import com.ethanruffing.preferenceabstraction.AutoPreferences;
+import com.ethanruffing.preferenceabstraction.ConfigurationType;
+import com.ethanruffing.preferenceabstraction.FieldCodec;
+import org.apache.commons.configuration.ConfigurationException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of storing and reading objects, using either Java
+ * serialization or a registered {@link FieldCodec}. The system store's object
+ * cache can be turned off to expose the cost of decoding.
+ *
+ * @author Ethan Ruffing
+ * @since 2026-10-18
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ObjectBenchmark {
+    @Param({"LOCAL", "HOME", "BINARY", "SYSTEM"})
+    private ConfigurationType type;
+
+    @Param({"false", "true"})
+    private boolean codec;
+
+    @Param({"0", "128"})
+    private int objectCacheSize;
+
+    private AutoPreferences prefs;
+    private final Stores.Sample sample = new Stores.Sample();
+
+    @Setup
+    public void setUp() throws ConfigurationException {
+        prefs = Stores.open(type);
+        if (codec)
+            prefs.registerCodec(Stores.Sample.class,
+                    FieldCodec.of(Stores.Sample.class)
+            );
+        prefs.setObjectCacheSize(objectCacheSize);
+        prefs.put("object", sample);
+        prefs.flush();
+    }
+
+    @TearDown
+    public void tearDown() {
+        Stores.dispose(prefs);
+    }
+
+    @Benchmark
+    public void putObject() {
+        prefs.put("written", sample);
+    }
+
+    @Benchmark
+    public Object getObject() {
+        return prefs.getObject("object", null);
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2026 Ethan Ruffing
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ethanruffing.preferenceabstraction.benchmark;
+
+import com.ethanruffing.preferenceabstraction.AutoPreferences;
+import com.ethanruffing.preferenceabstraction.ConfigurationType;
+import org.apache.commons.configuration.ConfigurationException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput and latency of storing each type of value in each
+ * type of store. Every put changes the stored value, and file-based stores
+ * run either writing through or with write-behind enabled.
+ *
+ * @author Ethan Ruffing
+ * @since 2026-10-18
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PutBenchmark {
+    @Param({"LOCAL", "HOME", "BINARY", "SYSTEM"})
+    private ConfigurationType type;
+
+    @Param({"false", "true"})
+    private boolean writeBehind;
+
+    private AutoPreferences prefs;
+    private int counter;
+
+    @Setup
+    public void setUp() throws ConfigurationException {
+        prefs = Stores.open(type);
+        if (writeBehind)
+            prefs.enableWriteBehind(1, TimeUnit.SECONDS, 1000);
+    }
+
+    @TearDown
+    public void tearDown() {
+        Stores.dispose(prefs);
+    }
+
+    @Benchmark
+    public void putBoolean() {
+        prefs.put("boolean", (++counter & 1) == 0);
+    }
+
+    @Benchmark
+    public void putBytes() {
+        prefs.put("bytes", new byte[]{(byte) ++counter, 2, 3, 4, 5, 6, 7, 8});
+    }
+
+    @Benchmark
+    public void putDouble() {
+        prefs.put("double", (double) ++counter);
+    }
+
+    @Benchmark
+    public void putFloat() {
+        prefs.put("float", (float) ++counter);
+    }
+
+    @Benchmark
+    public void putInt() {
+        prefs.put("int", ++counter);
+    }
+
+    @Benchmark
+    public void putLong() {
+        prefs.put("long", (long) ++counter);
+    }
+
+    @Benchmark
+    public void putString() {
+        prefs.put("string", "value" + ++counter);
+    }
+}
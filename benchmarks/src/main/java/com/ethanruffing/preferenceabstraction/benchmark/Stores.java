@@ -0,0 +1,139 @@
+/*
+ * Copyright 2026 Ethan Ruffing
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ethanruffing.preferenceabstraction.benchmark;
+
+import com.ethanruffing.preferenceabstraction.AutoPreferences;
+import com.ethanruffing.preferenceabstraction.ConfigurationType;
+import com.ethanruffing.preferenceabstraction.FileFormat;
+import com.ethanruffing.preferenceabstraction.PreferencesEditor;
+import org.apache.commons.configuration.ConfigurationException;
+
+import java.io.Serializable;
+
+/**
+ * Opens and fills the stores used by the benchmarks. All benchmarks share the
+ * stores belonging to this package, and clear them before and after use.
+ *
+ * @author Ethan Ruffing
+ * @since 2026-10-18
+ */
+final class Stores {
+    private Stores() {
+    }
+
+    /**
+     * Opens an empty store of the given type.
+     *
+     * @param type The type of store to open.
+     * @return The store.
+     * @throws ConfigurationException Thrown if the store cannot be opened.
+     */
+    static AutoPreferences open(ConfigurationType type)
+            throws ConfigurationException {
+        AutoPreferences prefs = reopen(type);
+        prefs.clear();
+        return prefs;
+    }
+
+    /**
+     * Opens a store of the given type, keeping any existing contents.
+     *
+     * @param type The type of store to open.
+     * @return The store.
+     * @throws ConfigurationException Thrown if the store cannot be opened.
+     */
+    static AutoPreferences reopen(ConfigurationType type)
+            throws ConfigurationException {
+        return new AutoPreferences(Stores.class, type);
+    }
+
+    /**
+     * Opens an empty file-based store in the given format.
+     *
+     * @param type   The type of store to open.
+     * @param format The format of the store's file.
+     * @return The store.
+     * @throws ConfigurationException Thrown if the store cannot be opened.
+     */
+    static AutoPreferences open(ConfigurationType type, FileFormat format)
+            throws ConfigurationException {
+        AutoPreferences prefs = reopen(type, format);
+        prefs.clear();
+        return prefs;
+    }
+
+    /**
+     * Opens a file-based store in the given format, keeping any existing
+     * contents.
+     *
+     * @param type   The type of store to open.
+     * @param format The format of the store's file.
+     * @return The store.
+     * @throws ConfigurationException Thrown if the store cannot be opened.
+     */
+    static AutoPreferences reopen(ConfigurationType type, FileFormat format)
+            throws ConfigurationException {
+        return new AutoPreferences(Stores.class, type, format);
+    }
+
+    /**
+     * Fills a store with string values, in a single batch.
+     *
+     * @param prefs The store to fill.
+     * @param count The number of values to store.
+     */
+    static void fill(AutoPreferences prefs, int count) {
+        PreferencesEditor editor = prefs.edit();
+        for (int i = 0; i < count; i++)
+            editor.put(key(i), "value" + i);
+        editor.commit();
+        prefs.flush();
+    }
+
+    /**
+     * @param i The index of a key stored by {@link #fill}.
+     * @return The key.
+     */
+    static String key(int i) {
+        return "key" + i;
+    }
+
+    /**
+     * Empties and closes a store.
+     *
+     * @param prefs The store.
+     */
+    static void dispose(AutoPreferences prefs) {
+        prefs.clear();
+        prefs.close();
+    }
+
+    /**
+     * A small object, representative of what applications store with {@link
+     * AutoPreferences#put(String, Object)}.
+     */
+    static final class Sample implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private String name = "window";
+        private int x = 120;
+        private int y = 80;
+        private int width = 1024;
+        private int height = 768;
+        private boolean maximized;
+    }
+}
@@ -0,0 +1,397 @@
+/*
+ * Copyright 2026 Ethan Ruffing
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ethanruffing.preferenceabstraction;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * An asynchronous companion to {@link IPreferences}, for callers that must not
+ * block on persistence. Every change returns immediately with a {@link
+ * CompletableFuture}, which completes once the underlying store has returned
+ * from making the change, or completes exceptionally with whatever it threw.
+ * A future therefore only shows that a change has been written where the
+ * store reports failed writes by throwing: an {@link AutoPreferences} does
+ * so for file-based stores written on every change, and for {@link
+ * #flush()}, but keeps changes to the system store or in write-behind mode
+ * in memory until they are flushed. If the executor rejects the work, the
+ * futures complete exceptionally with the rejection.
+ * <p>
+ * Changes are applied one at a time, in the order that they were made, on a
+ * pluggable executor. By default, this is a virtual thread per task where the
+ * JVM supports them, and a pool of daemon threads otherwise.
+ * <p>
+ * Reads go straight to the underlying store, and see a change once its future
+ * has completed. If the store is read from other threads while changes are
+ * being applied, it should be a {@link ConcurrentPreferences}.
+ *
+ * @author Ethan Ruffing
+ * @since 2026-10-18
+ */
+public class AsyncPreferences {
+    private final IPreferences delegate;
+    private final Executor queue;
+
+    /**
+     * Constructs a new asynchronous view of the given store, using the default
+     * executor.
+     *
+     * @param delegate The store to apply changes to.
+     */
+    public AsyncPreferences(IPreferences delegate) {
+        this(delegate, BackgroundTasks.IO);
+    }
+
+    /**
+     * Constructs a new asynchronous view of the given store.
+     *
+     * @param delegate The store to apply changes to.
+     * @param executor The executor to apply changes on. Changes are still
+     *                 applied one at a time, however many threads it has.
+     */
+    public AsyncPreferences(IPreferences delegate, Executor executor) {
+        if (delegate == null)
+            throw new NullPointerException("delegate");
+        this.delegate = delegate;
+        queue = new SerialExecutor(executor, this::reportError,
+                (task, e) -> ((Task) task).future.completeExceptionally(e));
+    }
+
+    /**
+     * Reports an error that is not passed on through a future to the
+     * underlying store's metrics, where it has any, and otherwise logs it.
+     *
+     * @param error The error.
+     */
+    private void reportError(Throwable error) {
+        if (delegate instanceof AutoPreferences)
+            ((AutoPreferences) delegate).reportError(error);
+        else
+            PreferenceMetrics.NONE.error(null, error);
+    }
+
+    /**
+     * @return The store that changes are applied to.
+     */
+    public IPreferences getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * Queues a change to the underlying store.
+     *
+     * @param change The change to make.
+     * @return A future completed once the change has been made.
+     */
+    private CompletableFuture<Void> submit(Consumer<IPreferences> change) {
+        Task task = new Task(change);
+        queue.execute(task);
+        return task.future;
+    }
+
+    /**
+     * Deletes all preferences stored for the class.
+     *
+     * @return A future completed once the preferences have been deleted.
+     */
+    public CompletableFuture<Void> clear() {
+        return submit(IPreferences::clear);
+    }
+
+    /**
+     * Writes any pending changes to the backing store, including all changes
+     * made through this object so far.
+     *
+     * @return A future completed once the store's {@link IPreferences#flush()}
+     * has returned, or exceptionally if it threw.
+     */
+    public CompletableFuture<Void> flush() {
+        return submit(IPreferences::flush);
+    }
+
+    /**
+     * Applies all changes made so far, then closes the underlying store if it
+     * is {@link Closeable}.
+     *
+     * @return A future completed once the store has been closed.
+     */
+    public CompletableFuture<Void> close() {
+        return submit(p -> {
+            if (p instanceof Closeable) {
+                try {
+                    ((Closeable) p).close();
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Deletes a single preference, if it is present.
+     *
+     * @param key The key of the preference to delete.
+     * @return A future completed once the preference has been deleted.
+     */
+    public CompletableFuture<Void> remove(String key) {
+        return submit(p -> p.remove(key));
+    }
+
+    /**
+     * Commits a batch of changes staged in an editor obtained from {@link
+     * #edit()}.
+     *
+     * @param editor The editor holding the changes.
+     * @return A future completed once the changes have been committed.
+     */
+    public CompletableFuture<Void> commit(PreferencesEditor editor) {
+        return submit(p -> editor.commit());
+    }
+
+    /**
+     * Starts a batch of changes. Staging changes does not block; commit them
+     * with {@link #commit(PreferencesEditor)}.
+     *
+     * @return An editor for staging the changes.
+     */
+    public PreferencesEditor edit() {
+        return delegate.edit();
+    }
+
+    /**
+     * Stores a boolean in the preferences, overwriting any identically-named
+     * properties.
+     *
+     * @param key   The key to store the boolean under.
+     * @param value The boolean to store.
+     * @return A future completed once the value has been stored.
+     */
+    public CompletableFuture<Void> put(String key, boolean value) {
+        return submit(p -> p.put(key, value));
+    }
+
+    /**
+     * Stores a byte array in the preferences, overwriting any identically-named
+     * properties.
+     *
+     * @param key   The key to store the byte array under.
+     * @param value The byte array to store.
+     * @return A future completed once the value has been stored.
+     */
+    public CompletableFuture<Void> put(String key, byte[] value) {
+        return submit(p -> p.put(key, value));
+    }
+
+    /**
+     * Stores a double in the preferences, overwriting any identically-named
+     * properties.
+     *
+     * @param key   The key to store the double under.
+     * @param value The double to store.
+     * @return A future completed once the value has been stored.
+     */
+    public CompletableFuture<Void> put(String key, double value) {
+        return submit(p -> p.put(key, value));
+    }
+
+    /**
+     * Stores a float in the preferences, overwriting any identically-named
+     * properties.
+     *
+     * @param key   The key to store the float under.
+     * @param value The float to store.
+     * @return A future completed once the value has been stored.
+     */
+    public CompletableFuture<Void> put(String key, float value) {
+        return submit(p -> p.put(key, value));
+    }
+
+    /**
+     * Stores an integer in the preferences, overwriting any identically-named
+     * properties.
+     *
+     * @param key   The key to store the int under.
+     * @param value The int to store.
+     * @return A future completed once the value has been stored.
+     */
+    public CompletableFuture<Void> put(String key, int value) {
+        return submit(p -> p.put(key, value));
+    }
+
+    /**
+     * Stores a long in the preferences, overwriting any identically-named
+     * properties.
+     *
+     * @param key   The key to store the long under.
+     * @param value The long to store.
+     * @return A future completed once the value has been stored.
+     */
+    public CompletableFuture<Void> put(String key, long value) {
+        return submit(p -> p.put(key, value));
+    }
+
+    /**
+     * Stores any object in the preferences, overwriting any identically-named
+     * properties.
+     *
+     * @param key   The key to store the object under.
+     * @param value The object to store.
+     * @return A future completed once the value has been stored.
+     */
+    public CompletableFuture<Void> put(String key, Object value) {
+        return submit(p -> p.put(key, value));
+    }
+
+    /**
+     * Stores a string in the preferences, overwriting any identically-named
+     * properties.
+     *
+     * @param key   The key to store the string under.
+     * @param value The string to store.
+     * @return A future completed once the value has been stored.
+     */
+    public CompletableFuture<Void> put(String key, String value) {
+        return submit(p -> p.put(key, value));
+    }
+
+    /**
+     * Produces a list of all stored keys.
+     *
+     * @return A list of keys for all preferences currently stored.
+     */
+    public List<String> getKeys() {
+        return delegate.getKeys();
+    }
+
+    /**
+     * Reads the stored value for an <code>boolean</code> preference.
+     *
+     * @param key The key that the preference is stored under.
+     * @param def The default value to return if a setting is not found for the
+     *            given key.
+     * @return The value stored for the preference, or the default value on
+     * failure.
+     */
+    public boolean getBoolean(String key, boolean def) {
+        return delegate.getBoolean(key, def);
+    }
+
+    /**
+     * Reads the stored value for an <code>double</code> preference.
+     *
+     * @param key The key that the preference is stored under.
+     * @param def The default value to return if a setting is not found for the
+     *            given key.
+     * @return The value stored for the preference, or the default value on
+     * failure.
+     */
+    public double getDouble(String key, double def) {
+        return delegate.getDouble(key, def);
+    }
+
+    /**
+     * Reads the stored value for an <code>float</code> preference.
+     *
+     * @param key The key that the preference is stored under.
+     * @param def The default value to return if a setting is not found for the
+     *            given key.
+     * @return The value stored for the preference, or the default value on
+     * failure.
+     */
+    public float getFloat(String key, float def) {
+        return delegate.getFloat(key, def);
+    }
+
+    /**
+     * Reads the stored value for an <code>int</code> preference.
+     *
+     * @param key The key that the preference is stored under.
+     * @param def The default value to return if a setting is not found for the
+     *            given key.
+     * @return The value stored for the preference, or the default value on
+     * failure.
+     */
+    public int getInt(String key, int def) {
+        return delegate.getInt(key, def);
+    }
+
+    /**
+     * Reads the stored value for a <code>long</code> preference.
+     *
+     * @param key The key that the preference is stored under.
+     * @param def The default value to return if a setting is not found for the
+     *            given key.
+     * @return The value stored for the preference, or the default value on
+     * failure.
+     */
+    public long getLong(String key, long def) {
+        return delegate.getLong(key, def);
+    }
+
+    /**
+     * Reads the stored value for a String preference.
+     *
+     * @param key The key that the preference is stored under.
+     * @param def The default value to return if a setting is not found for the
+     *            given key.
+     * @return The value stored for the preference, or the default value on
+     * failure.
+     */
+    public String getString(String key, String def) {
+        return delegate.getString(key, def);
+    }
+
+    /**
+     * Reads the stored value for an Object preference.
+     *
+     * @param key The key that the preference is stored under.
+     * @param def The default value to return if a setting is not found for the
+     *            given key.
+     * @return The value stored for the preference, or the default value on
+     * failure.
+     */
+    public Object getObject(String key, Object def) {
+        return delegate.getObject(key, def);
+    }
+
+    /**
+     * A queued change, and the future that it completes.
+     */
+    private final class Task implements Runnable {
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        private final Consumer<IPreferences> change;
+
+        Task(Consumer<IPreferences> change) {
+            this.change = change;
+        }
+
+        @Override
+        public void run() {
+            try {
+                change.accept(delegate);
+                future.complete(null);
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        }
+    }
+}
@@ -0,0 +1,289 @@
+/*
+ * Copyright 2026 Ethan Ruffing
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ethanruffing.preferenceabstraction;
+
+import org.apache.commons.configuration.AbstractFileConfiguration;
+import org.apache.commons.configuration.ConfigurationException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A configuration whose file is never rewritten in place. Each save writes
+ * the whole file to a temporary file beside it, forces it to disk, and then
+ * renames it over the original, so that a crash leaves either the old file or
+ * the new one, and never a truncated mix.
+ * <p>
+ * Saving is split into taking a {@link Snapshot} of the values, which must be
+ * done while holding the lock that guards changes, and {@link
+ * #write(Snapshot) writing} it, which need not be. Snapshots are numbered, and
+ * one is never written over a newer one, so writes that finish out of order
+ * cannot lose changes. Changes do not trigger saves by themselves, even with
+ * auto-save enabled; that is left to a {@link GroupCommitter}.
+ * <p>
+ * The modification time and length of the file are recorded whenever it is
+ * read or written, so that it can be told whether the file has since been
+ * changed by other means.
+ *
+ * @author Ethan Ruffing
+ * @since 2026-10-18
+ */
+abstract class AtomicFileConfiguration extends AbstractFileConfiguration {
+    /**
+     * Guards writing and deleting the file, and the snapshot numbers.
+     */
+    private final Object writeLock = new Object();
+    private long taken;
+    private long written;
+    private long fileModified = -1;
+    private long fileLength = -1;
+
+    /**
+     * Serializes the current values.
+     *
+     * @return The snapshot.
+     * @throws ConfigurationException Thrown if the values cannot be
+     *                                serialized.
+     */
+    Snapshot snapshot() throws ConfigurationException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
+        save(out);
+        synchronized (writeLock) {
+            return new Snapshot(out.toByteArray(), ++taken);
+        }
+    }
+
+    /**
+     * Replaces the file with a snapshot, unless a newer snapshot has already
+     * been written or the file has since been deleted.
+     *
+     * @param snapshot The snapshot.
+     * @throws ConfigurationException Thrown if the file cannot be written.
+     */
+    void write(Snapshot snapshot) throws ConfigurationException {
+        File file = getFile();
+        File tmp = new File(file.getPath() + ".tmp");
+        synchronized (writeLock) {
+            if (snapshot.number <= written)
+                return;
+            try {
+                File dir = file.getAbsoluteFile().getParentFile();
+                if (dir != null)
+                    dir.mkdirs();
+                try (FileOutputStream out = new FileOutputStream(tmp)) {
+                    out.write(snapshot.data);
+                    out.getFD().sync();
+                }
+                try {
+                    Files.move(tmp.toPath(), file.toPath(),
+                            StandardCopyOption.REPLACE_EXISTING,
+                            StandardCopyOption.ATOMIC_MOVE
+                    );
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(tmp.toPath(), file.toPath(),
+                            StandardCopyOption.REPLACE_EXISTING);
+                }
+                written = snapshot.number;
+                fileModified = file.lastModified();
+                fileLength = file.length();
+                syncDirectory(dir);
+            } catch (IOException e) {
+                tmp.delete();
+                throw new ConfigurationException("Unable to write " + file, e);
+            }
+        }
+    }
+
+    /**
+     * @return The number that the next snapshot taken will have, and so the
+     * first that will include a change made now. Must be called while
+     * holding the lock guarding changes to the configuration.
+     */
+    long nextSnapshot() {
+        synchronized (writeLock) {
+            return taken + 1;
+        }
+    }
+
+    /**
+     * @return The number of the newest snapshot written, or discarded by
+     * {@link #delete()}.
+     */
+    long lastWritten() {
+        synchronized (writeLock) {
+            return written;
+        }
+    }
+
+    /**
+     * Forces a rename within a directory to disk, where the platform allows
+     * directories to be opened.
+     *
+     * @param dir The directory.
+     */
+    private static void syncDirectory(File dir) {
+        if (dir == null)
+            return;
+        try (FileChannel channel = FileChannel.open(dir.toPath(),
+                StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Not supported on this platform; the rename is still atomic.
+        }
+    }
+
+    /**
+     * Deletes the file, and discards any snapshot taken so far rather than
+     * writing it later.
+     */
+    void delete() {
+        synchronized (writeLock) {
+            written = taken;
+            fileModified = -1;
+            fileLength = -1;
+            getFile().delete();
+        }
+    }
+
+    /**
+     * Reads the file, recording its modification time and length as they
+     * were beforehand, so that a change made while reading it is not missed.
+     *
+     * @throws ConfigurationException Thrown if the file cannot be read.
+     */
+    @Override
+    public void load() throws ConfigurationException {
+        File file = getFile();
+        long modified = file.lastModified();
+        long length = file.length();
+        super.load();
+        setFileState(modified, length);
+    }
+
+    /**
+     * Starts filling the configuration from outside the file, during which
+     * values are added as though read from the file, without checking
+     * whether it needs reloading each time. Must be followed by {@link
+     * #endFill()}.
+     */
+    void beginFill() {
+        enterNoReload();
+    }
+
+    /**
+     * Adds a value read from outside the file, without the events that a
+     * change made through {@link #addProperty(String, Object)} fires. Must be
+     * called between {@link #beginFill()} and {@link #endFill()}.
+     *
+     * @param key   The key.
+     * @param value The value.
+     */
+    void addLoaded(String key, Object value) {
+        addPropertyDirect(key, value);
+    }
+
+    /**
+     * Finishes filling the configuration, as started by {@link
+     * #beginFill()}.
+     */
+    void endFill() {
+        exitNoReload();
+    }
+
+    /**
+     * Records the modification time and length of the file as of the values
+     * now held, such as when they have been filled from a {@link
+     * StartupSnapshot} of the file.
+     *
+     * @param modified The modification time.
+     * @param length   The length.
+     */
+    void setFileState(long modified, long length) {
+        synchronized (writeLock) {
+            fileModified = modified;
+            fileLength = length;
+        }
+    }
+
+    /**
+     * @return The modification time of the file as of the values held, or
+     * <code>-1</code> if they do not match the file.
+     * @see #isFileUnchanged()
+     */
+    long getFileModified() {
+        synchronized (writeLock) {
+            return fileModified;
+        }
+    }
+
+    /**
+     * @return The length of the file as of the values held.
+     */
+    long getFileLength() {
+        synchronized (writeLock) {
+            return fileLength;
+        }
+    }
+
+    /**
+     * @return Whether the file exists and is as it was when last read or
+     * written, as far as its modification time and length show.
+     */
+    boolean isFileUnchanged() {
+        File file = getFile();
+        synchronized (writeLock) {
+            return fileModified >= 0 && file.exists()
+                    && file.lastModified() == fileModified
+                    && file.length() == fileLength;
+        }
+    }
+
+    /**
+     * Writes the file atomically.
+     *
+     * @throws ConfigurationException Thrown if the file cannot be written.
+     */
+    @Override
+    public void save() throws ConfigurationException {
+        write(snapshot());
+    }
+
+    @Override
+    protected void possiblySave() {
+        // Left to the GroupCommitter, once the caller has released its lock.
+    }
+
+    /**
+     * The serialized values of a configuration at a point in time.
+     */
+    static final class Snapshot {
+        final byte[] data;
+        final long number;
+
+        Snapshot(byte[] data, long number) {
+            this.data = data;
+            this.number = number;
+        }
+    }
+}
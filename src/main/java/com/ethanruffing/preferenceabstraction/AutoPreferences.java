@@ -18,15 +18,38 @@ package com.ethanruffing.preferenceabstraction;
 
 import org.apache.commons.collections.IteratorUtils;
 import org.apache.commons.configuration.ConfigurationException;
+import org.apache.commons.configuration.ConfigurationRuntimeException;
 import org.apache.commons.configuration.FileConfiguration;
-import org.apache.commons.configuration.XMLConfiguration;
 
 import java.io.*;
+import java.nio.channels.ClosedChannelException;
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.prefs.BackingStoreException;
+import java.util.prefs.PreferenceChangeListener;
 import java.util.prefs.Preferences;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * This class provides a layer of abstraction over the possible methods for
@@ -36,47 +59,142 @@ import java.util.prefs.Preferences;
  * <p>
  * Note: Per convention, preferences are separated by package. Therefore,
  * preferences for multiple classes in the same package will be stored together,
- * and may overwrite one another.
+ * and may overwrite one another. Obtain stores through {@link
+ * #forClass(Class)} to have such classes share a single instance.
  * <p>
- * Note that the only format currently supported for file-based storage is XML.
+ * File-based stores can be kept as XML, Java properties, JSON or a binary log;
+ * see {@link FileFormat}. Unless a format is given, it is taken from the
+ * extension of an existing file, and a new file is written as XML.
+ * <p>
+ * File-based stores are rewritten on every change by default. Text files are
+ * replaced atomically, by writing a temporary file, forcing it to disk and
+ * renaming it, and changes made concurrently by several threads are written
+ * together, so that a change has reached the disk once the method making
+ * it returns, without costing a write of its own. If the write fails, that
+ * method, and every other whose change the write included, throws a {@link
+ * ConfigurationRuntimeException}; the change is then kept in memory and
+ * written with the next change that succeeds. Call {@link
+ * #enableWriteBehind(long, TimeUnit, int)} to coalesce changes into periodic
+ * writes instead, and {@link #close()} the store when done with it so that no
+ * pending changes are lost. Call {@link #enableWatch(long, TimeUnit)} to pick
+ * up changes made to a text file by other processes, and {@link
+ * #enableMultiProcess(long, TimeUnit)} to have several processes write it
+ * without losing one another's changes.
+ * <p>
+ * Numeric and boolean values in file-based stores are parsed once, on the
+ * first read, and kept in parsed form until they are changed, so that
+ * repeated reads are cheap.
+ * <p>
+ * Stores created by {@link #lazy(Class)} only load their backing store on
+ * first use, and can be loaded ahead of time in the background with {@link
+ * #preload(AutoPreferences...)}.
  *
  * @author Ethan Ruffing
  * @since 2016-02-17
  */
-public class AutoPreferences implements IPreferences {
+public class AutoPreferences implements IPreferences, Closeable {
+    /**
+     * The Base64 form of the header that starts every Java serialization
+     * stream, used to recognise serialized objects in the system store.
+     */
+    private static final String SERIALIZED_PREFIX = "rO0AB";
+
+    /**
+     * The number of decoded objects that the system store caches by default.
+     */
+    private static final int DEFAULT_OBJECT_CACHE_SIZE = 128;
+
+    /**
+     * The shared instances handed out by {@link #forClass(Class,
+     * ConfigurationType)}, by package and storage system.
+     */
+    private static final Map<String, AutoPreferences> REGISTRY =
+            new HashMap<>();
+
+    /**
+     * The storage system chosen by {@link #forClass(Class)} for each package.
+     */
+    private static final Map<String, ConfigurationType> DETECTED_TYPES =
+            new ConcurrentHashMap<>();
+
     private Class<?> prefsFor;
     private FileConfiguration fileConfig;
     private Preferences prefs;
+    private ChunkedValues chunks;
     private ConfigurationType configType;
+    private FileFormat format;
+    private final Object loadLock = new Object();
+    private volatile boolean loaded;
+    private final Object fileLock = new Object();
+    private final StoreMetrics metrics = new StoreMetrics();
+    private final CodecRegistry codecs = new CodecRegistry(metrics);
+    private final ObjectCache objects =
+            new ObjectCache(DEFAULT_OBJECT_CACHE_SIZE);
+    private final ValueIndex index = new ValueIndex();
+    private final KeyIndex sortedKeys = new KeyIndex(
+            () -> IteratorUtils.toList(fileConfig().getKeys()));
+    private final ChangeDispatcher dispatcher =
+            new ChangeDispatcher(BackgroundTasks.EVENTS, metrics::error);
+
+    /**
+     * The number of change events still to be delivered by the system store
+     * for changes made through this instance, by key. Only tracked while
+     * {@link #invalidator} is registered.
+     */
+    private final Map<String, Integer> ownEvents = new HashMap<>();
+    private boolean bridged;
+    private final PreferenceChangeListener invalidator = evt -> {
+        String key = evt.getKey();
+        if (isOwnEvent(key))
+            return;
+        dispatcher.changed(key);
+    };
+    private volatile boolean snapshots;
+    private GroupCommitter committer;
+    private WriteBehindFlusher flusher;
+    private FileWatcher watcher;
+    private volatile SharedFile shared;
+
+    /**
+     * The keys changed since the file was last written, in multi-process
+     * mode; guarded by the file lock.
+     */
+    private Set<String> unsynced;
+
+    /**
+     * The keys changed since the earliest reload still in progress began
+     * reading the file, or <code>null</code> if none is; guarded by the file
+     * lock.
+     */
+    private Set<String> reloadChanged;
+    private int reloads;
+
+    /**
+     * The keys changed while watching the file, each with the number of the
+     * first snapshot of the file that includes the change, until it has been
+     * written; guarded by the file lock.
+     */
+    private final Map<String, Long> unwritten = new HashMap<>();
+    private String registryKey;
+    private int references;
 
     /**
      * Constructs a new preferences tracker for the given class, defaulting to
      * the system's native preferences storage system if no higher priority type
-     * is found. Defaults to look for an XML file.
+     * is found. Looks for a file in any {@link FileFormat}, defaulting to XML.
      *
      * @param c The class for which the preferences are to be stored.
      * @throws ConfigurationException Thrown if an error occurs while loading
      *                                the configuration file.
      */
     public AutoPreferences(Class<?> c) throws ConfigurationException {
-        prefs = null;
-        fileConfig = null;
-        if (new File(c.getPackage().getName() + ".xml").exists()) {
-            setup(c, ConfigurationType.LOCAL);
-        } else if (new File(
-                System.getProperty("user.home"),
-                c.getPackage().getName() + ".xml"
-        ).exists()) {
-            setup(c, ConfigurationType.HOME);
-        } else {
-            setup(c, ConfigurationType.SYSTEM);
-        }
+        this(c, detectType(c));
     }
 
     /**
      * Constructs a new preferences tracker for the given class, forcing use of
-     * the specified storage system. Defaults to using an XML file if using
-     * file-based storage.
+     * the specified storage system. If using file-based storage, the format is
+     * taken from the extension of an existing file, defaulting to XML.
      *
      * @param c          The class for which the preferences are to be stored.
      * @param configType The storage system to use for the preferences.
@@ -85,394 +203,2467 @@ public class AutoPreferences implements IPreferences {
      */
     public AutoPreferences(Class<?> c, ConfigurationType configType)
             throws ConfigurationException {
-        prefs = null;
-        fileConfig = null;
-        setup(c, configType);
+        this(c, configType, detectFormat(c, configType), true);
+    }
+
+    /**
+     * Constructs a new preferences tracker for the given class, forcing use of
+     * the specified storage system and file format. The format is ignored for
+     * {@link ConfigurationType#SYSTEM} stores, and {@link
+     * ConfigurationType#BINARY} stores always use {@link FileFormat#BINARY}.
+     *
+     * @param c          The class for which the preferences are to be stored.
+     * @param configType The storage system to use for the preferences.
+     * @param format     The format of the preferences file.
+     * @throws ConfigurationException Thrown if an error occurs while loading
+     *                                the configuration file.
+     */
+    public AutoPreferences(Class<?> c, ConfigurationType configType,
+                           FileFormat format) throws ConfigurationException {
+        this(c, configType, format, true);
     }
 
     /**
-     * Sets this up for the given class, forcing use of the specified storage
-     * system. Defaults to using an XML file if using file-based storage.
+     * Constructs a new preferences tracker for the given class, forcing use of
+     * the specified storage system.
      *
      * @param c          The class for which the preferences are to be stored.
      * @param configType The storage system to use for the preferences.
+     * @param format     The format of the preferences file.
+     * @param load       Whether to load the backing store now, rather than on
+     *                   first use.
      * @throws ConfigurationException Thrown if an error occurs while loading
      *                                the configuration file.
      */
-    private void setup(Class<?> c, ConfigurationType configType)
+    private AutoPreferences(Class<?> c, ConfigurationType configType,
+                            FileFormat format, boolean load)
             throws ConfigurationException {
         prefsFor = c;
         this.configType = configType;
         switch (configType) {
-            case LOCAL:
-                fileConfig = new XMLConfiguration(new File(
-                        c.getPackage().getName() + ".xml"));
-                fileConfig.setAutoSave(true);
-                ((XMLConfiguration) fileConfig).setDelimiterParsingDisabled
-                        (true);
-            case HOME:
-                fileConfig = new XMLConfiguration(new File(
-                        System.getProperty("user.home"),
-                        "." + c.getPackage().getName() + ".xml"
-                ));
-                fileConfig.setAutoSave(true);
-                ((XMLConfiguration) fileConfig).setDelimiterParsingDisabled
-                        (true);
-                break;
             case SYSTEM:
-                prefs = Preferences.userNodeForPackage(c);
+                this.format = null;
+                break;
+            case BINARY:
+                this.format = FileFormat.BINARY;
+                break;
+            default:
+                if (format == null)
+                    throw new NullPointerException("format");
+                this.format = format;
                 break;
         }
+        metrics.setType(configType);
+        if (load)
+            open();
     }
 
     /**
-     * Migrates the settings to a new storage location.
+     * Constructs a new preferences tracker for the given class that does not
+     * touch its backing store until it is first used, determining the storage
+     * system as {@link #AutoPreferences(Class)} does. This keeps start-up
+     * cheap for components that may never read their preferences.
+     * <p>
+     * Any error loading the store is thrown from the first method to use it,
+     * as a {@link ConfigurationRuntimeException}. Call {@link #load()} or
+     * {@link #preload(AutoPreferences...)} to load it at a time of your
+     * choosing instead.
      *
-     * @param destination The type of configuration that the preferences should
-     *                    be moved to.
-     * @return The converted preference store.
-     * @throws PreferenceMigrationException Thrown if an error occurs while
-     *                                      migrating the preferences.
+     * @param c The class for which the preferences are to be stored.
+     * @return The store, not yet loaded.
      */
-    public AutoPreferences convert(ConfigurationType destination)
-            throws PreferenceMigrationException {
-        try {
-            AutoPreferences ap = new AutoPreferences(prefsFor, destination);
-            getKeys().forEach(key -> ap.put(key, getString(key, "")));
-            return ap;
-        } catch (ConfigurationException e) {
-            throw new PreferenceMigrationException(e);
-        }
+    public static AutoPreferences lazy(Class<?> c) {
+        return lazy(c, detectType(c));
     }
 
     /**
-     * Deletes all preferences stored for the class.
+     * Constructs a new preferences tracker for the given class that does not
+     * touch its backing store until it is first used, forcing use of the
+     * specified storage system.
+     *
+     * @param c          The class for which the preferences are to be stored.
+     * @param configType The storage system to use for the preferences.
+     * @return The store, not yet loaded.
+     * @see #lazy(Class)
      */
-    @Override
-    public void clear() {
-        if (configType == ConfigurationType.SYSTEM) {
-            try {
-                prefs.clear();
-            } catch (BackingStoreException e) {
-                e.printStackTrace();
-            }
-        } else {
-            fileConfig.clear();
-            fileConfig.getFile().delete();
-        }
+    public static AutoPreferences lazy(Class<?> c,
+                                       ConfigurationType configType) {
+        return lazy(c, configType, detectFormat(c, configType));
     }
 
     /**
-     * Produces a list of all stored keys.
+     * Constructs a new preferences tracker for the given class that does not
+     * touch its backing store until it is first used, forcing use of the
+     * specified storage system and file format.
      *
-     * @return A list of keys for all preferences currently stored.
+     * @param c          The class for which the preferences are to be stored.
+     * @param configType The storage system to use for the preferences.
+     * @param format     The format of the preferences file.
+     * @return The store, not yet loaded.
+     * @see #lazy(Class)
+     * @see #AutoPreferences(Class, ConfigurationType, FileFormat)
      */
-    @Override
-    public List<String> getKeys() {
-        if (configType == ConfigurationType.SYSTEM) {
-            try {
-                return Arrays.asList(prefs.keys());
-            } catch (BackingStoreException e) {
-                e.printStackTrace();
-                return new ArrayList<String>();
-            }
-        } else {
-            return IteratorUtils.toList(fileConfig.getKeys());
+    public static AutoPreferences lazy(Class<?> c,
+                                       ConfigurationType configType,
+                                       FileFormat format) {
+        try {
+            return new AutoPreferences(c, configType, format, false);
+        } catch (ConfigurationException e) {
+            // Only thrown when loading.
+            throw new IllegalStateException(e);
         }
     }
 
     /**
-     * Stores a boolean in the preferences, overwriting any identically-named
-     * properties.
+     * Loads the backing store of each of the given stores that has not been
+     * loaded yet, concurrently, on a shared pool of background threads.
      *
-     * @param key   The key to store the boolean under.
-     * @param value The boolean to store.
+     * @param stores The stores to load.
+     * @return A future completed once every store has been loaded, or
+     * completed exceptionally if any failed to load.
+     * @see #lazy(Class)
      */
-    @Override
-    public void put(String key, boolean value) {
-        if (configType == ConfigurationType.SYSTEM)
-            prefs.putBoolean(key, value);
-        else
-            fileConfig.setProperty(key, value);
+    public static CompletableFuture<Void> preload(AutoPreferences... stores) {
+        return preload(BackgroundTasks.IO, stores);
     }
 
     /**
-     * Stores a byte array in the preferences, overwriting any identically-named
-     * properties.
+     * Loads the backing store of each of the given stores that has not been
+     * loaded yet, concurrently, on the given executor.
      *
-     * @param key   The key to store the byte array under.
-     * @param value The byte array to store.
+     * @param executor The executor to load the stores on.
+     * @param stores   The stores to load.
+     * @return A future completed once every store has been loaded, or
+     * completed exceptionally if any failed to load.
+     * @see #lazy(Class)
      */
-    @Override
-    public void put(String key, byte[] value) {
-        if (configType == ConfigurationType.SYSTEM)
-            prefs.putByteArray(key, value);
-        else
-            fileConfig.setProperty(key, value);
+    public static CompletableFuture<Void> preload(Executor executor,
+                                                  AutoPreferences... stores) {
+        CompletableFuture<?>[] loads = new CompletableFuture<?>[stores.length];
+        for (int i = 0; i < stores.length; i++)
+            loads[i] = CompletableFuture.runAsync(stores[i]::load, executor);
+        return CompletableFuture.allOf(loads);
     }
 
     /**
-     * Stores a double in the preferences, overwriting any identically-named
-     * properties.
-     *
-     * @param key   The key to store the double under.
-     * @param value The double to store.
+     * @return Whether the backing store has been loaded.
      */
-    @Override
-    public void put(String key, double value) {
-        if (configType == ConfigurationType.SYSTEM)
-            prefs.putDouble(key, value);
-        else
-            fileConfig.setProperty(key, value);
+    public boolean isLoaded() {
+        return loaded;
     }
 
     /**
-     * Stores a float in the preferences, overwriting any identically-named
-     * properties.
+     * Loads the backing store now, if it has not been loaded yet. Only needed
+     * for stores created by {@link #lazy(Class)}, which otherwise load on
+     * first use.
      *
-     * @param key   The key to store the float under.
-     * @param value The float to store.
+     * @throws ConfigurationRuntimeException Thrown if an error occurs while
+     *                                       loading the configuration file.
      */
-    @Override
-    public void put(String key, float value) {
-        if (configType == ConfigurationType.SYSTEM)
-            prefs.putFloat(key, value);
-        else
-            fileConfig.setProperty(key, value);
+    public void load() {
+        if (loaded)
+            return;
+        try {
+            open();
+        } catch (ConfigurationException e) {
+            throw new ConfigurationRuntimeException(e);
+        }
     }
 
     /**
-     * Stores an integer in the preferences, overwriting any identically-named
-     * properties.
+     * Loads the backing store, if it has not been loaded yet.
      *
-     * @param key   The key to store the int under.
-     * @param value The int to store.
+     * @throws ConfigurationException Thrown if an error occurs while loading
+     *                                the configuration file.
      */
-    @Override
-    public void put(String key, int value) {
-        if (configType == ConfigurationType.SYSTEM)
-            prefs.putInt(key, value);
-        else
-            fileConfig.setProperty(key, value);
+    private void open() throws ConfigurationException {
+        synchronized (loadLock) {
+            if (loaded)
+                return;
+            long start = metrics.start();
+            if (configType == ConfigurationType.SYSTEM) {
+                prefs = Preferences.userNodeForPackage(prefsFor);
+                chunks = new ChunkedValues(prefs, metrics);
+                // Changes synced in from other processes raise no events,
+                // so parsed values could not be kept up to date.
+                index.disable();
+            } else {
+                File file = file(prefsFor, configType, format);
+                fileConfig = snapshots ? fromSnapshot(file) : null;
+                if (fileConfig == null)
+                    fileConfig = format.open(file, codecs, metrics);
+                fileConfig.setAutoSave(true);
+                if (fileConfig instanceof AtomicFileConfiguration)
+                    committer = new GroupCommitter(
+                            (AtomicFileConfiguration) fileConfig, fileLock,
+                            metrics
+                    );
+            }
+            loaded = true;
+            metrics.operation(PreferenceMetrics.Operation.LOAD, start);
+        }
     }
 
     /**
-     * Stores a long in the preferences, overwriting any identically-named
-     * properties.
+     * Fills a configuration from the startup snapshot of a file, if there is
+     * one and the file has not been changed since it was taken.
      *
-     * @param key   The key to store the long under.
-     * @param value The long to store.
+     * @param file The file.
+     * @return The configuration, or <code>null</code> if the snapshot cannot
+     * be used.
+     * @throws ConfigurationException Thrown if the configuration cannot be
+     *                                created.
      */
-    @Override
-    public void put(String key, long value) {
-        if (configType == ConfigurationType.SYSTEM)
-            prefs.putLong(key, value);
-        else
-            fileConfig.setProperty(key, value);
+    private FileConfiguration fromSnapshot(File file)
+            throws ConfigurationException {
+        AtomicFileConfiguration config = format.empty(file);
+        if (config == null)
+            return null;
+        try {
+            if (StartupSnapshot.read(config, codecs))
+                return config;
+        } catch (IOException e) {
+            metrics.error(e);
+        }
+        return null;
     }
 
     /**
-     * Stores any object in the preferences, overwriting any identically-named
-     * properties.
+     * Keeps a snapshot of this store's values beside its file, from which the
+     * store can be started again without parsing the file. This makes
+     * loading close to free for short-lived processes, such as command-line
+     * tools, that start many times while their preferences rarely change.
      * <p>
-     * Note: Do not abuse this method. Many backends are not intended for
-     * storing large data chunks and can be severely inhibited by doing so.
-     *
-     * @param key   The key to store the object under.
-     * @param value The object to store.
+     * The snapshot is taken when the store is {@link #close() closed}, and is
+     * used when it is next loaded, as long as the file has not been changed
+     * since, such as by another process; otherwise, the file is read as
+     * usual. For the snapshot to be used, this must be called before the
+     * store is loaded, as on a store created by {@link #lazy(Class)}.
+     * <p>
+     * Only stores kept in text-based {@link FileFormat formats} have
+     * snapshots, as the others gain nothing from them; for other stores,
+     * this has no effect.
      */
-    @Override
-    public void put(String key, Object value) {
-        if (configType == ConfigurationType.SYSTEM) {
-            // Translate to a byte array.
-            ByteArrayOutputStream bos = new ByteArrayOutputStream();
-            ObjectOutput out = null;
+    public void enableSnapshot() {
+        snapshots = true;
+    }
+
+    /**
+     * Takes a snapshot of the values of a store kept in a text-based file,
+     * if snapshots have been enabled.
+     */
+    private void writeSnapshot() {
+        if (!snapshots || !(fileConfig instanceof AtomicFileConfiguration))
+            return;
+        synchronized (fileLock) {
             try {
-                out = new ObjectOutputStream(bos);
-                out.writeObject(value);
-                put(key, bos.toByteArray());
+                StartupSnapshot.write((AtomicFileConfiguration) fileConfig,
+                        codecs);
             } catch (IOException e) {
-                e.printStackTrace();
-            } finally {
-                try {
-                    if (out != null) {
-                        out.close();
-                    }
-                } catch (IOException ex) {
-                    // ignore close exception
-                }
-                try {
-                    bos.close();
-                } catch (IOException ex) {
-                    // ignore close exception
-                }
+                metrics.error(e);
             }
-        } else {
-            fileConfig.setProperty(key, value);
         }
     }
 
     /**
-     * Stores a string in the preferences, overwriting any identically-named
-     * properties.
-     *
-     * @param key   The key to store the string under.
-     * @param value The string to store.
+     * @return The file-based configuration, loaded if necessary.
      */
-    @Override
-    public void put(String key, String value) {
-        if (configType == ConfigurationType.SYSTEM)
-            prefs.put(key, value);
-        else
-            fileConfig.setProperty(key, value);
+    private FileConfiguration fileConfig() {
+        if (!loaded)
+            load();
+        return fileConfig;
     }
 
     /**
-     * Reads the stored value for an <code>boolean</code> preference.
-     *
-     * @param key The key that the preference is stored under.
-     * @param def The default value to return if a setting is not found for the
-     *            given key.
-     * @return The value stored for the preference, or the default value on
-     * failure.
+     * @return The system preferences node, loaded if necessary.
      */
-    @Override
-    public boolean getBoolean(String key, boolean def) {
-        if (configType == ConfigurationType.SYSTEM)
-            return prefs.getBoolean(key, def);
-        else
-            return fileConfig.getBoolean(key, def);
+    private Preferences prefs() {
+        if (!loaded)
+            load();
+        return prefs;
     }
 
     /**
-     * Reads the stored value for an <code>double</code> preference.
-     *
-     * @param key The key that the preference is stored under.
-     * @param def The default value to return if a setting is not found for the
-     *            given key.
-     * @return The value stored for the preference, or the default value on
-     * failure.
+     * @return The byte arrays in the system preferences node, loaded if
+     * necessary.
      */
-    @Override
-    public double getDouble(String key, double def) {
-        if (configType == ConfigurationType.SYSTEM)
-            return prefs.getDouble(key, def);
-        else
-            return fileConfig.getDouble(key, def);
+    private ChunkedValues chunks() {
+        if (!loaded)
+            load();
+        return chunks;
     }
 
     /**
-     * Reads the stored value for an <code>float</code> preference.
+     * Returns the shared preference store for the given class's package,
+     * determining the storage system as {@link #AutoPreferences(Class)} does.
+     * The storage system is only determined on the first call for a package.
      *
-     * @param key The key that the preference is stored under.
-     * @param def The default value to return if a setting is not found for the
-     *            given key.
-     * @return The value stored for the preference, or the default value on
-     * failure.
+     * @param c The class for which the preferences are to be stored.
+     * @return The shared store, which should be {@link #close() closed} by the
+     * caller once it is no longer needed.
+     * @throws ConfigurationException Thrown if an error occurs while loading
+     *                                the configuration file.
+     * @see #forClass(Class, ConfigurationType)
      */
-    @Override
-    public float getFloat(String key, float def) {
-        if (configType == ConfigurationType.SYSTEM)
-            return prefs.getFloat(key, def);
-        else
-            return fileConfig.getFloat(key, def);
+    public static AutoPreferences forClass(Class<?> c)
+            throws ConfigurationException {
+        ConfigurationType type = DETECTED_TYPES.get(c.getPackage().getName());
+        if (type == null) {
+            type = detectType(c);
+            DETECTED_TYPES.putIfAbsent(c.getPackage().getName(), type);
+        }
+        return forClass(c, type);
     }
 
     /**
-     * Reads the stored value for an <code>int</code> preference.
+     * Returns the shared preference store for the given class's package and
+     * storage system, creating it on the first call.
+     * <p>
+     * Every class in a package shares a single instance, rather than each
+     * loading its own copy of the preferences and overwriting the others'
+     * changes when saving. The instance is reference-counted, and is released
+     * once every caller has {@link #close() closed} it.
      *
-     * @param key The key that the preference is stored under.
-     * @param def The default value to return if a setting is not found for the
-     *            given key.
-     * @return The value stored for the preference, or the default value on
-     * failure.
+     * @param c          The class for which the preferences are to be stored.
+     * @param configType The storage system to use for the preferences.
+     * @return The shared store, which should be closed by the caller once it
+     * is no longer needed.
+     * @throws ConfigurationException Thrown if an error occurs while loading
+     *                                the configuration file.
      */
-    @Override
-    public int getInt(String key, int def) {
-        if (configType == ConfigurationType.SYSTEM)
-            return prefs.getInt(key, def);
-        else
-            return fileConfig.getInt(key, def);
+    public static AutoPreferences forClass(Class<?> c,
+                                           ConfigurationType configType)
+            throws ConfigurationException {
+        String key = c.getPackage().getName() + ":" + configType;
+        synchronized (REGISTRY) {
+            AutoPreferences ap = REGISTRY.get(key);
+            if (ap == null) {
+                ap = new AutoPreferences(c, configType);
+                ap.registryKey = key;
+                REGISTRY.put(key, ap);
+            }
+            ap.references++;
+            return ap;
+        }
     }
 
     /**
-     * Reads the stored value for a <code>long</code> preference.
+     * Determines which storage system to use for a class, in order of
+     * priority.
      *
-     * @param key The key that the preference is stored under.
-     * @param def The default value to return if a setting is not found for the
-     *            given key.
-     * @return The value stored for the preference, or the default value on
-     * failure.
+     * @param c The class for which the preferences are to be stored.
+     * @return The storage system to use.
      */
-    @Override
-    public long getLong(String key, long def) {
-        if (configType == ConfigurationType.SYSTEM)
-            return prefs.getLong(key, def);
+    private static ConfigurationType detectType(Class<?> c) {
+        if (detectFile(c, ConfigurationType.LOCAL) != null)
+            return ConfigurationType.LOCAL;
+        else if (detectFile(c, ConfigurationType.HOME) != null)
+            return ConfigurationType.HOME;
+        else if (file(c, ConfigurationType.HOME, FileFormat.BINARY).exists())
+            return ConfigurationType.BINARY;
         else
-            return fileConfig.getLong(key, def);
+            return ConfigurationType.SYSTEM;
     }
 
     /**
-     * Reads the stored value for a String preference.
+     * Determines which file format to use for a class's file-based store.
      *
-     * @param key The key that the preference is stored under.
-     * @param def The default value to return if a setting is not found for the
-     *            given key.
-     * @return The value stored for the preference, or the default value on
-     * failure.
+     * @param c    The class for which the preferences are to be stored.
+     * @param type The storage system used for the preferences.
+     * @return The format of an existing preferences file, {@link
+     * FileFormat#XML} if there is none, or <code>null</code> for {@link
+     * ConfigurationType#SYSTEM}.
      */
-    @Override
-    public String getString(String key, String def) {
-        if (configType == ConfigurationType.SYSTEM)
-            return prefs.get(key, def);
-        else
-            return fileConfig.getString(key, def);
+    private static FileFormat detectFormat(Class<?> c,
+                                           ConfigurationType type) {
+        switch (type) {
+            case SYSTEM:
+                return null;
+            case BINARY:
+                return FileFormat.BINARY;
+            default:
+                FileFormat format = detectFile(c, type);
+                return format == null ? FileFormat.XML : format;
+        }
     }
 
     /**
-     * Reads the stored value for an Object preference.
+     * Looks for an existing preferences file in each format, in order.
      *
-     * @param key The key that the preference is stored under.
-     * @param def The default value to return if a setting is not found for the
-     *            given key.
+     * @param c    The class for which the preferences are to be stored.
+     * @param type {@link ConfigurationType#LOCAL} or {@link
+     *             ConfigurationType#HOME}.
+     * @return The format of the first file found, or <code>null</code> if
+     * there is none.
+     */
+    private static FileFormat detectFile(Class<?> c, ConfigurationType type) {
+        for (FileFormat format : FileFormat.values()) {
+            // A binary log in the home directory is a BINARY store.
+            if (type == ConfigurationType.HOME
+                    && format == FileFormat.BINARY)
+                continue;
+            if (file(c, type, format).exists())
+                return format;
+        }
+        return null;
+    }
+
+    /**
+     * @param c      The class for which the preferences are to be stored.
+     * @param type   The storage system used for the preferences, other than
+     *               {@link ConfigurationType#SYSTEM}.
+     * @param format The format of the preferences file.
+     * @return The preferences file, in the working directory for {@link
+     * ConfigurationType#LOCAL} stores and the user's home directory otherwise.
+     */
+    private static File file(Class<?> c, ConfigurationType type,
+                             FileFormat format) {
+        String name = c.getPackage().getName() + format.getExtension();
+        if (type == ConfigurationType.LOCAL)
+            return new File(name);
+        return new File(System.getProperty("user.home"), "." + name);
+    }
+
+    /**
+     * @return The format of the preferences file, or <code>null</code> for
+     * {@link ConfigurationType#SYSTEM} stores.
+     */
+    public FileFormat getFileFormat() {
+        return format;
+    }
+
+    /**
+     * Migrates the settings to a new storage location.
+     *
+     * @param destination The type of configuration that the preferences should
+     *                    be moved to.
+     * @return The converted preference store.
+     * @throws PreferenceMigrationException Thrown if an error occurs while
+     *                                      migrating the preferences.
+     */
+    public AutoPreferences convert(ConfigurationType destination)
+            throws PreferenceMigrationException {
+        return migrate(destination, null).getDestination();
+    }
+
+    /**
+     * Migrates the settings to a new storage location and file format, such
+     * as from an XML file to a JSON file in the same directory.
+     *
+     * @param destination The type of configuration that the preferences should
+     *                    be moved to.
+     * @param format      The format of the destination's preferences file.
+     * @return The converted preference store.
+     * @throws PreferenceMigrationException Thrown if an error occurs while
+     *                                      migrating the preferences.
+     * @see #AutoPreferences(Class, ConfigurationType, FileFormat)
+     */
+    public AutoPreferences convert(ConfigurationType destination,
+                                   FileFormat format)
+            throws PreferenceMigrationException {
+        return migrate(destination, format, null).getDestination();
+    }
+
+    /**
+     * Migrates the settings to a new storage location. Values are copied as
+     * stored rather than as strings, so that their types survive the move
+     * wherever the destination can represent them, and the destination is
+     * persisted with a single write once all values have been copied.
+     *
+     * @param destination The type of configuration that the preferences should
+     *                    be moved to.
+     * @param listener    Notified as preferences are copied. May be
+     *                    <code>null</code>.
+     * @return The outcome of the migration, including the converted store.
+     * @throws PreferenceMigrationException Thrown if an error occurs while
+     *                                      migrating the preferences.
+     */
+    public MigrationResult migrate(ConfigurationType destination,
+                                   MigrationListener listener)
+            throws PreferenceMigrationException {
+        return migrate(destination, detectFormat(prefsFor, destination),
+                listener);
+    }
+
+    /**
+     * Migrates the settings to a new storage location and file format, as
+     * {@link #migrate(ConfigurationType, MigrationListener)} does.
+     *
+     * @param destination The type of configuration that the preferences should
+     *                    be moved to.
+     * @param format      The format of the destination's preferences file.
+     * @param listener    Notified as preferences are copied. May be
+     *                    <code>null</code>.
+     * @return The outcome of the migration, including the converted store.
+     * @throws PreferenceMigrationException Thrown if an error occurs while
+     *                                      migrating the preferences.
+     */
+    public MigrationResult migrate(ConfigurationType destination,
+                                   FileFormat format,
+                                   MigrationListener listener)
+            throws PreferenceMigrationException {
+        AutoPreferences ap;
+        try {
+            ap = new AutoPreferences(prefsFor, destination, format);
+        } catch (ConfigurationException e) {
+            throw new PreferenceMigrationException(e);
+        }
+
+        long start = System.nanoTime();
+        List<String> keys = getKeys();
+        List<Consumer<AutoPreferences>> changes = new ArrayList<>(keys.size());
+        int skipped = 0;
+        for (String key : keys) {
+            Object value = getRaw(key);
+            if (value == null)
+                skipped++;
+            else
+                changes.add(p -> p.putRaw(key, value));
+            if (listener != null)
+                listener.progress(changes.size() + skipped, keys.size());
+        }
+        long read = System.nanoTime();
+        try {
+            ap.applyBatch(changes);
+        } catch (RuntimeException e) {
+            throw new PreferenceMigrationException(e);
+        }
+        long written = System.nanoTime();
+
+        return new MigrationResult(ap, changes.size(), skipped, read - start,
+                written - read
+        );
+    }
+
+    /**
+     * Reads a preference in the form that the backing store holds it, without
+     * conversion to any particular type. Byte arrays in the system store are
+     * read back as such, with serialized and codec-encoded objects decoded,
+     * and values too large for it to hold whole are read back from their
+     * chunks. Byte arrays stored before their keys were recorded are only
+     * recognised if they hold an object, and are otherwise read as the Base64
+     * strings that the store keeps.
+     *
+     * @param key The key that the preference is stored under.
+     * @return The stored value, or <code>null</code> if there is none.
+     */
+    Object getRaw(String key) {
+        if (configType == ConfigurationType.SYSTEM) {
+            String value = prefs().get(key, null);
+            if (value == null)
+                return null;
+            if (chunks().holdsBytes(key))
+                return getChunked(key);
+            if (value.startsWith(SERIALIZED_PREFIX)
+                    || value.startsWith(CodecRegistry.BASE64_PREFIX)) {
+                byte[] bytes = prefs().getByteArray(key, null);
+                if (bytes != null) {
+                    try {
+                        return codecs.decode(bytes);
+                    } catch (ClassNotFoundException | IOException e) {
+                        // Just a string that happens to look encoded.
+                    }
+                }
+            }
+            return value;
+        } else {
+            return codecs.resolve(fileConfig().getProperty(key));
+        }
+    }
+
+    /**
+     * Reads a byte array from the system store, chunked or not.
+     *
+     * @param key The key that the value is stored under.
+     * @return The decoded object, the stored bytes if they are not an
+     * object, or <code>null</code> if they cannot be read.
+     */
+    private Object getChunked(String key) {
+        byte[] bytes;
+        try {
+            bytes = chunks().get(key);
+        } catch (IOException e) {
+            metrics.error(e);
+            return null;
+        }
+        if (bytes == null)
+            return null;
+        try {
+            return codecs.decode(bytes);
+        } catch (ClassNotFoundException | IOException e) {
+            return bytes;
+        }
+    }
+
+    /**
+     * Reads a value from the system store that was too large to hold whole
+     * as a string: the Base64 text that it would have been stored as. The
+     * string is not indexed, so as not to hold on to it.
+     *
+     * @param key The key that the value is stored under.
+     * @param def The default value to return if it cannot be read.
+     * @return The Base64 text of the value, or the default value on failure.
+     */
+    private String getChunkedString(String key, String def) {
+        try {
+            byte[] bytes = chunks().get(key);
+            return bytes == null ? def
+                    : Base64.getEncoder().encodeToString(bytes);
+        } catch (IOException e) {
+            metrics.error(e);
+            return def;
+        }
+    }
+
+    /**
+     * Stores a value using the <code>put</code> method for its runtime type.
+     *
+     * @param key   The key to store the value under.
+     * @param value The value to store.
+     */
+    private void putRaw(String key, Object value) {
+        if (value instanceof String)
+            put(key, (String) value);
+        else if (value instanceof Boolean)
+            put(key, (boolean) (Boolean) value);
+        else if (value instanceof Integer)
+            put(key, (int) (Integer) value);
+        else if (value instanceof Long)
+            put(key, (long) (Long) value);
+        else if (value instanceof Float)
+            put(key, (float) (Float) value);
+        else if (value instanceof Double)
+            put(key, (double) (Double) value);
+        else if (value instanceof byte[])
+            put(key, (byte[]) value);
+        else
+            put(key, value);
+    }
+
+    /**
+     * Switches a file-based store to write-behind mode. Changes are still
+     * visible immediately, but the file is only rewritten once per interval,
+     * or as soon as the given number of distinct keys has been changed. This
+     * has no effect on {@link ConfigurationType#SYSTEM} stores, which the Java
+     * Preferences API already persists asynchronously.
+     * <p>
+     * This turns off {@link #enableMultiProcess(long, TimeUnit) multi-process
+     * mode}.
+     *
+     * @param interval       The maximum time that a change may remain
+     *                       unwritten.
+     * @param unit           The unit of <code>interval</code>.
+     * @param dirtyThreshold The number of changed keys that triggers an
+     *                       immediate write.
+     */
+    public void enableWriteBehind(long interval, TimeUnit unit,
+                                  int dirtyThreshold) {
+        if (configType == ConfigurationType.SYSTEM)
+            return;
+        disableMultiProcess();
+        synchronized (fileLock) {
+            if (flusher != null)
+                flusher.close();
+            fileConfig().setAutoSave(false);
+            flusher = new WriteBehindFlusher(fileConfig(), fileLock, interval,
+                    unit, dirtyThreshold, metrics
+            );
+        }
+    }
+
+    /**
+     * Writes any pending changes and returns to rewriting the file on every
+     * change.
+     */
+    public void disableWriteBehind() {
+        synchronized (fileLock) {
+            if (flusher == null)
+                return;
+            flusher.close();
+            flusher = null;
+            fileConfig().setAutoSave(true);
+        }
+    }
+
+    /**
+     * Starts watching the file behind a text-based store, in any format but
+     * {@link FileFormat#BINARY}, for changes made by other processes or by
+     * hand. Once the file has stopped changing for the given
+     * period, it is read again, and only the values that differ from those in
+     * memory are replaced. Values changed in memory but not yet written in
+     * write-behind mode are kept. This has no effect on other types of store.
+     * <p>
+     * Writes made through this store also change the file, but do not cause
+     * it to be read again, unless it has since been changed by other means.
+     *
+     * @param debounce The time for which the file must remain unchanged
+     *                 before it is read.
+     * @param unit     The unit of <code>debounce</code>.
+     * @throws IOException Thrown if the file's directory cannot be watched.
+     */
+    public void enableWatch(long debounce, TimeUnit unit) throws IOException {
+        if (configType == ConfigurationType.SYSTEM
+                || format == FileFormat.BINARY)
+            return;
+        synchronized (fileLock) {
+            if (watcher != null)
+                watcher.close();
+            watcher = new FileWatcher(fileConfig().getFile(), debounce, unit,
+                    this::fileChanged, metrics::error
+            );
+        }
+    }
+
+    /**
+     * Reads the file again after it has been seen to change, unless it is as
+     * this store last wrote or read it.
+     */
+    private void fileChanged() {
+        FileConfiguration config = fileConfig();
+        if (config instanceof AtomicFileConfiguration
+                && ((AtomicFileConfiguration) config).isFileUnchanged())
+            return;
+        reload(false);
+    }
+
+    /**
+     * Stops watching the file for changes.
+     */
+    public void disableWatch() {
+        synchronized (fileLock) {
+            if (watcher == null)
+                return;
+            watcher.close();
+            watcher = null;
+            unwritten.clear();
+        }
+    }
+
+    /**
+     * Coordinates this store with other processes that share its file, and
+     * with other stores for it in this process, so that each change is kept
+     * when another process rewrites the file, rather than being overwritten
+     * by its copy of the values.
+     * <p>
+     * Every write of the file is made while holding a lock on a file beside
+     * it, and first reads the file again if another process has written it
+     * since, taking in that process's changes to any keys that this store
+     * has not changed itself. Each write also increments a generation number
+     * held in the lock file, so that writes are told apart even when the
+     * file's modification time cannot do so.
+     * <p>
+     * Reads check whether the file has been written by another process at
+     * most once per interval, and read it again only if it has, keeping any
+     * changes not yet written. Between checks, reads are served from memory
+     * as usual, so another process's changes are seen within an interval.
+     * <p>
+     * This applies only to stores kept in text-based {@link FileFormat
+     * formats}, and turns off {@link #enableWriteBehind(long, TimeUnit, int)
+     * write-behind mode}, as every change must be written under the lock. It
+     * has no effect on other stores.
+     *
+     * @param checkInterval The time between checks for changes made by other
+     *                      processes.
+     * @param unit          The unit of <code>checkInterval</code>.
+     * @throws IOException Thrown if the lock file cannot be opened.
+     */
+    public void enableMultiProcess(long checkInterval, TimeUnit unit)
+            throws IOException {
+        if (!(fileConfig() instanceof AtomicFileConfiguration))
+            return;
+        disableMultiProcess();
+        disableWriteBehind();
+        SharedFile file = new SharedFile(fileConfig().getFile(),
+                checkInterval, unit);
+        SharedFile.Stamp stamp = file.current();
+        synchronized (fileLock) {
+            unsynced = new HashSet<>();
+        }
+        if (!((AtomicFileConfiguration) fileConfig()).isFileUnchanged())
+            reload(true);
+        file.setKnown(stamp);
+        shared = file;
+        committer.setCoordinator(new SharedCommits(file));
+    }
+
+    /**
+     * Stops coordinating this store with other processes that share its
+     * file.
+     */
+    public void disableMultiProcess() {
+        SharedFile file = shared;
+        if (file == null)
+            return;
+        try {
+            // Waits for any write in progress.
+            file.lock();
+        } catch (IOException e) {
+            metrics.error(e);
+            return;
+        }
+        try {
+            committer.setCoordinator(null);
+            synchronized (fileLock) {
+                shared = null;
+                unsynced = null;
+            }
+        } finally {
+            file.unlock();
+            file.close();
+        }
+    }
+
+    /**
+     * Reads the file again if another process has written it since it was
+     * last read, in multi-process mode, if a check is due. Values are not
+     * read while this process is writing the file.
+     */
+    private void checkShared() {
+        SharedFile file = shared;
+        if (file == null || !file.isCheckDue() || !file.tryLockLocal())
+            return;
+        try {
+            SharedFile.Stamp stamp = file.current();
+            if (!stamp.equals(file.getKnown())) {
+                reload(true);
+                file.setKnown(stamp);
+            }
+        } catch (IOException e) {
+            metrics.error(e);
+        } finally {
+            file.unlockLocal();
+        }
+    }
+
+    /**
+     * Takes the lock on the file shared with other processes, in
+     * multi-process mode.
+     *
+     * @return The shared file, which must be {@link SharedFile#unlock()
+     * unlocked} afterwards, or <code>null</code> if it is not shared or
+     * cannot be locked.
+     */
+    private SharedFile lockShared() {
+        SharedFile file = shared;
+        if (file == null)
+            return null;
+        try {
+            file.lock();
+            return file;
+        } catch (IOException e) {
+            metrics.error(e);
+            return null;
+        }
+    }
+
+    /**
+     * @param key A key.
+     * @return Whether the key has been changed in memory since the file was
+     * last written, in write-behind or multi-process mode or while watching
+     * the file, or since a reload in progress began reading the file. Must
+     * be called while holding the file lock.
+     */
+    private boolean isUnsynced(String key) {
+        return (flusher != null && flusher.isDirty(key))
+                || (unsynced != null && unsynced.contains(key))
+                || (reloadChanged != null && reloadChanged.contains(key))
+                || unwritten.containsKey(key);
+    }
+
+    /**
+     * Reads the file behind a text-based store again, replacing only the
+     * values that have changed, and keeping those changed in memory but not
+     * yet written.
+     *
+     * @param missingIsEmpty Whether a missing file is taken to have been
+     *                       cleared, rather than to be in the middle of
+     *                       being rewritten.
+     * @return The keys whose values were replaced or removed.
+     */
+    private Set<String> reload(boolean missingIsEmpty) {
+        File file = fileConfig().getFile();
+        if (!file.exists() && !missingIsEmpty)
+            return Collections.emptySet();
+        long written = -1;
+        synchronized (fileLock) {
+            if (reloads++ == 0)
+                reloadChanged = new HashSet<>();
+            if (fileConfig() instanceof AtomicFileConfiguration)
+                written = ((AtomicFileConfiguration) fileConfig())
+                        .lastWritten();
+        }
+        try {
+            return reload(file, written);
+        } finally {
+            synchronized (fileLock) {
+                if (--reloads == 0)
+                    reloadChanged = null;
+            }
+        }
+    }
+
+    /**
+     * Reads the file again and replaces the values that have changed, other
+     * than those changed in memory since reading began. Must be called
+     * between marking and unmarking a reload in progress.
+     *
+     * @param file    The file.
+     * @param written The number of the newest snapshot known to have been
+     *                written before reading began, whose changes the file
+     *                therefore holds.
+     * @return The keys whose values were replaced or removed.
+     */
+    private Set<String> reload(File file, long written) {
+        FileConfiguration current;
+        try {
+            current = format.open(file, codecs, metrics);
+        } catch (ConfigurationException e) {
+            // Possibly caught mid-write; the rest of the write triggers
+            // another reload.
+            metrics.error(e);
+            return Collections.emptySet();
+        }
+
+        Set<String> changed = new LinkedHashSet<>();
+        Set<String> removed = new HashSet<>();
+        synchronized (fileLock) {
+            unwritten.values().removeIf(number -> number <= written);
+            boolean autoSave = fileConfig().isAutoSave();
+            fileConfig().setAutoSave(false);
+            try {
+                Iterator<String> keys = current.getKeys();
+                while (keys.hasNext()) {
+                    String key = keys.next();
+                    if (isUnsynced(key))
+                        continue;
+                    Object value = current.getProperty(key);
+                    if (!sameText(fileConfig().getProperty(key), value)) {
+                        fileConfig().setProperty(key, value);
+                        changed.add(key);
+                    }
+                }
+                List<String> held = IteratorUtils.toList(
+                        fileConfig().getKeys());
+                for (String key : held) {
+                    if (!current.containsKey(key) && !isUnsynced(key)) {
+                        fileConfig().clearProperty(key);
+                        changed.add(key);
+                        removed.add(key);
+                    }
+                }
+            } finally {
+                fileConfig().setAutoSave(autoSave);
+            }
+            for (String key : changed) {
+                index.invalidate(key);
+                if (removed.contains(key))
+                    sortedKeys.remove(key);
+                else
+                    sortedKeys.add(key);
+            }
+        }
+        dispatcher.changed(changed);
+        return changed;
+    }
+
+    /**
+     * Compares values in the form that they take in a text file, since values
+     * stored in memory may have other types than those read from the file.
+     *
+     * @param a A value, a collection of values, or <code>null</code>.
+     * @param b Another.
+     * @return Whether both would be written identically.
+     */
+    private static boolean sameText(Object a, Object b) {
+        if (a instanceof Collection || b instanceof Collection) {
+            if (!(a instanceof Collection && b instanceof Collection))
+                return false;
+            Collection<?> ca = (Collection<?>) a;
+            Collection<?> cb = (Collection<?>) b;
+            if (ca.size() != cb.size())
+                return false;
+            Iterator<?> ia = ca.iterator();
+            Iterator<?> ib = cb.iterator();
+            while (ia.hasNext())
+                if (!sameText(ia.next(), ib.next()))
+                    return false;
+            return true;
+        }
+        return Objects.equals(a == null ? null : a.toString(),
+                b == null ? null : b.toString());
+    }
+
+    /**
+     * Writes any pending changes to the backing store.
+     *
+     * @throws ConfigurationRuntimeException Thrown if the changes cannot be
+     *                                       written. They are kept, to be
+     *                                       written by the next flush.
+     */
+    @Override
+    public void flush() {
+        if (!loaded)
+            return;
+        long start = metrics.start();
+        if (configType == ConfigurationType.SYSTEM) {
+            try {
+                prefs.flush();
+            } catch (BackingStoreException e) {
+                metrics.error(e);
+                throw new ConfigurationRuntimeException("Failed to flush", e);
+            }
+        } else {
+            WriteBehindFlusher flusher;
+            synchronized (fileLock) {
+                flusher = this.flusher;
+            }
+            // The flusher takes the lock only to snapshot the values.
+            try {
+                if (flusher != null)
+                    flusher.flush();
+            } catch (ConfigurationException e) {
+                metrics.error(e);
+                throw new ConfigurationRuntimeException("Failed to flush", e);
+            }
+        }
+        metrics.operation(PreferenceMetrics.Operation.FLUSH, start);
+    }
+
+    /**
+     * Writes any pending changes and stops background writing. The store
+     * remains usable afterwards, but is no longer in write-behind mode, and
+     * the system store no longer caches decoded values.
+     * <p>
+     * For a shared store obtained from {@link #forClass(Class,
+     * ConfigurationType)}, this releases one reference, and the store is only
+     * closed once the last reference has been released.
+     */
+    @Override
+    public void close() {
+        if (registryKey != null) {
+            synchronized (REGISTRY) {
+                if (--references > 0)
+                    return;
+                REGISTRY.remove(registryKey);
+                registryKey = null;
+            }
+        }
+        if (!loaded)
+            return;
+        if (configType == ConfigurationType.SYSTEM) {
+            synchronized (ownEvents) {
+                if (bridged)
+                    prefs.removePreferenceChangeListener(invalidator);
+                bridged = false;
+                ownEvents.clear();
+            }
+            objects.setMaxSize(0);
+            try {
+                flush();
+            } catch (ConfigurationRuntimeException e) {
+                // Already reported.
+            }
+        } else {
+            disableWatch();
+            disableWriteBehind();
+            disableMultiProcess();
+            writeSnapshot();
+            if (fileConfig instanceof BinaryLogConfiguration)
+                ((BinaryLogConfiguration) fileConfig).close();
+        }
+    }
+
+    /**
+     * Deletes all preferences stored for the class.
+     */
+    @Override
+    public void clear() {
+        long start = metrics.start();
+        List<String> keys = getKeys();
+        if (configType == ConfigurationType.SYSTEM) {
+            try {
+                for (String key : keys)
+                    expectEvent(key);
+                prefs().clear();
+                chunks().clear();
+            } catch (BackingStoreException e) {
+                metrics.error(e);
+            }
+            objects.clear();
+        } else {
+            SharedFile file = lockShared();
+            try {
+                synchronized (fileLock) {
+                    if (reloadChanged != null)
+                        reloadChanged.addAll(IteratorUtils.toList(
+                                fileConfig().getKeys()));
+                    fileConfig().clear();
+                    if (fileConfig() instanceof AtomicFileConfiguration)
+                        ((AtomicFileConfiguration) fileConfig()).delete();
+                    else
+                        fileConfig().getFile().delete();
+                    if (flusher != null)
+                        flusher.discard();
+                    if (unsynced != null)
+                        unsynced.clear();
+                    sortedKeys.clear();
+                }
+                if (file != null)
+                    file.setKnown(file.advance());
+            } catch (IOException e) {
+                metrics.error(e);
+            } finally {
+                if (file != null)
+                    file.unlock();
+            }
+        }
+        index.clear();
+        dispatcher.changed(keys);
+        metrics.operation(PreferenceMetrics.Operation.CLEAR, start);
+    }
+
+    /**
+     * Produces a list of all stored keys.
+     *
+     * @return A list of keys for all preferences currently stored.
+     */
+    @Override
+    public List<String> getKeys() {
+        checkShared();
+        long start = metrics.start();
+        List<String> keys;
+        if (configType == ConfigurationType.SYSTEM) {
+            try {
+                keys = Arrays.asList(prefs().keys());
+            } catch (BackingStoreException e) {
+                metrics.error(e);
+                keys = new ArrayList<String>();
+            }
+        } else {
+            keys = IteratorUtils.toList(fileConfig().getKeys());
+        }
+        metrics.operation(PreferenceMetrics.Operation.GET_KEYS, start);
+        return keys;
+    }
+
+    /**
+     * Produces a list of the stored keys that begin with a prefix. For
+     * file-based stores, the keys are kept sorted from the first such query
+     * on, so that only the matching keys are visited. The system store is
+     * listed afresh each time, as keys synced in from other processes raise
+     * no events by which a sorted copy could be kept up to date.
+     *
+     * @param prefix The prefix. The empty string matches every key.
+     * @return The matching keys, in ascending order.
+     */
+    @Override
+    public List<String> getKeys(String prefix) {
+        checkShared();
+        long start = metrics.start();
+        List<String> keys;
+        if (configType == ConfigurationType.SYSTEM) {
+            keys = new ArrayList<>();
+            for (String key : systemKeys())
+                if (key.startsWith(prefix))
+                    keys.add(key);
+            Collections.sort(keys);
+        } else {
+            synchronized (fileLock) {
+                keys = sortedKeys.withPrefix(prefix);
+            }
+        }
+        metrics.operation(PreferenceMetrics.Operation.GET_KEYS, start);
+        return keys;
+    }
+
+    /**
+     * Produces a view of the preferences whose keys begin with a prefix, in
+     * which they are read and written without it.
+     *
+     * @param prefix The prefix, including any separator.
+     * @return A view of the matching preferences.
+     */
+    @Override
+    public IPreferences getSubset(String prefix) {
+        return new PreferencesSubset(this, prefix);
+    }
+
+    /**
+     * Visits every preference with its value, in a single pass over the
+     * store. A file-based store is held locked meanwhile, so the action sees
+     * a consistent set of values, but should not take long.
+     *
+     * @param action Called with the key and value of each preference.
+     */
+    @Override
+    public void forEach(BiConsumer<String, Object> action) {
+        checkShared();
+        long start = metrics.start();
+        if (configType == ConfigurationType.SYSTEM) {
+            for (String key : systemKeys()) {
+                Object value = getRaw(key);
+                if (value != null)
+                    action.accept(key, value);
+            }
+        } else {
+            synchronized (fileLock) {
+                Iterator<String> keys = fileConfig().getKeys();
+                while (keys.hasNext()) {
+                    String key = keys.next();
+                    action.accept(key,
+                            codecs.resolve(fileConfig().getProperty(key)));
+                }
+            }
+        }
+        metrics.operation(PreferenceMetrics.Operation.ITERATE, start);
+    }
+
+    /**
+     * Produces a lazily evaluated stream of every preference with its value.
+     * The store's keys are only walked, and each value read, as the stream
+     * is consumed.
+     *
+     * @return The preferences.
+     */
+    @Override
+    public Stream<Map.Entry<String, Object>> entries() {
+        checkShared();
+        return StreamSupport.stream(() -> Spliterators.spliteratorUnknownSize(
+                        configType == ConfigurationType.SYSTEM
+                                ? Arrays.asList(systemKeys()).iterator()
+                                : fileConfig().getKeys(),
+                        Spliterator.ORDERED),
+                Spliterator.ORDERED | Spliterator.DISTINCT
+                        | Spliterator.NONNULL,
+                false
+        ).map(key -> (Map.Entry<String, Object>)
+                new AbstractMap.SimpleImmutableEntry<>(key, getRaw(key))
+        ).filter(entry -> entry.getValue() != null);
+    }
+
+    /**
+     * @return The keys in the system store, or none if they cannot be read.
+     */
+    private String[] systemKeys() {
+        try {
+            return prefs().keys();
+        } catch (BackingStoreException e) {
+            metrics.error(e);
+            return new String[0];
+        }
+    }
+
+    /**
+     * Deletes a single preference, if it is present.
+     *
+     * @param key The key of the preference to delete.
+     */
+    @Override
+    public void remove(String key) {
+        long start = metrics.start();
+        if (configType == ConfigurationType.SYSTEM) {
+            changeSystem(key, () -> {
+                chunks().release(key);
+                prefs().remove(key);
+            });
+            objects.invalidate(key);
+        } else {
+            boolean commit;
+            synchronized (fileLock) {
+                changeFile(() -> fileConfig().clearProperty(key));
+                markChanged(key);
+                sortedKeys.remove(key);
+                commit = isGroupCommitted();
+            }
+            if (commit)
+                groupCommit();
+        }
+        index.invalidate(key);
+        dispatcher.changed(key);
+        metrics.operation(PreferenceMetrics.Operation.REMOVE, start);
+    }
+
+    /**
+     * Starts a batch of changes, which are persisted with a single write once
+     * committed.
+     *
+     * @return An editor for staging the changes.
+     */
+    @Override
+    public PreferencesEditor edit() {
+        return new AutoPreferencesEditor(this);
+    }
+
+    /**
+     * Registers a codec for storing objects of the given type. Codecs are used
+     * by {@link ConfigurationType#SYSTEM} stores and {@link FileFormat#BINARY}
+     * logs; text files hold objects in their text form regardless.
+     *
+     * @param type  The exact type of object that the codec handles.
+     * @param codec The codec.
+     * @param <T>   The type of object that the codec handles.
+     */
+    @Override
+    public <T> void registerCodec(Class<T> type, ValueCodec<T> codec) {
+        codecs.register(type, codec);
+        objects.clear();
+    }
+
+    /**
+     * Sets the number of decoded objects that a {@link
+     * ConfigurationType#SYSTEM} store keeps, so that repeated calls to {@link
+     * #getObject(String, Object)} need not decode the stored bytes again. The
+     * least recently used objects are evicted once the limit is reached. The
+     * default is 128.
+     *
+     * @param maxSize The number of objects to keep. Zero disables the cache.
+     */
+    public void setObjectCacheSize(int maxSize) {
+        objects.setMaxSize(maxSize);
+    }
+
+    /**
+     * Sets the metrics that this store reports its operations, writes, cache
+     * effectiveness and recovered errors to. By default, none are taken.
+     *
+     * @param metrics The metrics to report to, or {@link
+     *                PreferenceMetrics#NONE} to stop taking measurements.
+     * @see DefaultPreferenceMetrics
+     */
+    public void setMetrics(PreferenceMetrics metrics) {
+        this.metrics.setMetrics(metrics);
+    }
+
+    /**
+     * @return The metrics that this store reports to.
+     */
+    public PreferenceMetrics getMetrics() {
+        return metrics.getMetrics();
+    }
+
+    /**
+     * Reports an error that is not passed on to the caller, such as one
+     * thrown by a change listener, to this store's metrics.
+     *
+     * @param error The error.
+     */
+    void reportError(Throwable error) {
+        metrics.error(error);
+    }
+
+    /**
+     * Registers a listener to be told of changes to the preferences, whether
+     * made through this instance or, where they can be observed, by other
+     * means: through other instances for the system store, or by editing a
+     * watched text file.
+     *
+     * @param listener The listener to add.
+     * @see #setListenerExecutor(Executor)
+     */
+    @Override
+    public void addChangeListener(ChangeListener listener) {
+        dispatcher.addListener(listener);
+        if (configType == ConfigurationType.SYSTEM)
+            updateBridge();
+    }
+
+    /**
+     * Stops notifying a listener of changes.
+     *
+     * @param listener The listener to remove.
+     */
+    @Override
+    public void removeChangeListener(ChangeListener listener) {
+        dispatcher.removeListener(listener);
+        if (configType == ConfigurationType.SYSTEM)
+            updateBridge();
+    }
+
+    /**
+     * Listens to the system store's own change events while any change
+     * listener is registered, and only then, as each change then costs the
+     * store an event delivered on its own thread.
+     */
+    private void updateBridge() {
+        Preferences node = prefs();
+        synchronized (ownEvents) {
+            boolean wanted = dispatcher.hasListeners();
+            if (wanted == bridged)
+                return;
+            bridged = wanted;
+            if (wanted) {
+                node.addPreferenceChangeListener(invalidator);
+            } else {
+                node.removePreferenceChangeListener(invalidator);
+                ownEvents.clear();
+            }
+        }
+    }
+
+    /**
+     * Sets the executor that change listeners are notified on. By default,
+     * they are notified on a single background thread shared by all stores.
+     *
+     * @param executor The executor to notify listeners on.
+     */
+    public void setListenerExecutor(Executor executor) {
+        dispatcher.setExecutor(executor);
+    }
+
+    /**
+     * Records that a change is about to be made through this instance to the
+     * system store, so that the store's event for it is not mistaken for an
+     * outside change.
+     *
+     * @param key The key about to be changed.
+     */
+    private void expectEvent(String key) {
+        synchronized (ownEvents) {
+            if (bridged)
+                ownEvents.merge(key, 1, Integer::sum);
+        }
+    }
+
+    /**
+     * Makes a change to the system store through this instance, expecting
+     * the store's event for it only if the change is made.
+     *
+     * @param key    The key being changed.
+     * @param change The change.
+     */
+    private void changeSystem(String key, Runnable change) {
+        expectEvent(key);
+        boolean done = false;
+        try {
+            change.run();
+            done = true;
+        } finally {
+            if (!done)
+                isOwnEvent(key);
+        }
+    }
+
+    /**
+     * @param key The key of a change event from the system store.
+     * @return Whether the event is for a change made through this instance.
+     */
+    private boolean isOwnEvent(String key) {
+        synchronized (ownEvents) {
+            Integer expected = ownEvents.get(key);
+            if (expected == null)
+                return false;
+            if (expected == 1)
+                ownEvents.remove(key);
+            else
+                ownEvents.put(key, expected - 1);
+            return true;
+        }
+    }
+
+    /**
+     * Applies a batch of changes to the store, persisting them together. For
+     * the system store this amounts to a single flush, and for file-based
+     * stores to a single write of the file.
+     *
+     * @param changes The changes to apply, in order.
+     * @throws ConfigurationRuntimeException Thrown if the file cannot be
+     *                                       written.
+     */
+    void applyBatch(Collection<Consumer<AutoPreferences>> changes) {
+        long start = metrics.start();
+        dispatcher.beginBatch();
+        try {
+            if (configType == ConfigurationType.SYSTEM) {
+                changes.forEach(change -> change.accept(this));
+                flush();
+                return;
+            }
+            synchronized (fileLock) {
+                boolean autoSave = fileConfig().isAutoSave();
+                fileConfig().setAutoSave(false);
+                try {
+                    changes.forEach(change -> change.accept(this));
+                    if (committer == null) {
+                        metrics.save(fileConfig(), fileConfig()::save);
+                        if (flusher != null)
+                            flusher.discard();
+                    }
+                } catch (ConfigurationException e) {
+                    metrics.error(e);
+                    throw new ConfigurationRuntimeException(
+                            "Failed to auto-save", e);
+                } finally {
+                    fileConfig().setAutoSave(autoSave);
+                }
+            }
+            if (committer != null)
+                groupCommit();
+        } finally {
+            dispatcher.endBatch();
+            metrics.operation(PreferenceMetrics.Operation.COMMIT, start);
+        }
+    }
+
+    /**
+     * Stores a boolean in the preferences, overwriting any identically-named
+     * properties.
+     *
+     * @param key   The key to store the boolean under.
+     * @param value The boolean to store.
+     */
+    @Override
+    public void put(String key, boolean value) {
+        long start = metrics.start();
+        if (configType == ConfigurationType.SYSTEM) {
+            changeSystem(key, () -> {
+                chunks().release(key);
+                prefs().putBoolean(key, value);
+            });
+            objects.invalidate(key);
+        } else {
+            long stamp = setFileProperty(key, value);
+            index.putBoolean(key, value, stamp);
+        }
+        dispatcher.changed(key);
+        metrics.operation(PreferenceMetrics.Operation.PUT, start);
+    }
+
+    /**
+     * Stores a byte array in the preferences, overwriting any identically-named
+     * properties.
+     *
+     * @param key   The key to store the byte array under.
+     * @param value The byte array to store.
+     */
+    @Override
+    public void put(String key, byte[] value) {
+        long start = metrics.start();
+        if (configType == ConfigurationType.SYSTEM) {
+            changeSystem(key, () -> chunks().put(key, value));
+            objects.invalidate(key);
+        } else {
+            setFileProperty(key, value);
+        }
+        dispatcher.changed(key);
+        metrics.operation(PreferenceMetrics.Operation.PUT, start);
+    }
+
+    /**
+     * Stores a double in the preferences, overwriting any identically-named
+     * properties.
+     *
+     * @param key   The key to store the double under.
+     * @param value The double to store.
+     */
+    @Override
+    public void put(String key, double value) {
+        long start = metrics.start();
+        if (configType == ConfigurationType.SYSTEM) {
+            changeSystem(key, () -> {
+                chunks().release(key);
+                prefs().putDouble(key, value);
+            });
+            objects.invalidate(key);
+        } else {
+            long stamp = setFileProperty(key, value);
+            index.putDouble(key, value, stamp);
+        }
+        dispatcher.changed(key);
+        metrics.operation(PreferenceMetrics.Operation.PUT, start);
+    }
+
+    /**
+     * Stores a float in the preferences, overwriting any identically-named
+     * properties.
+     *
+     * @param key   The key to store the float under.
+     * @param value The float to store.
+     */
+    @Override
+    public void put(String key, float value) {
+        long start = metrics.start();
+        if (configType == ConfigurationType.SYSTEM) {
+            changeSystem(key, () -> {
+                chunks().release(key);
+                prefs().putFloat(key, value);
+            });
+            objects.invalidate(key);
+        } else {
+            long stamp = setFileProperty(key, value);
+            index.putFloat(key, value, stamp);
+        }
+        dispatcher.changed(key);
+        metrics.operation(PreferenceMetrics.Operation.PUT, start);
+    }
+
+    /**
+     * Stores an integer in the preferences, overwriting any identically-named
+     * properties.
+     *
+     * @param key   The key to store the int under.
+     * @param value The int to store.
+     */
+    @Override
+    public void put(String key, int value) {
+        long start = metrics.start();
+        if (configType == ConfigurationType.SYSTEM) {
+            changeSystem(key, () -> {
+                chunks().release(key);
+                prefs().putInt(key, value);
+            });
+            objects.invalidate(key);
+        } else {
+            long stamp = setFileProperty(key, value);
+            index.putInt(key, value, stamp);
+        }
+        dispatcher.changed(key);
+        metrics.operation(PreferenceMetrics.Operation.PUT, start);
+    }
+
+    /**
+     * Stores a long in the preferences, overwriting any identically-named
+     * properties.
+     *
+     * @param key   The key to store the long under.
+     * @param value The long to store.
+     */
+    @Override
+    public void put(String key, long value) {
+        long start = metrics.start();
+        if (configType == ConfigurationType.SYSTEM) {
+            changeSystem(key, () -> {
+                chunks().release(key);
+                prefs().putLong(key, value);
+            });
+            objects.invalidate(key);
+        } else {
+            long stamp = setFileProperty(key, value);
+            index.putLong(key, value, stamp);
+        }
+        dispatcher.changed(key);
+        metrics.operation(PreferenceMetrics.Operation.PUT, start);
+    }
+
+    /**
+     * Stores any object in the preferences, overwriting any identically-named
+     * properties.
+     * <p>
+     * Where the backend stores objects as bytes, they are written with the
+     * codec {@link #registerCodec(Class, ValueCodec) registered} for their
+     * type, or with Java serialization if there is none.
+     * <p>
+     * Objects too large for the system store to hold as one value are split
+     * into chunks, which are written and read back one at a time. Large
+     * objects are still better kept elsewhere, as every chunk is loaded into
+     * memory along with the rest of the store.
+     *
+     * @param key   The key to store the object under.
+     * @param value The object to store.
+     */
+    @Override
+    public void put(String key, Object value) {
+        if (configType == ConfigurationType.SYSTEM) {
+            long start = metrics.start();
+            // Encoded straight into the chunks, without the whole of it.
+            try (ChunkedValues.Writer out = chunks().writer(key)) {
+                codecs.encode(value, out);
+                expectEvent(key);
+                try {
+                    out.commit();
+                } catch (IOException | RuntimeException e) {
+                    isOwnEvent(key);
+                    throw e;
+                }
+            } catch (IOException e) {
+                metrics.error(e);
+                return;
+            }
+            objects.invalidate(key);
+            dispatcher.changed(key);
+            metrics.operation(PreferenceMetrics.Operation.PUT, start);
+        } else {
+            long start = metrics.start();
+            setFileProperty(key, value);
+            dispatcher.changed(key);
+            metrics.operation(PreferenceMetrics.Operation.PUT, start);
+        }
+    }
+
+    /**
+     * Stores a string in the preferences, overwriting any identically-named
+     * properties.
+     *
+     * @param key   The key to store the string under.
+     * @param value The string to store.
+     */
+    @Override
+    public void put(String key, String value) {
+        long start = metrics.start();
+        if (configType == ConfigurationType.SYSTEM) {
+            changeSystem(key, () -> {
+                chunks().release(key);
+                prefs().put(key, value);
+            });
+            objects.invalidate(key);
+        } else {
+            long stamp = setFileProperty(key, value);
+            if (value != null) {
+                index.putString(key, value, stamp);
+            }
+        }
+        dispatcher.changed(key);
+        metrics.operation(PreferenceMetrics.Operation.PUT, start);
+    }
+
+    /**
+     * Records in the sorted index of keys whether a key has a value after
+     * storing one, as storing <code>null</code> removes it. Must be called
+     * while holding the file lock.
+     *
+     * @param key   The key.
+     * @param value The value stored.
+     */
+    private void keyChanged(String key, Object value) {
+        if (value == null)
+            sortedKeys.remove(key);
+        else
+            sortedKeys.add(key);
+    }
+
+    /**
+     * Stores a value in the file-based configuration, writing it either
+     * immediately or through the write-behind flusher.
+     *
+     * @param key   The key to store the value under.
+     * @param value The value to store.
+     * @return A stamp with which the value may be indexed.
+     */
+    private long setFileProperty(String key, Object value) {
+        boolean commit;
+        long stamp;
+        synchronized (fileLock) {
+            changeFile(() -> fileConfig().setProperty(key, value));
+            markChanged(key);
+            keyChanged(key, value);
+            // Taken along with the change, so that a later change to the key
+            // keeps this value from being indexed over its own.
+            stamp = index.invalidate(key);
+            commit = isGroupCommitted();
+        }
+        if (commit)
+            groupCommit();
+        return stamp;
+    }
+
+    /**
+     * Records that a key has been changed in memory, so that neither a
+     * reload already reading the file nor one made before the change is
+     * written replaces it. Must be called while holding the file lock.
+     *
+     * @param key The key.
+     */
+    private void markChanged(String key) {
+        if (flusher != null)
+            flusher.markDirty(key);
+        if (unsynced != null)
+            unsynced.add(key);
+        if (reloadChanged != null)
+            reloadChanged.add(key);
+        if (watcher != null && fileConfig() instanceof AtomicFileConfiguration)
+            unwritten.put(key, ((AtomicFileConfiguration) fileConfig())
+                    .nextSnapshot());
+    }
+
+    /**
+     * Makes a change to the file-based configuration, recording the write
+     * that it triggers if the configuration saves automatically. Must be
+     * called while holding the file lock.
+     *
+     * @param change The change.
+     */
+    private void changeFile(Runnable change) {
+        if (fileConfig().isAutoSave() && committer == null)
+            metrics.save(fileConfig(), change::run);
+        else
+            change.run();
+    }
+
+    /**
+     * @return Whether changes to the file-based configuration are written by
+     * the group committer, rather than as they are made or in the background.
+     * Must be called while holding the file lock.
+     */
+    private boolean isGroupCommitted() {
+        return committer != null && fileConfig().isAutoSave();
+    }
+
+    /**
+     * Waits until every change made so far has been written by the group
+     * committer. Must be called after releasing the file lock, so that
+     * changes made by other threads meanwhile can share the write.
+     *
+     * @throws ConfigurationRuntimeException Thrown if the write that would
+     *                                       have included the changes failed.
+     */
+    private void groupCommit() {
+        try {
+            committer.commit();
+        } catch (ConfigurationException e) {
+            metrics.error(e);
+            throw new ConfigurationRuntimeException("Failed to auto-save", e);
+        }
+    }
+
+    /**
+     * Coordinates the group committer's writes with other processes sharing
+     * the file, in multi-process mode.
+     */
+    private final class SharedCommits implements GroupCommitter.Coordinator {
+        private final SharedFile file;
+        private boolean locked;
+        private Set<String> syncing = Collections.emptySet();
+
+        SharedCommits(SharedFile file) {
+            this.file = file;
+        }
+
+        @Override
+        public void begin() throws ConfigurationException {
+            try {
+                file.lock();
+            } catch (ClosedChannelException e) {
+                // Multi-process mode was turned off meanwhile.
+                return;
+            } catch (IOException e) {
+                throw new ConfigurationException("Unable to lock "
+                        + fileConfig().getFile(), e);
+            }
+            locked = true;
+            try {
+                if (!file.current().equals(file.getKnown()))
+                    reload(true);
+            } catch (IOException e) {
+                metrics.error(e);
+            }
+            synchronized (fileLock) {
+                if (unsynced != null) {
+                    syncing = unsynced;
+                    unsynced = new HashSet<>();
+                }
+            }
+        }
+
+        @Override
+        public void end(boolean written) {
+            if (!locked)
+                return;
+            try {
+                if (written) {
+                    file.setKnown(file.advance());
+                } else {
+                    synchronized (fileLock) {
+                        if (unsynced != null)
+                            unsynced.addAll(syncing);
+                    }
+                }
+            } catch (IOException e) {
+                metrics.error(e);
+            } finally {
+                syncing = Collections.emptySet();
+                locked = false;
+                file.unlock();
+            }
+        }
+    }
+
+    /**
+     * Reads the stored value for an <code>boolean</code> preference.
+     *
+     * @param key The key that the preference is stored under.
+     * @param def The default value to return if a setting is not found for the
+     *            given key.
+     * @return The value stored for the preference, or the default value on
+     * failure.
+     */
+    @Override
+    public boolean getBoolean(String key, boolean def) {
+        checkShared();
+        long start = metrics.start();
+        ValueIndex.Entry entry = index.get(key);
+        if (entry != null) {
+            if (entry.has(ValueIndex.BOOLEAN)) {
+                metrics.read(start, true);
+                return entry.booleanValue;
+            }
+            if (entry.has(ValueIndex.ABSENT)) {
+                metrics.read(start, true);
+                return def;
+            }
+        }
+        boolean value = loadBoolean(key, def, index.stamp());
+        metrics.read(start, false);
+        return value;
+    }
+
+    /**
+     * Reads the stored value for an <code>double</code> preference.
+     *
+     * @param key The key that the preference is stored under.
+     * @param def The default value to return if a setting is not found for the
+     *            given key.
+     * @return The value stored for the preference, or the default value on
+     * failure.
+     */
+    @Override
+    public double getDouble(String key, double def) {
+        checkShared();
+        long start = metrics.start();
+        ValueIndex.Entry entry = index.get(key);
+        if (entry != null) {
+            if (entry.has(ValueIndex.DOUBLE)) {
+                metrics.read(start, true);
+                return entry.doubleValue;
+            }
+            if (entry.has(ValueIndex.ABSENT)) {
+                metrics.read(start, true);
+                return def;
+            }
+        }
+        double value = loadDouble(key, def, index.stamp());
+        metrics.read(start, false);
+        return value;
+    }
+
+    /**
+     * Reads the stored value for an <code>float</code> preference.
+     *
+     * @param key The key that the preference is stored under.
+     * @param def The default value to return if a setting is not found for the
+     *            given key.
+     * @return The value stored for the preference, or the default value on
+     * failure.
+     */
+    @Override
+    public float getFloat(String key, float def) {
+        checkShared();
+        long start = metrics.start();
+        ValueIndex.Entry entry = index.get(key);
+        if (entry != null) {
+            if (entry.has(ValueIndex.FLOAT)) {
+                metrics.read(start, true);
+                return entry.floatValue;
+            }
+            if (entry.has(ValueIndex.ABSENT)) {
+                metrics.read(start, true);
+                return def;
+            }
+        }
+        float value = loadFloat(key, def, index.stamp());
+        metrics.read(start, false);
+        return value;
+    }
+
+    /**
+     * Reads the stored value for an <code>int</code> preference.
+     *
+     * @param key The key that the preference is stored under.
+     * @param def The default value to return if a setting is not found for the
+     *            given key.
+     * @return The value stored for the preference, or the default value on
+     * failure.
+     */
+    @Override
+    public int getInt(String key, int def) {
+        checkShared();
+        long start = metrics.start();
+        ValueIndex.Entry entry = index.get(key);
+        if (entry != null) {
+            if (entry.has(ValueIndex.INT)) {
+                metrics.read(start, true);
+                return entry.intValue;
+            }
+            if (entry.has(ValueIndex.ABSENT)) {
+                metrics.read(start, true);
+                return def;
+            }
+        }
+        int value = loadInt(key, def, index.stamp());
+        metrics.read(start, false);
+        return value;
+    }
+
+    /**
+     * Reads the stored value for a <code>long</code> preference.
+     *
+     * @param key The key that the preference is stored under.
+     * @param def The default value to return if a setting is not found for the
+     *            given key.
+     * @return The value stored for the preference, or the default value on
+     * failure.
+     */
+    @Override
+    public long getLong(String key, long def) {
+        checkShared();
+        long start = metrics.start();
+        ValueIndex.Entry entry = index.get(key);
+        if (entry != null) {
+            if (entry.has(ValueIndex.LONG)) {
+                metrics.read(start, true);
+                return entry.longValue;
+            }
+            if (entry.has(ValueIndex.ABSENT)) {
+                metrics.read(start, true);
+                return def;
+            }
+        }
+        long value = loadLong(key, def, index.stamp());
+        metrics.read(start, false);
+        return value;
+    }
+
+    /**
+     * Reads the stored value for a String preference.
+     *
+     * @param key The key that the preference is stored under.
+     * @param def The default value to return if a setting is not found for the
+     *            given key.
+     * @return The value stored for the preference, or the default value on
+     * failure.
+     */
+    @Override
+    public String getString(String key, String def) {
+        checkShared();
+        long start = metrics.start();
+        ValueIndex.Entry entry = index.get(key);
+        if (entry != null) {
+            if (entry.has(ValueIndex.STRING)) {
+                metrics.read(start, true);
+                return entry.stringValue;
+            }
+            if (entry.has(ValueIndex.ABSENT)) {
+                metrics.read(start, true);
+                return def;
+            }
+        }
+        String value = loadString(key, def, index.stamp());
+        metrics.read(start, false);
+        return value;
+    }
+
+    /**
+     * Reads the stored value for an Object preference.
+     * <p>
+     * Objects decoded from the system store are cached until the preference
+     * changes, so repeated calls return the same instance, which must not be
+     * modified. Each is only returned while the store still holds the value
+     * it was decoded from, so changes made by other stores or processes are
+     * picked up as soon as they reach it.
+     *
+     * @param key The key that the preference is stored under.
+     * @param def The default value to return if a setting is not found for the
+     *            given key.
      * @return The value stored for the preference, or the default value on
      * failure.
      */
     @Override
     public Object getObject(String key, Object def) {
+        checkShared();
+        long start = metrics.start();
+        try {
+            return loadObject(key, def);
+        } finally {
+            metrics.operation(PreferenceMetrics.Operation.GET, start);
+        }
+    }
+
+    /**
+     * Reads an Object preference from the store, or from the object cache.
+     *
+     * @param key The key that the preference is stored under.
+     * @param def The default value to return if a setting is not found for the
+     *            given key.
+     * @return The value stored for the preference, or the default value on
+     * failure.
+     */
+    private Object loadObject(String key, Object def) {
         if (configType == ConfigurationType.SYSTEM) {
-            byte[] inArr = prefs.getByteArray(key, null);
-            if (inArr == null)
+            long stamp = objects.stamp();
+            String stored = prefs().get(key, null);
+            Object cached = stored == null ? null : objects.get(key, stored);
+            metrics.cacheAccess(PreferenceMetrics.Cache.OBJECTS,
+                    cached != null);
+            if (cached != null)
+                return cached;
+
+            InputStream in = stored == null ? null : chunks().stream(key);
+            if (in == null)
                 return def;
 
-            ByteArrayInputStream bis = new ByteArrayInputStream(inArr);
-            ObjectInput in = null;
             try {
-                in = new ObjectInputStream(bis);
-                return in.readObject();
+                Object value = codecs.decode(in);
+                if (value != null)
+                    objects.put(key, stored, value, stamp);
+                return value;
             } catch (ClassNotFoundException | IOException e) {
-                e.printStackTrace();
+                metrics.error(e);
                 return def;
-            } finally {
-                try {
-                    bis.close();
-                } catch (IOException ex) {
-                    // ignore close exception
-                }
-                try {
-                    if (in != null) {
-                        in.close();
-                    }
-                } catch (IOException ex) {
-                    // ignore close exception
-                }
             }
         } else {
-            Object val = fileConfig.getProperty(key);
+            Object val = fileConfig().getProperty(key);
             if (val == null)
                 return def;
             else
-                return val;
+                return codecs.resolve(val);
+        }
+    }
+
+    /**
+     * Reads a <code>boolean</code> preference through its handle.
+     *
+     * @param key The handle of the preference.
+     * @return The value stored for the preference, or the handle's default
+     * value on failure.
+     */
+    @Override
+    public boolean get(PreferenceKey.OfBoolean key) {
+        checkShared();
+        long start = metrics.start();
+        ValueIndex.Entry entry = index.get(key);
+        if (entry != null) {
+            if (entry.has(ValueIndex.BOOLEAN)) {
+                metrics.read(start, true);
+                return entry.booleanValue;
+            }
+            if (entry.has(ValueIndex.ABSENT)) {
+                metrics.read(start, true);
+                return key.def;
+            }
+        }
+        boolean value = loadBoolean(key.getName(), key.def, index.stamp());
+        metrics.read(start, false);
+        return value;
+    }
+
+    /**
+     * Reads a <code>double</code> preference through its handle.
+     *
+     * @param key The handle of the preference.
+     * @return The value stored for the preference, or the handle's default
+     * value on failure.
+     */
+    @Override
+    public double get(PreferenceKey.OfDouble key) {
+        checkShared();
+        long start = metrics.start();
+        ValueIndex.Entry entry = index.get(key);
+        if (entry != null) {
+            if (entry.has(ValueIndex.DOUBLE)) {
+                metrics.read(start, true);
+                return entry.doubleValue;
+            }
+            if (entry.has(ValueIndex.ABSENT)) {
+                metrics.read(start, true);
+                return key.def;
+            }
+        }
+        double value = loadDouble(key.getName(), key.def, index.stamp());
+        metrics.read(start, false);
+        return value;
+    }
+
+    /**
+     * Reads a <code>float</code> preference through its handle.
+     *
+     * @param key The handle of the preference.
+     * @return The value stored for the preference, or the handle's default
+     * value on failure.
+     */
+    @Override
+    public float get(PreferenceKey.OfFloat key) {
+        checkShared();
+        long start = metrics.start();
+        ValueIndex.Entry entry = index.get(key);
+        if (entry != null) {
+            if (entry.has(ValueIndex.FLOAT)) {
+                metrics.read(start, true);
+                return entry.floatValue;
+            }
+            if (entry.has(ValueIndex.ABSENT)) {
+                metrics.read(start, true);
+                return key.def;
+            }
+        }
+        float value = loadFloat(key.getName(), key.def, index.stamp());
+        metrics.read(start, false);
+        return value;
+    }
+
+    /**
+     * Reads an <code>int</code> preference through its handle.
+     *
+     * @param key The handle of the preference.
+     * @return The value stored for the preference, or the handle's default
+     * value on failure.
+     */
+    @Override
+    public int get(PreferenceKey.OfInt key) {
+        checkShared();
+        long start = metrics.start();
+        ValueIndex.Entry entry = index.get(key);
+        if (entry != null) {
+            if (entry.has(ValueIndex.INT)) {
+                metrics.read(start, true);
+                return entry.intValue;
+            }
+            if (entry.has(ValueIndex.ABSENT)) {
+                metrics.read(start, true);
+                return key.def;
+            }
+        }
+        int value = loadInt(key.getName(), key.def, index.stamp());
+        metrics.read(start, false);
+        return value;
+    }
+
+    /**
+     * Reads a <code>long</code> preference through its handle.
+     *
+     * @param key The handle of the preference.
+     * @return The value stored for the preference, or the handle's default
+     * value on failure.
+     */
+    @Override
+    public long get(PreferenceKey.OfLong key) {
+        checkShared();
+        long start = metrics.start();
+        ValueIndex.Entry entry = index.get(key);
+        if (entry != null) {
+            if (entry.has(ValueIndex.LONG)) {
+                metrics.read(start, true);
+                return entry.longValue;
+            }
+            if (entry.has(ValueIndex.ABSENT)) {
+                metrics.read(start, true);
+                return key.def;
+            }
+        }
+        long value = loadLong(key.getName(), key.def, index.stamp());
+        metrics.read(start, false);
+        return value;
+    }
+
+    /**
+     * Reads a String preference through its handle.
+     *
+     * @param key The handle of the preference.
+     * @return The value stored for the preference, or the handle's default
+     * value on failure.
+     */
+    @Override
+    public String get(PreferenceKey.OfString key) {
+        checkShared();
+        long start = metrics.start();
+        ValueIndex.Entry entry = index.get(key);
+        if (entry != null) {
+            if (entry.has(ValueIndex.STRING)) {
+                metrics.read(start, true);
+                return entry.stringValue;
+            }
+            if (entry.has(ValueIndex.ABSENT)) {
+                metrics.read(start, true);
+                return key.def;
+            }
+        }
+        String value = loadString(key.getName(), key.def, index.stamp());
+        metrics.read(start, false);
+        return value;
+    }
+
+    /**
+     * Reads a <code>boolean</code> preference from the store, and indexes it.
+     *
+     * @param key   The key that the preference is stored under.
+     * @param def   The default value to return if a setting is not found for
+     *              the given key.
+     * @param stamp The index stamp taken before reading.
+     * @return The value stored for the preference, or the default value on
+     * failure.
+     */
+    private boolean loadBoolean(String key, boolean def, long stamp) {
+        boolean value;
+        if (configType == ConfigurationType.SYSTEM) {
+            String stored = prefs().get(key, null);
+            if (stored == null)
+                return def;
+            if (stored.equalsIgnoreCase("true"))
+                value = true;
+            else if (stored.equalsIgnoreCase("false"))
+                value = false;
+            else
+                return def;
+        } else {
+            if (fileConfig().getProperty(key) == null) {
+                index.putAbsent(key, stamp);
+                return def;
+            }
+            value = fileConfig().getBoolean(key);
+        }
+        index.putBoolean(key, value, stamp);
+        return value;
+    }
+
+    /**
+     * Reads a <code>double</code> preference from the store, and indexes it.
+     *
+     * @param key   The key that the preference is stored under.
+     * @param def   The default value to return if a setting is not found for
+     *              the given key.
+     * @param stamp The index stamp taken before reading.
+     * @return The value stored for the preference, or the default value on
+     * failure.
+     */
+    private double loadDouble(String key, double def, long stamp) {
+        double value;
+        if (configType == ConfigurationType.SYSTEM) {
+            String stored = prefs().get(key, null);
+            if (stored == null)
+                return def;
+            try {
+                value = Double.parseDouble(stored);
+            } catch (NumberFormatException e) {
+                return def;
+            }
+        } else {
+            if (fileConfig().getProperty(key) == null) {
+                index.putAbsent(key, stamp);
+                return def;
+            }
+            value = fileConfig().getDouble(key);
+        }
+        index.putDouble(key, value, stamp);
+        return value;
+    }
+
+    /**
+     * Reads a <code>float</code> preference from the store, and indexes it.
+     *
+     * @param key   The key that the preference is stored under.
+     * @param def   The default value to return if a setting is not found for
+     *              the given key.
+     * @param stamp The index stamp taken before reading.
+     * @return The value stored for the preference, or the default value on
+     * failure.
+     */
+    private float loadFloat(String key, float def, long stamp) {
+        float value;
+        if (configType == ConfigurationType.SYSTEM) {
+            String stored = prefs().get(key, null);
+            if (stored == null)
+                return def;
+            try {
+                value = Float.parseFloat(stored);
+            } catch (NumberFormatException e) {
+                return def;
+            }
+        } else {
+            if (fileConfig().getProperty(key) == null) {
+                index.putAbsent(key, stamp);
+                return def;
+            }
+            value = fileConfig().getFloat(key);
+        }
+        index.putFloat(key, value, stamp);
+        return value;
+    }
+
+    /**
+     * Reads an <code>int</code> preference from the store, and indexes it.
+     *
+     * @param key   The key that the preference is stored under.
+     * @param def   The default value to return if a setting is not found for
+     *              the given key.
+     * @param stamp The index stamp taken before reading.
+     * @return The value stored for the preference, or the default value on
+     * failure.
+     */
+    private int loadInt(String key, int def, long stamp) {
+        int value;
+        if (configType == ConfigurationType.SYSTEM) {
+            String stored = prefs().get(key, null);
+            if (stored == null)
+                return def;
+            try {
+                value = Integer.parseInt(stored);
+            } catch (NumberFormatException e) {
+                return def;
+            }
+        } else {
+            if (fileConfig().getProperty(key) == null) {
+                index.putAbsent(key, stamp);
+                return def;
+            }
+            value = fileConfig().getInt(key);
+        }
+        index.putInt(key, value, stamp);
+        return value;
+    }
+
+    /**
+     * Reads a <code>long</code> preference from the store, and indexes it.
+     *
+     * @param key   The key that the preference is stored under.
+     * @param def   The default value to return if a setting is not found for
+     *              the given key.
+     * @param stamp The index stamp taken before reading.
+     * @return The value stored for the preference, or the default value on
+     * failure.
+     */
+    private long loadLong(String key, long def, long stamp) {
+        long value;
+        if (configType == ConfigurationType.SYSTEM) {
+            String stored = prefs().get(key, null);
+            if (stored == null)
+                return def;
+            try {
+                value = Long.parseLong(stored);
+            } catch (NumberFormatException e) {
+                return def;
+            }
+        } else {
+            if (fileConfig().getProperty(key) == null) {
+                index.putAbsent(key, stamp);
+                return def;
+            }
+            value = fileConfig().getLong(key);
+        }
+        index.putLong(key, value, stamp);
+        return value;
+    }
+
+    /**
+     * Reads a String preference from the store, and indexes it.
+     *
+     * @param key   The key that the preference is stored under.
+     * @param def   The default value to return if a setting is not found for
+     *              the given key.
+     * @param stamp The index stamp taken before reading.
+     * @return The value stored for the preference, or the default value on
+     * failure.
+     */
+    private String loadString(String key, String def, long stamp) {
+        String value;
+        if (configType == ConfigurationType.SYSTEM) {
+            value = prefs().get(key, null);
+            if (chunks().isChunked(key, value))
+                return getChunkedString(key, def);
+        } else {
+            value = fileConfig().getString(key, null);
+            if (value == null)
+                index.putAbsent(key, stamp);
         }
+        if (value == null)
+            return def;
+        index.putString(key, value, stamp);
+        return value;
     }
 }
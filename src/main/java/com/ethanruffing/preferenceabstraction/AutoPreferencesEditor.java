@@ -0,0 +1,106 @@
+/*
+ * Copyright 2026 Ethan Ruffing
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ethanruffing.preferenceabstraction;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * The {@link PreferencesEditor} for an {@link AutoPreferences} store. Changes
+ * are staged as operations on the store, and replayed in one batch on commit.
+ *
+ * @author Ethan Ruffing
+ * @since 2026-10-18
+ */
+final class AutoPreferencesEditor implements PreferencesEditor {
+    private final AutoPreferences target;
+    private final Map<String, Consumer<AutoPreferences>> changes =
+            new LinkedHashMap<>();
+
+    /**
+     * Constructs a new, empty editor for the given store.
+     *
+     * @param target The store that changes are committed to.
+     */
+    AutoPreferencesEditor(AutoPreferences target) {
+        this.target = target;
+    }
+
+    @Override
+    public PreferencesEditor put(String key, boolean value) {
+        changes.put(key, p -> p.put(key, value));
+        return this;
+    }
+
+    @Override
+    public PreferencesEditor put(String key, byte[] value) {
+        changes.put(key, p -> p.put(key, value));
+        return this;
+    }
+
+    @Override
+    public PreferencesEditor put(String key, double value) {
+        changes.put(key, p -> p.put(key, value));
+        return this;
+    }
+
+    @Override
+    public PreferencesEditor put(String key, float value) {
+        changes.put(key, p -> p.put(key, value));
+        return this;
+    }
+
+    @Override
+    public PreferencesEditor put(String key, int value) {
+        changes.put(key, p -> p.put(key, value));
+        return this;
+    }
+
+    @Override
+    public PreferencesEditor put(String key, long value) {
+        changes.put(key, p -> p.put(key, value));
+        return this;
+    }
+
+    @Override
+    public PreferencesEditor put(String key, Object value) {
+        changes.put(key, p -> p.put(key, value));
+        return this;
+    }
+
+    @Override
+    public PreferencesEditor put(String key, String value) {
+        changes.put(key, p -> p.put(key, value));
+        return this;
+    }
+
+    @Override
+    public PreferencesEditor remove(String key) {
+        changes.put(key, p -> p.remove(key));
+        return this;
+    }
+
+    @Override
+    public void commit() {
+        if (changes.isEmpty())
+            return;
+        target.applyBatch(new ArrayList<>(changes.values()));
+        changes.clear();
+    }
+}
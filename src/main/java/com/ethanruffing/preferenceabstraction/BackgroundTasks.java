@@ -0,0 +1,78 @@
+/*
+ * Copyright 2026 Ethan Ruffing
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ethanruffing.preferenceabstraction;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Holds the threads used for background maintenance of preference stores, such
+ * as flushing and compaction, and for notifying listeners. The threads are
+ * daemons, so they never keep the JVM alive.
+ *
+ * @author Ethan Ruffing
+ * @since 2026-10-18
+ */
+final class BackgroundTasks {
+    /**
+     * The executor that runs all background maintenance.
+     */
+    static final ScheduledExecutorService EXECUTOR =
+            Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "preference-abstraction-background");
+                t.setDaemon(true);
+                return t;
+            });
+
+    /**
+     * The default executor for notifying change listeners, kept apart from
+     * maintenance so that a slow listener cannot hold up flushing.
+     */
+    static final ExecutorService EVENTS =
+            Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "preference-abstraction-events");
+                t.setDaemon(true);
+                return t;
+            });
+
+    /**
+     * The default executor for blocking work done on behalf of callers, such
+     * as the writes made by {@link AsyncPreferences}. This starts a virtual
+     * thread per task where the JVM supports them, and otherwise uses a pool
+     * of daemon threads.
+     */
+    static final Executor IO = createIoExecutor();
+
+    private BackgroundTasks() {
+    }
+
+    private static Executor createIoExecutor() {
+        try {
+            // Looked up reflectively, as virtual threads need Java 21.
+            return (Executor) Executors.class.getMethod(
+                    "newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, "preference-abstraction-io");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+}
@@ -0,0 +1,417 @@
+/*
+ * Copyright 2026 Ethan Ruffing
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ethanruffing.preferenceabstraction;
+
+import org.apache.commons.configuration.AbstractFileConfiguration;
+import org.apache.commons.configuration.ConfigurationException;
+import org.apache.commons.configuration.ConfigurationRuntimeException;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A configuration stored as an append-only log of {@link BinaryRecords binary
+ * records}. Each change is appended to the end of the file as a single record,
+ * rather than rewriting the whole file, and the current state is rebuilt by
+ * replaying the log when it is opened.
+ * <p>
+ * Once the log holds many more records than there are live keys, it is
+ * compacted in the background by writing the live keys to a new file and
+ * atomically replacing the log with it.
+ * <p>
+ * With auto-save enabled, every change is appended immediately. Otherwise,
+ * changes accumulate in memory and are appended together by {@link #save()}.
+ * Either way, each save forces the appended records to disk before it
+ * returns, so that they survive a crash.
+ *
+ * @author Ethan Ruffing
+ * @since 2026-10-18
+ */
+final class BinaryLogConfiguration extends AbstractFileConfiguration
+        implements Closeable {
+    /**
+     * The number of records that the log must exceed before it is considered
+     * for compaction.
+     */
+    private static final int COMPACTION_MIN_RECORDS = 1024;
+
+    /**
+     * Changes that have been made in memory but not yet appended to the log.
+     */
+    private final List<byte[]> pending = new ArrayList<>();
+
+    /**
+     * Records appended since a compaction started, which must be carried over
+     * to the compacted log. <code>null</code> while no compaction is running.
+     */
+    private List<byte[]> sinceSnapshot;
+
+    private final CodecRegistry codecs;
+    private final StoreMetrics metrics;
+    private OutputStream log;
+    private FileOutputStream logFile;
+    private long records;
+
+    /**
+     * Opens the log stored in the given file, replaying it if it exists.
+     *
+     * @param file    The file that the log is stored in.
+     * @param codecs  The codecs with which to encode objects.
+     * @param metrics The metrics to report errors in the background to.
+     * @throws ConfigurationException Thrown if the file exists but is not a
+     *                                binary preferences log.
+     */
+    BinaryLogConfiguration(File file, CodecRegistry codecs,
+                           StoreMetrics metrics)
+            throws ConfigurationException {
+        this.codecs = codecs;
+        this.metrics = metrics;
+        setDelimiterParsingDisabled(true);
+        setFile(file);
+        if (file.exists() && file.length() > 0)
+            replay(file);
+    }
+
+    /**
+     * Rebuilds the configuration from the log. A trailing record that is
+     * incomplete or corrupt, as may be left by a crash, is truncated away.
+     *
+     * @param file The file that the log is stored in.
+     * @throws ConfigurationException Thrown if the file cannot be read.
+     */
+    private void replay(File file) throws ConfigurationException {
+        long valid;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(file)))) {
+            valid = readRecords(in);
+        } catch (IOException e) {
+            throw new ConfigurationException("Unable to read " + file, e);
+        }
+        if (valid < file.length()) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(valid);
+            } catch (IOException e) {
+                throw new ConfigurationException("Unable to repair " + file, e);
+            }
+        }
+    }
+
+    /**
+     * Applies every record in a stream to the configuration, without adding
+     * them to the log.
+     *
+     * @param in The stream to read, positioned at the file header.
+     * @return The number of bytes of valid records read, including the header.
+     * @throws IOException Thrown if the stream cannot be read.
+     */
+    private long readRecords(DataInputStream in) throws IOException {
+        BinaryRecords.readHeader(in);
+        long valid = BinaryRecords.HEADER_LENGTH;
+        BinaryRecords.Record record;
+        synchronized (reloadLock) {
+            while ((record = BinaryRecords.read(in, codecs)) != null) {
+                super.clearPropertyDirect(record.key);
+                if (record.value != null)
+                    super.addPropertyDirect(record.key, record.value);
+                valid += record.size;
+                records++;
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * Stores a value, replacing any existing value for the key. Unlike in
+     * other configurations, arrays and collections are stored as single values.
+     *
+     * @param key   The key to store the value under.
+     * @param value The value to store.
+     */
+    @Override
+    public void setProperty(String key, Object value) {
+        synchronized (reloadLock) {
+            super.clearPropertyDirect(key);
+            if (value != null)
+                super.addPropertyDirect(key, value);
+            record(key, value);
+            possiblySave();
+        }
+    }
+
+    @Override
+    protected void addPropertyDirect(String key, Object value) {
+        super.addPropertyDirect(key, value);
+        record(key, getProperty(key));
+    }
+
+    @Override
+    protected void clearPropertyDirect(String key) {
+        super.clearPropertyDirect(key);
+        record(key, null);
+    }
+
+    /**
+     * Removes all values, and truncates the log immediately.
+     */
+    @Override
+    public void clear() {
+        synchronized (reloadLock) {
+            super.clear();
+            pending.clear();
+            sinceSnapshot = null;
+            closeLog();
+            File file = getFile();
+            if (file != null && file.exists()) {
+                try (FileOutputStream out = new FileOutputStream(file)) {
+                    BinaryRecords.writeHeader(out);
+                    out.getFD().sync();
+                } catch (IOException e) {
+                    throw new ConfigurationRuntimeException(
+                            "Unable to truncate " + file, e);
+                }
+            }
+            records = 0;
+        }
+    }
+
+    /**
+     * Appends all pending changes to the log with a single write.
+     *
+     * @throws ConfigurationException Thrown if the log cannot be written.
+     */
+    @Override
+    public void save() throws ConfigurationException {
+        synchronized (reloadLock) {
+            if (pending.isEmpty())
+                return;
+            try {
+                OutputStream out = openLog();
+                for (byte[] record : pending) {
+                    out.write(record);
+                    if (sinceSnapshot != null)
+                        sinceSnapshot.add(record);
+                }
+                out.flush();
+                logFile.getFD().sync();
+            } catch (IOException e) {
+                closeLog();
+                throw new ConfigurationException(
+                        "Unable to append to " + getFile(), e);
+            }
+            records += pending.size();
+            pending.clear();
+            maybeCompact();
+        }
+    }
+
+    /**
+     * Writes a compacted image of the configuration to a stream. This is used
+     * when saving to anywhere other than the log itself.
+     *
+     * @param out      The stream to write to.
+     * @param encoding Ignored, as the format is binary.
+     * @throws ConfigurationException Thrown if the stream cannot be written.
+     */
+    @Override
+    public void save(OutputStream out, String encoding)
+            throws ConfigurationException {
+        try {
+            Map<String, Object> live;
+            synchronized (reloadLock) {
+                live = snapshot();
+            }
+            writeImage(out, live);
+            out.flush();
+        } catch (IOException e) {
+            throw new ConfigurationException(e);
+        }
+    }
+
+    /**
+     * Reads records from a stream written by {@link #save(OutputStream,
+     * String)}, adding them to this configuration.
+     *
+     * @param in       The stream to read from.
+     * @param encoding Ignored, as the format is binary.
+     * @throws ConfigurationException Thrown if the stream cannot be read.
+     */
+    @Override
+    public void load(InputStream in, String encoding)
+            throws ConfigurationException {
+        try {
+            readRecords(new DataInputStream(new BufferedInputStream(in)));
+        } catch (IOException e) {
+            throw new ConfigurationException(e);
+        }
+    }
+
+    @Override
+    public void load(Reader in) throws ConfigurationException {
+        throw new ConfigurationException(
+                "A binary preferences log cannot be read as text.");
+    }
+
+    @Override
+    public void save(Writer out) throws ConfigurationException {
+        throw new ConfigurationException(
+                "A binary preferences log cannot be written as text.");
+    }
+
+    /**
+     * Closes the log file. It is reopened by the next write.
+     */
+    @Override
+    public void close() {
+        synchronized (reloadLock) {
+            closeLog();
+        }
+    }
+
+    /**
+     * Queues a change to be appended to the log.
+     *
+     * @param key   The key that was changed.
+     * @param value The new value, or <code>null</code> if the key was removed.
+     */
+    private void record(String key, Object value) {
+        try {
+            pending.add(BinaryRecords.encode(key, value, codecs));
+        } catch (IOException e) {
+            throw new ConfigurationRuntimeException(
+                    "Unable to encode the value for " + key, e);
+        }
+    }
+
+    /**
+     * @return The stream that appends to the log, opening it if necessary.
+     * @throws IOException Thrown if the log cannot be opened.
+     */
+    private OutputStream openLog() throws IOException {
+        if (log == null) {
+            File file = getFile();
+            boolean empty = !file.exists() || file.length() == 0;
+            logFile = new FileOutputStream(file, true);
+            log = new BufferedOutputStream(logFile);
+            if (empty) {
+                BinaryRecords.writeHeader(log);
+                records = 0;
+            }
+        }
+        return log;
+    }
+
+    private void closeLog() {
+        if (log != null) {
+            closeSilent(log);
+            log = null;
+            logFile = null;
+        }
+    }
+
+    /**
+     * Starts compacting the log in the background if it holds many more
+     * records than there are live keys. Must be called while holding the
+     * reload lock.
+     */
+    private void maybeCompact() {
+        if (sinceSnapshot != null || records < COMPACTION_MIN_RECORDS)
+            return;
+        Map<String, Object> live = snapshot();
+        if (records < 2L * live.size())
+            return;
+        sinceSnapshot = new ArrayList<>();
+        BackgroundTasks.EXECUTOR.execute(() -> compact(live));
+    }
+
+    /**
+     * Replaces the log with one holding only the given live values, plus any
+     * records appended since they were captured.
+     *
+     * @param live The live values at the start of the compaction.
+     */
+    private void compact(Map<String, Object> live) {
+        File file = getFile();
+        File tmp = new File(file.getPath() + ".compact");
+        try {
+            try (FileOutputStream fos = new FileOutputStream(tmp)) {
+                OutputStream out = new BufferedOutputStream(fos);
+                writeImage(out, live);
+                out.flush();
+                fos.getFD().sync();
+            }
+            synchronized (reloadLock) {
+                if (sinceSnapshot == null) {
+                    // Cleared while compacting.
+                    tmp.delete();
+                    return;
+                }
+                try (FileOutputStream out = new FileOutputStream(tmp, true)) {
+                    for (byte[] record : sinceSnapshot)
+                        out.write(record);
+                    out.getFD().sync();
+                }
+                closeLog();
+                Files.move(tmp.toPath(), file.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE
+                );
+                records = live.size() + sinceSnapshot.size();
+                sinceSnapshot = null;
+            }
+        } catch (IOException e) {
+            metrics.error(e);
+            tmp.delete();
+            synchronized (reloadLock) {
+                sinceSnapshot = null;
+            }
+        }
+    }
+
+    /**
+     * @return A copy of all live values. Must be called while holding the
+     * reload lock.
+     */
+    private Map<String, Object> snapshot() {
+        Map<String, Object> live = new LinkedHashMap<>();
+        Iterator<String> keys = getKeys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            live.put(key, getProperty(key));
+        }
+        return live;
+    }
+
+    /**
+     * Writes a header followed by one record per value.
+     *
+     * @param out    The stream to write to.
+     * @param values The values to write.
+     * @throws IOException Thrown if the stream cannot be written.
+     */
+    private void writeImage(OutputStream out, Map<String, Object> values)
+            throws IOException {
+        BinaryRecords.writeHeader(out);
+        for (Map.Entry<String, Object> e : values.entrySet())
+            out.write(BinaryRecords.encode(e.getKey(), e.getValue(), codecs));
+    }
+}
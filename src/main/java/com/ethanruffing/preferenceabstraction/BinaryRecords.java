@@ -0,0 +1,340 @@
+/*
+ * Copyright 2026 Ethan Ruffing
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ethanruffing.preferenceabstraction;
+
+import java.io.*;
+import java.nio.Buffer;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Encodes preferences as compact binary records, each holding a type tag, a
+ * key and a value. Every record is framed by its length and a checksum, so
+ * that a record left incomplete by a crash can be recognised and discarded.
+ * <p>
+ * A record is laid out as follows, with all numbers big-endian:
+ * <pre>
+ * int    length of the body
+ * body:  byte   type tag
+ *        int    length of the key, followed by the key in UTF-8
+ *        ...    the value, in a form depending on the tag
+ * int    CRC-32 of the body
+ * </pre>
+ *
+ * @author Ethan Ruffing
+ * @since 2026-10-18
+ */
+final class BinaryRecords {
+    /**
+     * The bytes that every binary preferences file starts with, followed by a
+     * single format version byte.
+     */
+    private static final byte[] MAGIC = {'P', 'A', 'B', 'R'};
+    private static final byte VERSION = 1;
+
+    /**
+     * The length of the file header.
+     */
+    static final int HEADER_LENGTH = MAGIC.length + 1;
+
+    /**
+     * The largest record body that will be read, to avoid allocating huge
+     * buffers when reading a corrupt length.
+     */
+    private static final int MAX_BODY_LENGTH = 64 * 1024 * 1024;
+
+    static final byte BOOLEAN = 1;
+    static final byte INT = 2;
+    static final byte LONG = 3;
+    static final byte FLOAT = 4;
+    static final byte DOUBLE = 5;
+    static final byte STRING = 6;
+    static final byte BYTES = 7;
+    static final byte OBJECT = 8;
+    static final byte REMOVE = 9;
+
+    private BinaryRecords() {
+    }
+
+    /**
+     * A single decoded record.
+     */
+    static final class Record {
+        /**
+         * The key that the record applies to.
+         */
+        final String key;
+        /**
+         * The value, or <code>null</code> if the record removes the key.
+         */
+        final Object value;
+        /**
+         * The number of bytes that the record occupied, including framing.
+         */
+        final int size;
+
+        private Record(String key, Object value, int size) {
+            this.key = key;
+            this.value = value;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Writes the file header.
+     *
+     * @param out The stream to write to.
+     * @throws IOException Thrown if the header cannot be written.
+     */
+    static void writeHeader(OutputStream out) throws IOException {
+        out.write(MAGIC);
+        out.write(VERSION);
+    }
+
+    /**
+     * Reads and checks the file header.
+     *
+     * @param in The stream to read from.
+     * @throws IOException Thrown if the stream does not start with a valid
+     *                     header.
+     */
+    static void readHeader(DataInputStream in) throws IOException {
+        byte[] header = new byte[HEADER_LENGTH];
+        in.readFully(header);
+        if (!Arrays.equals(Arrays.copyOf(header, MAGIC.length), MAGIC))
+            throw new IOException("Not a binary preferences file.");
+        if (header[MAGIC.length] != VERSION)
+            throw new IOException("Unsupported binary preferences version "
+                    + header[MAGIC.length] + ".");
+    }
+
+    /**
+     * Encodes a framed record.
+     *
+     * @param key    The key that the record applies to.
+     * @param value  The value to store, or <code>null</code> to encode the
+     *               removal of the key.
+     * @param codecs The codecs with which to encode objects.
+     * @return The framed record.
+     * @throws IOException Thrown if the value cannot be encoded.
+     */
+    static byte[] encode(String key, Object value, CodecRegistry codecs)
+            throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(32);
+        DataOutputStream out = new DataOutputStream(bos);
+        out.writeInt(0); // Length placeholder
+        if (value == null) {
+            out.writeByte(REMOVE);
+            writeString(out, key);
+        } else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            writeString(out, key);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(INT);
+            writeString(out, key);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            writeString(out, key);
+            out.writeLong((Long) value);
+        } else if (value instanceof Float) {
+            out.writeByte(FLOAT);
+            writeString(out, key);
+            out.writeFloat((Float) value);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            writeString(out, key);
+            out.writeDouble((Double) value);
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            writeString(out, key);
+            writeString(out, (String) value);
+        } else if (value instanceof byte[]) {
+            out.writeByte(BYTES);
+            writeString(out, key);
+            out.writeInt(((byte[]) value).length);
+            out.write((byte[]) value);
+        } else if (codecs.canEncode(value)) {
+            byte[] bytes = codecs.encode(value);
+            out.writeByte(OBJECT);
+            writeString(out, key);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        } else {
+            // Store what a text-based file would have stored.
+            out.writeByte(STRING);
+            writeString(out, key);
+            writeString(out, value.toString());
+        }
+        out.writeInt(0); // Checksum placeholder
+        out.flush();
+
+        byte[] record = bos.toByteArray();
+        int bodyLength = record.length - 8;
+        CRC32 crc = new CRC32();
+        crc.update(record, 4, bodyLength);
+        putInt(record, 0, bodyLength);
+        putInt(record, record.length - 4, (int) crc.getValue());
+        return record;
+    }
+
+    /**
+     * Reads the next record from a stream.
+     *
+     * @param in     The stream to read from.
+     * @param codecs The codecs with which to decode objects.
+     * @return The record, or <code>null</code> if the stream ends, or if the
+     * next record is incomplete or corrupt.
+     * @throws IOException Thrown if the stream cannot be read, or an object
+     *                     cannot be decoded.
+     */
+    static Record read(DataInputStream in, CodecRegistry codecs)
+            throws IOException {
+        byte[] body;
+        int checksum;
+        try {
+            int length = in.readInt();
+            if (length <= 0 || length > MAX_BODY_LENGTH)
+                return null;
+            body = new byte[length];
+            in.readFully(body);
+            checksum = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(body, 0, body.length);
+        if ((int) crc.getValue() != checksum)
+            return null;
+        return decode(ByteBuffer.wrap(body), codecs);
+    }
+
+    /**
+     * Reads the next record from a buffer, such as a memory-mapped file,
+     * without copying its body.
+     *
+     * @param in     The buffer to read from, positioned at the record.
+     * @param codecs The codecs with which to decode objects.
+     * @return The record, or <code>null</code> if the buffer ends, or if the
+     * next record is incomplete or corrupt.
+     * @throws IOException Thrown if an object cannot be decoded.
+     */
+    static Record read(ByteBuffer in, CodecRegistry codecs)
+            throws IOException {
+        if (in.remaining() < 4)
+            return null;
+        int length = in.getInt();
+        if (length <= 0 || length > in.remaining() - 4)
+            return null;
+        // Cast to Buffer, whose methods ByteBuffer only overrides from Java 9.
+        ByteBuffer body = in.slice();
+        ((Buffer) body).limit(length);
+        ((Buffer) in).position(in.position() + length);
+        int checksum = in.getInt();
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        if ((int) crc.getValue() != checksum)
+            return null;
+        ((Buffer) body).flip();
+        return decode(body, codecs);
+    }
+
+    /**
+     * Decodes the body of a record whose checksum has been verified.
+     *
+     * @param body   The body.
+     * @param codecs The codecs with which to decode objects.
+     * @return The record.
+     * @throws IOException Thrown if the body is malformed, or an object
+     *                     cannot be decoded.
+     */
+    private static Record decode(ByteBuffer body, CodecRegistry codecs)
+            throws IOException {
+        int size = body.remaining() + 8;
+        try {
+            byte tag = body.get();
+            String key = readString(body);
+            Object value;
+            switch (tag) {
+                case REMOVE:
+                    value = null;
+                    break;
+                case BOOLEAN:
+                    value = body.get() != 0;
+                    break;
+                case INT:
+                    value = body.getInt();
+                    break;
+                case LONG:
+                    value = body.getLong();
+                    break;
+                case FLOAT:
+                    value = body.getFloat();
+                    break;
+                case DOUBLE:
+                    value = body.getDouble();
+                    break;
+                case STRING:
+                    value = readString(body);
+                    break;
+                case BYTES:
+                    value = readBytes(body);
+                    break;
+                case OBJECT:
+                    try {
+                        value = codecs.decodeLater(readBytes(body));
+                    } catch (ClassNotFoundException e) {
+                        throw new IOException(e);
+                    }
+                    break;
+                default:
+                    throw new IOException("Unknown record type " + tag + ".");
+            }
+            return new Record(key, value, size);
+        } catch (BufferUnderflowException | NegativeArraySizeException e) {
+            throw new IOException("Malformed record.", e);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s)
+            throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        return new String(readBytes(in), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readBytes(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return bytes;
+    }
+
+    private static void putInt(byte[] b, int offset, int value) {
+        b[offset] = (byte) (value >>> 24);
+        b[offset + 1] = (byte) (value >>> 16);
+        b[offset + 2] = (byte) (value >>> 8);
+        b[offset + 3] = (byte) value;
+    }
+}
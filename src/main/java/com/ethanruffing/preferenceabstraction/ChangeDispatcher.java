@@ -0,0 +1,168 @@
+/*
+ * Copyright 2026 Ethan Ruffing
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ethanruffing.preferenceabstraction;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * Collects changed keys and notifies {@link ChangeListener listeners} of them
+ * in batches, on an executor.
+ * <p>
+ * At most one notification run is scheduled at a time, and it keeps going
+ * until no changes remain, so keys changed while listeners are being notified
+ * are delivered together in the following batch. While a batch of changes is
+ * being applied, notification is held back until the batch is complete.
+ *
+ * @author Ethan Ruffing
+ * @since 2026-10-18
+ */
+final class ChangeDispatcher {
+    private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile Executor executor;
+    private final Consumer<Throwable> errors;
+    private Set<String> pending = new LinkedHashSet<>();
+    private boolean scheduled;
+    private int batchDepth;
+
+    /**
+     * @param executor The executor to notify listeners on.
+     * @param errors   Told of exceptions thrown by listeners, and of
+     *                 notifications that the executor rejects.
+     */
+    ChangeDispatcher(Executor executor, Consumer<Throwable> errors) {
+        setExecutor(executor);
+        this.errors = errors;
+    }
+
+    /**
+     * @param executor The executor to notify listeners on from now on.
+     */
+    void setExecutor(Executor executor) {
+        if (executor == null)
+            throw new NullPointerException("executor");
+        this.executor = executor;
+    }
+
+    void addListener(ChangeListener listener) {
+        if (listener == null)
+            throw new NullPointerException("listener");
+        listeners.add(listener);
+    }
+
+    void removeListener(ChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @return Whether any listener is registered.
+     */
+    boolean hasListeners() {
+        return !listeners.isEmpty();
+    }
+
+    /**
+     * Records that a key has changed.
+     *
+     * @param key The key.
+     */
+    void changed(String key) {
+        if (listeners.isEmpty())
+            return;
+        synchronized (this) {
+            pending.add(key);
+            schedule();
+        }
+    }
+
+    /**
+     * Records that several keys have changed.
+     *
+     * @param keys The keys.
+     */
+    void changed(Collection<String> keys) {
+        if (listeners.isEmpty() || keys.isEmpty())
+            return;
+        synchronized (this) {
+            pending.addAll(keys);
+            schedule();
+        }
+    }
+
+    /**
+     * Holds back notifications until the matching {@link #endBatch()}.
+     */
+    synchronized void beginBatch() {
+        batchDepth++;
+    }
+
+    /**
+     * Ends a batch started by {@link #beginBatch()}, releasing the
+     * notifications held back during it.
+     */
+    synchronized void endBatch() {
+        batchDepth--;
+        schedule();
+    }
+
+    /**
+     * Schedules a notification run if one is needed. Must be called while
+     * holding this object's lock.
+     */
+    private void schedule() {
+        if (scheduled || batchDepth > 0 || pending.isEmpty())
+            return;
+        scheduled = true;
+        try {
+            executor.execute(this::dispatch);
+        } catch (RejectedExecutionException e) {
+            scheduled = false;
+            errors.accept(e);
+        }
+    }
+
+    /**
+     * Notifies listeners until no changes remain.
+     */
+    private void dispatch() {
+        while (true) {
+            Set<String> keys;
+            synchronized (this) {
+                if (pending.isEmpty() || batchDepth > 0) {
+                    scheduled = false;
+                    return;
+                }
+                keys = Collections.unmodifiableSet(pending);
+                pending = new LinkedHashSet<>();
+            }
+            for (ChangeListener listener : listeners) {
+                try {
+                    listener.preferencesChanged(keys);
+                } catch (RuntimeException e) {
+                    errors.accept(e);
+                }
+            }
+        }
+    }
+}
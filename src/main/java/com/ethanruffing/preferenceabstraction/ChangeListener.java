@@ -0,0 +1,42 @@
+/*
+ * Copyright 2026 Ethan Ruffing
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ethanruffing.preferenceabstraction;
+
+import java.util.Set;
+
+/**
+ * Receives notifications of changes to a preference store.
+ * <p>
+ * Changes are collected and delivered in batches, away from the thread that
+ * made them, so a listener is told once about many changes made in quick
+ * succession, and about all changes committed together by a {@link
+ * PreferencesEditor} at once. Notifications to a single listener never
+ * overlap.
+ *
+ * @author Ethan Ruffing
+ * @since 2026-10-18
+ */
+@FunctionalInterface
+public interface ChangeListener {
+    /**
+     * Called after preferences have changed.
+     *
+     * @param keys The keys whose values have been set or removed since the
+     *             last notification. The set cannot be modified.
+     */
+    void preferencesChanged(Set<String> keys);
+}
@@ -0,0 +1,498 @@
+/*
+ * Copyright 2026 Ethan Ruffing
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ethanruffing.preferenceabstraction;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.prefs.BackingStoreException;
+import java.util.prefs.Preferences;
+
+/**
+ * Byte arrays kept in a system preferences node, of any size.
+ * <p>
+ * The Java Preferences API stores byte arrays as Base64 strings, which may be
+ * no longer than {@link Preferences#MAX_VALUE_LENGTH}. Arrays that fit are
+ * stored under their key as usual. Larger ones are split into chunks that
+ * each fit, stored in a node of their own beneath the hidden {@value #NODE}
+ * node, and their key holds a pointer to that node in place of the value.
+ * Chunks are written and read one at a time, so that neither the whole
+ * Base64 string nor, where the value is streamed, the whole array is ever
+ * held in memory.
+ * <p>
+ * Each value is given a fresh node, which only replaces the old one once
+ * it has been written in full, so readers never see a mixture of the two.
+ * <p>
+ * Every key holding a byte array, chunked or not, is also recorded in the
+ * {@value #NODE} node itself, so that the arrays can be told apart from
+ * strings that merely happen to be valid Base64. The record of a chunked
+ * value holds its pointer, and a key's value is only taken to be a pointer
+ * if it matches, so no string stored by the user is ever mistaken for one.
+ * <p>
+ * Most stores never hold a byte array, and finding that the {@value #NODE}
+ * node does not exist can mean listing the directory behind the store. Its
+ * absence is therefore only checked again once any instance in this JVM has
+ * stored a byte array, or after {@link #ABSENCE_RECHECK_NANOS} for one stored
+ * by another process.
+ *
+ * @author Ethan Ruffing
+ * @since 2026-10-18
+ */
+final class ChunkedValues {
+    /**
+     * The name of the node beneath which chunked values are kept. Java
+     * package names cannot start with a dot, so it does not clash with the
+     * nodes of any subpackage.
+     */
+    static final String NODE = ".chunks";
+
+    /**
+     * The start of a pointer to a chunked value.
+     */
+    private static final String POINTER_PREFIX = "@chunks:";
+
+    /**
+     * The most bytes that may be stored in one value, given the Base64
+     * encoding's four characters for every three bytes.
+     */
+    static final int CHUNK_SIZE = Preferences.MAX_VALUE_LENGTH / 4 * 3;
+
+    /**
+     * How long the {@value #NODE} node is taken to be absent once it has been
+     * found to be, unless this JVM creates one meanwhile.
+     */
+    static final long ABSENCE_RECHECK_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * The number of times that byte arrays have been stored through this
+     * class in this JVM, each of which may have created a {@value #NODE}
+     * node.
+     */
+    private static final AtomicLong CREATED = new AtomicLong();
+
+    private final Preferences prefs;
+    private final StoreMetrics metrics;
+
+    /**
+     * The value of {@link #CREATED} when the {@value #NODE} node was last
+     * found to be absent, or <code>-1</code> if it is not known to be.
+     */
+    private volatile long absentAt = -1;
+    private volatile long absentSince;
+
+    /**
+     * @param prefs   The node in which the values are stored.
+     * @param metrics The metrics to report errors to.
+     */
+    ChunkedValues(Preferences prefs, StoreMetrics metrics) {
+        this.prefs = prefs;
+        this.metrics = metrics;
+    }
+
+    /**
+     * @param key   A key.
+     * @param value The string stored under the key.
+     * @return Whether the string is a pointer to the chunks of a value.
+     */
+    boolean isChunked(String key, String value) {
+        return pointer(key, value) != null;
+    }
+
+    /**
+     * @param key A key.
+     * @return Whether the key was last given a byte array by this class,
+     * rather than some other value.
+     */
+    boolean holdsBytes(String key) {
+        return record(key) != null;
+    }
+
+    /**
+     * @param key A key.
+     * @return The record of the byte array stored under the key: its
+     * pointer if it is chunked, the empty string if not, or
+     * <code>null</code> if it holds no byte array.
+     */
+    private String record(String key) {
+        try {
+            return hasRecords() ? prefs.node(NODE).get(key, null) : null;
+        } catch (BackingStoreException | IllegalStateException e) {
+            metrics.error(e);
+            return null;
+        }
+    }
+
+    /**
+     * @return Whether the {@value #NODE} node exists, as far as is known.
+     * @throws BackingStoreException Thrown if the store cannot be read.
+     */
+    private boolean hasRecords() throws BackingStoreException {
+        long created = CREATED.get();
+        if (absentAt == created
+                && System.nanoTime() - absentSince < ABSENCE_RECHECK_NANOS)
+            return false;
+        if (prefs.nodeExists(NODE))
+            return true;
+        absentSince = System.nanoTime();
+        absentAt = created;
+        return false;
+    }
+
+    /**
+     * @return The {@value #NODE} node, created if need be.
+     */
+    private Preferences records() {
+        Preferences records = prefs.node(NODE);
+        CREATED.incrementAndGet();
+        return records;
+    }
+
+    /**
+     * @param key   A key.
+     * @param value The string stored under the key.
+     * @return The pointer that the string holds, or <code>null</code> if it
+     * does not hold the one recorded for the key.
+     */
+    private Pointer pointer(String key, String value) {
+        if (value == null || !value.startsWith(POINTER_PREFIX)
+                || !value.equals(record(key)))
+            return null;
+        return Pointer.parse(value);
+    }
+
+    /**
+     * Stores a byte array, chunked if it is too large to store whole.
+     *
+     * @param key   The key to store it under.
+     * @param value The byte array.
+     */
+    void put(String key, byte[] value) {
+        try (Writer out = writer(key)) {
+            out.write(value);
+            out.commit();
+        } catch (IOException e) {
+            // Not thrown, as the length of an array fits in a pointer.
+            metrics.error(e);
+        }
+    }
+
+    /**
+     * Starts writing a byte array, which is stored once {@link
+     * Writer#commit() committed}. Closing the writer beforehand discards it.
+     *
+     * @param key The key to store it under.
+     * @return The writer.
+     */
+    Writer writer(String key) {
+        return new Writer(key);
+    }
+
+    /**
+     * Reads a stored byte array in full.
+     *
+     * @param key The key it is stored under.
+     * @return The byte array, or <code>null</code> if there is none.
+     * @throws IOException Thrown if a chunk is missing.
+     */
+    byte[] get(String key) throws IOException {
+        String value = prefs.get(key, null);
+        Pointer pointer = pointer(key, value);
+        if (pointer == null)
+            return value == null ? null : prefs.getByteArray(key, null);
+        Reader in = new Reader(pointer);
+        byte[] bytes = new byte[pointer.length];
+        int read = 0;
+        while (read < bytes.length)
+            read += in.read(bytes, read, bytes.length - read);
+        return bytes;
+    }
+
+    /**
+     * Opens a stored byte array for reading, a chunk at a time.
+     *
+     * @param key The key it is stored under.
+     * @return A stream of the byte array, or <code>null</code> if there is
+     * none.
+     */
+    InputStream stream(String key) {
+        String value = prefs.get(key, null);
+        Pointer pointer = pointer(key, value);
+        if (pointer != null)
+            return new Reader(pointer);
+        byte[] bytes = value == null ? null : prefs.getByteArray(key, null);
+        return bytes == null ? null : new ByteArrayInputStream(bytes);
+    }
+
+    /**
+     * Deletes the chunks of the value stored under a key, if it is chunked,
+     * and the record of it holding a byte array, before the key is given
+     * another value or removed.
+     *
+     * @param key The key.
+     */
+    void release(String key) {
+        if (!holdsBytes(key))
+            return;
+        drop(pointer(key, prefs.get(key, null)));
+        prefs.node(NODE).remove(key);
+    }
+
+    /**
+     * Deletes the chunks of every value, once the keys pointing to them have
+     * been cleared.
+     */
+    void clear() {
+        try {
+            if (prefs.nodeExists(NODE))
+                prefs.node(NODE).removeNode();
+        } catch (BackingStoreException | IllegalStateException e) {
+            metrics.error(e);
+        }
+    }
+
+    /**
+     * Deletes the chunks that a pointer refers to.
+     *
+     * @param pointer The pointer, or <code>null</code> for none.
+     */
+    private void drop(Pointer pointer) {
+        if (pointer == null)
+            return;
+        try {
+            String path = NODE + "/" + pointer.node;
+            if (prefs.nodeExists(path))
+                prefs.node(path).removeNode();
+        } catch (BackingStoreException | IllegalStateException e) {
+            metrics.error(e);
+        }
+    }
+
+    /**
+     * The parts of a pointer: the name of the node holding the chunks and the
+     * length of the value.
+     */
+    private static final class Pointer {
+        final String node;
+        final int length;
+
+        Pointer(String node, int length) {
+            this.node = node;
+            this.length = length;
+        }
+
+        /**
+         * @param value A stored string.
+         * @return The pointer that the string holds, or <code>null</code> if
+         * it is not a pointer.
+         */
+        static Pointer parse(String value) {
+            if (value == null || !value.startsWith(POINTER_PREFIX))
+                return null;
+            int split = value.lastIndexOf(':');
+            String node = value.substring(POINTER_PREFIX.length(),
+                    Math.max(split, POINTER_PREFIX.length()));
+            if (node.isEmpty() || node.indexOf('/') >= 0)
+                return null;
+            try {
+                int length = Integer.parseInt(value.substring(split + 1));
+                return length < 0 ? null : new Pointer(node, length);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return POINTER_PREFIX + node + ":" + length;
+        }
+    }
+
+    /**
+     * Writes a byte array, holding back one chunk at a time. The array is
+     * stored whole if it ends within the first chunk, and is otherwise
+     * chunked from then on.
+     */
+    final class Writer extends OutputStream {
+        private final String key;
+        private final byte[] buffer = new byte[CHUNK_SIZE];
+        private int count;
+        private Preferences node;
+        private String name;
+        private int chunks;
+        private long length;
+        private boolean done;
+
+        private Writer(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public void write(int b) {
+            if (count == buffer.length)
+                spill();
+            buffer[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            while (len > 0) {
+                if (count == buffer.length)
+                    spill();
+                int n = Math.min(len, buffer.length - count);
+                System.arraycopy(b, off, buffer, count, n);
+                count += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        /**
+         * Stores a full buffer as the next chunk.
+         */
+        private void spill() {
+            if (node == null) {
+                name = UUID.randomUUID().toString();
+                node = records().node(name);
+            }
+            node.putByteArray(Integer.toString(chunks++),
+                    count == buffer.length
+                            ? buffer : Arrays.copyOf(buffer, count));
+            length += count;
+            count = 0;
+        }
+
+        /**
+         * Stores the value under its key, in place of any earlier value.
+         *
+         * @throws IOException Thrown if the value is too large to point to.
+         */
+        void commit() throws IOException {
+            Pointer old = pointer(key, prefs.get(key, null));
+            String pointer = "";
+            if (node != null) {
+                if (count > 0)
+                    spill();
+                if (length > Integer.MAX_VALUE)
+                    throw new IOException("Value too large.");
+                pointer = new Pointer(name, (int) length).toString();
+            }
+            // Recorded first, so that the pointer is never found unrecorded.
+            Preferences records = records();
+            if (!pointer.equals(records.get(key, null)))
+                records.put(key, pointer);
+            if (node == null)
+                prefs.putByteArray(key, Arrays.copyOf(buffer, count));
+            else
+                prefs.put(key, pointer);
+            done = true;
+            drop(old);
+        }
+
+        /**
+         * Discards the value, unless it has been committed.
+         */
+        @Override
+        public void close() {
+            if (done || node == null)
+                return;
+            done = true;
+            try {
+                node.removeNode();
+            } catch (BackingStoreException | IllegalStateException e) {
+                metrics.error(e);
+            }
+        }
+    }
+
+    /**
+     * Reads a chunked value, fetching each chunk as it is reached.
+     */
+    private final class Reader extends InputStream {
+        private final String path;
+        private final int length;
+        private Preferences node;
+        private byte[] chunk = new byte[0];
+        private int chunkPos;
+        private int chunks;
+        private int read;
+
+        private Reader(Pointer pointer) {
+            this.path = NODE + "/" + pointer.node;
+            this.length = pointer.length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!fill())
+                return -1;
+            read++;
+            return chunk[chunkPos++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0)
+                return 0;
+            if (!fill())
+                return -1;
+            int n = Math.min(len, chunk.length - chunkPos);
+            System.arraycopy(chunk, chunkPos, b, off, n);
+            chunkPos += n;
+            read += n;
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return chunk.length - chunkPos;
+        }
+
+        /**
+         * Fetches the next chunk if the current one has been read.
+         *
+         * @return Whether there is anything left to read.
+         * @throws IOException Thrown if the next chunk is missing.
+         */
+        private boolean fill() throws IOException {
+            if (chunkPos < chunk.length)
+                return true;
+            if (read >= length)
+                return false;
+            byte[] next = null;
+            try {
+                if (node == null && prefs.nodeExists(path))
+                    node = prefs.node(path);
+                if (node != null)
+                    next = node.getByteArray(Integer.toString(chunks++),
+                            null);
+            } catch (BackingStoreException | IllegalStateException e) {
+                throw new IOException(e);
+            }
+            if (next == null || next.length == 0
+                    || next.length > length - read)
+                throw new IOException("Missing chunk of " + path + ".");
+            chunk = next;
+            chunkPos = 0;
+            return true;
+        }
+    }
+}
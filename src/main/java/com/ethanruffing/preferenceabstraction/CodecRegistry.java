@@ -0,0 +1,431 @@
+/*
+ * Copyright 2026 Ethan Ruffing
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ethanruffing.preferenceabstraction;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.io.Serializable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The {@link ValueCodec codecs} registered with a preference store, which
+ * convert objects to and from bytes.
+ * <p>
+ * Objects of a type with a registered codec are written as a marker byte, the
+ * class name and the codec's output. Anything else falls back to Java
+ * serialization, whose output never starts with the marker, so values stored
+ * before a codec was registered remain readable.
+ * <p>
+ * The buffers used for encoding and decoding are kept per thread and reused.
+ *
+ * @author Ethan Ruffing
+ * @since 2026-10-18
+ */
+final class CodecRegistry {
+    /**
+     * The first byte of every codec-encoded value.
+     */
+    static final byte MARKER = (byte) 0xCD;
+
+    /**
+     * The Base64 form of {@link #MARKER}'s leading bits, used to recognise
+     * codec-encoded values in the system store.
+     */
+    static final String BASE64_PREFIX = "z";
+
+    /**
+     * Buffers larger than this are not kept for reuse, so that one large value
+     * does not pin its buffer for the life of the thread.
+     */
+    private static final int MAX_RETAINED_BUFFER = 64 * 1024;
+
+    private static final ThreadLocal<Buffers> BUFFERS =
+            ThreadLocal.withInitial(Buffers::new);
+
+    private final Map<Class<?>, ValueCodec<?>> byType =
+            new ConcurrentHashMap<>();
+    private final Map<String, ValueCodec<?>> byName =
+            new ConcurrentHashMap<>();
+    private final StoreMetrics metrics;
+
+    /**
+     * @param metrics The metrics to report encoding times and errors to.
+     */
+    CodecRegistry(StoreMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Registers a codec, replacing any existing codec for the type.
+     *
+     * @param type  The exact type of object that the codec handles.
+     * @param codec The codec.
+     * @param <T>   The type of object that the codec handles.
+     */
+    <T> void register(Class<T> type, ValueCodec<T> codec) {
+        if (type == null || codec == null)
+            throw new NullPointerException();
+        byType.put(type, codec);
+        byName.put(type.getName(), codec);
+    }
+
+    /**
+     * @param value An object.
+     * @return Whether the object is written by a codec, rather than by Java
+     * serialization.
+     */
+    boolean handles(Object value) {
+        return value instanceof Encoded
+                || (value != null && byType.containsKey(value.getClass()));
+    }
+
+    /**
+     * @param value An object.
+     * @return Whether {@link #encode(Object)} can write the object.
+     */
+    boolean canEncode(Object value) {
+        return value == null || handles(value)
+                || value instanceof Serializable;
+    }
+
+    /**
+     * Converts an object to bytes, using its registered codec or, failing
+     * that, Java serialization. <code>null</code> is serialized as such.
+     *
+     * @param value The object to convert.
+     * @return The encoded object.
+     * @throws IOException Thrown if the object cannot be encoded.
+     */
+    byte[] encode(Object value) throws IOException {
+        if (value instanceof Encoded)
+            return ((Encoded) value).bytes;
+        long start = metrics.start();
+        try {
+            return encodeValue(value);
+        } finally {
+            metrics.serialization(start);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private byte[] encodeValue(Object value) throws IOException {
+        ValueCodec<Object> codec = value == null ? null
+                : (ValueCodec<Object>) byType.get(value.getClass());
+        if (codec == null)
+            return Serialization.serialize(value);
+
+        Buffers buffers = BUFFERS.get();
+        if (buffers.inUse) {
+            // A codec is storing a nested value; don't clobber its buffer.
+            return encode(codec, value, new Buffers());
+        }
+        buffers.inUse = true;
+        try {
+            return encode(codec, value, buffers);
+        } finally {
+            buffers.inUse = false;
+            if (buffers.out.capacity() > MAX_RETAINED_BUFFER)
+                BUFFERS.remove();
+        }
+    }
+
+    private static byte[] encode(ValueCodec<Object> codec, Object value,
+                                 Buffers buffers) throws IOException {
+        buffers.out.reset();
+        buffers.data.writeByte(MARKER);
+        buffers.data.writeUTF(value.getClass().getName());
+        codec.encode(value, buffers.data);
+        buffers.data.flush();
+        return buffers.out.toByteArray();
+    }
+
+    /**
+     * Writes an object to a stream in the form that {@link #encode(Object)}
+     * returns, without holding the whole of it in memory. The stream is left
+     * open.
+     *
+     * @param value The object to write.
+     * @param out   The stream to write to.
+     * @throws IOException Thrown if the object cannot be encoded or written.
+     */
+    @SuppressWarnings("unchecked")
+    void encode(Object value, OutputStream out) throws IOException {
+        if (value instanceof Encoded) {
+            out.write(((Encoded) value).bytes);
+            return;
+        }
+        long start = metrics.start();
+        try {
+            ValueCodec<Object> codec = value == null ? null
+                    : (ValueCodec<Object>) byType.get(value.getClass());
+            if (codec == null) {
+                Serialization.serialize(value, out);
+                return;
+            }
+            Buffers buffers = BUFFERS.get();
+            if (buffers.inUse)
+                buffers = new Buffers();
+            buffers.inUse = true;
+            buffers.target.out = out;
+            try {
+                DataOutputStream data = buffers.dataTo;
+                data.writeByte(MARKER);
+                data.writeUTF(value.getClass().getName());
+                codec.encode(value, data);
+                data.flush();
+            } finally {
+                buffers.target.out = null;
+                buffers.inUse = false;
+            }
+        } finally {
+            metrics.serialization(start);
+        }
+    }
+
+    /**
+     * Converts bytes written by {@link #encode(Object)} back to an object.
+     *
+     * @param bytes The encoded object.
+     * @return The object.
+     * @throws ClassNotFoundException Thrown if the object was serialized and
+     *                                its class cannot be found.
+     * @throws IOException            Thrown if the bytes cannot be decoded, or
+     *                                the codec that wrote them is no longer
+     *                                registered.
+     */
+    Object decode(byte[] bytes) throws ClassNotFoundException, IOException {
+        long start = metrics.start();
+        try {
+            return decodeValue(bytes);
+        } finally {
+            metrics.serialization(start);
+        }
+    }
+
+    /**
+     * Reads an object from a stream holding the bytes written by {@link
+     * #encode(Object)}, reading only as much of the stream at a time as the
+     * object's codec asks for. The stream is closed afterwards.
+     *
+     * @param in The stream holding the encoded object.
+     * @return The object.
+     * @throws ClassNotFoundException Thrown if the object was serialized and
+     *                                its class cannot be found.
+     * @throws IOException            Thrown if the stream cannot be read or
+     *                                decoded, or the codec that wrote it is
+     *                                no longer registered.
+     */
+    Object decode(InputStream in) throws ClassNotFoundException,
+            IOException {
+        long start = metrics.start();
+        try (PushbackInputStream pushback = new PushbackInputStream(in)) {
+            int first = pushback.read();
+            if (first == -1)
+                throw new IOException("Empty value.");
+            pushback.unread(first);
+            if ((byte) first != MARKER)
+                return Serialization.deserialize(pushback);
+
+            DataInputStream data = new DataInputStream(pushback);
+            data.readByte();
+            String name = data.readUTF();
+            ValueCodec<?> codec = byName.get(name);
+            if (codec == null)
+                throw new IOException("No codec is registered for " + name
+                        + ".");
+            return codec.decode(data);
+        } finally {
+            metrics.serialization(start);
+        }
+    }
+
+    private Object decodeValue(byte[] bytes) throws ClassNotFoundException,
+            IOException {
+        if (bytes.length == 0 || bytes[0] != MARKER)
+            return Serialization.deserialize(bytes);
+
+        Buffers buffers = BUFFERS.get();
+        if (buffers.inUse)
+            return decode(bytes, new Buffers());
+        buffers.inUse = true;
+        try {
+            return decode(bytes, buffers);
+        } finally {
+            buffers.inUse = false;
+            buffers.in.reset(null);
+        }
+    }
+
+    /**
+     * Converts bytes written by {@link #encode(Object)} back to an object if
+     * possible. Values written by a codec that has not been registered yet
+     * are kept in their encoded form, to be decoded by {@link
+     * #resolve(Object)} once it has been.
+     *
+     * @param bytes The encoded object.
+     * @return The object, or its encoded form.
+     * @throws ClassNotFoundException Thrown if the object was serialized and
+     *                                its class cannot be found.
+     * @throws IOException            Thrown if the bytes cannot be decoded.
+     */
+    Object decodeLater(byte[] bytes) throws ClassNotFoundException,
+            IOException {
+        if (bytes.length > 0 && bytes[0] == MARKER
+                && !byName.containsKey(codecName(bytes)))
+            return new Encoded(bytes);
+        return decode(bytes);
+    }
+
+    /**
+     * Decodes a value returned by {@link #decodeLater(byte[])}, if its codec
+     * has since been registered.
+     *
+     * @param value A value read from a store.
+     * @return The decoded value, or the value itself if it needs no decoding
+     * or cannot yet be decoded.
+     */
+    Object resolve(Object value) {
+        if (!(value instanceof Encoded))
+            return value;
+        byte[] bytes = ((Encoded) value).bytes;
+        if (!byName.containsKey(codecName(bytes)))
+            return value;
+        try {
+            return decode(bytes);
+        } catch (ClassNotFoundException | IOException e) {
+            metrics.error(e);
+            return value;
+        }
+    }
+
+    /**
+     * @param bytes A codec-encoded value.
+     * @return The name of the class whose codec wrote the value.
+     */
+    private static String codecName(byte[] bytes) {
+        try {
+            DataInputStream in = new DataInputStream(
+                    new ByteArrayInputStream(bytes, 1, bytes.length - 1));
+            return in.readUTF();
+        } catch (IOException e) {
+            return "";
+        }
+    }
+
+    private Object decode(byte[] bytes, Buffers buffers) throws IOException {
+        buffers.in.reset(bytes);
+        DataInputStream data = buffers.dataIn;
+        data.readByte();
+        String name = data.readUTF();
+        ValueCodec<?> codec = byName.get(name);
+        if (codec == null)
+            throw new IOException("No codec is registered for " + name + ".");
+        return codec.decode(data);
+    }
+
+    /**
+     * A value whose codec was not registered when it was read.
+     */
+    static final class Encoded {
+        private final byte[] bytes;
+
+        private Encoded(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public String toString() {
+            return "[" + codecName(bytes) + ", " + bytes.length + " bytes]";
+        }
+    }
+
+    /**
+     * The reusable streams belonging to one thread.
+     */
+    private static final class Buffers {
+        final ExposedOutputStream out = new ExposedOutputStream();
+        final DataOutputStream data = new DataOutputStream(out);
+        final ResettableInputStream in = new ResettableInputStream();
+        final DataInputStream dataIn = new DataInputStream(in);
+        final ForwardingOutputStream target = new ForwardingOutputStream();
+        final DataOutputStream dataTo = new DataOutputStream(target);
+        boolean inUse;
+    }
+
+    /**
+     * An output stream that passes everything on to another, which can be
+     * changed.
+     */
+    private static final class ForwardingOutputStream extends OutputStream {
+        OutputStream out;
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+    }
+
+    /**
+     * A byte array output stream that reports its capacity.
+     */
+    private static final class ExposedOutputStream
+            extends ByteArrayOutputStream {
+        ExposedOutputStream() {
+            super(256);
+        }
+
+        int capacity() {
+            return buf.length;
+        }
+    }
+
+    /**
+     * A byte array input stream that can be pointed at a new array.
+     */
+    private static final class ResettableInputStream
+            extends ByteArrayInputStream {
+        private static final byte[] EMPTY = new byte[0];
+
+        ResettableInputStream() {
+            super(EMPTY);
+        }
+
+        void reset(byte[] bytes) {
+            buf = bytes == null ? EMPTY : bytes;
+            pos = 0;
+            mark = 0;
+            count = buf.length;
+        }
+    }
+}
@@ -0,0 +1,733 @@
+/*
+ * Copyright 2026 Ethan Ruffing
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ethanruffing.preferenceabstraction;
+
+import java.io.Closeable;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+
+/**
+ * A thread-safe view of an {@link AutoPreferences} store, for use when
+ * preferences are read and written from many threads at once.
+ * <p>
+ * Values are cached in memory as they are read or written, so that reads of
+ * them never block, even while another thread is writing. Only stored values
+ * of immutable types are cached: keys without a value, byte arrays and other
+ * objects are read from the store each time, and a value is only cached once
+ * the store has accepted it. Writes to keys on the
+ * same stripe are serialized, so that the cache always agrees with the store,
+ * while writes to keys on different stripes reach the underlying store
+ * concurrently. There, a file-based store's group commit may write them
+ * together.
+ * <p>
+ * Note: All changes to the underlying store should be made through this
+ * class. Changes made by other means are only seen after {@link #refresh()}.
+ *
+ * @author Ethan Ruffing
+ * @since 2026-10-18
+ */
+public class ConcurrentPreferences implements IPreferences, Closeable {
+    /**
+     * Staged in place of a value that is not to be cached, so that the key's
+     * cache entry is discarded instead.
+     */
+    private static final Object ABSENT = new Object();
+
+    private final AutoPreferences delegate;
+    private final Map<String, Object> values = new ConcurrentHashMap<>();
+    private final ReentrantLock[] stripes;
+
+    /**
+     * Constructs a new thread-safe view of the given store, with 16 lock
+     * stripes.
+     *
+     * @param delegate The store to make thread-safe.
+     */
+    public ConcurrentPreferences(AutoPreferences delegate) {
+        this(delegate, 16);
+    }
+
+    /**
+     * Constructs a new thread-safe view of the given store.
+     *
+     * @param delegate    The store to make thread-safe.
+     * @param stripeCount The number of lock stripes that keys are spread
+     *                    over. Writes to keys on different stripes do not
+     *                    contend here, only within the store itself.
+     */
+    public ConcurrentPreferences(AutoPreferences delegate, int stripeCount) {
+        if (stripeCount <= 0)
+            throw new IllegalArgumentException("stripeCount must be positive");
+        this.delegate = delegate;
+        stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++)
+            stripes[i] = new ReentrantLock();
+    }
+
+    /**
+     * Discards all cached values, so that changes made to the underlying store
+     * by other means become visible.
+     */
+    public void refresh() {
+        lockAll();
+        try {
+            values.clear();
+        } finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     * Deletes all preferences stored for the class.
+     */
+    @Override
+    public void clear() {
+        lockAll();
+        try {
+            delegate.clear();
+            values.clear();
+        } finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     * Writes any pending changes to the backing store.
+     */
+    @Override
+    public void flush() {
+        delegate.flush();
+    }
+
+    /**
+     * Waits for writes in progress, then writes any pending changes and
+     * closes the underlying store.
+     */
+    @Override
+    public void close() {
+        lockAll();
+        try {
+            delegate.close();
+        } finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     * Produces a list of all stored keys.
+     *
+     * @return A list of keys for all preferences currently stored.
+     */
+    @Override
+    public List<String> getKeys() {
+        return delegate.getKeys();
+    }
+
+    /**
+     * Produces a list of the stored keys that begin with a prefix.
+     *
+     * @param prefix The prefix. The empty string matches every key.
+     * @return The matching keys, in ascending order.
+     */
+    @Override
+    public List<String> getKeys(String prefix) {
+        return delegate.getKeys(prefix);
+    }
+
+    /**
+     * Produces a view of the preferences whose keys begin with a prefix, in
+     * which they are read and written without it. Reads through the view are
+     * served from this object's cache.
+     *
+     * @param prefix The prefix, including any separator.
+     * @return A view of the matching preferences.
+     */
+    @Override
+    public IPreferences getSubset(String prefix) {
+        return new PreferencesSubset(this, prefix);
+    }
+
+    /**
+     * Visits every preference with its value, in a single pass over the
+     * underlying store.
+     *
+     * @param action Called with the key and value of each preference.
+     */
+    @Override
+    public void forEach(BiConsumer<String, Object> action) {
+        delegate.forEach(action);
+    }
+
+    /**
+     * Produces a lazily evaluated stream of every preference with its value,
+     * read from the underlying store as the stream is consumed.
+     *
+     * @return The preferences.
+     */
+    @Override
+    public Stream<Map.Entry<String, Object>> entries() {
+        return delegate.entries();
+    }
+
+    /**
+     * Deletes a single preference, if it is present.
+     *
+     * @param key The key of the preference to delete.
+     */
+    @Override
+    public void remove(String key) {
+        write(key, () -> delegate.remove(key), ABSENT);
+    }
+
+    /**
+     * Starts a batch of changes, which are persisted together once committed.
+     *
+     * @return An editor for staging the changes.
+     */
+    @Override
+    public PreferencesEditor edit() {
+        return new Editor();
+    }
+
+    /**
+     * Registers a codec for storing objects of the given type. The cache is
+     * discarded, as values read before the codec was registered may not have
+     * been decoded.
+     *
+     * @param type  The exact type of object that the codec handles.
+     * @param codec The codec.
+     * @param <T>   The type of object that the codec handles.
+     */
+    @Override
+    public <T> void registerCodec(Class<T> type, ValueCodec<T> codec) {
+        lockAll();
+        try {
+            delegate.registerCodec(type, codec);
+            values.clear();
+        } finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     * Registers a listener to be told of changes to the underlying store.
+     * <p>
+     * Note: Changes made other than through this class are reported, but are
+     * not seen by this class until {@link #refresh()} is called.
+     *
+     * @param listener The listener to add.
+     */
+    @Override
+    public void addChangeListener(ChangeListener listener) {
+        delegate.addChangeListener(listener);
+    }
+
+    /**
+     * Stops notifying a listener of changes.
+     *
+     * @param listener The listener to remove.
+     */
+    @Override
+    public void removeChangeListener(ChangeListener listener) {
+        delegate.removeChangeListener(listener);
+    }
+
+    /**
+     * Stores a boolean in the preferences, overwriting any identically-named
+     * properties.
+     *
+     * @param key   The key to store the boolean under.
+     * @param value The boolean to store.
+     */
+    @Override
+    public void put(String key, boolean value) {
+        write(key, () -> delegate.put(key, value), value);
+    }
+
+    /**
+     * Stores a byte array in the preferences, overwriting any identically-named
+     * properties.
+     *
+     * @param key   The key to store the byte array under.
+     * @param value The byte array to store.
+     */
+    @Override
+    public void put(String key, byte[] value) {
+        write(key, () -> delegate.put(key, value), ABSENT);
+    }
+
+    /**
+     * Stores a double in the preferences, overwriting any identically-named
+     * properties.
+     *
+     * @param key   The key to store the double under.
+     * @param value The double to store.
+     */
+    @Override
+    public void put(String key, double value) {
+        write(key, () -> delegate.put(key, value), value);
+    }
+
+    /**
+     * Stores a float in the preferences, overwriting any identically-named
+     * properties.
+     *
+     * @param key   The key to store the float under.
+     * @param value The float to store.
+     */
+    @Override
+    public void put(String key, float value) {
+        write(key, () -> delegate.put(key, value), value);
+    }
+
+    /**
+     * Stores an integer in the preferences, overwriting any identically-named
+     * properties.
+     *
+     * @param key   The key to store the int under.
+     * @param value The int to store.
+     */
+    @Override
+    public void put(String key, int value) {
+        write(key, () -> delegate.put(key, value), value);
+    }
+
+    /**
+     * Stores a long in the preferences, overwriting any identically-named
+     * properties.
+     *
+     * @param key   The key to store the long under.
+     * @param value The long to store.
+     */
+    @Override
+    public void put(String key, long value) {
+        write(key, () -> delegate.put(key, value), value);
+    }
+
+    /**
+     * Stores any object in the preferences, overwriting any identically-named
+     * properties.
+     * <p>
+     * Note: Do not abuse this method. Many backends are not intended for
+     * storing large data chunks and can be severely inhibited by doing so.
+     *
+     * @param key   The key to store the object under.
+     * @param value The object to store.
+     */
+    @Override
+    public void put(String key, Object value) {
+        write(key, () -> delegate.put(key, value), ABSENT);
+    }
+
+    /**
+     * Stores a string in the preferences, overwriting any identically-named
+     * properties.
+     *
+     * @param key   The key to store the string under.
+     * @param value The string to store.
+     */
+    @Override
+    public void put(String key, String value) {
+        write(key, () -> delegate.put(key, value), orAbsent(value));
+    }
+
+    /**
+     * Reads the stored value for an <code>boolean</code> preference.
+     *
+     * @param key The key that the preference is stored under.
+     * @param def The default value to return if a setting is not found for the
+     *            given key.
+     * @return The value stored for the preference, or the default value on
+     * failure.
+     */
+    @Override
+    public boolean getBoolean(String key, boolean def) {
+        return Values.toBoolean(get(key), def);
+    }
+
+    /**
+     * Reads the stored value for an <code>double</code> preference.
+     *
+     * @param key The key that the preference is stored under.
+     * @param def The default value to return if a setting is not found for the
+     *            given key.
+     * @return The value stored for the preference, or the default value on
+     * failure.
+     */
+    @Override
+    public double getDouble(String key, double def) {
+        return Values.toDouble(get(key), def);
+    }
+
+    /**
+     * Reads the stored value for an <code>float</code> preference.
+     *
+     * @param key The key that the preference is stored under.
+     * @param def The default value to return if a setting is not found for the
+     *            given key.
+     * @return The value stored for the preference, or the default value on
+     * failure.
+     */
+    @Override
+    public float getFloat(String key, float def) {
+        return Values.toFloat(get(key), def);
+    }
+
+    /**
+     * Reads the stored value for an <code>int</code> preference.
+     *
+     * @param key The key that the preference is stored under.
+     * @param def The default value to return if a setting is not found for the
+     *            given key.
+     * @return The value stored for the preference, or the default value on
+     * failure.
+     */
+    @Override
+    public int getInt(String key, int def) {
+        return Values.toInt(get(key), def);
+    }
+
+    /**
+     * Reads the stored value for a <code>long</code> preference.
+     *
+     * @param key The key that the preference is stored under.
+     * @param def The default value to return if a setting is not found for the
+     *            given key.
+     * @return The value stored for the preference, or the default value on
+     * failure.
+     */
+    @Override
+    public long getLong(String key, long def) {
+        return Values.toLong(get(key), def);
+    }
+
+    /**
+     * Reads the stored value for a String preference.
+     *
+     * @param key The key that the preference is stored under.
+     * @param def The default value to return if a setting is not found for the
+     *            given key.
+     * @return The value stored for the preference, or the default value on
+     * failure.
+     */
+    @Override
+    public String getString(String key, String def) {
+        return Values.toString(get(key), def);
+    }
+
+    /**
+     * Reads the stored value for an Object preference.
+     *
+     * @param key The key that the preference is stored under.
+     * @param def The default value to return if a setting is not found for the
+     *            given key.
+     * @return The value stored for the preference, or the default value on
+     * failure.
+     */
+    @Override
+    public Object getObject(String key, Object def) {
+        Object value = get(key);
+        return value == null ? def : value;
+    }
+
+    /**
+     * Reads a <code>boolean</code> preference through its handle, from the cache.
+     *
+     * @param key The handle of the preference.
+     * @return The value stored for the preference, or the handle's default
+     * value on failure.
+     */
+    @Override
+    public boolean get(PreferenceKey.OfBoolean key) {
+        return getBoolean(key.getName(), key.def);
+    }
+
+    /**
+     * Reads a <code>double</code> preference through its handle, from the cache.
+     *
+     * @param key The handle of the preference.
+     * @return The value stored for the preference, or the handle's default
+     * value on failure.
+     */
+    @Override
+    public double get(PreferenceKey.OfDouble key) {
+        return getDouble(key.getName(), key.def);
+    }
+
+    /**
+     * Reads a <code>float</code> preference through its handle, from the cache.
+     *
+     * @param key The handle of the preference.
+     * @return The value stored for the preference, or the handle's default
+     * value on failure.
+     */
+    @Override
+    public float get(PreferenceKey.OfFloat key) {
+        return getFloat(key.getName(), key.def);
+    }
+
+    /**
+     * Reads an <code>int</code> preference through its handle, from the cache.
+     *
+     * @param key The handle of the preference.
+     * @return The value stored for the preference, or the handle's default
+     * value on failure.
+     */
+    @Override
+    public int get(PreferenceKey.OfInt key) {
+        return getInt(key.getName(), key.def);
+    }
+
+    /**
+     * Reads a <code>long</code> preference through its handle, from the cache.
+     *
+     * @param key The handle of the preference.
+     * @return The value stored for the preference, or the handle's default
+     * value on failure.
+     */
+    @Override
+    public long get(PreferenceKey.OfLong key) {
+        return getLong(key.getName(), key.def);
+    }
+
+    /**
+     * Reads a String preference through its handle, from the cache.
+     *
+     * @param key The handle of the preference.
+     * @return The value stored for the preference, or the handle's default
+     * value on failure.
+     */
+    @Override
+    public String get(PreferenceKey.OfString key) {
+        return getString(key.getName(), key.def);
+    }
+
+    /**
+     * Reads the cached value for a key, loading it from the underlying store
+     * the first time the key is read.
+     *
+     * @param key The key that the preference is stored under.
+     * @return The value, or <code>null</code> if there is none.
+     */
+    private Object get(String key) {
+        Object value = values.get(key);
+        if (value == null) {
+            ReentrantLock stripe = stripeFor(key);
+            stripe.lock();
+            try {
+                value = values.get(key);
+                if (value == null) {
+                    value = delegate.getRaw(key);
+                    if (isImmutable(value))
+                        values.put(key, value);
+                }
+            } finally {
+                stripe.unlock();
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Makes a change to the underlying store while holding the key's stripe,
+     * then caches the new value. If the change fails, the key's cache entry
+     * is discarded instead, as the store may or may not have taken it.
+     *
+     * @param key    The key being changed.
+     * @param change The change.
+     * @param value  The value to cache, or {@link #ABSENT} to cache nothing.
+     */
+    private void write(String key, Runnable change, Object value) {
+        ReentrantLock stripe = stripeFor(key);
+        stripe.lock();
+        try {
+            boolean done = false;
+            try {
+                change.run();
+                done = true;
+            } finally {
+                if (done && value != ABSENT)
+                    values.put(key, value);
+                else
+                    values.remove(key);
+            }
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * @param value A string being stored, which may be <code>null</code>.
+     * @return The value to cache for it, or {@link #ABSENT} to cache nothing,
+     * as a concurrent map cannot hold <code>null</code>.
+     */
+    private static Object orAbsent(Object value) {
+        return value == null ? ABSENT : value;
+    }
+
+    /**
+     * @param value A value read from the underlying store.
+     * @return Whether the value may be cached, as no caller can change it.
+     */
+    private static boolean isImmutable(Object value) {
+        return value instanceof String || value instanceof Boolean
+                || value instanceof Number && value.getClass()
+                .getName().startsWith("java.lang.");
+    }
+
+    /**
+     * @param key A preference key.
+     * @return The lock guarding writes to the key.
+     */
+    private ReentrantLock stripeFor(String key) {
+        return stripes[indexFor(key)];
+    }
+
+    /**
+     * @param key A preference key.
+     * @return The index of the stripe that the key belongs to.
+     */
+    private int indexFor(String key) {
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        return (h & 0x7fffffff) % stripes.length;
+    }
+
+    /**
+     * Acquires every stripe, in index order.
+     */
+    private void lockAll() {
+        for (ReentrantLock stripe : stripes)
+            stripe.lock();
+    }
+
+    /**
+     * Releases every stripe.
+     */
+    private void unlockAll() {
+        for (int i = stripes.length - 1; i >= 0; i--)
+            stripes[i].unlock();
+    }
+
+    /**
+     * Stages changes in an editor of the underlying store, and publishes them
+     * to the cache once that editor has been committed. If the commit fails,
+     * the affected keys' cache entries are discarded instead.
+     */
+    private final class Editor implements PreferencesEditor {
+        private final PreferencesEditor staged = delegate.edit();
+        private final Map<String, Object> changes = new LinkedHashMap<>();
+
+        @Override
+        public PreferencesEditor put(String key, boolean value) {
+            staged.put(key, value);
+            changes.put(key, value);
+            return this;
+        }
+
+        @Override
+        public PreferencesEditor put(String key, byte[] value) {
+            staged.put(key, value);
+            changes.put(key, ABSENT);
+            return this;
+        }
+
+        @Override
+        public PreferencesEditor put(String key, double value) {
+            staged.put(key, value);
+            changes.put(key, value);
+            return this;
+        }
+
+        @Override
+        public PreferencesEditor put(String key, float value) {
+            staged.put(key, value);
+            changes.put(key, value);
+            return this;
+        }
+
+        @Override
+        public PreferencesEditor put(String key, int value) {
+            staged.put(key, value);
+            changes.put(key, value);
+            return this;
+        }
+
+        @Override
+        public PreferencesEditor put(String key, long value) {
+            staged.put(key, value);
+            changes.put(key, value);
+            return this;
+        }
+
+        @Override
+        public PreferencesEditor put(String key, Object value) {
+            staged.put(key, value);
+            changes.put(key, ABSENT);
+            return this;
+        }
+
+        @Override
+        public PreferencesEditor put(String key, String value) {
+            staged.put(key, value);
+            changes.put(key, orAbsent(value));
+            return this;
+        }
+
+        @Override
+        public PreferencesEditor remove(String key) {
+            staged.remove(key);
+            changes.put(key, ABSENT);
+            return this;
+        }
+
+        @Override
+        public void commit() {
+            if (changes.isEmpty())
+                return;
+            // Acquire the affected stripes in index order to avoid deadlock.
+            TreeSet<Integer> indices = new TreeSet<>();
+            for (String key : changes.keySet())
+                indices.add(indexFor(key));
+            for (int i : indices)
+                stripes[i].lock();
+            try {
+                boolean done = false;
+                try {
+                    staged.commit();
+                    done = true;
+                } finally {
+                    for (Map.Entry<String, Object> change : changes.entrySet())
+                        if (done && change.getValue() != ABSENT)
+                            values.put(change.getKey(), change.getValue());
+                        else
+                            values.remove(change.getKey());
+                }
+            } finally {
+                for (int i : indices.descendingSet())
+                    stripes[i].unlock();
+            }
+            changes.clear();
+        }
+    }
+}
@@ -35,5 +35,11 @@ public enum ConfigurationType {
      * Stored in the system's standard preferences structure using the {@link
      * java.util.prefs Java Preferences API}.
      */
-    SYSTEM
+    SYSTEM,
+    /**
+     * Stored in the user's home directory as a compact, append-only binary
+     * log. Suited to preferences that change very frequently, as each change
+     * appends a small record rather than rewriting the whole file.
+     */
+    BINARY
 }
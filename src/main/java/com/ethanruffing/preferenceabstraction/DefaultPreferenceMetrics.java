@@ -0,0 +1,328 @@
+/*
+ * Copyright 2026 Ethan Ruffing
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ethanruffing.preferenceabstraction;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * A {@link PreferenceMetrics} implementation that keeps counts and latency
+ * histograms in memory, cheaply enough to leave enabled in production. The
+ * measurements can be read directly, or published over JMX with {@link
+ * #registerMBean(String)}.
+ * <p>
+ * Example:
+ * <pre>
+ * DefaultPreferenceMetrics metrics = new DefaultPreferenceMetrics();
+ * metrics.registerMBean("myapp");
+ * prefs.setMetrics(metrics);
+ * </pre>
+ *
+ * @author Ethan Ruffing
+ * @since 2026-10-18
+ */
+public class DefaultPreferenceMetrics implements PreferenceMetrics,
+        PreferenceMetricsMXBean {
+    private static final ConfigurationType[] STORES =
+            ConfigurationType.values();
+    private static final Operation[] OPERATIONS = Operation.values();
+
+    private final LatencyHistogram[][] operations =
+            new LatencyHistogram[STORES.length][OPERATIONS.length];
+    private final LatencyHistogram[] saves =
+            new LatencyHistogram[STORES.length];
+    private final LongAdder[] bytesWritten = new LongAdder[STORES.length];
+    private final LongAdder serializations = new LongAdder();
+    private final LongAdder serializationNanos = new LongAdder();
+    private final LongAdder[] hits = new LongAdder[Cache.values().length];
+    private final LongAdder[] misses = new LongAdder[Cache.values().length];
+    private final LongAdder[] errors = new LongAdder[STORES.length];
+    private volatile String lastError;
+
+    /**
+     * Constructs a new, empty set of metrics.
+     */
+    public DefaultPreferenceMetrics() {
+        for (int s = 0; s < STORES.length; s++) {
+            for (int o = 0; o < OPERATIONS.length; o++)
+                operations[s][o] = new LatencyHistogram();
+            saves[s] = new LatencyHistogram();
+            bytesWritten[s] = new LongAdder();
+            errors[s] = new LongAdder();
+        }
+        for (int c = 0; c < hits.length; c++) {
+            hits[c] = new LongAdder();
+            misses[c] = new LongAdder();
+        }
+    }
+
+    /**
+     * Publishes these metrics through the platform MBean server, with the
+     * domain <code>com.ethanruffing.preferenceabstraction</code>, the type
+     * <code>PreferenceMetrics</code> and the given name.
+     *
+     * @param name A name distinguishing these metrics from any others
+     *             registered in the same JVM.
+     * @return The name that the MBean was registered under.
+     * @throws JMException Thrown if the MBean cannot be registered, e.g.
+     *                     because the name is already taken.
+     */
+    public ObjectName registerMBean(String name) throws JMException {
+        ObjectName objectName = new ObjectName(
+                "com.ethanruffing.preferenceabstraction:type=PreferenceMetrics"
+                        + ",name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer()
+                .registerMBean(this, objectName);
+        return objectName;
+    }
+
+    @Override
+    public void operation(ConfigurationType store, Operation operation,
+                          long nanos) {
+        operations[store.ordinal()][operation.ordinal()].record(nanos);
+    }
+
+    @Override
+    public void saved(ConfigurationType store, long bytes, long nanos) {
+        saves[store.ordinal()].record(nanos);
+        bytesWritten[store.ordinal()].add(bytes);
+    }
+
+    @Override
+    public void serialization(ConfigurationType store, long nanos) {
+        serializations.increment();
+        serializationNanos.add(nanos);
+    }
+
+    @Override
+    public void cacheAccess(ConfigurationType store, Cache cache,
+                            boolean hit) {
+        (hit ? hits : misses)[cache.ordinal()].increment();
+    }
+
+    @Override
+    public void error(ConfigurationType store, Throwable error) {
+        errors[store.ordinal()].increment();
+        lastError = store + ": " + error;
+    }
+
+    /**
+     * @param store     The type of store.
+     * @param operation The operation.
+     * @return The number of times the operation has been performed.
+     */
+    public long getOperationCount(ConfigurationType store,
+                                  Operation operation) {
+        return operations[store.ordinal()][operation.ordinal()].count();
+    }
+
+    /**
+     * Estimates a percentile of the time taken by an operation.
+     *
+     * @param store      The type of store.
+     * @param operation  The operation.
+     * @param percentile The percentile, from 0 to 100.
+     * @return The estimated time, in nanoseconds, or 0 if the operation has
+     * not been performed.
+     */
+    public long getOperationLatency(ConfigurationType store,
+                                    Operation operation, double percentile) {
+        return operations[store.ordinal()][operation.ordinal()]
+                .percentile(percentile);
+    }
+
+    /**
+     * @param store The type of store.
+     * @return The number of times that a store of the type has been written.
+     */
+    public long getSaveCount(ConfigurationType store) {
+        return saves[store.ordinal()].count();
+    }
+
+    /**
+     * @param store The type of store.
+     * @return The number of bytes written by stores of the type.
+     */
+    public long getBytesWritten(ConfigurationType store) {
+        return bytesWritten[store.ordinal()].sum();
+    }
+
+    /**
+     * @param cache The cache.
+     * @return The number of values found in the cache.
+     */
+    public long getCacheHits(Cache cache) {
+        return hits[cache.ordinal()].sum();
+    }
+
+    /**
+     * @param cache The cache.
+     * @return The number of values not found in the cache.
+     */
+    public long getCacheMisses(Cache cache) {
+        return misses[cache.ordinal()].sum();
+    }
+
+    /**
+     * @param store The type of store.
+     * @return The number of errors that stores of the type recovered from.
+     */
+    public long getErrorCount(ConfigurationType store) {
+        return errors[store.ordinal()].sum();
+    }
+
+    @Override
+    public Map<String, Long> getOperationCounts() {
+        return byOperation(LatencyHistogram::count);
+    }
+
+    @Override
+    public Map<String, Double> getOperationLatencyP50() {
+        return micros(byOperation(h -> h.percentile(50)));
+    }
+
+    @Override
+    public Map<String, Double> getOperationLatencyP99() {
+        return micros(byOperation(h -> h.percentile(99)));
+    }
+
+    @Override
+    public Map<String, Double> getOperationLatencyMax() {
+        return micros(byOperation(LatencyHistogram::max));
+    }
+
+    @Override
+    public Map<String, Long> getSaveCounts() {
+        return byStore(s -> saves[s].count());
+    }
+
+    @Override
+    public Map<String, Long> getBytesWritten() {
+        return byStore(s -> bytesWritten[s].sum());
+    }
+
+    @Override
+    public Map<String, Double> getSaveLatencyP99() {
+        return micros(byStore(s -> saves[s].percentile(99)));
+    }
+
+    @Override
+    public long getSerializationCount() {
+        return serializations.sum();
+    }
+
+    @Override
+    public double getSerializationTime() {
+        return serializationNanos.sum() / 1000.0;
+    }
+
+    @Override
+    public double getValueCacheHitRate() {
+        return hitRate(Cache.VALUES);
+    }
+
+    @Override
+    public double getObjectCacheHitRate() {
+        return hitRate(Cache.OBJECTS);
+    }
+
+    @Override
+    public Map<String, Long> getErrorCounts() {
+        return byStore(s -> errors[s].sum());
+    }
+
+    @Override
+    public String getLastError() {
+        return lastError;
+    }
+
+    @Override
+    public void reset() {
+        for (int s = 0; s < STORES.length; s++) {
+            for (LatencyHistogram h : operations[s])
+                h.reset();
+            saves[s].reset();
+            bytesWritten[s].reset();
+            errors[s].reset();
+        }
+        serializations.reset();
+        serializationNanos.reset();
+        for (int c = 0; c < hits.length; c++) {
+            hits[c].reset();
+            misses[c].reset();
+        }
+        lastError = null;
+    }
+
+    /**
+     * @param cache A cache.
+     * @return The fraction of lookups in the cache that found a value, or
+     * zero if there have been none.
+     */
+    private double hitRate(Cache cache) {
+        long hit = getCacheHits(cache);
+        long lookups = hit + getCacheMisses(cache);
+        return lookups == 0 ? 0 : (double) hit / lookups;
+    }
+
+    /**
+     * @param value Extracts a measurement from an operation's histogram.
+     * @return The measurement for each operation performed so far.
+     */
+    private Map<String, Long> byOperation(
+            ToLongFunction<LatencyHistogram> value) {
+        Map<String, Long> values = new LinkedHashMap<>();
+        for (int s = 0; s < STORES.length; s++) {
+            for (int o = 0; o < OPERATIONS.length; o++) {
+                LatencyHistogram h = operations[s][o];
+                if (h.count() > 0)
+                    values.put(STORES[s] + "." + OPERATIONS[o],
+                            value.applyAsLong(h));
+            }
+        }
+        return values;
+    }
+
+    /**
+     * @param value Extracts a measurement for a type of store, by ordinal.
+     * @return The measurement for each type of store that has been written
+     * to or has had errors.
+     */
+    private Map<String, Long> byStore(ToLongFunction<Integer> value) {
+        Map<String, Long> values = new LinkedHashMap<>();
+        for (int s = 0; s < STORES.length; s++) {
+            if (saves[s].count() > 0 || errors[s].sum() > 0)
+                values.put(STORES[s].toString(), value.applyAsLong(s));
+        }
+        return values;
+    }
+
+    /**
+     * @param nanos Times in nanoseconds.
+     * @return The same times in microseconds.
+     */
+    private static Map<String, Double> micros(Map<String, Long> nanos) {
+        Map<String, Double> micros = new LinkedHashMap<>();
+        nanos.forEach((k, v) -> micros.put(k, v / 1000.0));
+        return micros;
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2026 Ethan Ruffing
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ethanruffing.preferenceabstraction;
+
+import org.apache.commons.configuration.ConfigurationException;
+import org.apache.commons.configuration.FileConfiguration;
+
+import java.io.File;
+
+/**
+ * An enumeration of the formats in which file-based preferences can be
+ * stored. A store's format is taken from the extension of an existing file
+ * when not given, and defaults to XML.
+ *
+ * @author Ethan Ruffing
+ * @since 2026-10-18
+ */
+public enum FileFormat {
+    /**
+     * An XML document, in the layout written by commons-configuration's
+     * <code>XMLConfiguration</code>. The slowest to read and write, but
+     * readable by other tools built on commons-configuration. Strings
+     * containing control characters other than tab and line breaks cannot be
+     * stored, and storing them throws an
+     * <code>IllegalArgumentException</code>.
+     */
+    XML(".xml") {
+        @Override
+        FileConfiguration open(File file, CodecRegistry codecs,
+                               StoreMetrics metrics)
+                throws ConfigurationException {
+            return new StreamingXmlConfiguration(file);
+        }
+
+        @Override
+        AtomicFileConfiguration empty(File file)
+                throws ConfigurationException {
+            return new StreamingXmlConfiguration(file, false);
+        }
+    },
+    /**
+     * A Java properties file, as read by {@link java.util.Properties}. Every
+     * value is held as text.
+     */
+    PROPERTIES(".properties") {
+        @Override
+        FileConfiguration open(File file, CodecRegistry codecs,
+                               StoreMetrics metrics)
+                throws ConfigurationException {
+            return new PropertiesFileConfiguration(file);
+        }
+
+        @Override
+        AtomicFileConfiguration empty(File file)
+                throws ConfigurationException {
+            return new PropertiesFileConfiguration(file, false);
+        }
+    },
+    /**
+     * A JSON object, mapping each key to its value. Numbers and booleans keep
+     * their types.
+     */
+    JSON(".json") {
+        @Override
+        FileConfiguration open(File file, CodecRegistry codecs,
+                               StoreMetrics metrics)
+                throws ConfigurationException {
+            return new JsonFileConfiguration(file);
+        }
+
+        @Override
+        AtomicFileConfiguration empty(File file)
+                throws ConfigurationException {
+            return new JsonFileConfiguration(file, false);
+        }
+    },
+    /**
+     * A compact, append-only binary log, as used by {@link
+     * ConfigurationType#BINARY}. Each change appends a small record rather
+     * than rewriting the whole file.
+     */
+    BINARY(".bin") {
+        @Override
+        FileConfiguration open(File file, CodecRegistry codecs,
+                               StoreMetrics metrics)
+                throws ConfigurationException {
+            return new BinaryLogConfiguration(file, codecs, metrics);
+        }
+    };
+
+    private final String extension;
+
+    FileFormat(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * @return The extension of files in this format, including the leading
+     * dot.
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Opens a configuration in this format, loading the file if it exists.
+     *
+     * @param file    The file that the configuration is stored in.
+     * @param codecs  The codecs with which to encode objects, for formats
+     *                that store them in binary form.
+     * @param metrics The metrics to report errors in the background to.
+     * @return The configuration.
+     * @throws ConfigurationException Thrown if the file exists but cannot be
+     *                                read.
+     */
+    abstract FileConfiguration open(File file, CodecRegistry codecs,
+                                    StoreMetrics metrics)
+            throws ConfigurationException;
+
+    /**
+     * Creates an empty configuration in this format for the given file,
+     * without reading the file, to be filled from a {@link StartupSnapshot
+     * startup snapshot} of it instead.
+     *
+     * @param file The file that the configuration is stored in.
+     * @return The configuration, or <code>null</code> if stores in this
+     * format are not snapshotted.
+     * @throws ConfigurationException Thrown if the configuration cannot be
+     *                                created.
+     */
+    AtomicFileConfiguration empty(File file) throws ConfigurationException {
+        return null;
+    }
+}
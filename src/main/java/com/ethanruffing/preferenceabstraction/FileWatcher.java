@@ -0,0 +1,132 @@
+/*
+ * Copyright 2026 Ethan Ruffing
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ethanruffing.preferenceabstraction;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Watches a single file for changes made by other processes, and runs a task
+ * once the file has stopped changing for a given period. A burst of changes,
+ * such as an editor writing the file in several steps, therefore results in a
+ * single run of the task.
+ *
+ * @author Ethan Ruffing
+ * @since 2026-10-18
+ */
+final class FileWatcher {
+    private final Path fileName;
+    private final long debounce;
+    private final TimeUnit unit;
+    private final Runnable onChange;
+    private final Consumer<Throwable> errors;
+    private final WatchService watchService;
+    private ScheduledFuture<?> pending;
+    private boolean closed;
+
+    /**
+     * Starts watching a file.
+     *
+     * @param file     The file to watch. Its directory must exist.
+     * @param debounce The time for which the file must remain unchanged
+     *                 before the task is run.
+     * @param unit     The unit of <code>debounce</code>.
+     * @param onChange The task to run, on the background executor.
+     * @param errors   Told of errors that occur while watching.
+     * @throws IOException Thrown if the file's directory cannot be watched.
+     */
+    FileWatcher(File file, long debounce, TimeUnit unit, Runnable onChange,
+                Consumer<Throwable> errors) throws IOException {
+        if (debounce < 0)
+            throw new IllegalArgumentException("debounce must not be negative");
+        Path path = file.getAbsoluteFile().toPath();
+        this.fileName = path.getFileName();
+        this.debounce = debounce;
+        this.unit = unit;
+        this.onChange = onChange;
+        this.errors = errors;
+        watchService = path.getFileSystem().newWatchService();
+        try {
+            // Editors often replace the file rather than modifying it.
+            path.getParent().register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY
+            );
+        } catch (IOException e) {
+            watchService.close();
+            throw e;
+        }
+        Thread thread = new Thread(this::watch,
+                "preference-abstraction-watch");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Waits for events until the watch service is closed.
+     */
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW
+                            || fileName.equals(event.context()))
+                        changed();
+                }
+                if (!key.reset())
+                    return;
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Closed.
+        }
+    }
+
+    /**
+     * (Re)starts the debounce period.
+     */
+    private synchronized void changed() {
+        if (closed)
+            return;
+        if (pending != null)
+            pending.cancel(false);
+        pending = BackgroundTasks.EXECUTOR.schedule(onChange, debounce, unit);
+    }
+
+    /**
+     * Stops watching the file, and cancels any pending run of the task.
+     */
+    synchronized void close() {
+        closed = true;
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            errors.accept(e);
+        }
+        if (pending != null)
+            pending.cancel(false);
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2026 Ethan Ruffing
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ethanruffing.preferenceabstraction;
+
+import org.apache.commons.configuration.ConfigurationException;
+
+/**
+ * Writes changes to an {@link AtomicFileConfiguration} with group commit.
+ * Each thread that makes a change waits until a write that includes it has
+ * reached the disk. Only one write runs at a time; the threads that arrive
+ * while it runs are all covered by the next write, made by whichever of them
+ * gets there first. Under heavy concurrency, this bounds the number of writes
+ * and fsyncs by the rate at which the disk completes them, rather than by the
+ * number of changes.
+ * <p>
+ * When a write fails, every thread whose change it would have written is
+ * given the failure, rather than only the thread that made it.
+ * <p>
+ * A {@link Coordinator} may be set to coordinate each write with other
+ * processes writing the same file.
+ *
+ * @author Ethan Ruffing
+ * @since 2026-10-18
+ */
+final class GroupCommitter {
+    private final AtomicFileConfiguration config;
+    private final Object lock;
+    private final StoreMetrics metrics;
+
+    /**
+     * The number of commits requested so far.
+     */
+    private long requested;
+
+    /**
+     * The number of requested commits known to be covered by a completed
+     * write.
+     */
+    private long durable;
+
+    /**
+     * The number of requested commits covered by the newest failed write,
+     * and the failure.
+     */
+    private long failedThrough;
+    private ConfigurationException failure;
+    private boolean writing;
+    private volatile Coordinator coordinator;
+
+    /**
+     * @param config  The configuration to write.
+     * @param lock    The lock guarding all modifications of the
+     *                configuration.
+     * @param metrics The metrics to report writes to.
+     */
+    GroupCommitter(AtomicFileConfiguration config, Object lock,
+                   StoreMetrics metrics) {
+        this.config = config;
+        this.lock = lock;
+        this.metrics = metrics;
+    }
+
+    /**
+     * @param coordinator The coordinator for each write, or <code>null</code>
+     *                    for none.
+     */
+    void setCoordinator(Coordinator coordinator) {
+        this.coordinator = coordinator;
+    }
+
+    /**
+     * Waits until every change already made to the configuration has been
+     * written, writing them if no other thread is. Must not be called while
+     * holding the configuration's lock.
+     *
+     * @throws ConfigurationException Thrown if the write that would have
+     *                                included this thread's change failed.
+     *                                Another thread's later change retries
+     *                                it.
+     */
+    void commit() throws ConfigurationException {
+        long ticket;
+        boolean interrupted = false;
+        synchronized (this) {
+            ticket = ++requested;
+            while (writing && durable < ticket && failedThrough < ticket) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted)
+                Thread.currentThread().interrupt();
+            if (durable >= ticket)
+                return;
+            if (failedThrough >= ticket)
+                throw failure;
+            writing = true;
+        }
+
+        long covered = ticket;
+        boolean done = false;
+        Coordinator coordinator = this.coordinator;
+        try {
+            if (coordinator != null)
+                coordinator.begin();
+        } catch (ConfigurationException | RuntimeException e) {
+            synchronized (this) {
+                writing = false;
+                notifyAll();
+            }
+            throw e;
+        }
+        try {
+            AtomicFileConfiguration.Snapshot snapshot;
+            synchronized (lock) {
+                // Every commit requested by now was requested after its
+                // change was made, so the snapshot includes it.
+                synchronized (this) {
+                    covered = requested;
+                }
+                snapshot = config.snapshot();
+            }
+            metrics.save(config, () -> config.write(snapshot));
+            done = true;
+        } catch (ConfigurationException e) {
+            synchronized (this) {
+                failedThrough = Math.max(failedThrough, covered);
+                failure = e;
+            }
+            throw e;
+        } finally {
+            if (coordinator != null)
+                coordinator.end(done);
+            synchronized (this) {
+                writing = false;
+                if (done)
+                    durable = Math.max(durable, covered);
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Coordinates writes with other processes writing the same file.
+     */
+    interface Coordinator {
+        /**
+         * Prepares for a write, keeping other processes from writing until
+         * it has finished, and bringing in the changes that they have
+         * made. Called before the values are taken to be written, without
+         * holding the configuration's lock.
+         *
+         * @throws ConfigurationException Thrown if the write cannot go ahead.
+         */
+        void begin() throws ConfigurationException;
+
+        /**
+         * Finishes a write started by {@link #begin()}.
+         *
+         * @param written Whether the file was written.
+         */
+        void end(boolean written);
+    }
+}
@@ -16,7 +16,13 @@
 
 package com.ethanruffing.preferenceabstraction;
 
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
 
 /**
  * An interface for a system for accessing a preferences store.
@@ -30,6 +36,13 @@ public interface IPreferences {
      */
     void clear();
 
+    /**
+     * Writes any pending changes to the backing store. Stores that write
+     * every change as it is made need not override this.
+     */
+    default void flush() {
+    }
+
     /**
      * Produces a list of all stored keys.
      *
@@ -37,6 +50,142 @@ public interface IPreferences {
      */
     List<String> getKeys();
 
+    /**
+     * Produces a list of the stored keys that begin with a prefix, such as
+     * all keys in the <code>cache.</code> namespace. Stores keep their keys
+     * sorted for this, so that only the matching keys are visited. By
+     * default, every key is visited, and the matching ones are sorted.
+     *
+     * @param prefix The prefix. The empty string matches every key.
+     * @return The matching keys, in ascending order.
+     */
+    default List<String> getKeys(String prefix) {
+        List<String> keys = new ArrayList<>();
+        for (String key : getKeys()) {
+            if (key.startsWith(prefix))
+                keys.add(key);
+        }
+        Collections.sort(keys);
+        return keys;
+    }
+
+    /**
+     * Produces a view of the preferences whose keys begin with a prefix, in
+     * which they are read and written without it. For example, the key
+     * <code>size</code> in the subset for <code>cache.</code> is stored as
+     * <code>cache.size</code>. Changes made through the view are made to this
+     * store, and are seen by the view as soon as they are made here.
+     *
+     * @param prefix The prefix, including any separator.
+     * @return A view of the matching preferences.
+     */
+    default IPreferences getSubset(String prefix) {
+        return new PreferencesSubset(this, prefix);
+    }
+
+    /**
+     * Visits every preference with its value, in a single pass over the
+     * store, without first building a list of keys. Values are given in the
+     * form that the backing store holds them, with any stored objects
+     * decoded. By default, each value is read through {@link
+     * #getObject(String, Object)} in turn.
+     *
+     * @param action Called with the key and value of each preference.
+     */
+    default void forEach(BiConsumer<String, Object> action) {
+        for (String key : getKeys())
+            action.accept(key, getObject(key, null));
+    }
+
+    /**
+     * Produces a lazily evaluated stream of every preference with its value,
+     * as {@link #forEach(BiConsumer)} visits them. Each value is only read
+     * once the stream reaches it, so the store may be exported or copied
+     * without holding all of its values at once.
+     * <p>
+     * The store should not be changed while the stream is being consumed.
+     *
+     * @return The preferences.
+     */
+    default Stream<Map.Entry<String, Object>> entries() {
+        return getKeys().stream().map(key ->
+                new AbstractMap.SimpleImmutableEntry<>(key,
+                        getObject(key, null)
+                ));
+    }
+
+    /**
+     * Deletes a single preference, if it is present.
+     * <p>
+     * This is optional: a store that cannot delete single preferences keeps
+     * the default, which throws. Every store in this library supports it.
+     *
+     * @param key The key of the preference to delete.
+     * @throws UnsupportedOperationException If the store cannot delete single
+     *                                       preferences.
+     */
+    default void remove(String key) {
+        throw new UnsupportedOperationException("remove");
+    }
+
+    /**
+     * Starts a batch of changes, which are persisted together once committed.
+     * This is considerably cheaper than storing many values individually.
+     * <p>
+     * By default, the changes are staged in memory and applied one at a time
+     * through {@link #put(String, String)} and the other <code>put</code>
+     * methods, and {@link #remove(String)}, on commit. This is no cheaper
+     * than making them individually, and a failure part way through leaves
+     * the earlier changes applied. Stores that can write a batch at once
+     * override this.
+     *
+     * @return An editor for staging the changes.
+     */
+    default PreferencesEditor edit() {
+        return new StagingEditor(this);
+    }
+
+    /**
+     * Registers a codec for storing objects of the given type through {@link
+     * #put(String, Object)}, in place of Java serialization. This only affects
+     * backends that store objects as bytes. The codec must be registered again
+     * whenever the store is reopened, before values of the type are read.
+     * <p>
+     * By default, the codec is ignored, as for a store that does not keep
+     * objects as bytes.
+     *
+     * @param type  The exact type of object that the codec handles.
+     * @param codec The codec.
+     * @param <T>   The type of object that the codec handles.
+     * @see FieldCodec
+     */
+    default <T> void registerCodec(Class<T> type, ValueCodec<T> codec) {
+    }
+
+    /**
+     * Registers a listener to be told of changes to the preferences. Changes
+     * are delivered in batches, asynchronously.
+     * <p>
+     * This is optional: a store that cannot report changes keeps the default,
+     * which throws. Every store in this library supports it.
+     *
+     * @param listener The listener to add.
+     * @throws UnsupportedOperationException If the store cannot report
+     *                                       changes.
+     */
+    default void addChangeListener(ChangeListener listener) {
+        throw new UnsupportedOperationException("addChangeListener");
+    }
+
+    /**
+     * Stops notifying a listener of changes. By default, this does nothing,
+     * as no listener can have been added.
+     *
+     * @param listener The listener to remove.
+     */
+    default void removeChangeListener(ChangeListener listener) {
+    }
+
     /**
      * Stores a boolean in the preferences, overwriting any identically-named
      * properties.
@@ -188,4 +337,72 @@ public interface IPreferences {
      * failure.
      */
     Object getObject(String key, Object def);
+
+    /**
+     * Reads a <code>boolean</code> preference through its handle. Stores
+     * override the handle getters to avoid looking up the name on every read;
+     * by default, they read the value by name.
+     *
+     * @param key The handle of the preference.
+     * @return The value stored for the preference, or the handle's default
+     * value on failure.
+     */
+    default boolean get(PreferenceKey.OfBoolean key) {
+        return getBoolean(key.getName(), key.def);
+    }
+
+    /**
+     * Reads a <code>double</code> preference through its handle.
+     *
+     * @param key The handle of the preference.
+     * @return The value stored for the preference, or the handle's default
+     * value on failure.
+     */
+    default double get(PreferenceKey.OfDouble key) {
+        return getDouble(key.getName(), key.def);
+    }
+
+    /**
+     * Reads a <code>float</code> preference through its handle.
+     *
+     * @param key The handle of the preference.
+     * @return The value stored for the preference, or the handle's default
+     * value on failure.
+     */
+    default float get(PreferenceKey.OfFloat key) {
+        return getFloat(key.getName(), key.def);
+    }
+
+    /**
+     * Reads an <code>int</code> preference through its handle.
+     *
+     * @param key The handle of the preference.
+     * @return The value stored for the preference, or the handle's default
+     * value on failure.
+     */
+    default int get(PreferenceKey.OfInt key) {
+        return getInt(key.getName(), key.def);
+    }
+
+    /**
+     * Reads a <code>long</code> preference through its handle.
+     *
+     * @param key The handle of the preference.
+     * @return The value stored for the preference, or the handle's default
+     * value on failure.
+     */
+    default long get(PreferenceKey.OfLong key) {
+        return getLong(key.getName(), key.def);
+    }
+
+    /**
+     * Reads a String preference through its handle.
+     *
+     * @param key The handle of the preference.
+     * @return The value stored for the preference, or the handle's default
+     * value on failure.
+     */
+    default String get(PreferenceKey.OfString key) {
+        return getString(key.getName(), key.def);
+    }
 }
@@ -0,0 +1,492 @@
+/*
+ * Copyright 2026 Ethan Ruffing
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ethanruffing.preferenceabstraction;
+
+import org.apache.commons.configuration.ConfigurationException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A configuration stored as a JSON object, read and written in a single
+ * streaming pass.
+ * <p>
+ * Each key is written as a member of the top-level object. When reading,
+ * nested objects are also accepted, with their members' names joined to the
+ * enclosing key by dots. Strings, booleans and numbers keep their types;
+ * whole numbers are read as <code>Integer</code> or <code>Long</code> where
+ * they fit and fractions as <code>Double</code>. Arrays hold lists of values,
+ * and <code>null</code> is treated as absent. Values of any other type are
+ * written as strings, as are numbers that JSON cannot represent.
+ *
+ * @author Ethan Ruffing
+ * @since 2026-10-18
+ */
+final class JsonFileConfiguration extends AtomicFileConfiguration {
+    private static final String ENCODING = "UTF-8";
+
+    /**
+     * The number of characters read, or gathered before they are handed to
+     * the underlying writer, at a time.
+     */
+    private static final int CHUNK = 8192;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * Constructs a new configuration for the given file, which is loaded if it
+     * exists.
+     *
+     * @param file The file that the configuration is stored in.
+     * @throws ConfigurationException Thrown if the file exists but cannot be
+     *                                read.
+     */
+    JsonFileConfiguration(File file) throws ConfigurationException {
+        this(file, true);
+    }
+
+    /**
+     * Constructs a new configuration for the given file.
+     *
+     * @param file The file that the configuration is stored in.
+     * @param load Whether to load the file, if it exists. If not, the
+     *             configuration starts out empty.
+     * @throws ConfigurationException Thrown if the file exists but cannot be
+     *                                read.
+     */
+    JsonFileConfiguration(File file, boolean load)
+            throws ConfigurationException {
+        setDelimiterParsingDisabled(true);
+        setFile(file);
+        if (load && file.exists())
+            load();
+    }
+
+    @Override
+    public void load(InputStream in, String encoding)
+            throws ConfigurationException {
+        try {
+            load(new InputStreamReader(in,
+                    encoding == null ? ENCODING : encoding));
+        } catch (UnsupportedEncodingException e) {
+            throw new ConfigurationException("Unable to parse " + getFile(), e);
+        }
+    }
+
+    @Override
+    public void load(Reader in) throws ConfigurationException {
+        try {
+            new Parser(in).document();
+        } catch (IOException e) {
+            throw new ConfigurationException("Unable to parse " + getFile(), e);
+        }
+    }
+
+    @Override
+    public void save(OutputStream out, String encoding)
+            throws ConfigurationException {
+        try {
+            save(new OutputStreamWriter(out,
+                    encoding == null ? ENCODING : encoding));
+        } catch (UnsupportedEncodingException e) {
+            throw new ConfigurationException("Unable to write " + getFile(), e);
+        }
+    }
+
+    @Override
+    public void save(Writer out) throws ConfigurationException {
+        try {
+            write(out);
+        } catch (IOException e) {
+            throw new ConfigurationException("Unable to write " + getFile(), e);
+        }
+    }
+
+    /**
+     * Writes every value as a member of a single object, a chunk at a time.
+     *
+     * @param out The writer, which is flushed but not closed afterwards.
+     * @throws IOException Thrown if the file cannot be written.
+     */
+    private void write(Writer out) throws IOException {
+        StringBuilder chunk = new StringBuilder(CHUNK + 256);
+        chunk.append('{');
+        Iterator<String> keys = getKeys();
+        boolean first = true;
+        while (keys.hasNext()) {
+            String key = keys.next();
+            chunk.append(first ? "\n  " : ",\n  ");
+            first = false;
+            string(chunk, key);
+            chunk.append(": ");
+            Object value = getProperty(key);
+            if (value instanceof Collection) {
+                chunk.append('[');
+                boolean firstValue = true;
+                for (Object v : (Collection<?>) value) {
+                    if (!firstValue)
+                        chunk.append(", ");
+                    firstValue = false;
+                    value(chunk, v);
+                }
+                chunk.append(']');
+            } else {
+                value(chunk, value);
+            }
+            if (chunk.length() >= CHUNK) {
+                out.append(chunk);
+                chunk.setLength(0);
+            }
+        }
+        chunk.append(first ? "}\n" : "\n}\n");
+        out.append(chunk);
+        out.flush();
+    }
+
+    private static void value(StringBuilder out, Object value) {
+        if (value == null) {
+            out.append("null");
+        } else if (value instanceof Boolean || value instanceof Integer
+                || value instanceof Long || value instanceof Short
+                || value instanceof Byte) {
+            out.append(value);
+        } else if ((value instanceof Double || value instanceof Float)
+                && !Double.isNaN(((Number) value).doubleValue())
+                && !Double.isInfinite(((Number) value).doubleValue())) {
+            out.append(value);
+        } else {
+            string(out, String.valueOf(value));
+        }
+    }
+
+    private static void string(StringBuilder out, String text) {
+        out.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.append("\\u").append(HEX[c >> 12 & 0xF])
+                                .append(HEX[c >> 8 & 0xF])
+                                .append(HEX[c >> 4 & 0xF])
+                                .append(HEX[c & 0xF]);
+                    } else {
+                        out.append(c);
+                    }
+                    break;
+            }
+        }
+        out.append('"');
+    }
+
+    /**
+     * A recursive-descent parser that adds the members of a document to the
+     * configuration as it reads them.
+     */
+    private final class Parser {
+        private final Reader in;
+        private final char[] buf = new char[CHUNK];
+        private final StringBuilder text = new StringBuilder();
+        private int pos;
+        private int limit;
+        private long offset;
+
+        Parser(Reader in) {
+            this.in = in;
+        }
+
+        /**
+         * Reads a document, which must hold a single object.
+         *
+         * @throws IOException Thrown if the document cannot be read or is not
+         *                     valid.
+         */
+        void document() throws IOException {
+            expect('{');
+            object(null);
+            if (skipSpace() != -1)
+                throw error("Unexpected data after the object");
+        }
+
+        /**
+         * Reads the members of an object, after its opening brace.
+         *
+         * @param prefix The key of the object, or <code>null</code> for the
+         *               top-level object.
+         * @throws IOException Thrown if the object cannot be read or is not
+         *                     valid.
+         */
+        private void object(String prefix) throws IOException {
+            if (skipSpace() == '}') {
+                pos++;
+                return;
+            }
+            while (true) {
+                expect('"');
+                String name = string();
+                String key = prefix == null ? name : prefix + "." + name;
+                expect(':');
+                if (skipSpace() == '{') {
+                    pos++;
+                    object(key);
+                } else {
+                    Object value = value();
+                    if (value != null)
+                        addPropertyDirect(key, value);
+                }
+                int c = skipSpace();
+                pos++;
+                if (c == '}')
+                    return;
+                if (c != ',')
+                    throw error("Expected ',' or '}'");
+            }
+        }
+
+        /**
+         * Reads a value other than an object.
+         *
+         * @return The value, or <code>null</code> for <code>null</code>.
+         * @throws IOException Thrown if the value cannot be read or is not
+         *                     valid.
+         */
+        private Object value() throws IOException {
+            int c = skipSpace();
+            switch (c) {
+                case '"':
+                    pos++;
+                    return string();
+                case '[':
+                    pos++;
+                    return array();
+                case 't':
+                    literal("true");
+                    return Boolean.TRUE;
+                case 'f':
+                    literal("false");
+                    return Boolean.FALSE;
+                case 'n':
+                    literal("null");
+                    return null;
+                case '{':
+                    throw error("Objects within arrays are not supported");
+                default:
+                    if (c == '-' || c >= '0' && c <= '9')
+                        return number();
+                    throw error("Expected a value");
+            }
+        }
+
+        private List<Object> array() throws IOException {
+            List<Object> values = new ArrayList<>();
+            if (skipSpace() == ']') {
+                pos++;
+                return values;
+            }
+            while (true) {
+                Object value = value();
+                if (value != null)
+                    values.add(value);
+                int c = skipSpace();
+                pos++;
+                if (c == ']')
+                    return values;
+                if (c != ',')
+                    throw error("Expected ',' or ']'");
+            }
+        }
+
+        private Object number() throws IOException {
+            text.setLength(0);
+            boolean fraction = false;
+            int c;
+            while ((c = peek()) != -1) {
+                if (c == '.' || c == 'e' || c == 'E')
+                    fraction = true;
+                else if (c != '-' && c != '+' && (c < '0' || c > '9'))
+                    break;
+                text.append((char) c);
+                pos++;
+            }
+            String number = text.toString();
+            try {
+                if (fraction)
+                    return Double.valueOf(number);
+                long value = Long.parseLong(number);
+                if (value == (int) value)
+                    return (int) value;
+                return value;
+            } catch (NumberFormatException e) {
+                try {
+                    return new BigDecimal(number);
+                } catch (NumberFormatException e2) {
+                    throw error("Malformed number " + number);
+                }
+            }
+        }
+
+        /**
+         * Reads a string, after its opening quote.
+         *
+         * @return The string.
+         * @throws IOException Thrown if the string cannot be read or is not
+         *                     valid.
+         */
+        private String string() throws IOException {
+            text.setLength(0);
+            while (true) {
+                if (pos == limit && !fill())
+                    throw error("Unterminated string");
+                // Copy runs of plain characters straight from the buffer.
+                int start = pos;
+                while (pos < limit && buf[pos] != '"' && buf[pos] != '\\'
+                        && buf[pos] >= 0x20)
+                    pos++;
+                text.append(buf, start, pos - start);
+                if (pos == limit)
+                    continue;
+                char c = buf[pos++];
+                if (c == '"')
+                    return text.toString();
+                if (c != '\\')
+                    throw error("Unescaped control character in string");
+                int e = next();
+                switch (e) {
+                    case '"':
+                    case '\\':
+                    case '/':
+                        text.append((char) e);
+                        break;
+                    case 'b':
+                        text.append('\b');
+                        break;
+                    case 'f':
+                        text.append('\f');
+                        break;
+                    case 'n':
+                        text.append('\n');
+                        break;
+                    case 'r':
+                        text.append('\r');
+                        break;
+                    case 't':
+                        text.append('\t');
+                        break;
+                    case 'u':
+                        int value = 0;
+                        for (int i = 0; i < 4; i++) {
+                            int digit = Character.digit(next(), 16);
+                            if (digit < 0)
+                                throw error("Malformed Unicode escape");
+                            value = value << 4 | digit;
+                        }
+                        text.append((char) value);
+                        break;
+                    default:
+                        throw error("Malformed escape");
+                }
+            }
+        }
+
+        private void literal(String word) throws IOException {
+            for (int i = 0; i < word.length(); i++)
+                if (next() != word.charAt(i))
+                    throw error("Expected " + word);
+        }
+
+        /**
+         * Skips whitespace, then consumes the given character.
+         *
+         * @param c The character expected.
+         * @throws IOException Thrown if another character is found.
+         */
+        private void expect(char c) throws IOException {
+            if (skipSpace() != c)
+                throw error("Expected '" + c + "'");
+            pos++;
+        }
+
+        /**
+         * Skips whitespace.
+         *
+         * @return The next character, which is not consumed, or -1 at the end
+         * of the document.
+         * @throws IOException Thrown if the document cannot be read.
+         */
+        private int skipSpace() throws IOException {
+            int c;
+            while ((c = peek()) == ' ' || c == '\n' || c == '\r' || c == '\t')
+                pos++;
+            return c;
+        }
+
+        private int peek() throws IOException {
+            if (pos == limit && !fill())
+                return -1;
+            return buf[pos];
+        }
+
+        private int next() throws IOException {
+            int c = peek();
+            if (c != -1)
+                pos++;
+            return c;
+        }
+
+        private boolean fill() throws IOException {
+            offset += limit;
+            pos = 0;
+            limit = 0;
+            int n = in.read(buf);
+            if (n <= 0)
+                return false;
+            limit = n;
+            return true;
+        }
+
+        private IOException error(String message) {
+            return new IOException(message + " at offset " + (offset + pos));
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2026 Ethan Ruffing
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ethanruffing.preferenceabstraction;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Supplier;
+
+/**
+ * Keeps a store's keys in sorted order, so that the keys beginning with a
+ * prefix can be found in logarithmic time, rather than by filtering every key.
+ * <p>
+ * The index is only built, from the store's full list of keys, the first time
+ * that it is queried, and is then kept up to date as keys are added and
+ * removed. Where a change cannot be followed key by key, the index is
+ * discarded and rebuilt on the next query.
+ * <p>
+ * Keys must be added and removed while holding the same lock as the change
+ * to the store, and the index queried while holding it too, so that it is
+ * built from, and changed along with, a consistent list of keys.
+ *
+ * @author Ethan Ruffing
+ * @since 2026-10-18
+ */
+final class KeyIndex {
+    private final Supplier<Collection<String>> source;
+    private NavigableSet<String> keys;
+
+    /**
+     * Creates an index that has yet to be built.
+     *
+     * @param source Lists every key in the store.
+     */
+    KeyIndex(Supplier<Collection<String>> source) {
+        this.source = source;
+    }
+
+    /**
+     * Records that a key now has a value.
+     *
+     * @param key The key.
+     */
+    synchronized void add(String key) {
+        if (keys != null)
+            keys.add(key);
+    }
+
+    /**
+     * Records that a key no longer has a value.
+     *
+     * @param key The key.
+     */
+    synchronized void remove(String key) {
+        if (keys != null)
+            keys.remove(key);
+    }
+
+    /**
+     * Records that every key has been removed.
+     */
+    synchronized void clear() {
+        if (keys != null)
+            keys.clear();
+    }
+
+    /**
+     * Discards the index, to be rebuilt on the next query.
+     */
+    synchronized void invalidate() {
+        keys = null;
+    }
+
+    /**
+     * Lists the keys beginning with a prefix.
+     *
+     * @param prefix The prefix. The empty string matches every key.
+     * @return The matching keys, in ascending order.
+     */
+    List<String> withPrefix(String prefix) {
+        NavigableSet<String> sorted = sorted();
+        String end = successor(prefix);
+        return new ArrayList<>(end == null
+                ? sorted.tailSet(prefix, true)
+                : sorted.subSet(prefix, true, end, false));
+    }
+
+    /**
+     * @return The index, built if need be. Changes recorded while it is being
+     * built wait for it, so that none can be missed.
+     */
+    private synchronized NavigableSet<String> sorted() {
+        if (keys == null)
+            keys = new ConcurrentSkipListSet<>(source.get());
+        return keys;
+    }
+
+    /**
+     * @param prefix A prefix.
+     * @return The least string greater than every string beginning with the
+     * prefix, or <code>null</code> if there is none.
+     */
+    static String successor(String prefix) {
+        int end = prefix.length();
+        while (end > 0 && prefix.charAt(end - 1) == Character.MAX_VALUE)
+            end--;
+        if (end == 0)
+            return null;
+        return prefix.substring(0, end - 1)
+                + (char) (prefix.charAt(end - 1) + 1);
+    }
+}
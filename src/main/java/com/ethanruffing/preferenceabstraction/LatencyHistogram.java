@@ -0,0 +1,147 @@
+/*
+ * Copyright 2026 Ethan Ruffing
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ethanruffing.preferenceabstraction;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of durations with a fixed relative precision, in the manner of
+ * HdrHistogram. Values below 16 are counted exactly; larger values fall into
+ * one of 16 equal sub-buckets of their power of two, so that any value read
+ * back is within about 3% of a recorded one. Recording is lock-free and does
+ * not allocate.
+ *
+ * @author Ethan Ruffing
+ * @since 2026-10-18
+ */
+final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * The highest power of two with buckets of its own. Larger values, over
+     * half an hour in nanoseconds, are counted in the last bucket.
+     */
+    private static final int MAX_EXPONENT = 41;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(
+            (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Records a duration.
+     *
+     * @param value The duration. Negative values are counted as zero.
+     */
+    void record(long value) {
+        if (value < 0)
+            value = 0;
+        buckets.incrementAndGet(indexOf(value));
+        count.increment();
+        total.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * @param value A non-negative value.
+     * @return The bucket that the value is counted in.
+     */
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKETS)
+            return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT)
+            return (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS - 1;
+        int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) - SUB_BUCKETS;
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * @param index A bucket.
+     * @return The value at the middle of the bucket.
+     */
+    private static long valueOf(int index) {
+        if (index < SUB_BUCKETS)
+            return index;
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int sub = index % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return (SUB_BUCKETS + sub) * width + width / 2;
+    }
+
+    /**
+     * @return The number of durations recorded.
+     */
+    long count() {
+        return count.sum();
+    }
+
+    /**
+     * @return The sum of all durations recorded.
+     */
+    long total() {
+        return total.sum();
+    }
+
+    /**
+     * @return The longest duration recorded, exactly.
+     */
+    long max() {
+        return max.get();
+    }
+
+    /**
+     * Estimates a percentile of the recorded durations.
+     *
+     * @param percentile The percentile, from 0 to 100.
+     * @return The estimated value, or 0 if nothing has been recorded.
+     */
+    long percentile(double percentile) {
+        long[] counts = new long[buckets.length()];
+        long recorded = 0;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = buckets.get(i);
+            recorded += counts[i];
+        }
+        if (recorded == 0)
+            return 0;
+        long rank = Math.max(1,
+                (long) Math.ceil(percentile / 100 * recorded));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank)
+                return Math.min(valueOf(i), max());
+        }
+        return max();
+    }
+
+    /**
+     * Discards all recorded durations.
+     */
+    void reset() {
+        for (int i = 0; i < buckets.length(); i++)
+            buckets.set(i, 0);
+        count.reset();
+        total.reset();
+        max.reset();
+    }
+}
@@ -0,0 +1,779 @@
+/*
+ * Copyright 2026 Ethan Ruffing
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ethanruffing.preferenceabstraction;
+
+import org.apache.commons.configuration.ConfigurationException;
+
+import java.io.Closeable;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * A view over several stores, in which each key takes its value from the
+ * highest-priority store that holds it. This lets, for example, a local file
+ * override just a few of the preferences kept in the user's home directory,
+ * with the rest still read from there or from the system store.
+ * <p>
+ * Which store supplies each key, and its value, are resolved once, when the
+ * view is created, and kept in a merged index, so that a read costs a single
+ * map lookup however many stores there are. The index is updated as values
+ * are changed through this view, and, for just the keys concerned, when the
+ * stores report changes made by other means, such as a watched file being
+ * edited.
+ * <p>
+ * Changes are written to the highest-priority store. Removing a key removes
+ * it from every store, so that no lower-priority value shows through.
+ *
+ * @author Ethan Ruffing
+ * @since 2026-10-18
+ */
+public class LayeredPreferences implements IPreferences, Closeable {
+    private final AutoPreferences[] layers;
+    private final Map<String, Entry> index = new ConcurrentHashMap<>();
+    private final KeyIndex sortedKeys = new KeyIndex(index::keySet);
+    private final ChangeDispatcher dispatcher =
+            new ChangeDispatcher(BackgroundTasks.EVENTS, this::reportError);
+    private final ChangeListener layerListener = this::layersChanged;
+
+    /**
+     * Guards changes to the stores and to the index, so that a key is never
+     * resolved from a store while it is being changed. Reads do not take it.
+     */
+    private final Object writeLock = new Object();
+
+    /**
+     * Constructs a new layered view of the local, home directory and system
+     * stores for the given class, in that order of priority. Each file is
+     * read in whichever {@link FileFormat} it is found in.
+     *
+     * @param c The class for which the preferences are to be stored.
+     * @throws ConfigurationException Thrown if an error occurs while loading
+     *                                a configuration file.
+     */
+    public LayeredPreferences(Class<?> c) throws ConfigurationException {
+        this(new AutoPreferences(c, ConfigurationType.LOCAL),
+                new AutoPreferences(c, ConfigurationType.HOME),
+                new AutoPreferences(c, ConfigurationType.SYSTEM)
+        );
+    }
+
+    /**
+     * Constructs a new layered view of the given stores.
+     *
+     * @param layers The stores, highest priority first. Changes are written
+     *               to the first.
+     */
+    public LayeredPreferences(AutoPreferences... layers) {
+        if (layers.length == 0)
+            throw new IllegalArgumentException("No layers given");
+        for (AutoPreferences layer : layers)
+            if (layer == null)
+                throw new NullPointerException("layer");
+        this.layers = layers.clone();
+        refresh();
+        for (AutoPreferences layer : this.layers)
+            layer.addChangeListener(layerListener);
+    }
+
+    /**
+     * @return The stores, highest priority first.
+     */
+    public List<AutoPreferences> getLayers() {
+        return Collections.unmodifiableList(Arrays.asList(layers));
+    }
+
+    /**
+     * @param key The key that the preference is stored under.
+     * @return The store that supplies the key's value, or <code>null</code>
+     * if no store holds it.
+     */
+    public AutoPreferences getSource(String key) {
+        Entry entry = index.get(key);
+        return entry == null ? null : layers[entry.layer];
+    }
+
+    /**
+     * Rebuilds the merged index from the stores. Only needed if a store has
+     * been changed by means that it does not report to its listeners.
+     */
+    public void refresh() {
+        synchronized (writeLock) {
+            Map<String, Entry> merged = new HashMap<>();
+            for (int i = 0; i < layers.length; i++) {
+                for (String key : layers[i].getKeys()) {
+                    if (merged.containsKey(key))
+                        continue;
+                    Object value = layers[i].getRaw(key);
+                    if (value != null)
+                        merged.put(key, new Entry(i, value));
+                }
+            }
+            index.keySet().retainAll(merged.keySet());
+            index.putAll(merged);
+            sortedKeys.invalidate();
+        }
+    }
+
+    /**
+     * Reports an error that is not passed on to the caller to the metrics of
+     * the highest-priority store.
+     *
+     * @param error The error.
+     */
+    private void reportError(Throwable error) {
+        layers[0].reportError(error);
+    }
+
+    /**
+     * Resolves keys that a store has reported as changed, notifying
+     * listeners of those whose values have changed as a result.
+     *
+     * @param keys The keys.
+     */
+    private void layersChanged(Set<String> keys) {
+        Set<String> changed = new LinkedHashSet<>();
+        synchronized (writeLock) {
+            for (String key : keys)
+                if (resolve(key))
+                    changed.add(key);
+        }
+        dispatcher.changed(changed);
+    }
+
+    /**
+     * Looks a key up in each store in turn, updating the index with the
+     * first value found. Must be called while holding the write lock.
+     *
+     * @param key The key.
+     * @return Whether the key's value changed.
+     */
+    private boolean resolve(String key) {
+        Entry resolved = null;
+        for (int i = 0; i < layers.length && resolved == null; i++) {
+            Object value = layers[i].getRaw(key);
+            if (value != null)
+                resolved = new Entry(i, value);
+        }
+        Entry old;
+        if (resolved == null) {
+            old = index.remove(key);
+            sortedKeys.remove(key);
+        } else {
+            old = index.put(key, resolved);
+            sortedKeys.add(key);
+        }
+        if (old == null || resolved == null)
+            return old != resolved;
+        return old.layer != resolved.layer
+                || !sameValue(old.value, resolved.value);
+    }
+
+    /**
+     * Compares values in the form in which a store would write them, since
+     * a value read back from a store may have another type than the one
+     * stored.
+     */
+    private static boolean sameValue(Object a, Object b) {
+        if (a instanceof byte[] && b instanceof byte[])
+            return Arrays.equals((byte[]) a, (byte[]) b);
+        return Objects.equals(a, b) || a.toString().equals(b.toString());
+    }
+
+    /**
+     * Stores a value in the highest-priority store, then resolves the key
+     * again from the stores, so that the index holds what the store took,
+     * even if the change failed.
+     *
+     * @param key    The key to store the value under.
+     * @param change Stores the value in a store.
+     */
+    private void write(String key, Consumer<AutoPreferences> change) {
+        synchronized (writeLock) {
+            try {
+                change.accept(layers[0]);
+            } finally {
+                resolve(key);
+            }
+        }
+        dispatcher.changed(key);
+    }
+
+    /**
+     * Deletes the preferences stored for the class in every store.
+     */
+    @Override
+    public void clear() {
+        List<String> keys;
+        synchronized (writeLock) {
+            keys = new ArrayList<>(index.keySet());
+            for (AutoPreferences layer : layers)
+                layer.clear();
+            index.clear();
+            sortedKeys.clear();
+        }
+        dispatcher.changed(keys);
+    }
+
+    /**
+     * Writes any pending changes to every store.
+     */
+    @Override
+    public void flush() {
+        for (AutoPreferences layer : layers)
+            layer.flush();
+    }
+
+    /**
+     * Stops following changes to the stores, and closes them.
+     */
+    @Override
+    public void close() {
+        for (AutoPreferences layer : layers) {
+            layer.removeChangeListener(layerListener);
+            layer.close();
+        }
+    }
+
+    /**
+     * Produces a list of all keys held by any store.
+     *
+     * @return A list of keys for all preferences currently stored.
+     */
+    @Override
+    public List<String> getKeys() {
+        return new ArrayList<>(index.keySet());
+    }
+
+    /**
+     * Produces a list of the keys held by any store that begin with a
+     * prefix.
+     *
+     * @param prefix The prefix. The empty string matches every key.
+     * @return The matching keys, in ascending order.
+     */
+    @Override
+    public List<String> getKeys(String prefix) {
+        synchronized (writeLock) {
+            return sortedKeys.withPrefix(prefix);
+        }
+    }
+
+    /**
+     * Produces a view of the preferences whose keys begin with a prefix, in
+     * which they are read and written without it.
+     *
+     * @param prefix The prefix, including any separator.
+     * @return A view of the matching preferences.
+     */
+    @Override
+    public IPreferences getSubset(String prefix) {
+        return new PreferencesSubset(this, prefix);
+    }
+
+    /**
+     * Visits every preference with its resolved value, in a single pass over
+     * the merged index.
+     *
+     * @param action Called with the key and value of each preference.
+     */
+    @Override
+    public void forEach(BiConsumer<String, Object> action) {
+        index.forEach((key, entry) -> action.accept(key, entry.value));
+    }
+
+    /**
+     * Produces a lazily evaluated stream of every preference with its
+     * resolved value, walking the merged index as the stream is consumed.
+     *
+     * @return The preferences.
+     */
+    @Override
+    public Stream<Map.Entry<String, Object>> entries() {
+        return index.entrySet().stream().map(entry ->
+                new AbstractMap.SimpleImmutableEntry<>(entry.getKey(),
+                        entry.getValue().value)
+        );
+    }
+
+    /**
+     * Deletes a single preference from every store that holds it.
+     *
+     * @param key The key of the preference to delete.
+     */
+    @Override
+    public void remove(String key) {
+        synchronized (writeLock) {
+            for (AutoPreferences layer : layers)
+                if (layer.getRaw(key) != null)
+                    layer.remove(key);
+            index.remove(key);
+            sortedKeys.remove(key);
+        }
+        dispatcher.changed(key);
+    }
+
+    /**
+     * Starts a batch of changes, which are persisted together once committed.
+     *
+     * @return An editor for staging the changes.
+     */
+    @Override
+    public PreferencesEditor edit() {
+        return new Editor();
+    }
+
+    /**
+     * Registers a codec for storing objects of the given type with every
+     * store, and rebuilds the index, as values read before the codec was
+     * registered may not have been decoded.
+     *
+     * @param type  The exact type of object that the codec handles.
+     * @param codec The codec.
+     * @param <T>   The type of object that the codec handles.
+     */
+    @Override
+    public <T> void registerCodec(Class<T> type, ValueCodec<T> codec) {
+        for (AutoPreferences layer : layers)
+            layer.registerCodec(type, codec);
+        refresh();
+    }
+
+    /**
+     * Registers a listener to be told of changes to the values seen through
+     * this view. Changes to a store that are hidden by a higher-priority
+     * store are not reported.
+     *
+     * @param listener The listener to add.
+     */
+    @Override
+    public void addChangeListener(ChangeListener listener) {
+        dispatcher.addListener(listener);
+    }
+
+    /**
+     * Stops notifying a listener of changes.
+     *
+     * @param listener The listener to remove.
+     */
+    @Override
+    public void removeChangeListener(ChangeListener listener) {
+        dispatcher.removeListener(listener);
+    }
+
+    /**
+     * Stores a boolean in the preferences, overwriting any identically-named
+     * properties.
+     *
+     * @param key   The key to store the boolean under.
+     * @param value The boolean to store.
+     */
+    @Override
+    public void put(String key, boolean value) {
+        write(key, p -> p.put(key, value));
+    }
+
+    /**
+     * Stores a byte array in the preferences, overwriting any identically-named
+     * properties.
+     *
+     * @param key   The key to store the byte array under.
+     * @param value The byte array to store.
+     */
+    @Override
+    public void put(String key, byte[] value) {
+        write(key, p -> p.put(key, value));
+    }
+
+    /**
+     * Stores a double in the preferences, overwriting any identically-named
+     * properties.
+     *
+     * @param key   The key to store the double under.
+     * @param value The double to store.
+     */
+    @Override
+    public void put(String key, double value) {
+        write(key, p -> p.put(key, value));
+    }
+
+    /**
+     * Stores a float in the preferences, overwriting any identically-named
+     * properties.
+     *
+     * @param key   The key to store the float under.
+     * @param value The float to store.
+     */
+    @Override
+    public void put(String key, float value) {
+        write(key, p -> p.put(key, value));
+    }
+
+    /**
+     * Stores an integer in the preferences, overwriting any identically-named
+     * properties.
+     *
+     * @param key   The key to store the int under.
+     * @param value The int to store.
+     */
+    @Override
+    public void put(String key, int value) {
+        write(key, p -> p.put(key, value));
+    }
+
+    /**
+     * Stores a long in the preferences, overwriting any identically-named
+     * properties.
+     *
+     * @param key   The key to store the long under.
+     * @param value The long to store.
+     */
+    @Override
+    public void put(String key, long value) {
+        write(key, p -> p.put(key, value));
+    }
+
+    /**
+     * Stores any object in the preferences, overwriting any identically-named
+     * properties.
+     *
+     * @param key   The key to store the object under.
+     * @param value The object to store.
+     */
+    @Override
+    public void put(String key, Object value) {
+        write(key, p -> p.put(key, value));
+    }
+
+    /**
+     * Stores a string in the preferences, overwriting any identically-named
+     * properties.
+     *
+     * @param key   The key to store the string under.
+     * @param value The string to store.
+     */
+    @Override
+    public void put(String key, String value) {
+        write(key, p -> p.put(key, value));
+    }
+
+    /**
+     * Reads the stored value for an <code>boolean</code> preference.
+     *
+     * @param key The key that the preference is stored under.
+     * @param def The default value to return if a setting is not found for the
+     *            given key.
+     * @return The value stored for the preference, or the default value on
+     * failure.
+     */
+    @Override
+    public boolean getBoolean(String key, boolean def) {
+        return Values.toBoolean(get(key), def);
+    }
+
+    /**
+     * Reads the stored value for an <code>double</code> preference.
+     *
+     * @param key The key that the preference is stored under.
+     * @param def The default value to return if a setting is not found for the
+     *            given key.
+     * @return The value stored for the preference, or the default value on
+     * failure.
+     */
+    @Override
+    public double getDouble(String key, double def) {
+        return Values.toDouble(get(key), def);
+    }
+
+    /**
+     * Reads the stored value for an <code>float</code> preference.
+     *
+     * @param key The key that the preference is stored under.
+     * @param def The default value to return if a setting is not found for the
+     *            given key.
+     * @return The value stored for the preference, or the default value on
+     * failure.
+     */
+    @Override
+    public float getFloat(String key, float def) {
+        return Values.toFloat(get(key), def);
+    }
+
+    /**
+     * Reads the stored value for an <code>int</code> preference.
+     *
+     * @param key The key that the preference is stored under.
+     * @param def The default value to return if a setting is not found for the
+     *            given key.
+     * @return The value stored for the preference, or the default value on
+     * failure.
+     */
+    @Override
+    public int getInt(String key, int def) {
+        return Values.toInt(get(key), def);
+    }
+
+    /**
+     * Reads the stored value for a <code>long</code> preference.
+     *
+     * @param key The key that the preference is stored under.
+     * @param def The default value to return if a setting is not found for the
+     *            given key.
+     * @return The value stored for the preference, or the default value on
+     * failure.
+     */
+    @Override
+    public long getLong(String key, long def) {
+        return Values.toLong(get(key), def);
+    }
+
+    /**
+     * Reads the stored value for a String preference.
+     *
+     * @param key The key that the preference is stored under.
+     * @param def The default value to return if a setting is not found for the
+     *            given key.
+     * @return The value stored for the preference, or the default value on
+     * failure.
+     */
+    @Override
+    public String getString(String key, String def) {
+        return Values.toString(get(key), def);
+    }
+
+    /**
+     * Reads the stored value for an Object preference.
+     *
+     * @param key The key that the preference is stored under.
+     * @param def The default value to return if a setting is not found for the
+     *            given key.
+     * @return The value stored for the preference, or the default value on
+     * failure.
+     */
+    @Override
+    public Object getObject(String key, Object def) {
+        Object value = get(key);
+        return value == null ? def : value;
+    }
+
+    /**
+     * Reads a <code>boolean</code> preference through its handle.
+     *
+     * @param key The handle of the preference.
+     * @return The value stored for the preference, or the handle's default
+     * value on failure.
+     */
+    @Override
+    public boolean get(PreferenceKey.OfBoolean key) {
+        return getBoolean(key.getName(), key.def);
+    }
+
+    /**
+     * Reads a <code>double</code> preference through its handle.
+     *
+     * @param key The handle of the preference.
+     * @return The value stored for the preference, or the handle's default
+     * value on failure.
+     */
+    @Override
+    public double get(PreferenceKey.OfDouble key) {
+        return getDouble(key.getName(), key.def);
+    }
+
+    /**
+     * Reads a <code>float</code> preference through its handle.
+     *
+     * @param key The handle of the preference.
+     * @return The value stored for the preference, or the handle's default
+     * value on failure.
+     */
+    @Override
+    public float get(PreferenceKey.OfFloat key) {
+        return getFloat(key.getName(), key.def);
+    }
+
+    /**
+     * Reads an <code>int</code> preference through its handle.
+     *
+     * @param key The handle of the preference.
+     * @return The value stored for the preference, or the handle's default
+     * value on failure.
+     */
+    @Override
+    public int get(PreferenceKey.OfInt key) {
+        return getInt(key.getName(), key.def);
+    }
+
+    /**
+     * Reads a <code>long</code> preference through its handle.
+     *
+     * @param key The handle of the preference.
+     * @return The value stored for the preference, or the handle's default
+     * value on failure.
+     */
+    @Override
+    public long get(PreferenceKey.OfLong key) {
+        return getLong(key.getName(), key.def);
+    }
+
+    /**
+     * Reads a String preference through its handle.
+     *
+     * @param key The handle of the preference.
+     * @return The value stored for the preference, or the handle's default
+     * value on failure.
+     */
+    @Override
+    public String get(PreferenceKey.OfString key) {
+        return getString(key.getName(), key.def);
+    }
+
+    /**
+     * @param key The key that the preference is stored under.
+     * @return The resolved value, or <code>null</code> if there is none.
+     */
+    private Object get(String key) {
+        Entry entry = index.get(key);
+        return entry == null ? null : entry.value;
+    }
+
+    /**
+     * The resolved value of a key, and the store that it came from.
+     */
+    private static final class Entry {
+        final int layer;
+        final Object value;
+
+        Entry(int layer, Object value) {
+            this.layer = layer;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Stages puts in an editor of the highest-priority store, and removals in
+     * editors of every store holding the key, and resolves the keys again
+     * once they have all been committed.
+     */
+    private final class Editor implements PreferencesEditor {
+        private final PreferencesEditor[] staged =
+                new PreferencesEditor[layers.length];
+        private final Set<String> changes = new LinkedHashSet<>();
+
+        private PreferencesEditor staged(int layer) {
+            if (staged[layer] == null)
+                staged[layer] = layers[layer].edit();
+            return staged[layer];
+        }
+
+        @Override
+        public PreferencesEditor put(String key, boolean value) {
+            staged(0).put(key, value);
+            changes.add(key);
+            return this;
+        }
+
+        @Override
+        public PreferencesEditor put(String key, byte[] value) {
+            staged(0).put(key, value);
+            changes.add(key);
+            return this;
+        }
+
+        @Override
+        public PreferencesEditor put(String key, double value) {
+            staged(0).put(key, value);
+            changes.add(key);
+            return this;
+        }
+
+        @Override
+        public PreferencesEditor put(String key, float value) {
+            staged(0).put(key, value);
+            changes.add(key);
+            return this;
+        }
+
+        @Override
+        public PreferencesEditor put(String key, int value) {
+            staged(0).put(key, value);
+            changes.add(key);
+            return this;
+        }
+
+        @Override
+        public PreferencesEditor put(String key, long value) {
+            staged(0).put(key, value);
+            changes.add(key);
+            return this;
+        }
+
+        @Override
+        public PreferencesEditor put(String key, Object value) {
+            staged(0).put(key, value);
+            changes.add(key);
+            return this;
+        }
+
+        @Override
+        public PreferencesEditor put(String key, String value) {
+            staged(0).put(key, value);
+            changes.add(key);
+            return this;
+        }
+
+        @Override
+        public PreferencesEditor remove(String key) {
+            staged(0).remove(key);
+            for (int i = 1; i < layers.length; i++)
+                if (layers[i].getRaw(key) != null)
+                    staged(i).remove(key);
+            changes.add(key);
+            return this;
+        }
+
+        @Override
+        public void commit() {
+            if (changes.isEmpty())
+                return;
+            synchronized (writeLock) {
+                try {
+                    for (PreferencesEditor editor : staged)
+                        if (editor != null)
+                            editor.commit();
+                } finally {
+                    for (String key : changes)
+                        resolve(key);
+                }
+            }
+            dispatcher.changed(new ArrayList<>(changes));
+            changes.clear();
+            Arrays.fill(staged, null);
+        }
+    }
+}
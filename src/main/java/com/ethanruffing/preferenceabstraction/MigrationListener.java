@@ -0,0 +1,36 @@
+/*
+ * Copyright 2026 Ethan Ruffing
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ethanruffing.preferenceabstraction;
+
+/**
+ * Receives progress updates while preferences are migrated from one storage
+ * location to another.
+ *
+ * @author Ethan Ruffing
+ * @since 2026-10-18
+ */
+@FunctionalInterface
+public interface MigrationListener {
+    /**
+     * Called each time a key has been read from the source. The copied
+     * preferences are only persisted once all keys have been read.
+     *
+     * @param processed The number of keys read so far.
+     * @param total     The total number of keys being migrated.
+     */
+    void progress(int processed, int total);
+}
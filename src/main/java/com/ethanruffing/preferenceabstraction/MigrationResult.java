@@ -0,0 +1,107 @@
+/*
+ * Copyright 2026 Ethan Ruffing
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ethanruffing.preferenceabstraction;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The outcome of migrating preferences from one storage location to another.
+ *
+ * @author Ethan Ruffing
+ * @since 2026-10-18
+ */
+public final class MigrationResult {
+    private final AutoPreferences destination;
+    private final int copied;
+    private final int skipped;
+    private final long readNanos;
+    private final long writeNanos;
+
+    /**
+     * Constructs a new migration result.
+     *
+     * @param destination The preference store that was migrated to.
+     * @param copied      The number of preferences copied.
+     * @param skipped     The number of keys that had no value to copy.
+     * @param readNanos   The time spent reading the source, in nanoseconds.
+     * @param writeNanos  The time spent writing the destination, in
+     *                    nanoseconds.
+     */
+    MigrationResult(AutoPreferences destination, int copied, int skipped,
+                    long readNanos, long writeNanos) {
+        this.destination = destination;
+        this.copied = copied;
+        this.skipped = skipped;
+        this.readNanos = readNanos;
+        this.writeNanos = writeNanos;
+    }
+
+    /**
+     * @return The preference store that was migrated to.
+     */
+    public AutoPreferences getDestination() {
+        return destination;
+    }
+
+    /**
+     * @return The number of preferences copied.
+     */
+    public int getCopied() {
+        return copied;
+    }
+
+    /**
+     * @return The number of keys that were listed by the source, but had no
+     * value to copy.
+     */
+    public int getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * @param unit The unit to express the time in.
+     * @return The time spent reading preferences from the source.
+     */
+    public long getReadTime(TimeUnit unit) {
+        return unit.convert(readNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param unit The unit to express the time in.
+     * @return The time spent writing preferences to the destination.
+     */
+    public long getWriteTime(TimeUnit unit) {
+        return unit.convert(writeNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param unit The unit to express the time in.
+     * @return The total time spent migrating.
+     */
+    public long getTotalTime(TimeUnit unit) {
+        return unit.convert(readNanos + writeNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return "MigrationResult{copied=" + copied
+                + ", skipped=" + skipped
+                + ", readMicros=" + getReadTime(TimeUnit.MICROSECONDS)
+                + ", writeMicros=" + getWriteTime(TimeUnit.MICROSECONDS)
+                + "}";
+    }
+}
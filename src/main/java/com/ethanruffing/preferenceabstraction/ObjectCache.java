@@ -0,0 +1,153 @@
+/*
+ * Copyright 2026 Ethan Ruffing
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ethanruffing.preferenceabstraction;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A size-limited cache of decoded objects, which evicts the least recently
+ * used entry once full.
+ * <p>
+ * Each object is cached along with the stored string that it was decoded
+ * from, and is only returned while the store still holds that string. Changes
+ * that reach the store without raising an event, such as those synced in from
+ * another process, are therefore never missed.
+ * <p>
+ * A value may only be added if nothing has been invalidated since the caller
+ * started reading it, so that a value decoded concurrently with a change
+ * cannot be cached after the change.
+ *
+ * @author Ethan Ruffing
+ * @since 2026-10-18
+ */
+final class ObjectCache {
+    private final Map<String, Entry> entries;
+    private int maxSize;
+    private long generation;
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param maxSize The maximum number of entries to hold.
+     */
+    ObjectCache(int maxSize) {
+        this.maxSize = maxSize;
+        entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(
+                    Map.Entry<String, Entry> eldest) {
+                return size() > ObjectCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Changes the maximum number of entries, evicting the least recently used
+     * entries if there are too many.
+     *
+     * @param maxSize The maximum number of entries to hold. Zero disables the
+     *                cache.
+     */
+    synchronized void setMaxSize(int maxSize) {
+        if (maxSize < 0)
+            throw new IllegalArgumentException("maxSize must not be negative");
+        this.maxSize = maxSize;
+        Iterator<String> it = entries.keySet().iterator();
+        while (entries.size() > maxSize && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    /**
+     * @param key    The key to look up.
+     * @param source The string that the store now holds for the key.
+     * @return The value cached for the key, or <code>null</code> if there is
+     * none or it was decoded from a different string.
+     */
+    synchronized Object get(String key, String source) {
+        Entry entry = entries.get(key);
+        if (entry == null)
+            return null;
+        if (entry.source != source) {
+            if (!entry.source.equals(source)) {
+                entries.remove(key);
+                return null;
+            }
+            // The same text in a new string, e.g. after the store reloaded
+            // it; compare by reference from now on.
+            entry.source = source;
+        }
+        return entry.value;
+    }
+
+    /**
+     * @return A stamp to pass to {@link #put(String, String, Object, long)},
+     * taken before reading the value to be cached.
+     */
+    synchronized long stamp() {
+        return generation;
+    }
+
+    /**
+     * Caches a value, unless anything has been invalidated since the stamp was
+     * taken.
+     *
+     * @param key    The key to cache the value under.
+     * @param source The stored string, read before the value was decoded.
+     * @param value  The value.
+     * @param stamp  The stamp taken before the value was read.
+     */
+    synchronized void put(String key, String source, Object value,
+                          long stamp) {
+        if (stamp == generation && maxSize > 0)
+            entries.put(key, new Entry(source, value));
+    }
+
+    /**
+     * Discards the cached value for a key.
+     *
+     * @param key The key whose value has changed.
+     */
+    synchronized void invalidate(String key) {
+        entries.remove(key);
+        generation++;
+    }
+
+    /**
+     * Discards every cached value.
+     */
+    synchronized void clear() {
+        entries.clear();
+        generation++;
+    }
+
+    /**
+     * A cached value and the string it was decoded from.
+     */
+    private static final class Entry {
+        String source;
+        final Object value;
+
+        Entry(String source, Object value) {
+            this.source = source;
+            this.value = value;
+        }
+    }
+}
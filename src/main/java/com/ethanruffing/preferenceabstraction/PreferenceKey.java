@@ -0,0 +1,240 @@
+/*
+ * Copyright 2026 Ethan Ruffing
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ethanruffing.preferenceabstraction;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A typed handle for a single preference, combining its key with its default
+ * value. Handles are meant to be created once, typically as constants:
+ * <pre>
+ * static final PreferenceKey.OfInt POOL_SIZE =
+ *         PreferenceKey.ofInt("pool.size", 8);
+ * ...
+ * int size = prefs.get(POOL_SIZE);
+ * </pre>
+ * The first read through a handle resolves it against the store. Later reads
+ * go straight to the stored value, without hashing or parsing the key, and
+ * without boxing the value.
+ *
+ * @param <T> The type of the preference's value.
+ * @author Ethan Ruffing
+ * @since 2026-10-18
+ */
+public abstract class PreferenceKey<T> {
+    private static final AtomicInteger NEXT_ID = new AtomicInteger();
+
+    private final String name;
+
+    /**
+     * A number unique to this handle, by which stores find its resolved
+     * location.
+     */
+    final int id;
+
+    private PreferenceKey(String name) {
+        if (name == null)
+            throw new NullPointerException("name");
+        this.name = name;
+        id = NEXT_ID.getAndIncrement();
+    }
+
+    /**
+     * Creates a handle for a <code>boolean</code> preference.
+     *
+     * @param name The key that the preference is stored under.
+     * @param def  The value to read if the preference is not set.
+     * @return The handle.
+     */
+    public static OfBoolean ofBoolean(String name, boolean def) {
+        return new OfBoolean(name, def);
+    }
+
+    /**
+     * Creates a handle for an <code>int</code> preference.
+     *
+     * @param name The key that the preference is stored under.
+     * @param def  The value to read if the preference is not set.
+     * @return The handle.
+     */
+    public static OfInt ofInt(String name, int def) {
+        return new OfInt(name, def);
+    }
+
+    /**
+     * Creates a handle for a <code>long</code> preference.
+     *
+     * @param name The key that the preference is stored under.
+     * @param def  The value to read if the preference is not set.
+     * @return The handle.
+     */
+    public static OfLong ofLong(String name, long def) {
+        return new OfLong(name, def);
+    }
+
+    /**
+     * Creates a handle for a <code>float</code> preference.
+     *
+     * @param name The key that the preference is stored under.
+     * @param def  The value to read if the preference is not set.
+     * @return The handle.
+     */
+    public static OfFloat ofFloat(String name, float def) {
+        return new OfFloat(name, def);
+    }
+
+    /**
+     * Creates a handle for a <code>double</code> preference.
+     *
+     * @param name The key that the preference is stored under.
+     * @param def  The value to read if the preference is not set.
+     * @return The handle.
+     */
+    public static OfDouble ofDouble(String name, double def) {
+        return new OfDouble(name, def);
+    }
+
+    /**
+     * Creates a handle for a String preference.
+     *
+     * @param name The key that the preference is stored under.
+     * @param def  The value to read if the preference is not set.
+     * @return The handle.
+     */
+    public static OfString ofString(String name, String def) {
+        return new OfString(name, def);
+    }
+
+    /**
+     * @return The key that the preference is stored under.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return The value read if the preference is not set.
+     */
+    public abstract T getDefault();
+
+    @Override
+    public String toString() {
+        return name + " (default " + getDefault() + ")";
+    }
+
+    /**
+     * A handle for a <code>boolean</code> preference.
+     */
+    public static final class OfBoolean extends PreferenceKey<Boolean> {
+        final boolean def;
+
+        private OfBoolean(String name, boolean def) {
+            super(name);
+            this.def = def;
+        }
+
+        @Override
+        public Boolean getDefault() {
+            return def;
+        }
+    }
+
+    /**
+     * A handle for an <code>int</code> preference.
+     */
+    public static final class OfInt extends PreferenceKey<Integer> {
+        final int def;
+
+        private OfInt(String name, int def) {
+            super(name);
+            this.def = def;
+        }
+
+        @Override
+        public Integer getDefault() {
+            return def;
+        }
+    }
+
+    /**
+     * A handle for a <code>long</code> preference.
+     */
+    public static final class OfLong extends PreferenceKey<Long> {
+        final long def;
+
+        private OfLong(String name, long def) {
+            super(name);
+            this.def = def;
+        }
+
+        @Override
+        public Long getDefault() {
+            return def;
+        }
+    }
+
+    /**
+     * A handle for a <code>float</code> preference.
+     */
+    public static final class OfFloat extends PreferenceKey<Float> {
+        final float def;
+
+        private OfFloat(String name, float def) {
+            super(name);
+            this.def = def;
+        }
+
+        @Override
+        public Float getDefault() {
+            return def;
+        }
+    }
+
+    /**
+     * A handle for a <code>double</code> preference.
+     */
+    public static final class OfDouble extends PreferenceKey<Double> {
+        final double def;
+
+        private OfDouble(String name, double def) {
+            super(name);
+            this.def = def;
+        }
+
+        @Override
+        public Double getDefault() {
+            return def;
+        }
+    }
+
+    /**
+     * A handle for a String preference.
+     */
+    public static final class OfString extends PreferenceKey<String> {
+        final String def;
+
+        private OfString(String name, String def) {
+            super(name);
+            this.def = def;
+        }
+
+        @Override
+        public String getDefault() {
+            return def;
+        }
+    }
+}
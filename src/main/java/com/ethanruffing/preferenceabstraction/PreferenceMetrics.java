@@ -0,0 +1,165 @@
+/*
+ * Copyright 2026 Ethan Ruffing
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ethanruffing.preferenceabstraction;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Receives measurements of the work done by preference stores. Attach an
+ * implementation to a store with {@link
+ * AutoPreferences#setMetrics(PreferenceMetrics)}; several stores may share
+ * one, as every measurement names the type of store it came from.
+ * <p>
+ * Methods are called on the threads doing the work, often while locks are
+ * held, so they must be fast and must not call back into the store. Every
+ * method does nothing by default, so implementations need only override the
+ * measurements they are interested in.
+ *
+ * @author Ethan Ruffing
+ * @since 2026-10-18
+ * @see DefaultPreferenceMetrics
+ */
+public interface PreferenceMetrics {
+    /**
+     * Receives no measurements, but logs errors as warnings through {@link
+     * java.util.logging}, so that a failure to store a value is not lost
+     * unseen. Stores use this until given other metrics, and then skip
+     * taking measurements altogether.
+     */
+    PreferenceMetrics NONE = new PreferenceMetrics() {
+        @Override
+        public void error(ConfigurationType store, Throwable error) {
+            Logger.getLogger(PreferenceMetrics.class.getName()).log(
+                    Level.WARNING, store == null ? "Preferences error"
+                            : "Error in " + store + " preferences", error);
+        }
+    };
+
+    /**
+     * The operations that are counted and timed.
+     */
+    enum Operation {
+        /**
+         * Loading the backing store, on construction or, for stores created
+         * by {@link AutoPreferences#lazy(Class)}, on first use.
+         */
+        LOAD,
+        /**
+         * Reading a value, of any type.
+         */
+        GET,
+        /**
+         * Storing a value, of any type.
+         */
+        PUT,
+        /**
+         * Deleting a single preference.
+         */
+        REMOVE,
+        /**
+         * Deleting all preferences.
+         */
+        CLEAR,
+        /**
+         * Listing the stored keys.
+         */
+        GET_KEYS,
+        /**
+         * Committing a batch of changes, or migrating a store.
+         */
+        COMMIT,
+        /**
+         * Explicitly flushing pending changes.
+         */
+        FLUSH,
+        /**
+         * Visiting every preference, through {@link
+         * IPreferences#forEach(java.util.function.BiConsumer)}.
+         */
+        ITERATE
+    }
+
+    /**
+     * The caches whose effectiveness is measured.
+     */
+    enum Cache {
+        /**
+         * Parsed primitive and string values, used by file-based stores.
+         */
+        VALUES,
+        /**
+         * Decoded objects, used by the {@link ConfigurationType#SYSTEM}
+         * store.
+         */
+        OBJECTS
+    }
+
+    /**
+     * Records a completed operation.
+     *
+     * @param store     The type of store.
+     * @param operation The operation.
+     * @param nanos     The time taken, in nanoseconds.
+     */
+    default void operation(ConfigurationType store, Operation operation,
+                           long nanos) {
+    }
+
+    /**
+     * Records a write of a file-based store to disk, whether made
+     * automatically after a change, by the write-behind flusher, or on
+     * committing a batch.
+     *
+     * @param store The type of store.
+     * @param bytes The number of bytes written.
+     * @param nanos The time taken, in nanoseconds.
+     */
+    default void saved(ConfigurationType store, long bytes, long nanos) {
+    }
+
+    /**
+     * Records an object being encoded or decoded, by a codec or by Java
+     * serialization.
+     *
+     * @param store The type of store.
+     * @param nanos The time taken, in nanoseconds.
+     */
+    default void serialization(ConfigurationType store, long nanos) {
+    }
+
+    /**
+     * Records a lookup in one of a store's caches.
+     *
+     * @param store The type of store.
+     * @param cache The cache.
+     * @param hit   Whether the value was found in the cache.
+     */
+    default void cacheAccess(ConfigurationType store, Cache cache,
+                             boolean hit) {
+    }
+
+    /**
+     * Records an error that the store recovered from, or otherwise did not
+     * report to its caller, such as a failure to write the backing store.
+     *
+     * @param store The type of store.
+     * @param error The error.
+     */
+    default void error(ConfigurationType store, Throwable error) {
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2026 Ethan Ruffing
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ethanruffing.preferenceabstraction;
+
+import java.util.Map;
+
+/**
+ * The management interface of {@link DefaultPreferenceMetrics}, through which
+ * its measurements are published over JMX. Measurements by store type and
+ * operation are keyed by <code>STORE.OPERATION</code>, e.g.
+ * <code>HOME.GET</code>, and only include combinations that have occurred.
+ * Times are in microseconds.
+ *
+ * @author Ethan Ruffing
+ * @since 2026-10-18
+ */
+public interface PreferenceMetricsMXBean {
+    /**
+     * @return The number of operations performed.
+     */
+    Map<String, Long> getOperationCounts();
+
+    /**
+     * @return The median time taken by operations.
+     */
+    Map<String, Double> getOperationLatencyP50();
+
+    /**
+     * @return The 99th percentile of the time taken by operations.
+     */
+    Map<String, Double> getOperationLatencyP99();
+
+    /**
+     * @return The longest time taken by an operation.
+     */
+    Map<String, Double> getOperationLatencyMax();
+
+    /**
+     * @return The number of times that a file-based store has been written,
+     * by store type.
+     */
+    Map<String, Long> getSaveCounts();
+
+    /**
+     * @return The number of bytes written by file-based stores, by store type.
+     */
+    Map<String, Long> getBytesWritten();
+
+    /**
+     * @return The 99th percentile of the time taken to write a file-based
+     * store, by store type.
+     */
+    Map<String, Double> getSaveLatencyP99();
+
+    /**
+     * @return The number of objects encoded or decoded.
+     */
+    long getSerializationCount();
+
+    /**
+     * @return The total time spent encoding and decoding objects.
+     */
+    double getSerializationTime();
+
+    /**
+     * @return The fraction of value reads answered from parsed values, or
+     * <code>NaN</code> if there have been none.
+     */
+    double getValueCacheHitRate();
+
+    /**
+     * @return The fraction of object reads from the system store answered
+     * from decoded objects, or <code>NaN</code> if there have been none.
+     */
+    double getObjectCacheHitRate();
+
+    /**
+     * @return The number of errors that stores recovered from, by store type.
+     */
+    Map<String, Long> getErrorCounts();
+
+    /**
+     * @return A description of the most recent such error, or
+     * <code>null</code> if there has been none.
+     */
+    String getLastError();
+
+    /**
+     * Discards all measurements taken so far.
+     */
+    void reset();
+}
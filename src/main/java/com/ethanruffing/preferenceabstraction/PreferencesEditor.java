@@ -0,0 +1,116 @@
+/*
+ * Copyright 2026 Ethan Ruffing
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ethanruffing.preferenceabstraction;
+
+/**
+ * Stages a batch of changes to a preferences store, which are then applied
+ * together by {@link #commit()} with a single write to the backing store.
+ * Nothing is visible in the store until the batch is committed.
+ * <p>
+ * If the same key is changed more than once, only the last change is applied.
+ *
+ * @author Ethan Ruffing
+ * @since 2026-10-18
+ */
+public interface PreferencesEditor {
+    /**
+     * Stages a boolean to be stored.
+     *
+     * @param key   The key to store the boolean under.
+     * @param value The boolean to store.
+     * @return This editor.
+     */
+    PreferencesEditor put(String key, boolean value);
+
+    /**
+     * Stages a byte array to be stored.
+     *
+     * @param key   The key to store the byte array under.
+     * @param value The byte array to store.
+     * @return This editor.
+     */
+    PreferencesEditor put(String key, byte[] value);
+
+    /**
+     * Stages a double to be stored.
+     *
+     * @param key   The key to store the double under.
+     * @param value The double to store.
+     * @return This editor.
+     */
+    PreferencesEditor put(String key, double value);
+
+    /**
+     * Stages a float to be stored.
+     *
+     * @param key   The key to store the float under.
+     * @param value The float to store.
+     * @return This editor.
+     */
+    PreferencesEditor put(String key, float value);
+
+    /**
+     * Stages an integer to be stored.
+     *
+     * @param key   The key to store the int under.
+     * @param value The int to store.
+     * @return This editor.
+     */
+    PreferencesEditor put(String key, int value);
+
+    /**
+     * Stages a long to be stored.
+     *
+     * @param key   The key to store the long under.
+     * @param value The long to store.
+     * @return This editor.
+     */
+    PreferencesEditor put(String key, long value);
+
+    /**
+     * Stages an object to be stored.
+     *
+     * @param key   The key to store the object under.
+     * @param value The object to store.
+     * @return This editor.
+     * @see IPreferences#put(String, Object)
+     */
+    PreferencesEditor put(String key, Object value);
+
+    /**
+     * Stages a string to be stored.
+     *
+     * @param key   The key to store the string under.
+     * @param value The string to store.
+     * @return This editor.
+     */
+    PreferencesEditor put(String key, String value);
+
+    /**
+     * Stages the removal of a preference.
+     *
+     * @param key The key of the preference to remove.
+     * @return This editor.
+     */
+    PreferencesEditor remove(String key);
+
+    /**
+     * Applies all staged changes to the store and persists them. The editor
+     * is empty afterwards and may be reused for another batch.
+     */
+    void commit();
+}
@@ -0,0 +1,566 @@
+/*
+ * Copyright 2026 Ethan Ruffing
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ethanruffing.preferenceabstraction;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+
+/**
+ * A view of the preferences in a store whose keys begin with a prefix, in
+ * which keys are given without the prefix. Every call is passed straight to
+ * the store with the prefix added, so the view holds no state of its own.
+ *
+ * @author Ethan Ruffing
+ * @since 2026-10-18
+ * @see IPreferences#getSubset(String)
+ */
+final class PreferencesSubset implements IPreferences {
+    private final IPreferences delegate;
+    private final String prefix;
+
+    /**
+     * The listener registered with the store for each listener registered
+     * with the view.
+     */
+    private final Map<ChangeListener, ChangeListener> listeners =
+            new IdentityHashMap<>();
+
+    /**
+     * @param delegate The store.
+     * @param prefix   The prefix of the keys in the view.
+     */
+    PreferencesSubset(IPreferences delegate, String prefix) {
+        if (delegate == null)
+            throw new NullPointerException("delegate");
+        if (prefix == null)
+            throw new NullPointerException("prefix");
+        this.delegate = delegate;
+        this.prefix = prefix;
+    }
+
+    /**
+     * @param keys Keys in the store, all beginning with the prefix.
+     * @return The keys without the prefix.
+     */
+    private List<String> strip(List<String> keys) {
+        List<String> stripped = new ArrayList<>(keys.size());
+        for (String key : keys)
+            stripped.add(key.substring(prefix.length()));
+        return stripped;
+    }
+
+    /**
+     * Deletes every preference in the view, with a single write.
+     */
+    @Override
+    public void clear() {
+        PreferencesEditor editor = delegate.edit();
+        for (String key : delegate.getKeys(prefix))
+            editor.remove(key);
+        editor.commit();
+    }
+
+    /**
+     * Writes any pending changes to the backing store.
+     */
+    @Override
+    public void flush() {
+        delegate.flush();
+    }
+
+    /**
+     * Produces a list of the keys in the view.
+     *
+     * @return The keys, without the prefix, in ascending order.
+     */
+    @Override
+    public List<String> getKeys() {
+        return strip(delegate.getKeys(prefix));
+    }
+
+    /**
+     * Produces a list of the keys in the view that begin with a prefix.
+     *
+     * @param prefix The prefix, following the view's own.
+     * @return The matching keys, without the view's prefix, in ascending
+     * order.
+     */
+    @Override
+    public List<String> getKeys(String prefix) {
+        return strip(delegate.getKeys(this.prefix + prefix));
+    }
+
+    /**
+     * Produces a narrower view of the store.
+     *
+     * @param prefix The prefix, following the view's own.
+     * @return A view of the matching preferences.
+     */
+    @Override
+    public IPreferences getSubset(String prefix) {
+        return delegate.getSubset(this.prefix + prefix);
+    }
+
+    /**
+     * Visits every preference in the view with its value, in a single pass
+     * over the store.
+     *
+     * @param action Called with the key, without the prefix, and value of
+     *               each preference.
+     */
+    @Override
+    public void forEach(BiConsumer<String, Object> action) {
+        delegate.forEach((key, value) -> {
+            if (key.startsWith(prefix))
+                action.accept(key.substring(prefix.length()), value);
+        });
+    }
+
+    /**
+     * Produces a lazily evaluated stream of every preference in the view with
+     * its value.
+     *
+     * @return The preferences, with keys given without the prefix.
+     */
+    @Override
+    public Stream<Map.Entry<String, Object>> entries() {
+        return delegate.entries()
+                .filter(entry -> entry.getKey().startsWith(prefix))
+                .map(entry -> new AbstractMap.SimpleImmutableEntry<>(
+                        entry.getKey().substring(prefix.length()),
+                        entry.getValue()
+                ));
+    }
+
+    /**
+     * Deletes a single preference, if it is present.
+     *
+     * @param key The key of the preference to delete.
+     */
+    @Override
+    public void remove(String key) {
+        delegate.remove(prefix + key);
+    }
+
+    /**
+     * Starts a batch of changes, which are persisted together once committed.
+     *
+     * @return An editor for staging the changes.
+     */
+    @Override
+    public PreferencesEditor edit() {
+        return new Editor(delegate.edit());
+    }
+
+    /**
+     * Registers a codec with the store, where it applies to every key, not
+     * just those in the view.
+     *
+     * @param type  The exact type of object that the codec handles.
+     * @param codec The codec.
+     * @param <T>   The type of object that the codec handles.
+     */
+    @Override
+    public <T> void registerCodec(Class<T> type, ValueCodec<T> codec) {
+        delegate.registerCodec(type, codec);
+    }
+
+    /**
+     * Registers a listener to be told of changes to the preferences in the
+     * view. Batches holding no such changes are not delivered.
+     *
+     * @param listener The listener to add.
+     */
+    @Override
+    public void addChangeListener(ChangeListener listener) {
+        if (listener == null)
+            throw new NullPointerException("listener");
+        ChangeListener filter = keys -> {
+            Set<String> matching = new LinkedHashSet<>();
+            for (String key : keys)
+                if (key.startsWith(prefix))
+                    matching.add(key.substring(prefix.length()));
+            if (!matching.isEmpty())
+                listener.preferencesChanged(
+                        Collections.unmodifiableSet(matching));
+        };
+        synchronized (listeners) {
+            if (listeners.putIfAbsent(listener, filter) != null)
+                return;
+        }
+        delegate.addChangeListener(filter);
+    }
+
+    /**
+     * Stops notifying a listener of changes.
+     *
+     * @param listener The listener to remove.
+     */
+    @Override
+    public void removeChangeListener(ChangeListener listener) {
+        ChangeListener filter;
+        synchronized (listeners) {
+            filter = listeners.remove(listener);
+        }
+        if (filter != null)
+            delegate.removeChangeListener(filter);
+    }
+
+    /**
+     * Stores a boolean in the preferences, overwriting any identically-named
+     * properties.
+     *
+     * @param key   The key to store the boolean under.
+     * @param value The boolean to store.
+     */
+    @Override
+    public void put(String key, boolean value) {
+        delegate.put(prefix + key, value);
+    }
+
+    /**
+     * Stores a byte array in the preferences, overwriting any identically-named
+     * properties.
+     *
+     * @param key   The key to store the byte array under.
+     * @param value The byte array to store.
+     */
+    @Override
+    public void put(String key, byte[] value) {
+        delegate.put(prefix + key, value);
+    }
+
+    /**
+     * Stores a double in the preferences, overwriting any identically-named
+     * properties.
+     *
+     * @param key   The key to store the double under.
+     * @param value The double to store.
+     */
+    @Override
+    public void put(String key, double value) {
+        delegate.put(prefix + key, value);
+    }
+
+    /**
+     * Stores a float in the preferences, overwriting any identically-named
+     * properties.
+     *
+     * @param key   The key to store the float under.
+     * @param value The float to store.
+     */
+    @Override
+    public void put(String key, float value) {
+        delegate.put(prefix + key, value);
+    }
+
+    /**
+     * Stores a int in the preferences, overwriting any identically-named
+     * properties.
+     *
+     * @param key   The key to store the int under.
+     * @param value The int to store.
+     */
+    @Override
+    public void put(String key, int value) {
+        delegate.put(prefix + key, value);
+    }
+
+    /**
+     * Stores a long in the preferences, overwriting any identically-named
+     * properties.
+     *
+     * @param key   The key to store the long under.
+     * @param value The long to store.
+     */
+    @Override
+    public void put(String key, long value) {
+        delegate.put(prefix + key, value);
+    }
+
+    /**
+     * Stores a object in the preferences, overwriting any identically-named
+     * properties.
+     *
+     * @param key   The key to store the object under.
+     * @param value The object to store.
+     */
+    @Override
+    public void put(String key, Object value) {
+        delegate.put(prefix + key, value);
+    }
+
+    /**
+     * Stores a string in the preferences, overwriting any identically-named
+     * properties.
+     *
+     * @param key   The key to store the string under.
+     * @param value The string to store.
+     */
+    @Override
+    public void put(String key, String value) {
+        delegate.put(prefix + key, value);
+    }
+
+    /**
+     * Reads the stored value for an <code>boolean</code> preference.
+     *
+     * @param key The key that the preference is stored under.
+     * @param def The default value to return if a setting is not found for the
+     *            given key.
+     * @return The value stored for the preference, or the default value on
+     * failure.
+     */
+    @Override
+    public boolean getBoolean(String key, boolean def) {
+        return delegate.getBoolean(prefix + key, def);
+    }
+
+    /**
+     * Reads the stored value for an <code>double</code> preference.
+     *
+     * @param key The key that the preference is stored under.
+     * @param def The default value to return if a setting is not found for the
+     *            given key.
+     * @return The value stored for the preference, or the default value on
+     * failure.
+     */
+    @Override
+    public double getDouble(String key, double def) {
+        return delegate.getDouble(prefix + key, def);
+    }
+
+    /**
+     * Reads the stored value for an <code>float</code> preference.
+     *
+     * @param key The key that the preference is stored under.
+     * @param def The default value to return if a setting is not found for the
+     *            given key.
+     * @return The value stored for the preference, or the default value on
+     * failure.
+     */
+    @Override
+    public float getFloat(String key, float def) {
+        return delegate.getFloat(prefix + key, def);
+    }
+
+    /**
+     * Reads the stored value for an <code>int</code> preference.
+     *
+     * @param key The key that the preference is stored under.
+     * @param def The default value to return if a setting is not found for the
+     *            given key.
+     * @return The value stored for the preference, or the default value on
+     * failure.
+     */
+    @Override
+    public int getInt(String key, int def) {
+        return delegate.getInt(prefix + key, def);
+    }
+
+    /**
+     * Reads the stored value for a <code>long</code> preference.
+     *
+     * @param key The key that the preference is stored under.
+     * @param def The default value to return if a setting is not found for the
+     *            given key.
+     * @return The value stored for the preference, or the default value on
+     * failure.
+     */
+    @Override
+    public long getLong(String key, long def) {
+        return delegate.getLong(prefix + key, def);
+    }
+
+    /**
+     * Reads the stored value for a String preference.
+     *
+     * @param key The key that the preference is stored under.
+     * @param def The default value to return if a setting is not found for the
+     *            given key.
+     * @return The value stored for the preference, or the default value on
+     * failure.
+     */
+    @Override
+    public String getString(String key, String def) {
+        return delegate.getString(prefix + key, def);
+    }
+
+    /**
+     * Reads the stored value for an Object preference.
+     *
+     * @param key The key that the preference is stored under.
+     * @param def The default value to return if a setting is not found for the
+     *            given key.
+     * @return The value stored for the preference, or the default value on
+     * failure.
+     */
+    @Override
+    public Object getObject(String key, Object def) {
+        return delegate.getObject(prefix + key, def);
+    }
+
+    /**
+     * Reads a <code>boolean</code> preference through its handle.
+     *
+     * @param key The handle of the preference.
+     * @return The value stored for the preference, or the handle's default
+     * value on failure.
+     */
+    @Override
+    public boolean get(PreferenceKey.OfBoolean key) {
+        return getBoolean(key.getName(), key.def);
+    }
+
+    /**
+     * Reads a <code>double</code> preference through its handle.
+     *
+     * @param key The handle of the preference.
+     * @return The value stored for the preference, or the handle's default
+     * value on failure.
+     */
+    @Override
+    public double get(PreferenceKey.OfDouble key) {
+        return getDouble(key.getName(), key.def);
+    }
+
+    /**
+     * Reads a <code>float</code> preference through its handle.
+     *
+     * @param key The handle of the preference.
+     * @return The value stored for the preference, or the handle's default
+     * value on failure.
+     */
+    @Override
+    public float get(PreferenceKey.OfFloat key) {
+        return getFloat(key.getName(), key.def);
+    }
+
+    /**
+     * Reads an <code>int</code> preference through its handle.
+     *
+     * @param key The handle of the preference.
+     * @return The value stored for the preference, or the handle's default
+     * value on failure.
+     */
+    @Override
+    public int get(PreferenceKey.OfInt key) {
+        return getInt(key.getName(), key.def);
+    }
+
+    /**
+     * Reads a <code>long</code> preference through its handle.
+     *
+     * @param key The handle of the preference.
+     * @return The value stored for the preference, or the handle's default
+     * value on failure.
+     */
+    @Override
+    public long get(PreferenceKey.OfLong key) {
+        return getLong(key.getName(), key.def);
+    }
+
+    /**
+     * Reads a String preference through its handle.
+     *
+     * @param key The handle of the preference.
+     * @return The value stored for the preference, or the handle's default
+     * value on failure.
+     */
+    @Override
+    public String get(PreferenceKey.OfString key) {
+        return getString(key.getName(), key.def);
+    }
+
+    /**
+     * Adds the prefix to the keys of changes staged in the store's editor.
+     */
+    private final class Editor implements PreferencesEditor {
+        private final PreferencesEditor delegate;
+
+        Editor(PreferencesEditor delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public PreferencesEditor put(String key, boolean value) {
+            delegate.put(prefix + key, value);
+            return this;
+        }
+
+        @Override
+        public PreferencesEditor put(String key, byte[] value) {
+            delegate.put(prefix + key, value);
+            return this;
+        }
+
+        @Override
+        public PreferencesEditor put(String key, double value) {
+            delegate.put(prefix + key, value);
+            return this;
+        }
+
+        @Override
+        public PreferencesEditor put(String key, float value) {
+            delegate.put(prefix + key, value);
+            return this;
+        }
+
+        @Override
+        public PreferencesEditor put(String key, int value) {
+            delegate.put(prefix + key, value);
+            return this;
+        }
+
+        @Override
+        public PreferencesEditor put(String key, long value) {
+            delegate.put(prefix + key, value);
+            return this;
+        }
+
+        @Override
+        public PreferencesEditor put(String key, Object value) {
+            delegate.put(prefix + key, value);
+            return this;
+        }
+
+        @Override
+        public PreferencesEditor put(String key, String value) {
+            delegate.put(prefix + key, value);
+            return this;
+        }
+
+        @Override
+        public PreferencesEditor remove(String key) {
+            delegate.remove(prefix + key);
+            return this;
+        }
+
+        @Override
+        public void commit() {
+            delegate.commit();
+        }
+    }
+}
@@ -0,0 +1,376 @@
+/*
+ * Copyright 2026 Ethan Ruffing
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ethanruffing.preferenceabstraction;
+
+import org.apache.commons.configuration.ConfigurationException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.Iterator;
+
+/**
+ * A configuration stored as a Java properties file, in the syntax read by
+ * {@link java.util.Properties#load(Reader)}, read and written in a single
+ * streaming pass.
+ * <p>
+ * A key that appears more than once holds a list of values, and a list is
+ * written as one line per value. Files are written in ISO 8859-1, as {@link
+ * java.util.Properties} expects, with any other character escaped. Comments
+ * in the file are not kept when it is rewritten.
+ *
+ * @author Ethan Ruffing
+ * @since 2026-10-18
+ */
+final class PropertiesFileConfiguration extends AtomicFileConfiguration {
+    private static final String ENCODING = "ISO-8859-1";
+
+    /**
+     * The number of characters gathered before they are handed to the
+     * underlying writer.
+     */
+    private static final int CHUNK = 8192;
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    /**
+     * Constructs a new configuration for the given file, which is loaded if it
+     * exists.
+     *
+     * @param file The file that the configuration is stored in.
+     * @throws ConfigurationException Thrown if the file exists but cannot be
+     *                                read.
+     */
+    PropertiesFileConfiguration(File file) throws ConfigurationException {
+        this(file, true);
+    }
+
+    /**
+     * Constructs a new configuration for the given file.
+     *
+     * @param file The file that the configuration is stored in.
+     * @param load Whether to load the file, if it exists. If not, the
+     *             configuration starts out empty.
+     * @throws ConfigurationException Thrown if the file exists but cannot be
+     *                                read.
+     */
+    PropertiesFileConfiguration(File file, boolean load)
+            throws ConfigurationException {
+        setDelimiterParsingDisabled(true);
+        setFile(file);
+        if (load && file.exists())
+            load();
+    }
+
+    @Override
+    public void load(InputStream in, String encoding)
+            throws ConfigurationException {
+        try {
+            load(new InputStreamReader(in,
+                    encoding == null ? ENCODING : encoding));
+        } catch (UnsupportedEncodingException e) {
+            throw new ConfigurationException("Unable to parse " + getFile(), e);
+        }
+    }
+
+    @Override
+    public void load(Reader in) throws ConfigurationException {
+        try {
+            read(in);
+        } catch (IOException e) {
+            throw new ConfigurationException("Unable to parse " + getFile(), e);
+        }
+    }
+
+    @Override
+    public void save(OutputStream out, String encoding)
+            throws ConfigurationException {
+        try {
+            save(new OutputStreamWriter(out,
+                    encoding == null ? ENCODING : encoding));
+        } catch (UnsupportedEncodingException e) {
+            throw new ConfigurationException("Unable to write " + getFile(), e);
+        }
+    }
+
+    @Override
+    public void save(Writer out) throws ConfigurationException {
+        try {
+            write(out);
+        } catch (IOException e) {
+            throw new ConfigurationException("Unable to write " + getFile(), e);
+        }
+    }
+
+    /**
+     * Adds every entry in a properties file to the configuration, joining
+     * continued lines and skipping comments and blank lines as they are read.
+     *
+     * @param in The file's contents.
+     * @throws IOException Thrown if the file cannot be read or contains a
+     *                     malformed escape.
+     */
+    private void read(Reader in) throws IOException {
+        char[] buf = new char[CHUNK];
+        StringBuilder line = new StringBuilder();
+        boolean lineStart = true;
+        boolean continued = false;
+        boolean comment = false;
+        boolean skipLF = false;
+        int backslashes = 0;
+        int n;
+        while ((n = in.read(buf)) != -1) {
+            for (int i = 0; i < n; i++) {
+                char c = buf[i];
+                if (skipLF) {
+                    skipLF = false;
+                    if (c == '\n')
+                        continue;
+                }
+                boolean eol = c == '\n' || c == '\r';
+                if (lineStart && !eol) {
+                    if (c == ' ' || c == '\t' || c == '\f')
+                        continue;
+                    lineStart = false;
+                    if (!continued && (c == '#' || c == '!')) {
+                        comment = true;
+                        continue;
+                    }
+                }
+                if (eol) {
+                    skipLF = c == '\r';
+                    lineStart = true;
+                    if (comment) {
+                        comment = false;
+                    } else if (backslashes % 2 == 1) {
+                        line.setLength(line.length() - 1);
+                        continued = true;
+                    } else if (continued || line.length() > 0) {
+                        entry(line);
+                        line.setLength(0);
+                        continued = false;
+                    }
+                    backslashes = 0;
+                } else if (!comment) {
+                    line.append(c);
+                    backslashes = c == '\\' ? backslashes + 1 : 0;
+                }
+            }
+        }
+        if (!comment && (continued || line.length() > 0)) {
+            if (backslashes % 2 == 1)
+                line.setLength(line.length() - 1);
+            entry(line);
+        }
+    }
+
+    /**
+     * Adds the entry on a logical line, which is split into its key and value
+     * at the first unescaped <code>=</code>, <code>:</code> or whitespace.
+     *
+     * @param line The line, with continuations joined.
+     * @throws IOException Thrown if the line contains a malformed escape.
+     */
+    private void entry(CharSequence line) throws IOException {
+        int length = line.length();
+        int keyEnd = length;
+        int valueStart = length;
+        for (int i = 0; i < length; i++) {
+            char c = line.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '=' || c == ':') {
+                keyEnd = i;
+                valueStart = skipSpace(line, i + 1);
+                break;
+            } else if (c == ' ' || c == '\t' || c == '\f') {
+                keyEnd = i;
+                valueStart = skipSpace(line, i);
+                if (valueStart < length && (line.charAt(valueStart) == '='
+                        || line.charAt(valueStart) == ':'))
+                    valueStart = skipSpace(line, valueStart + 1);
+                break;
+            }
+        }
+        addPropertyDirect(unescape(line, 0, keyEnd),
+                unescape(line, valueStart, length));
+    }
+
+    private static int skipSpace(CharSequence line, int i) {
+        while (i < line.length() && (line.charAt(i) == ' '
+                || line.charAt(i) == '\t' || line.charAt(i) == '\f'))
+            i++;
+        return i;
+    }
+
+    /**
+     * @param line  A logical line.
+     * @param start The index of the first character to unescape.
+     * @param end   The index after the last.
+     * @return The characters in the range, with escapes replaced.
+     * @throws IOException Thrown if the range contains a malformed Unicode
+     *                     escape.
+     */
+    private static String unescape(CharSequence line, int start, int end)
+            throws IOException {
+        StringBuilder out = null;
+        int copied = start;
+        for (int i = start; i < end; i++) {
+            if (line.charAt(i) != '\\')
+                continue;
+            if (out == null)
+                out = new StringBuilder(end - start);
+            out.append(line, copied, i);
+            if (++i == end) {
+                copied = end;
+                break;
+            }
+            char c = line.charAt(i);
+            switch (c) {
+                case 't':
+                    out.append('\t');
+                    break;
+                case 'n':
+                    out.append('\n');
+                    break;
+                case 'r':
+                    out.append('\r');
+                    break;
+                case 'f':
+                    out.append('\f');
+                    break;
+                case 'u':
+                    if (i + 4 >= end)
+                        throw new IOException("Malformed \\uxxxx encoding");
+                    int value = 0;
+                    for (int j = 1; j <= 4; j++) {
+                        int digit = Character.digit(line.charAt(i + j), 16);
+                        if (digit < 0)
+                            throw new IOException(
+                                    "Malformed \\uxxxx encoding");
+                        value = value << 4 | digit;
+                    }
+                    out.append((char) value);
+                    i += 4;
+                    break;
+                default:
+                    out.append(c);
+                    break;
+            }
+            copied = i + 1;
+        }
+        if (out == null)
+            return line.subSequence(start, end).toString();
+        return out.append(line, copied, end).toString();
+    }
+
+    /**
+     * Writes every value as a line of the file, a chunk at a time.
+     *
+     * @param out The writer, which is flushed but not closed afterwards.
+     * @throws IOException Thrown if the file cannot be written.
+     */
+    private void write(Writer out) throws IOException {
+        StringBuilder chunk = new StringBuilder(CHUNK + 256);
+        Iterator<String> keys = getKeys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            Object value = getProperty(key);
+            if (value instanceof Collection) {
+                for (Object v : (Collection<?>) value)
+                    line(chunk, key, v);
+            } else {
+                line(chunk, key, value);
+            }
+            if (chunk.length() >= CHUNK) {
+                out.append(chunk);
+                chunk.setLength(0);
+            }
+        }
+        out.append(chunk);
+        out.flush();
+    }
+
+    private static void line(StringBuilder out, String key, Object value) {
+        escape(out, key, true);
+        out.append('=');
+        escape(out, value == null ? "" : String.valueOf(value), false);
+        out.append('\n');
+    }
+
+    /**
+     * Appends text with every character that would otherwise be misread
+     * escaped.
+     *
+     * @param out  The buffer to append to.
+     * @param text The text.
+     * @param key  Whether the text is a key, in which separators and comment
+     *             markers must also be escaped.
+     */
+    private static void escape(StringBuilder out, String text, boolean key) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\f':
+                    out.append("\\f");
+                    break;
+                case ' ':
+                    if (key || i == 0)
+                        out.append('\\');
+                    out.append(c);
+                    break;
+                case '=':
+                case ':':
+                case '#':
+                case '!':
+                    if (key)
+                        out.append('\\');
+                    out.append(c);
+                    break;
+                default:
+                    if (c < 0x20 || c > 0x7e) {
+                        out.append("\\u").append(HEX[c >> 12 & 0xF])
+                                .append(HEX[c >> 8 & 0xF])
+                                .append(HEX[c >> 4 & 0xF])
+                                .append(HEX[c & 0xF]);
+                    } else {
+                        out.append(c);
+                    }
+                    break;
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2026 Ethan Ruffing
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ethanruffing.preferenceabstraction;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Runs tasks one at a time, in the order that they were submitted, on another
+ * executor. Queued tasks are run by a single task handed to the underlying
+ * executor, so this may be used over an executor with any number of threads.
+ * <p>
+ * If the underlying executor rejects the work, e.g. because it has been shut
+ * down, the queued tasks are handed back as rejected rather than run on the
+ * submitting thread, which must not block, so that no task is silently lost.
+ *
+ * @author Ethan Ruffing
+ * @since 2026-10-18
+ */
+final class SerialExecutor implements Executor {
+    private final Executor executor;
+    private final Consumer<Throwable> errors;
+    private final BiConsumer<Runnable, RejectedExecutionException> rejected;
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+    private boolean running;
+
+    /**
+     * @param executor The executor to run the tasks on.
+     * @param errors   Told of exceptions thrown by tasks.
+     * @param rejected Given each task that will not be run because the
+     *                 executor rejected it, with the rejection.
+     */
+    SerialExecutor(Executor executor, Consumer<Throwable> errors,
+                   BiConsumer<Runnable, RejectedExecutionException> rejected) {
+        if (executor == null)
+            throw new NullPointerException("executor");
+        this.executor = executor;
+        this.errors = errors;
+        this.rejected = rejected;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        synchronized (this) {
+            tasks.add(task);
+            if (running)
+                return;
+            running = true;
+        }
+        try {
+            executor.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            List<Runnable> dropped;
+            synchronized (this) {
+                dropped = new ArrayList<>(tasks);
+                tasks.clear();
+                running = false;
+            }
+            for (Runnable queued : dropped)
+                rejected.accept(queued, e);
+        }
+    }
+
+    /**
+     * Runs queued tasks until none remain.
+     */
+    private void drain() {
+        while (true) {
+            Runnable task;
+            synchronized (this) {
+                task = tasks.poll();
+                if (task == null) {
+                    running = false;
+                    return;
+                }
+            }
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                errors.accept(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2026 Ethan Ruffing
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ethanruffing.preferenceabstraction;
+
+import java.io.*;
+
+/**
+ * Converts objects to and from the byte form in which they are stored by
+ * backends that cannot hold arbitrary objects.
+ *
+ * @author Ethan Ruffing
+ * @since 2026-10-18
+ */
+final class Serialization {
+    private Serialization() {
+    }
+
+    /**
+     * Writes an object in its Java serialization form.
+     *
+     * @param value The object to serialize.
+     * @return The serialized object.
+     * @throws IOException Thrown if the object cannot be serialized.
+     */
+    static byte[] serialize(Object value) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        serialize(value, bos);
+        return bos.toByteArray();
+    }
+
+    /**
+     * Writes an object in its Java serialization form to a stream, which is
+     * left open.
+     *
+     * @param value The object to serialize.
+     * @param os    The stream to write to.
+     * @throws IOException Thrown if the object cannot be serialized.
+     */
+    static void serialize(Object value, OutputStream os) throws IOException {
+        ObjectOutputStream out = new ObjectOutputStream(os);
+        out.writeObject(value);
+        out.flush();
+    }
+
+    /**
+     * Reads an object from its Java serialization form.
+     *
+     * @param bytes The serialized object.
+     * @return The deserialized object.
+     * @throws ClassNotFoundException Thrown if the object's class cannot be
+     *                                found.
+     * @throws IOException            Thrown if the bytes are not a valid
+     *                                serialized object.
+     */
+    static Object deserialize(byte[] bytes)
+            throws ClassNotFoundException, IOException {
+        return deserialize(new ByteArrayInputStream(bytes));
+    }
+
+    /**
+     * Reads an object from its Java serialization form in a stream, which is
+     * closed afterwards.
+     *
+     * @param is The stream holding the serialized object.
+     * @return The deserialized object.
+     * @throws ClassNotFoundException Thrown if the object's class cannot be
+     *                                found.
+     * @throws IOException            Thrown if the stream does not hold a
+     *                                valid serialized object.
+     */
+    static Object deserialize(InputStream is)
+            throws ClassNotFoundException, IOException {
+        ObjectInput in = null;
+        try {
+            in = new ObjectInputStream(is);
+            return in.readObject();
+        } finally {
+            try {
+                if (in != null) {
+                    in.close();
+                }
+            } catch (IOException ex) {
+                // ignore close exception
+            }
+        }
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ * Copyright 2026 Ethan Ruffing
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ethanruffing.preferenceabstraction;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The coordination between processes that share a preferences file.
+ * <p>
+ * Beside the file is a lock file, which is locked while the file is written,
+ * and which holds a generation number that each write increments. The file's
+ * {@link Stamp stamp}, made up of its modification time, length and
+ * generation, tells whether it has been written since it was last read,
+ * even when two writes fall within the resolution of the modification time.
+ * Checking it costs a call to the file system, and is done at most once per
+ * interval, as signalled by a background task so that reads in between only
+ * test a flag.
+ * <p>
+ * File locks are held by the whole of a Java virtual machine, and cannot be
+ * taken twice within one, so the lock is also taken within the virtual
+ * machine, for every store sharing the file.
+ *
+ * @author Ethan Ruffing
+ * @since 2026-10-18
+ */
+final class SharedFile implements Closeable {
+    /**
+     * The lock within this virtual machine for each lock file.
+     */
+    private static final Map<String, ReentrantLock> LOCAL_LOCKS =
+            new ConcurrentHashMap<>();
+
+    private final File file;
+    private final FileChannel channel;
+    private final ReentrantLock localLock;
+    private final ScheduledFuture<?> timer;
+    private final ByteBuffer generation = ByteBuffer.allocate(8);
+    private FileLock fileLock;
+    private volatile boolean checkDue = true;
+    private volatile Stamp known;
+
+    /**
+     * @param file     The shared file.
+     * @param interval The time between checks for changes, or zero to check
+     *                 on every read.
+     * @param unit     The unit of <code>interval</code>.
+     * @throws IOException Thrown if the lock file cannot be opened.
+     */
+    SharedFile(File file, long interval, TimeUnit unit) throws IOException {
+        this.file = file;
+        File lockFile = new File(file.getPath() + ".lock").getAbsoluteFile();
+        if (lockFile.getParentFile() != null)
+            lockFile.getParentFile().mkdirs();
+        this.channel = FileChannel.open(lockFile.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        this.localLock = LOCAL_LOCKS.computeIfAbsent(
+                lockFile.getCanonicalPath(), path -> new ReentrantLock());
+        this.timer = interval > 0
+                ? BackgroundTasks.EXECUTOR.scheduleAtFixedRate(
+                        () -> checkDue = true, interval, interval, unit)
+                : null;
+    }
+
+    /**
+     * Takes the lock on the file, waiting for any other process or store
+     * that holds it. Must be followed by {@link #unlock()}.
+     *
+     * @throws IOException Thrown if the file cannot be locked.
+     */
+    void lock() throws IOException {
+        localLock.lock();
+        try {
+            fileLock = channel.lock();
+        } catch (IOException | RuntimeException e) {
+            localLock.unlock();
+            throw e;
+        }
+    }
+
+    /**
+     * Takes the lock within this virtual machine only, if no other store has
+     * it, so that values are not read from the file while it is being
+     * written. Must be followed by {@link #unlockLocal()} if successful.
+     *
+     * @return Whether the lock was taken.
+     */
+    boolean tryLockLocal() {
+        return localLock.tryLock();
+    }
+
+    /**
+     * Releases the lock taken by {@link #tryLockLocal()}.
+     */
+    void unlockLocal() {
+        localLock.unlock();
+    }
+
+    /**
+     * Releases the lock taken by {@link #lock()}.
+     */
+    void unlock() {
+        try {
+            if (fileLock != null)
+                fileLock.release();
+        } catch (IOException e) {
+            // Released anyway once the channel is closed.
+        } finally {
+            fileLock = null;
+            localLock.unlock();
+        }
+    }
+
+    /**
+     * @return Whether the interval has passed since the last check for
+     * changes, in which case the next check is due after another interval.
+     */
+    boolean isCheckDue() {
+        if (timer == null)
+            return true;
+        if (!checkDue)
+            return false;
+        checkDue = false;
+        return true;
+    }
+
+    /**
+     * Reads the file's stamp as it is now. The generation is read first, so
+     * that a write that finishes meanwhile is seen as a change next time.
+     *
+     * @return The stamp.
+     * @throws IOException Thrown if the lock file cannot be read.
+     */
+    Stamp current() throws IOException {
+        long gen;
+        synchronized (generation) {
+            ((Buffer) generation).clear();
+            int read = 0;
+            while (read < 8) {
+                int n = channel.read(generation, read);
+                if (n < 0)
+                    break;
+                read += n;
+            }
+            gen = read == 8 ? generation.getLong(0) : 0;
+        }
+        return new Stamp(file.lastModified(), file.length(), gen);
+    }
+
+    /**
+     * Records a write of the file by incrementing the generation. Must be
+     * called while holding the lock.
+     *
+     * @return The file's stamp after the write.
+     * @throws IOException Thrown if the lock file cannot be written.
+     */
+    Stamp advance() throws IOException {
+        Stamp before = current();
+        synchronized (generation) {
+            ((Buffer) generation).clear();
+            generation.putLong(0, before.generation + 1);
+            while (generation.hasRemaining())
+                channel.write(generation, generation.position());
+        }
+        return new Stamp(file.lastModified(), file.length(),
+                before.generation + 1);
+    }
+
+    /**
+     * @return The stamp of the file as of the values held in memory.
+     */
+    Stamp getKnown() {
+        return known;
+    }
+
+    /**
+     * @param stamp The stamp of the file as of the values held in memory.
+     */
+    void setKnown(Stamp stamp) {
+        known = stamp;
+    }
+
+    /**
+     * Closes the lock file. The file itself is left in place, as other
+     * processes may be waiting for its lock.
+     */
+    @Override
+    public void close() {
+        if (timer != null)
+            timer.cancel(false);
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Nothing is left to write.
+        }
+    }
+
+    /**
+     * The state of the file at some point in time.
+     */
+    static final class Stamp {
+        final long modified;
+        final long length;
+        final long generation;
+
+        Stamp(long modified, long length, long generation) {
+            this.modified = modified;
+            this.length = length;
+            this.generation = generation;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Stamp))
+                return false;
+            Stamp other = (Stamp) o;
+            return modified == other.modified && length == other.length
+                    && generation == other.generation;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(modified, length, generation);
+        }
+    }
+}
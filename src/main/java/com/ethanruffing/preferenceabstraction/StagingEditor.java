@@ -0,0 +1,114 @@
+/*
+ * Copyright 2026 Ethan Ruffing
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ethanruffing.preferenceabstraction;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * The default {@link PreferencesEditor} for a store that has no batches of
+ * its own. Changes are staged as operations on the store, and replayed one at
+ * a time through its <code>put</code> and <code>remove</code> methods on
+ * commit.
+ *
+ * @author Ethan Ruffing
+ * @since 2026-10-18
+ */
+final class StagingEditor implements PreferencesEditor {
+    private final IPreferences target;
+    private final Map<String, Consumer<IPreferences>> changes =
+            new LinkedHashMap<>();
+
+    /**
+     * Constructs a new, empty editor for the given store.
+     *
+     * @param target The store that changes are committed to.
+     */
+    StagingEditor(IPreferences target) {
+        this.target = target;
+    }
+
+    @Override
+    public PreferencesEditor put(String key, boolean value) {
+        changes.put(key, p -> p.put(key, value));
+        return this;
+    }
+
+    @Override
+    public PreferencesEditor put(String key, byte[] value) {
+        changes.put(key, p -> p.put(key, value));
+        return this;
+    }
+
+    @Override
+    public PreferencesEditor put(String key, double value) {
+        changes.put(key, p -> p.put(key, value));
+        return this;
+    }
+
+    @Override
+    public PreferencesEditor put(String key, float value) {
+        changes.put(key, p -> p.put(key, value));
+        return this;
+    }
+
+    @Override
+    public PreferencesEditor put(String key, int value) {
+        changes.put(key, p -> p.put(key, value));
+        return this;
+    }
+
+    @Override
+    public PreferencesEditor put(String key, long value) {
+        changes.put(key, p -> p.put(key, value));
+        return this;
+    }
+
+    @Override
+    public PreferencesEditor put(String key, Object value) {
+        changes.put(key, p -> p.put(key, value));
+        return this;
+    }
+
+    @Override
+    public PreferencesEditor put(String key, String value) {
+        changes.put(key, p -> p.put(key, value));
+        return this;
+    }
+
+    @Override
+    public PreferencesEditor remove(String key) {
+        changes.put(key, p -> p.remove(key));
+        return this;
+    }
+
+    /**
+     * Applies the staged changes in the order that their keys were first
+     * staged. If one fails, the changes before it remain applied, and the
+     * rest are discarded.
+     */
+    @Override
+    public void commit() {
+        List<Consumer<IPreferences>> staged = new ArrayList<>(changes.values());
+        changes.clear();
+        for (Consumer<IPreferences> change : staged)
+            change.accept(target);
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2026 Ethan Ruffing
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ethanruffing.preferenceabstraction;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+
+/**
+ * Reads and writes a compact binary image of a text-based store's values,
+ * kept beside its file, from which the store can be started again without
+ * parsing the file.
+ * <p>
+ * The image records the modification time and length of the file that it
+ * was taken from, and is only used while the file still matches them. It
+ * holds the values in the form of {@link BinaryRecords}, each framed by its
+ * length and checksum, so numbers and booleans keep their types. A key with
+ * several values has one record per value. The image is laid out as follows,
+ * with all numbers big-endian:
+ * <pre>
+ * byte[4] magic number, "PASN"
+ * byte    format version
+ * long    modification time of the file
+ * long    length of the file
+ * int     number of records
+ * ...     the records
+ * </pre>
+ * The image is memory-mapped to be read, and written to a temporary file
+ * which is then renamed over it, so that a reader never sees it half-written.
+ *
+ * @author Ethan Ruffing
+ * @since 2026-10-18
+ */
+final class StartupSnapshot {
+    private static final byte[] MAGIC = {'P', 'A', 'S', 'N'};
+    private static final byte VERSION = 1;
+
+    /**
+     * The offset of the record count in the image.
+     */
+    private static final int COUNT_OFFSET = MAGIC.length + 1 + 8 + 8;
+
+    private StartupSnapshot() {
+    }
+
+    /**
+     * @param file A store's file.
+     * @return The file that the store's snapshot is kept in.
+     */
+    static File of(File file) {
+        return new File(file.getPath() + ".snapshot");
+    }
+
+    /**
+     * Takes a snapshot of a configuration's values, provided that they match
+     * its file. Otherwise, any existing snapshot is deleted, as it may be
+     * mistaken for a valid one once the file has been changed.
+     *
+     * @param config The configuration.
+     * @param codecs The codecs with which to encode objects.
+     * @throws IOException Thrown if the snapshot cannot be written.
+     */
+    static void write(AtomicFileConfiguration config, CodecRegistry codecs)
+            throws IOException {
+        File image = of(config.getFile());
+        if (!config.isFileUnchanged()) {
+            Files.deleteIfExists(image.toPath());
+            return;
+        }
+        File tmp = new File(image.getPath() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp)) {
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(fos, 8192));
+            out.write(MAGIC);
+            out.writeByte(VERSION);
+            out.writeLong(config.getFileModified());
+            out.writeLong(config.getFileLength());
+            out.writeInt(0); // Count placeholder
+            int count = 0;
+            Iterator<String> keys = config.getKeys();
+            while (keys.hasNext()) {
+                String key = keys.next();
+                Object value = config.getProperty(key);
+                if (value instanceof Collection) {
+                    for (Object element : (Collection<?>) value) {
+                        out.write(BinaryRecords.encode(key,
+                                storable(element), codecs));
+                        count++;
+                    }
+                } else if (value != null) {
+                    out.write(BinaryRecords.encode(key, storable(value),
+                            codecs));
+                    count++;
+                }
+            }
+            out.flush();
+            fos.getChannel().write(ByteBuffer.allocate(4).putInt(0, count),
+                    COUNT_OFFSET);
+            fos.getFD().sync();
+        } catch (IOException e) {
+            tmp.delete();
+            throw e;
+        }
+        try {
+            Files.move(tmp.toPath(), image.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE
+            );
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp.toPath(), image.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * @param value A value held by a text-based configuration.
+     * @return The value, or its text form if it is an object that the file
+     * would only hold as text.
+     */
+    private static Object storable(Object value) {
+        if (value instanceof Boolean || value instanceof Number
+                || value instanceof String || value instanceof byte[])
+            return value;
+        return value.toString();
+    }
+
+    /**
+     * Fills an empty configuration from the snapshot of its file, provided
+     * that the file has not been changed since the snapshot was taken.
+     *
+     * @param config The configuration, which should be discarded if the
+     *               snapshot cannot be used.
+     * @param codecs The codecs with which to decode objects.
+     * @return Whether the configuration was filled.
+     * @throws IOException Thrown if the snapshot exists but is corrupt, or
+     *                     cannot be read.
+     */
+    static boolean read(AtomicFileConfiguration config, CodecRegistry codecs)
+            throws IOException {
+        File file = config.getFile();
+        File image = of(file);
+        if (!image.exists() || !file.exists())
+            return false;
+        try (FileChannel channel = FileChannel.open(image.toPath(),
+                StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+                    0, channel.size());
+            if (buffer.remaining() < COUNT_OFFSET + 4)
+                throw new IOException("Truncated snapshot " + image + ".");
+            byte[] magic = new byte[MAGIC.length];
+            buffer.get(magic);
+            if (!Arrays.equals(magic, MAGIC) || buffer.get() != VERSION)
+                throw new IOException("Not a snapshot: " + image + ".");
+            long modified = buffer.getLong();
+            long length = buffer.getLong();
+            if (file.lastModified() != modified || file.length() != length)
+                return false;
+
+            int count = buffer.getInt();
+            config.beginFill();
+            try {
+                for (int i = 0; i < count; i++) {
+                    BinaryRecords.Record record = BinaryRecords.read(buffer,
+                            codecs);
+                    if (record == null || record.value == null)
+                        throw new IOException("Corrupt snapshot " + image
+                                + ".");
+                    config.addLoaded(record.key, record.value);
+                }
+            } finally {
+                config.endFill();
+            }
+            if (buffer.hasRemaining())
+                throw new IOException("Corrupt snapshot " + image + ".");
+            config.setFileState(modified, length);
+            return true;
+        }
+    }
+}
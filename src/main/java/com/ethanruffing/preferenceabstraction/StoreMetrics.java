@@ -0,0 +1,165 @@
+/*
+ * Copyright 2026 Ethan Ruffing
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ethanruffing.preferenceabstraction;
+
+import org.apache.commons.configuration.FileConfiguration;
+
+import java.io.File;
+
+/**
+ * Connects a single store to the {@link PreferenceMetrics} it reports to,
+ * taking measurements only while those metrics are something other than
+ * {@link PreferenceMetrics#NONE}.
+ * <p>
+ * Timed sections start with {@link #start()}, whose result is handed to the
+ * method recording the section's end.
+ *
+ * @author Ethan Ruffing
+ * @since 2026-10-18
+ */
+final class StoreMetrics {
+    /**
+     * Returned by {@link #start()} when nothing is being measured.
+     */
+    private static final long NOT_TIMED = Long.MIN_VALUE;
+
+    private volatile PreferenceMetrics metrics = PreferenceMetrics.NONE;
+    private ConfigurationType type;
+
+    /**
+     * @param type The type of the store being measured.
+     */
+    void setType(ConfigurationType type) {
+        this.type = type;
+    }
+
+    /**
+     * @param metrics The metrics to report to from now on.
+     */
+    void setMetrics(PreferenceMetrics metrics) {
+        if (metrics == null)
+            throw new NullPointerException("metrics");
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return The metrics being reported to.
+     */
+    PreferenceMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return The start of a timed section.
+     */
+    long start() {
+        return metrics == PreferenceMetrics.NONE ? NOT_TIMED
+                : System.nanoTime();
+    }
+
+    /**
+     * Records a completed operation.
+     *
+     * @param operation The operation.
+     * @param start     The result of {@link #start()} when it began.
+     */
+    void operation(PreferenceMetrics.Operation operation, long start) {
+        if (start != NOT_TIMED)
+            metrics.operation(type, operation, System.nanoTime() - start);
+    }
+
+    /**
+     * Records a completed read.
+     *
+     * @param start The result of {@link #start()} when it began.
+     * @param hit   Whether the value was found among the parsed values.
+     */
+    void read(long start, boolean hit) {
+        if (start != NOT_TIMED) {
+            PreferenceMetrics m = metrics;
+            m.cacheAccess(type, PreferenceMetrics.Cache.VALUES, hit);
+            m.operation(type, PreferenceMetrics.Operation.GET,
+                    System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Records a lookup in a cache.
+     *
+     * @param cache The cache.
+     * @param hit   Whether the value was found.
+     */
+    void cacheAccess(PreferenceMetrics.Cache cache, boolean hit) {
+        PreferenceMetrics m = metrics;
+        if (m != PreferenceMetrics.NONE)
+            m.cacheAccess(type, cache, hit);
+    }
+
+    /**
+     * Records an object having been encoded or decoded.
+     *
+     * @param start The result of {@link #start()} when it began.
+     */
+    void serialization(long start) {
+        if (start != NOT_TIMED)
+            metrics.serialization(type, System.nanoTime() - start);
+    }
+
+    /**
+     * Reports an error that is not passed on to the caller.
+     *
+     * @param error The error.
+     */
+    void error(Throwable error) {
+        metrics.error(type, error);
+    }
+
+    /**
+     * Runs something that writes a configuration's file, and records the
+     * write. For the binary log, only the bytes appended are counted.
+     *
+     * @param config The configuration being written.
+     * @param save   Writes the file.
+     * @param <E>    The type of exception thrown on failure.
+     * @throws E Thrown if the file cannot be written.
+     */
+    <E extends Exception> void save(FileConfiguration config, Save<E> save)
+            throws E {
+        PreferenceMetrics m = metrics;
+        if (m == PreferenceMetrics.NONE) {
+            save.run();
+            return;
+        }
+        File file = config.getFile();
+        long before = config instanceof BinaryLogConfiguration
+                ? file.length() : 0;
+        long start = System.nanoTime();
+        save.run();
+        long nanos = System.nanoTime() - start;
+        m.saved(type, Math.max(0, file.length() - before), nanos);
+    }
+
+    /**
+     * Something that writes a configuration's file.
+     *
+     * @param <E> The type of exception thrown on failure.
+     */
+    @FunctionalInterface
+    interface Save<E extends Exception> {
+        void run() throws E;
+    }
+}
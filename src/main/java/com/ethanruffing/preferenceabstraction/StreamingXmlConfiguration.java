@@ -0,0 +1,531 @@
+/*
+ * Copyright 2026 Ethan Ruffing
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ethanruffing.preferenceabstraction;
+
+import org.apache.commons.configuration.ConfigurationException;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A configuration stored in the XML layout written by commons-configuration's
+ * <code>XMLConfiguration</code>, read and written in a single streaming pass
+ * with StAX. Values are held in a flat map from key to value, rather than in a
+ * document tree as well as a tree of configuration nodes.
+ * <p>
+ * Keys map to the file as they do for <code>XMLConfiguration</code>: nested
+ * elements are joined with dots, a dot within an element name is doubled, an
+ * attribute is addressed as <code>element[@name]</code>, and repeated
+ * elements hold a list of values. Text is trimmed unless the element, or one
+ * of its ancestors, has <code>xml:space="preserve"</code>, which is written
+ * for any value with leading or trailing whitespace. Comments in the file are
+ * not kept when it is rewritten.
+ * <p>
+ * Values containing characters that XML 1.0 does not allow, such as most
+ * control characters, are rejected as they are set, as a file holding them
+ * could not be read back.
+ *
+ * @author Ethan Ruffing
+ * @since 2026-10-18
+ */
+final class StreamingXmlConfiguration extends AtomicFileConfiguration {
+    /**
+     * The name of the root element written. Any root element is accepted when
+     * reading.
+     */
+    private static final String ROOT = "configuration";
+
+    private static final String ENCODING = "UTF-8";
+
+    private static final XMLInputFactory INPUT = createInputFactory();
+    private static final XMLOutputFactory OUTPUT =
+            XMLOutputFactory.newInstance();
+
+    /**
+     * Constructs a new configuration for the given file, which is loaded if it
+     * exists.
+     *
+     * @param file The file that the configuration is stored in.
+     * @throws ConfigurationException Thrown if the file exists but cannot be
+     *                                read.
+     */
+    StreamingXmlConfiguration(File file) throws ConfigurationException {
+        this(file, true);
+    }
+
+    /**
+     * Constructs a new configuration for the given file.
+     *
+     * @param file The file that the configuration is stored in.
+     * @param load Whether to load the file, if it exists. If not, the
+     *             configuration starts out empty.
+     * @throws ConfigurationException Thrown if the file exists but cannot be
+     *                                read.
+     */
+    StreamingXmlConfiguration(File file, boolean load)
+            throws ConfigurationException {
+        // Must be disabled before loading, or values containing commas are
+        // split into lists on the way back in.
+        setDelimiterParsingDisabled(true);
+        setFile(file);
+        if (load && file.exists())
+            load();
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(
+                XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+
+    /**
+     * Sets a value, replacing any existing values for the key.
+     *
+     * @param key   The key.
+     * @param value The value.
+     * @throws IllegalArgumentException Thrown if the key is not a valid path
+     *                                  of XML names, or the value contains
+     *                                  a character that cannot be stored in
+     *                                  XML.
+     */
+    @Override
+    public void setProperty(String key, Object value) {
+        checkKey(key);
+        checkText(key, value);
+        super.setProperty(key, value);
+    }
+
+    /**
+     * Adds a value to those of a key.
+     *
+     * @param key   The key.
+     * @param value The value.
+     * @throws IllegalArgumentException Thrown if the key is not a valid path
+     *                                  of XML names, or the value contains
+     *                                  a character that cannot be stored in
+     *                                  XML.
+     */
+    @Override
+    public void addProperty(String key, Object value) {
+        checkKey(key);
+        checkText(key, value);
+        super.addProperty(key, value);
+    }
+
+    /**
+     * Checks that a key can be written as a path of XML elements, before its
+     * value is stored, so that one key cannot keep the file from being
+     * written again.
+     *
+     * @param key The key.
+     * @throws IllegalArgumentException Thrown if the key is not a valid path
+     *                                  of XML names.
+     */
+    private static void checkKey(String key) {
+        try {
+            new Node(ROOT).add(key, null);
+        } catch (ConfigurationException e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Checks that a value can be written as the text of an XML 1.0 document,
+     * before it is stored, so that a file that cannot be read back is never
+     * written.
+     *
+     * @param key   The key that the value is being stored under.
+     * @param value The value, or a collection or array of values.
+     * @throws IllegalArgumentException Thrown if the value contains a
+     *                                  character that XML does not allow.
+     */
+    private static void checkText(String key, Object value) {
+        if (value instanceof Iterable) {
+            for (Object v : (Iterable<?>) value)
+                checkText(key, v);
+            return;
+        }
+        if (value instanceof Object[]) {
+            for (Object v : (Object[]) value)
+                checkText(key, v);
+            return;
+        }
+        if (value == null)
+            return;
+        String text = String.valueOf(value);
+        for (int i = 0; i < text.length(); ) {
+            int c = text.codePointAt(i);
+            boolean valid = c == 0x9 || c == 0xA || c == 0xD
+                    || (c >= 0x20 && c <= 0xD7FF)
+                    || (c >= 0xE000 && c <= 0xFFFD)
+                    || c >= 0x10000;
+            if (!valid)
+                throw new IllegalArgumentException(String.format(
+                        "The value of \"%s\" contains U+%04X, which cannot be"
+                                + " stored in an XML file.", key, c));
+            i += Character.charCount(c);
+        }
+    }
+
+    @Override
+    public void load(InputStream in, String encoding)
+            throws ConfigurationException {
+        try {
+            // Without an encoding, the parser uses the one the file declares.
+            read(encoding == null ? INPUT.createXMLStreamReader(in)
+                    : INPUT.createXMLStreamReader(in, encoding));
+        } catch (XMLStreamException e) {
+            throw new ConfigurationException("Unable to parse " + getFile(), e);
+        }
+    }
+
+    @Override
+    public void load(Reader in) throws ConfigurationException {
+        try {
+            read(INPUT.createXMLStreamReader(in));
+        } catch (XMLStreamException e) {
+            throw new ConfigurationException("Unable to parse " + getFile(), e);
+        }
+    }
+
+    @Override
+    public void save(OutputStream out, String encoding)
+            throws ConfigurationException {
+        String enc = encoding == null ? ENCODING : encoding;
+        try {
+            // The writer emits many small writes; the stream given is often
+            // unbuffered.
+            BufferedOutputStream buffered = new BufferedOutputStream(out);
+            write(OUTPUT.createXMLStreamWriter(buffered, enc), enc);
+            buffered.flush();
+        } catch (IOException e) {
+            throw new ConfigurationException("Unable to write " + getFile(), e);
+        } catch (XMLStreamException e) {
+            throw new ConfigurationException("Unable to write " + getFile(), e);
+        }
+    }
+
+    @Override
+    public void save(Writer out) throws ConfigurationException {
+        try {
+            write(OUTPUT.createXMLStreamWriter(out), null);
+        } catch (XMLStreamException e) {
+            throw new ConfigurationException("Unable to write " + getFile(), e);
+        }
+    }
+
+    /**
+     * Adds every value in a document to the configuration.
+     *
+     * @param reader The document, which is closed afterwards.
+     * @throws XMLStreamException Thrown if the document cannot be parsed.
+     */
+    private void read(XMLStreamReader reader) throws XMLStreamException {
+        List<Element> open = new ArrayList<>();
+        try {
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        open.add(start(reader, open.isEmpty() ? null
+                                : open.get(open.size() - 1)));
+                        break;
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                    case XMLStreamConstants.SPACE:
+                        if (!open.isEmpty())
+                            open.get(open.size() - 1).text
+                                    .append(reader.getText());
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        end(open.remove(open.size() - 1));
+                        break;
+                    default:
+                        break;
+                }
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Handles the start of an element, adding its attributes.
+     *
+     * @param reader The reader, positioned at the start of the element.
+     * @param parent The enclosing element, or <code>null</code> for the root.
+     * @return The element.
+     */
+    private Element start(XMLStreamReader reader, Element parent) {
+        String key;
+        boolean preserve;
+        if (parent == null) {
+            key = null;
+            preserve = false;
+        } else {
+            String name = reader.getLocalName().replace(".", "..");
+            key = parent.key == null ? name : parent.key + "." + name;
+            preserve = parent.preserve;
+            parent.hasChildren = true;
+        }
+        boolean hasAttributes = false;
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            String name = reader.getAttributeLocalName(i);
+            if (XMLConstants.XML_NS_URI.equals(
+                    reader.getAttributeNamespace(i))) {
+                if (name.equals("space"))
+                    preserve = "preserve".equals(reader.getAttributeValue(i));
+                continue;
+            }
+            addPropertyDirect((key == null ? "" : key) + "[@" + name + "]",
+                    reader.getAttributeValue(i));
+            hasAttributes = true;
+        }
+        Element element = new Element(key, preserve);
+        element.hasAttributes = hasAttributes;
+        return element;
+    }
+
+    /**
+     * Handles the end of an element, adding its text. An element without
+     * text has no value of its own if it has children or attributes, as with
+     * <code>XMLConfiguration</code>.
+     *
+     * @param element The element.
+     */
+    private void end(Element element) {
+        if (element.key == null)
+            return;
+        String text = element.text.toString();
+        String trimmed = text.trim();
+        if (!element.preserve || trimmed.isEmpty())
+            text = trimmed;
+        if ((!element.hasChildren && !element.hasAttributes)
+                || !text.isEmpty())
+            addPropertyDirect(element.key, text);
+    }
+
+    /**
+     * Writes every value as a document.
+     *
+     * @param writer   The writer, which is flushed and closed afterwards.
+     * @param encoding The encoding to declare, or <code>null</code> for none.
+     * @throws ConfigurationException Thrown if a key cannot be represented as
+     *                                XML.
+     * @throws XMLStreamException     Thrown if the document cannot be written.
+     */
+    private void write(XMLStreamWriter writer, String encoding)
+            throws ConfigurationException, XMLStreamException {
+        Node root = new Node(ROOT);
+        Iterator<String> keys = getKeys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            root.add(key, getProperty(key));
+        }
+        try {
+            if (encoding == null)
+                writer.writeStartDocument("1.0");
+            else
+                writer.writeStartDocument(encoding, "1.0");
+            writer.writeCharacters("\n");
+            root.write(writer, 0, false);
+            writer.writeEndDocument();
+            writer.flush();
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * An element being read.
+     */
+    private static final class Element {
+        /**
+         * The key of the element's value, or <code>null</code> for the root.
+         */
+        final String key;
+        final boolean preserve;
+        final StringBuilder text = new StringBuilder();
+        boolean hasChildren;
+        boolean hasAttributes;
+
+        Element(String key, boolean preserve) {
+            this.key = key;
+            this.preserve = preserve;
+        }
+    }
+
+    /**
+     * An element to be written, gathering the values of every key that shares
+     * its path, so that they are written as a single element.
+     */
+    private static final class Node {
+        final String name;
+        final List<Object> values = new ArrayList<>(1);
+        final Map<String, Object> attributes = new LinkedHashMap<>();
+        final Map<String, Node> children = new LinkedHashMap<>();
+
+        Node(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Adds the value of a key below this element.
+         *
+         * @param key   The key, relative to this element.
+         * @param value The value, or list of values.
+         * @throws ConfigurationException Thrown if the key cannot be
+         *                                represented as XML.
+         */
+        void add(String key, Object value) throws ConfigurationException {
+            Node node = this;
+            int i = 0;
+            StringBuilder name = new StringBuilder();
+            while (i < key.length()) {
+                char c = key.charAt(i++);
+                if (c == '.' && i < key.length() && key.charAt(i) == '.') {
+                    name.append('.');
+                    i++;
+                } else if (c == '.') {
+                    node = node.child(name.toString(), key);
+                    name.setLength(0);
+                } else if (c == '[' && key.startsWith("@", i)
+                        && key.endsWith("]")) {
+                    if (name.length() > 0)
+                        node = node.child(name.toString(), key);
+                    String attribute = key.substring(i + 1, key.length() - 1);
+                    checkName(attribute, key);
+                    node.attributes.put(attribute, value);
+                    return;
+                } else {
+                    name.append(c);
+                }
+            }
+            node = node.child(name.toString(), key);
+            if (value instanceof Collection)
+                node.values.addAll((Collection<?>) value);
+            else
+                node.values.add(value);
+        }
+
+        private Node child(String name, String key)
+                throws ConfigurationException {
+            Node child = children.get(name);
+            if (child == null) {
+                checkName(name, key);
+                child = new Node(name);
+                children.put(name, child);
+            }
+            return child;
+        }
+
+        /**
+         * Writes this element, once per value, with its attributes and
+         * children on the first.
+         *
+         * @param writer   The writer.
+         * @param depth    The nesting depth of the element.
+         * @param preserve Whether whitespace is preserved, so that no
+         *                 indentation may be added.
+         * @throws XMLStreamException Thrown if the element cannot be written.
+         */
+        void write(XMLStreamWriter writer, int depth, boolean preserve)
+                throws XMLStreamException {
+            int count = Math.max(1, values.size());
+            for (int v = 0; v < count; v++) {
+                boolean first = v == 0;
+                String text = v < values.size() && values.get(v) != null
+                        ? String.valueOf(values.get(v)) : "";
+                boolean nested = first && !children.isEmpty();
+                if (!preserve && depth > 0)
+                    indent(writer, depth);
+                if (!nested && text.isEmpty()
+                        && (!first || attributes.isEmpty())) {
+                    writer.writeEmptyElement(name);
+                    continue;
+                }
+                writer.writeStartElement(name);
+                if (first) {
+                    for (Map.Entry<String, Object> a : attributes.entrySet())
+                        writer.writeAttribute(a.getKey(),
+                                String.valueOf(a.getValue()));
+                }
+                boolean padded = !text.equals(text.trim());
+                if (padded)
+                    writer.writeAttribute("xml", XMLConstants.XML_NS_URI,
+                            "space", "preserve");
+                writer.writeCharacters(text);
+                if (nested) {
+                    for (Node child : children.values())
+                        child.write(writer, depth + 1, preserve || padded);
+                    if (!preserve && !padded)
+                        indent(writer, depth);
+                }
+                writer.writeEndElement();
+            }
+        }
+
+        private static void indent(XMLStreamWriter writer, int depth)
+                throws XMLStreamException {
+            StringBuilder indent = new StringBuilder("\n");
+            for (int i = 1; i < depth; i++)
+                indent.append("  ");
+            writer.writeCharacters(indent.toString());
+        }
+
+        /**
+         * @param name A name for an element or attribute.
+         * @param key  The key that the name was taken from.
+         * @throws ConfigurationException Thrown if the name is not a valid XML
+         *                                name.
+         */
+        private static void checkName(String name, String key)
+                throws ConfigurationException {
+            boolean valid = !name.isEmpty()
+                    && (Character.isLetter(name.charAt(0))
+                    || name.charAt(0) == '_');
+            for (int i = 1; valid && i < name.length(); i++) {
+                char c = name.charAt(i);
+                valid = Character.isLetterOrDigit(c) || c == '_' || c == '-'
+                        || c == '.';
+            }
+            if (!valid)
+                throw new ConfigurationException("The key \"" + key
+                        + "\" cannot be stored in an XML file.");
+        }
+    }
+}
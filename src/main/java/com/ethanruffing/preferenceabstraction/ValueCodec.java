@@ -0,0 +1,56 @@
+/*
+ * Copyright 2026 Ethan Ruffing
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ethanruffing.preferenceabstraction;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Converts objects of a particular type to and from bytes, for storage by
+ * {@link IPreferences#put(String, Object)} in backends that cannot hold
+ * objects directly. Codecs are registered per type with {@link
+ * IPreferences#registerCodec(Class, ValueCodec)}, and replace Java
+ * serialization for that type.
+ * <p>
+ * The streams passed to a codec are reused between calls, so a codec must not
+ * retain them.
+ *
+ * @param <T> The type of object handled by the codec.
+ * @author Ethan Ruffing
+ * @see FieldCodec
+ * @since 2026-10-18
+ */
+public interface ValueCodec<T> {
+    /**
+     * Writes an object.
+     *
+     * @param value The object to write.
+     * @param out   The stream to write the object to.
+     * @throws IOException Thrown if the object cannot be written.
+     */
+    void encode(T value, DataOutput out) throws IOException;
+
+    /**
+     * Reads an object written by {@link #encode(Object, DataOutput)}.
+     *
+     * @param in The stream to read the object from.
+     * @return The object.
+     * @throws IOException Thrown if the object cannot be read.
+     */
+    T decode(DataInput in) throws IOException;
+}
@@ -0,0 +1,323 @@
+/*
+ * Copyright 2026 Ethan Ruffing
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ethanruffing.preferenceabstraction;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Holds already-parsed primitive values, so that repeated numeric and boolean
+ * reads need not convert the stored value again. Strings are held as well, so
+ * that reads through a {@link PreferenceKey} never need to consult the store,
+ * and so is the absence of a value, so that reads of unset keys do not either.
+ * <p>
+ * Each key that has been indexed is given a slot, which it keeps until the
+ * index is {@link #clear() cleared}. A slot holds an immutable {@link Entry}
+ * with one value per type, along with flags recording which of them are
+ * valid, since a stored value may be readable as several types. A {@link
+ * PreferenceKey} is resolved to its key's slot once, and is found by its
+ * number afterwards, without hashing the key, for as long as it keeps its
+ * place in a small table of recently used handles.
+ * <p>
+ * A value read from the store may only be added if nothing has been
+ * invalidated since the caller took a {@link #stamp() stamp}, so that a value
+ * read concurrently with a change cannot be indexed after the change.
+ * <p>
+ * Reads take no lock. Changes are made while holding the index's own lock,
+ * and replace a slot's entry as a whole, so a reader always sees a consistent
+ * one.
+ *
+ * @author Ethan Ruffing
+ * @since 2026-10-18
+ */
+final class ValueIndex {
+    static final byte BOOLEAN = 1;
+    static final byte INT = 1 << 1;
+    static final byte LONG = 1 << 2;
+    static final byte FLOAT = 1 << 3;
+    static final byte DOUBLE = 1 << 4;
+    static final byte STRING = 1 << 5;
+
+    /**
+     * Set, alone, for a key known to have no value.
+     */
+    static final byte ABSENT = 1 << 6;
+
+    /**
+     * The number of handles whose slots are remembered. Must be a power of
+     * two.
+     */
+    private static final int HANDLES = 64;
+
+    private volatile Table table = new Table(16);
+    private volatile long generation;
+    private boolean disabled;
+
+    /**
+     * @param key A key.
+     * @return The key's entry, or <code>null</code> if nothing is indexed for
+     * it.
+     */
+    Entry get(String key) {
+        Table t = table;
+        Integer slot = t.slots.get(key);
+        return slot == null ? null : t.entry(slot);
+    }
+
+    /**
+     * @param key A preference handle.
+     * @return The entry of the handle's key, or <code>null</code> if nothing
+     * is indexed for it.
+     */
+    Entry get(PreferenceKey<?> key) {
+        Table t = table;
+        int h = key.id & (HANDLES - 1);
+        Handle handle = t.handles.get(h);
+        if (handle != null && handle.key == key)
+            return t.entry(handle.slot);
+        Integer slot = t.slots.get(key.getName());
+        if (slot == null)
+            return null;
+        t.handles.lazySet(h, new Handle(key, slot));
+        return t.entry(slot);
+    }
+
+    /**
+     * @return A stamp to pass when adding a value, taken before reading the
+     * value from the store.
+     */
+    long stamp() {
+        return generation;
+    }
+
+    /**
+     * Discards every value indexed for a key, as it has changed.
+     *
+     * @param key The key.
+     * @return A stamp with which the key's new value may be added.
+     */
+    synchronized long invalidate(String key) {
+        Table t = table;
+        Integer slot = t.slots.get(key);
+        if (slot != null)
+            t.entries.set(slot, null);
+        return ++generation;
+    }
+
+    /**
+     * Discards every indexed value, along with the keys' slots.
+     */
+    synchronized void clear() {
+        table = new Table(16);
+        generation++;
+    }
+
+    /**
+     * Discards every indexed value, and stops indexing new ones, e.g. because
+     * changes to the store can no longer be tracked.
+     */
+    synchronized void disable() {
+        clear();
+        disabled = true;
+    }
+
+    synchronized void putBoolean(String key, boolean value, long stamp) {
+        Entry e = current(key, stamp);
+        if (e != null)
+            set(key, new Entry(e, BOOLEAN, value, e.intValue, e.longValue,
+                    e.floatValue, e.doubleValue, e.stringValue));
+    }
+
+    synchronized void putInt(String key, int value, long stamp) {
+        Entry e = current(key, stamp);
+        if (e != null)
+            set(key, new Entry(e, INT, e.booleanValue, value, e.longValue,
+                    e.floatValue, e.doubleValue, e.stringValue));
+    }
+
+    synchronized void putLong(String key, long value, long stamp) {
+        Entry e = current(key, stamp);
+        if (e != null)
+            set(key, new Entry(e, LONG, e.booleanValue, e.intValue, value,
+                    e.floatValue, e.doubleValue, e.stringValue));
+    }
+
+    synchronized void putFloat(String key, float value, long stamp) {
+        Entry e = current(key, stamp);
+        if (e != null)
+            set(key, new Entry(e, FLOAT, e.booleanValue, e.intValue,
+                    e.longValue, value, e.doubleValue, e.stringValue));
+    }
+
+    synchronized void putDouble(String key, double value, long stamp) {
+        Entry e = current(key, stamp);
+        if (e != null)
+            set(key, new Entry(e, DOUBLE, e.booleanValue, e.intValue,
+                    e.longValue, e.floatValue, value, e.stringValue));
+    }
+
+    synchronized void putString(String key, String value, long stamp) {
+        Entry e = current(key, stamp);
+        if (e != null)
+            set(key, new Entry(e, STRING, e.booleanValue, e.intValue,
+                    e.longValue, e.floatValue, e.doubleValue, value));
+    }
+
+    /**
+     * Records that a key has no value.
+     *
+     * @param key   The key.
+     * @param stamp The stamp taken before the store was read.
+     */
+    synchronized void putAbsent(String key, long stamp) {
+        if (stamp == generation && !disabled)
+            set(key, Entry.ABSENT_ENTRY);
+    }
+
+    /**
+     * @param key   A key.
+     * @param stamp The stamp taken before the store was read.
+     * @return The entry to add a value of the key to, or <code>null</code>
+     * if nothing may be added.
+     */
+    private Entry current(String key, long stamp) {
+        if (stamp != generation || disabled)
+            return null;
+        Entry e = get(key);
+        return e == null || e.has(ABSENT) ? Entry.EMPTY : e;
+    }
+
+    /**
+     * Replaces the entry of a key, giving the key a slot if it has none.
+     *
+     * @param key   The key.
+     * @param entry The new entry.
+     */
+    private void set(String key, Entry entry) {
+        Table t = table;
+        Integer slot = t.slots.get(key);
+        if (slot == null) {
+            slot = t.slots.size();
+            if (slot == t.entries.length()) {
+                // Readers of the old table still find every slot it had.
+                t = t.grow();
+                table = t;
+            }
+            t.entries.set(slot, entry);
+            t.slots.put(key, slot);
+        } else {
+            t.entries.set(slot, entry);
+        }
+    }
+
+    /**
+     * The parsed values of a key, which are never changed once indexed.
+     */
+    static final class Entry {
+        static final Entry EMPTY = new Entry(null, (byte) 0, false, 0, 0L,
+                0f, 0d, null);
+        static final Entry ABSENT_ENTRY = new Entry(null, ABSENT, false, 0,
+                0L, 0f, 0d, null);
+
+        private final byte valid;
+        final boolean booleanValue;
+        final int intValue;
+        final long longValue;
+        final float floatValue;
+        final double doubleValue;
+        final String stringValue;
+
+        private Entry(Entry base, byte type, boolean booleanValue,
+                      int intValue, long longValue, float floatValue,
+                      double doubleValue, String stringValue) {
+            this.valid = (byte) ((base == null ? 0 : base.valid) | type);
+            this.booleanValue = booleanValue;
+            this.intValue = intValue;
+            this.longValue = longValue;
+            this.floatValue = floatValue;
+            this.doubleValue = doubleValue;
+            this.stringValue = stringValue;
+        }
+
+        /**
+         * @param type One of the type constants, or {@link #ABSENT}.
+         * @return Whether the entry holds a valid value of the given type,
+         * or records that there is no value.
+         */
+        boolean has(byte type) {
+            return (valid & type) != 0;
+        }
+    }
+
+    /**
+     * The slots of the indexed keys, their entries and the slots of recently
+     * used handles, replaced whenever the entries outgrow their array.
+     */
+    private static final class Table {
+        final Map<String, Integer> slots;
+        final AtomicReferenceArray<Entry> entries;
+        final AtomicReferenceArray<Handle> handles;
+
+        Table(int capacity) {
+            this(new ConcurrentHashMap<>(), new AtomicReferenceArray<>(
+                    capacity), new AtomicReferenceArray<>(HANDLES));
+        }
+
+        private Table(Map<String, Integer> slots,
+                      AtomicReferenceArray<Entry> entries,
+                      AtomicReferenceArray<Handle> handles) {
+            this.slots = slots;
+            this.entries = entries;
+            this.handles = handles;
+        }
+
+        /**
+         * @param slot A slot.
+         * @return The slot's entry, or <code>null</code> if it has none in
+         * this table.
+         */
+        Entry entry(int slot) {
+            return slot < entries.length() ? entries.get(slot) : null;
+        }
+
+        /**
+         * @return A table with twice the room for entries, sharing this one's
+         * slots and handles.
+         */
+        Table grow() {
+            AtomicReferenceArray<Entry> bigger =
+                    new AtomicReferenceArray<>(entries.length() * 2);
+            for (int i = 0; i < entries.length(); i++)
+                bigger.set(i, entries.get(i));
+            return new Table(slots, bigger, handles);
+        }
+    }
+
+    /**
+     * A handle and the slot of its key.
+     */
+    private static final class Handle {
+        final PreferenceKey<?> key;
+        final int slot;
+
+        Handle(PreferenceKey<?> key, int slot) {
+            this.key = key;
+            this.slot = slot;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2026 Ethan Ruffing
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ethanruffing.preferenceabstraction;
+
+import java.util.Collection;
+
+/**
+ * Converts stored preference values to the type requested by a reader. Values
+ * may be held either in their original type, or as the strings that the
+ * backing stores persist them as.
+ *
+ * @author Ethan Ruffing
+ * @since 2026-10-18
+ */
+final class Values {
+    private Values() {
+    }
+
+    /**
+     * Converts a stored value to a <code>boolean</code>.
+     *
+     * @param value The stored value. May be <code>null</code>.
+     * @param def   The value to return if no conversion is possible.
+     * @return The converted value, or the default.
+     */
+    static boolean toBoolean(Object value, boolean def) {
+        value = unwrap(value);
+        if (value instanceof Boolean)
+            return (Boolean) value;
+        if (value instanceof String) {
+            if ("true".equalsIgnoreCase((String) value))
+                return true;
+            if ("false".equalsIgnoreCase((String) value))
+                return false;
+        }
+        return def;
+    }
+
+    /**
+     * Converts a stored value to a <code>double</code>.
+     *
+     * @param value The stored value. May be <code>null</code>.
+     * @param def   The value to return if no conversion is possible.
+     * @return The converted value, or the default.
+     */
+    static double toDouble(Object value, double def) {
+        value = unwrap(value);
+        if (value instanceof Number)
+            return ((Number) value).doubleValue();
+        if (value instanceof String) {
+            try {
+                return Double.parseDouble((String) value);
+            } catch (NumberFormatException e) {
+                return def;
+            }
+        }
+        return def;
+    }
+
+    /**
+     * Converts a stored value to a <code>float</code>.
+     *
+     * @param value The stored value. May be <code>null</code>.
+     * @param def   The value to return if no conversion is possible.
+     * @return The converted value, or the default.
+     */
+    static float toFloat(Object value, float def) {
+        value = unwrap(value);
+        if (value instanceof Number)
+            return ((Number) value).floatValue();
+        if (value instanceof String) {
+            try {
+                return Float.parseFloat((String) value);
+            } catch (NumberFormatException e) {
+                return def;
+            }
+        }
+        return def;
+    }
+
+    /**
+     * Converts a stored value to an <code>int</code>.
+     *
+     * @param value The stored value. May be <code>null</code>.
+     * @param def   The value to return if no conversion is possible.
+     * @return The converted value, or the default.
+     */
+    static int toInt(Object value, int def) {
+        value = unwrap(value);
+        if (value instanceof Number)
+            return ((Number) value).intValue();
+        if (value instanceof String) {
+            try {
+                return Integer.parseInt(((String) value).trim());
+            } catch (NumberFormatException e) {
+                return def;
+            }
+        }
+        return def;
+    }
+
+    /**
+     * Converts a stored value to a <code>long</code>.
+     *
+     * @param value The stored value. May be <code>null</code>.
+     * @param def   The value to return if no conversion is possible.
+     * @return The converted value, or the default.
+     */
+    static long toLong(Object value, long def) {
+        value = unwrap(value);
+        if (value instanceof Number)
+            return ((Number) value).longValue();
+        if (value instanceof String) {
+            try {
+                return Long.parseLong(((String) value).trim());
+            } catch (NumberFormatException e) {
+                return def;
+            }
+        }
+        return def;
+    }
+
+    /**
+     * Converts a stored value to a String.
+     *
+     * @param value The stored value. May be <code>null</code>.
+     * @param def   The value to return if there is no value.
+     * @return The converted value, or the default.
+     */
+    static String toString(Object value, String def) {
+        value = unwrap(value);
+        return value == null ? def : value.toString();
+    }
+
+    /**
+     * Reduces a multi-valued property, as may be read from a file, to its
+     * first value.
+     *
+     * @param value The stored value.
+     * @return The first value if the value is a collection, otherwise the
+     * value itself.
+     */
+    private static Object unwrap(Object value) {
+        if (value instanceof Collection) {
+            Collection<?> c = (Collection<?>) value;
+            return c.isEmpty() ? null : c.iterator().next();
+        }
+        return value;
+    }
+}
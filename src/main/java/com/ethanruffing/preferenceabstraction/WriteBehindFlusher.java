@@ -0,0 +1,195 @@
+/*
+ * Copyright 2026 Ethan Ruffing
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ethanruffing.preferenceabstraction;
+
+import org.apache.commons.configuration.ConfigurationException;
+import org.apache.commons.configuration.FileConfiguration;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Coalesces writes to a file-based preference store. Changes are applied to
+ * the in-memory configuration immediately, while the file itself is only
+ * rewritten once per interval, or as soon as a given number of distinct keys
+ * have been modified.
+ * <p>
+ * Where the configuration is an {@link AtomicFileConfiguration}, only the
+ * snapshot of its values is taken under the configuration's lock; the file is
+ * written and forced to disk without holding it. Keys remain dirty until a
+ * write including their changes has succeeded, so that a failed write is
+ * retried by the next flush.
+ *
+ * @author Ethan Ruffing
+ * @since 2026-10-18
+ */
+final class WriteBehindFlusher {
+    private final FileConfiguration fileConfig;
+    private final Object lock;
+    private final StoreMetrics metrics;
+    private final int dirtyThreshold;
+
+    /**
+     * The keys modified since the last successful write, each mapped to the
+     * number of the modification that last changed it.
+     */
+    private final Map<String, Long> dirtyKeys = new ConcurrentHashMap<>();
+
+    /**
+     * The number of modifications made so far. Guarded by the lock.
+     */
+    private long modifications;
+    private final AtomicBoolean flushPending = new AtomicBoolean();
+    private final ScheduledFuture<?> periodicFlush;
+    private final Thread shutdownHook;
+
+    /**
+     * Starts flushing the given configuration in the background.
+     *
+     * @param fileConfig     The configuration to flush. Its auto-save feature
+     *                       should already be disabled.
+     * @param lock           The lock guarding all modifications of the
+     *                       configuration.
+     * @param interval       The maximum time that a change may remain
+     *                       unwritten.
+     * @param unit           The unit of <code>interval</code>.
+     * @param dirtyThreshold The number of modified keys after which a flush is
+     *                       triggered regardless of the interval.
+     * @param metrics        The metrics to report writes and errors to.
+     */
+    WriteBehindFlusher(FileConfiguration fileConfig, Object lock,
+                       long interval, TimeUnit unit, int dirtyThreshold,
+                       StoreMetrics metrics) {
+        if (interval <= 0)
+            throw new IllegalArgumentException("interval must be positive");
+        if (dirtyThreshold <= 0)
+            throw new IllegalArgumentException(
+                    "dirtyThreshold must be positive");
+        this.fileConfig = fileConfig;
+        this.lock = lock;
+        this.metrics = metrics;
+        this.dirtyThreshold = dirtyThreshold;
+        periodicFlush = BackgroundTasks.EXECUTOR.scheduleWithFixedDelay(
+                this::flushQuietly, interval, interval, unit);
+        shutdownHook = new Thread(this::flushQuietly,
+                "preference-abstraction-shutdown-flush");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Records that a key has been modified in memory. Must be called while
+     * holding the configuration's lock.
+     *
+     * @param key The key that was modified.
+     */
+    void markDirty(String key) {
+        dirtyKeys.put(key, ++modifications);
+        if (dirtyKeys.size() >= dirtyThreshold
+                && flushPending.compareAndSet(false, true)) {
+            BackgroundTasks.EXECUTOR.execute(() -> {
+                flushPending.set(false);
+                flushQuietly();
+            });
+        }
+    }
+
+    /**
+     * @param key A key.
+     * @return Whether the key has been modified in memory since the last
+     * write.
+     */
+    boolean isDirty(String key) {
+        return dirtyKeys.containsKey(key);
+    }
+
+    /**
+     * Discards all pending changes, e.g. because the backing file has been
+     * deleted. Must be called while holding the configuration's lock.
+     */
+    void discard() {
+        dirtyKeys.clear();
+    }
+
+    /**
+     * Writes the configuration to its file if it has been modified since the
+     * last successful write.
+     *
+     * @throws ConfigurationException Thrown if the file cannot be written.
+     *                                The changes are kept, to be written by
+     *                                the next flush.
+     */
+    void flush() throws ConfigurationException {
+        long covered;
+        AtomicFileConfiguration.Snapshot snapshot;
+        synchronized (lock) {
+            if (dirtyKeys.isEmpty())
+                return;
+            covered = modifications;
+            if (!(fileConfig instanceof AtomicFileConfiguration)) {
+                metrics.save(fileConfig, fileConfig::save);
+                written(covered);
+                return;
+            }
+            snapshot = ((AtomicFileConfiguration) fileConfig).snapshot();
+        }
+        AtomicFileConfiguration atomic = (AtomicFileConfiguration) fileConfig;
+        metrics.save(atomic, () -> atomic.write(snapshot));
+        written(covered);
+    }
+
+    /**
+     * Flushes in the background, where there is no caller to tell of a
+     * failure, so it is only reported.
+     */
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (ConfigurationException e) {
+            metrics.error(e);
+        }
+    }
+
+    /**
+     * Marks the keys changed by a successful write as clean, leaving those
+     * changed again since then dirty.
+     *
+     * @param covered The number of the last modification included in the
+     *                write.
+     */
+    private void written(long covered) {
+        for (Map.Entry<String, Long> entry : dirtyKeys.entrySet()) {
+            if (entry.getValue() <= covered)
+                dirtyKeys.remove(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Stops background flushing, writing any pending changes first.
+     */
+    void close() {
+        periodicFlush.cancel(false);
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // The JVM is already shutting down, and the hook will flush.
+        }
+        flushQuietly();
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2026 Ethan Ruffing
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ethanruffing.preferenceabstraction.test;
+
+import com.ethanruffing.preferenceabstraction.AsyncPreferences;
+import com.ethanruffing.preferenceabstraction.AutoPreferences;
+import com.ethanruffing.preferenceabstraction.ConcurrentPreferences;
+import com.ethanruffing.preferenceabstraction.ConfigurationType;
+import com.ethanruffing.preferenceabstraction.IPreferences;
+import org.apache.commons.configuration.ConfigurationRuntimeException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A class for testing asynchronous changes to preferences stored in a file in
+ * the user's home directory.
+ *
+ * @author Ethan Ruffing
+ * @since 2026-10-18
+ */
+public class AsyncPreferencesTest {
+    private IPreferences prefs;
+    private AsyncPreferences async;
+
+    @Before
+    public void setUp() throws Exception {
+        prefs = new ConcurrentPreferences(new AutoPreferences(getClass(),
+                ConfigurationType.HOME
+        ));
+        async = new AsyncPreferences(prefs);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        async.clear().join();
+        async.close().get(30, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testOrdering() throws Exception {
+        for (int i = 1; i <= 100; i++)
+            async.put("testOrder", i);
+        async.flush().get(30, TimeUnit.SECONDS);
+        Assert.assertEquals(100, async.getInt("testOrder", 0));
+
+        AutoPreferences reloaded = new AutoPreferences(getClass(),
+                ConfigurationType.HOME
+        );
+        Assert.assertEquals(100, reloaded.getInt("testOrder", 0));
+    }
+
+    @Test
+    public void testRemove() throws Exception {
+        async.put("testRemove", "value");
+        async.remove("testRemove").get(30, TimeUnit.SECONDS);
+        Assert.assertNull(async.getString("testRemove", null));
+    }
+
+    @Test
+    public void testCommit() throws Exception {
+        CompletableFuture<Void> done = async.commit(async.edit()
+                .put("testCommitA", 1)
+                .put("testCommitB", "b")
+        );
+        done.get(30, TimeUnit.SECONDS);
+        Assert.assertEquals(1, async.getInt("testCommitA", 0));
+        Assert.assertEquals("b", async.getString("testCommitB", null));
+    }
+
+    @Test
+    public void testFailure() throws Exception {
+        CompletableFuture<Void> failed = async.put(null, 1);
+        try {
+            failed.join();
+            Assert.fail("Expected the put to fail");
+        } catch (CompletionException e) {
+            Assert.assertNotNull(e.getCause());
+        }
+
+        // Later changes are still applied.
+        async.put("testAfterFailure", true).get(30, TimeUnit.SECONDS);
+        Assert.assertTrue(async.getBoolean("testAfterFailure", false));
+    }
+
+    @Test
+    public void testWriteFailure() throws Exception {
+        File file = new File(System.getProperty("user.home"),
+                "." + getClass().getPackage().getName() + ".xml"
+        );
+        // A directory in the way of the temporary file fails every write.
+        File tmp = new File(file.getPath() + ".tmp");
+        File inside = new File(tmp, "file");
+        Assert.assertTrue(tmp.mkdir());
+        Assert.assertTrue(inside.createNewFile());
+        try {
+            async.put("testUnwritten", 1).join();
+            Assert.fail("A failed write was not reported.");
+        } catch (CompletionException e) {
+            Assert.assertTrue(e.getCause()
+                    instanceof ConfigurationRuntimeException);
+        } finally {
+            inside.delete();
+            tmp.delete();
+        }
+    }
+
+    @Test
+    public void testRejected() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.shutdown();
+        AsyncPreferences rejecting = new AsyncPreferences(prefs, executor);
+        CompletableFuture<Void> put = rejecting.put("testRejected", 1);
+        try {
+            put.join();
+            Assert.fail("A rejected put was reported as made.");
+        } catch (CompletionException e) {
+            Assert.assertTrue(e.getCause()
+                    instanceof RejectedExecutionException);
+        }
+        // Not run on this thread instead.
+        Assert.assertEquals(0, prefs.getInt("testRejected", 0));
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2026 Ethan Ruffing
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ethanruffing.preferenceabstraction.test;
+
+import com.ethanruffing.preferenceabstraction.AutoPreferences;
+import com.ethanruffing.preferenceabstraction.ConfigurationType;
+import com.ethanruffing.preferenceabstraction.FieldCodec;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A class for testing preferences stored in a binary log in the user's home
+ * directory.
+ *
+ * @author Ethan Ruffing
+ * @since 2026-10-18
+ */
+public class BinaryPreferencesTest extends PreferencesTest {
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        prefs = new AutoPreferences(getClass(), ConfigurationType.BINARY);
+        file = new File(System.getProperty("user.home"),
+                "." + getClass().getPackage().getName() + ".bin"
+        );
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        prefs.clear();
+        ((AutoPreferences) prefs).close();
+    }
+
+    @Test
+    public void testReopen() throws Exception {
+        BigDecimal bd = BigDecimal.valueOf(Math.PI);
+        prefs.put("testDouble", 3.141);
+        prefs.put("testString", "Hello, World!");
+        prefs.put("testBytes", new byte[] {1, 2, 3});
+        prefs.put("testObject", bd);
+        prefs.put("testRemoved", true);
+        prefs.remove("testRemoved");
+        ((AutoPreferences) prefs).close();
+
+        AutoPreferences reopened = new AutoPreferences(getClass(),
+                ConfigurationType.BINARY
+        );
+        Assert.assertEquals(3.141, reopened.getObject("testDouble", null));
+        Assert.assertEquals("Hello, World!",
+                reopened.getString("testString", "Goodnight, moon.")
+        );
+        Assert.assertArrayEquals(new byte[] {1, 2, 3},
+                (byte[]) reopened.getObject("testBytes", null)
+        );
+        Assert.assertEquals(bd, reopened.getObject("testObject", null));
+        Assert.assertFalse(reopened.getKeys().contains("testRemoved"));
+        reopened.close();
+    }
+
+    @Test
+    public void testReopenCodec() throws Exception {
+        Point p = new Point(3, -4.5, "origin", new byte[] {1, 2},
+                TimeUnit.SECONDS, 7L
+        );
+        prefs.registerCodec(Point.class, FieldCodec.of(Point.class));
+        prefs.put("testPoint", p);
+        ((AutoPreferences) prefs).close();
+
+        // Registered after the log has been replayed.
+        AutoPreferences reopened = new AutoPreferences(getClass(),
+                ConfigurationType.BINARY
+        );
+        reopened.registerCodec(Point.class, FieldCodec.of(Point.class));
+        Assert.assertEquals(p, reopened.getObject("testPoint", null));
+        reopened.close();
+    }
+
+    @Test
+    public void testCodecLayout() throws Exception {
+        Pair pair = new Pair();
+        pair.a = 7;
+        pair.b = "seven";
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        FieldCodec.of(Pair.class).encode(pair, new DataOutputStream(bytes));
+
+        // The order in which fields are declared does not matter.
+        Reordered reordered = FieldCodec.of(Reordered.class).decode(
+                new DataInputStream(
+                        new ByteArrayInputStream(bytes.toByteArray())));
+        Assert.assertEquals(7, reordered.a);
+        Assert.assertEquals("seven", reordered.b);
+
+        // Their names and types do.
+        try {
+            FieldCodec.of(Renamed.class).decode(new DataInputStream(
+                    new ByteArrayInputStream(bytes.toByteArray())));
+            Assert.fail("Decoded a value written with other fields.");
+        } catch (IOException e) {
+            // Expected.
+        }
+    }
+
+    private static class Pair {
+        int a;
+        String b;
+    }
+
+    private static class Reordered {
+        String b;
+        int a;
+    }
+
+    private static class Renamed {
+        int a;
+        String c;
+    }
+
+    @Test
+    public void testTornRecord() throws Exception {
+        prefs.put("testInt", 11);
+        ((AutoPreferences) prefs).close();
+        long length = file.length();
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write(new byte[] {0, 0, 0, 42, 6, 0});
+        }
+
+        AutoPreferences reopened = new AutoPreferences(getClass(),
+                ConfigurationType.BINARY
+        );
+        Assert.assertEquals(11, reopened.getInt("testInt", 2));
+        Assert.assertEquals(length, file.length());
+        reopened.put("testInt", 12);
+        reopened.close();
+
+        reopened = new AutoPreferences(getClass(), ConfigurationType.BINARY);
+        Assert.assertEquals(12, reopened.getInt("testInt", 2));
+        reopened.close();
+    }
+
+    @Test
+    public void testCompaction() throws Exception {
+        for (int i = 0; i < 10000; i++)
+            prefs.put("testCounter", i);
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (file.length() > 64 * 1024
+                && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+        Assert.assertTrue(file.length() < 64 * 1024);
+        ((AutoPreferences) prefs).close();
+
+        AutoPreferences reopened = new AutoPreferences(getClass(),
+                ConfigurationType.BINARY
+        );
+        Assert.assertEquals(9999, reopened.getInt("testCounter", -1));
+        reopened.close();
+    }
+}
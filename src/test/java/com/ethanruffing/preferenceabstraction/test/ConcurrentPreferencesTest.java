@@ -0,0 +1,177 @@
+/*
+ * Copyright 2026 Ethan Ruffing
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ethanruffing.preferenceabstraction.test;
+
+import com.ethanruffing.preferenceabstraction.AutoPreferences;
+import com.ethanruffing.preferenceabstraction.ConcurrentPreferences;
+import com.ethanruffing.preferenceabstraction.ConfigurationType;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A class for testing thread-safe access to preferences stored in a file in
+ * the user's home directory.
+ *
+ * @author Ethan Ruffing
+ * @since 2026-10-18
+ */
+public class ConcurrentPreferencesTest extends PreferencesTest {
+    private static final int KEYS = 8;
+    private static final int WRITES = 200;
+    private static final int READERS = 8;
+
+    @Before
+    public void setUp() throws Exception {
+        AutoPreferences ap = new AutoPreferences(getClass(),
+                ConfigurationType.HOME
+        );
+        ap.enableWriteBehind(1, TimeUnit.HOURS, 10000);
+        prefs = new ConcurrentPreferences(ap);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        prefs.clear();
+        ((ConcurrentPreferences) prefs).close();
+    }
+
+    @Test
+    public void testConcurrentReadsAndWrites() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(KEYS + READERS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        List<Future<?>> writers = new ArrayList<>();
+        List<Future<?>> readers = new ArrayList<>();
+
+        // Each writer owns one key, and only ever increases its value.
+        for (int k = 0; k < KEYS; k++) {
+            String key = "testCounter" + k;
+            writers.add(pool.submit(() -> {
+                start.await();
+                for (int i = 1; i <= WRITES; i++)
+                    prefs.put(key, i);
+                return null;
+            }));
+        }
+        // Readers must never observe a value going backwards.
+        for (int r = 0; r < READERS; r++) {
+            readers.add(pool.submit(() -> {
+                int[] last = new int[KEYS];
+                start.await();
+                while (writing.get()) {
+                    for (int k = 0; k < KEYS; k++) {
+                        int value = prefs.getInt("testCounter" + k, 0);
+                        Assert.assertTrue(value >= last[k]);
+                        Assert.assertTrue(value <= WRITES);
+                        last[k] = value;
+                    }
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> f : writers)
+            f.get(30, TimeUnit.SECONDS);
+        writing.set(false);
+        for (Future<?> f : readers)
+            f.get(30, TimeUnit.SECONDS);
+        pool.shutdown();
+
+        prefs.flush();
+        AutoPreferences reloaded = new AutoPreferences(getClass(),
+                ConfigurationType.HOME
+        );
+        for (int k = 0; k < KEYS; k++) {
+            Assert.assertEquals(WRITES, prefs.getInt("testCounter" + k, 0));
+            Assert.assertEquals(WRITES,
+                    reloaded.getInt("testCounter" + k, 0)
+            );
+        }
+    }
+
+    @Test
+    public void testConcurrentBatches() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(KEYS);
+        List<Future<?>> writers = new ArrayList<>();
+        for (int k = 0; k < KEYS; k++) {
+            String prefix = "testBatch" + k + "_";
+            writers.add(pool.submit(() -> {
+                for (int i = 0; i < 10; i++) {
+                    prefs.edit()
+                            .put(prefix + "a", i)
+                            .put(prefix + "b", i)
+                            .commit();
+                }
+                return null;
+            }));
+        }
+        for (Future<?> f : writers)
+            f.get(30, TimeUnit.SECONDS);
+        pool.shutdown();
+
+        Assert.assertEquals(KEYS * 2, prefs.getKeys().size());
+        for (int k = 0; k < KEYS; k++) {
+            Assert.assertEquals(9, prefs.getInt("testBatch" + k + "_a", 0));
+            Assert.assertEquals(9, prefs.getInt("testBatch" + k + "_b", 0));
+        }
+    }
+
+    @Test
+    public void testNullValues() throws Exception {
+        prefs.put("testString", "Hello, World!");
+        Assert.assertEquals("Hello, World!",
+                prefs.getString("testString", null));
+        prefs.put("testString", (String) null);
+        Assert.assertNull(prefs.getString("testString", null));
+
+        prefs.put("testBytes", new byte[]{1});
+        prefs.put("testBytes", (byte[]) null);
+        Assert.assertNull(prefs.getObject("testBytes", null));
+
+        prefs.put("testObject", 5);
+        prefs.edit().put("testObject", (Object) null).commit();
+        Assert.assertEquals(7, prefs.getInt("testObject", 7));
+    }
+
+    @Test
+    public void testMutableValues() throws Exception {
+        List<String> list = new ArrayList<>(Arrays.asList("a", "b"));
+        prefs.put("testList", (Object) list);
+        list.set(0, "z");
+        Assert.assertEquals(Arrays.asList("a", "b"),
+                prefs.getObject("testList", null));
+
+        list = new ArrayList<>(Arrays.asList("c", "d"));
+        prefs.edit().put("testList", (Object) list).commit();
+        list.add("z");
+        Assert.assertEquals(Arrays.asList("c", "d"),
+                prefs.getObject("testList", null));
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2026 Ethan Ruffing
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ethanruffing.preferenceabstraction.test;
+
+import com.ethanruffing.preferenceabstraction.IPreferences;
+import com.ethanruffing.preferenceabstraction.PreferencesEditor;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A class for testing the batches that {@link IPreferences} provides by
+ * default, for a store that has none of its own.
+ *
+ * @author Ethan Ruffing
+ * @since 2026-10-18
+ */
+public class DefaultEditorTest {
+    private MapPreferences prefs;
+
+    @Before
+    public void setUp() throws Exception {
+        prefs = new MapPreferences();
+    }
+
+    @Test
+    public void testCommit() throws Exception {
+        prefs.put("testRemoved", 1);
+        prefs.writes = 0;
+        PreferencesEditor editor = prefs.edit()
+                .put("testInt", 1)
+                .put("testString", "Hello, World!")
+                .put("testInt", 2)
+                .remove("testRemoved");
+
+        // Nothing is applied until the batch is committed.
+        Assert.assertEquals(1, prefs.getInt("testRemoved", 0));
+        Assert.assertEquals(0, prefs.getInt("testInt", 0));
+
+        editor.commit();
+        Assert.assertEquals(2, prefs.getInt("testInt", 0));
+        Assert.assertEquals("Hello, World!",
+                prefs.getString("testString", null));
+        Assert.assertEquals(0, prefs.getInt("testRemoved", 0));
+        Assert.assertEquals(3, prefs.writes);
+
+        // The editor is empty afterwards.
+        editor.commit();
+        Assert.assertEquals(3, prefs.writes);
+    }
+
+    @Test
+    public void testUnsupportedRemove() throws Exception {
+        prefs.removable = false;
+        PreferencesEditor editor = prefs.edit()
+                .put("testInt", 1)
+                .remove("testRemoved")
+                .put("testString", "Hello, World!");
+        try {
+            editor.commit();
+            Assert.fail("The unsupported removal was not reported.");
+        } catch (UnsupportedOperationException e) {
+            // Expected.
+        }
+        // The changes before the failure remain applied.
+        Assert.assertEquals(1, prefs.getInt("testInt", 0));
+        Assert.assertNull(prefs.getString("testString", null));
+    }
+
+    /**
+     * A store that keeps its preferences in a map, and relies on the
+     * interface's defaults for everything else.
+     */
+    private static class MapPreferences implements IPreferences {
+        final Map<String, Object> values = new TreeMap<>();
+        boolean removable = true;
+        int writes;
+
+        @Override
+        public void clear() {
+            values.clear();
+        }
+
+        @Override
+        public List<String> getKeys() {
+            return new ArrayList<>(values.keySet());
+        }
+
+        @Override
+        public void remove(String key) {
+            if (!removable)
+                IPreferences.super.remove(key);
+            values.remove(key);
+            writes++;
+        }
+
+        @Override
+        public void put(String key, boolean value) {
+            set(key, value);
+        }
+
+        @Override
+        public void put(String key, byte[] value) {
+            set(key, value);
+        }
+
+        @Override
+        public void put(String key, double value) {
+            set(key, value);
+        }
+
+        @Override
+        public void put(String key, float value) {
+            set(key, value);
+        }
+
+        @Override
+        public void put(String key, int value) {
+            set(key, value);
+        }
+
+        @Override
+        public void put(String key, long value) {
+            set(key, value);
+        }
+
+        @Override
+        public void put(String key, Object value) {
+            set(key, value);
+        }
+
+        @Override
+        public void put(String key, String value) {
+            set(key, value);
+        }
+
+        @Override
+        public boolean getBoolean(String key, boolean def) {
+            Object value = values.get(key);
+            return value == null ? def : (Boolean) value;
+        }
+
+        @Override
+        public double getDouble(String key, double def) {
+            Object value = values.get(key);
+            return value == null ? def : ((Number) value).doubleValue();
+        }
+
+        @Override
+        public float getFloat(String key, float def) {
+            Object value = values.get(key);
+            return value == null ? def : ((Number) value).floatValue();
+        }
+
+        @Override
+        public int getInt(String key, int def) {
+            Object value = values.get(key);
+            return value == null ? def : ((Number) value).intValue();
+        }
+
+        @Override
+        public long getLong(String key, long def) {
+            Object value = values.get(key);
+            return value == null ? def : ((Number) value).longValue();
+        }
+
+        @Override
+        public String getString(String key, String def) {
+            Object value = values.get(key);
+            return value == null ? def : value.toString();
+        }
+
+        @Override
+        public Object getObject(String key, Object def) {
+            Object value = values.get(key);
+            return value == null ? def : value;
+        }
+
+        private void set(String key, Object value) {
+            if (value == null)
+                values.remove(key);
+            else
+                values.put(key, value);
+            writes++;
+        }
+    }
+}
@@ -17,9 +17,36 @@
 package com.ethanruffing.preferenceabstraction.test;
 
 import com.ethanruffing.preferenceabstraction.AutoPreferences;
+import com.ethanruffing.preferenceabstraction.ChangeListener;
 import com.ethanruffing.preferenceabstraction.ConfigurationType;
+import com.ethanruffing.preferenceabstraction.DefaultPreferenceMetrics;
+import com.ethanruffing.preferenceabstraction.FileFormat;
+import com.ethanruffing.preferenceabstraction.PreferenceMetrics;
+import org.apache.commons.configuration.ConfigurationRuntimeException;
+import org.apache.commons.configuration.XMLConfiguration;
 import org.junit.After;
+import org.junit.Assert;
 import org.junit.Before;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
 
 /**
  * A class for testing preferences stored in a file in the user's home
@@ -36,6 +63,466 @@ public class HomePreferencesTest extends PreferencesTest {
 
     @After
     public void tearDown() throws Exception {
+        ((AutoPreferences) prefs).disableWatch();
         prefs.clear();
     }
+
+    @Test
+    public void testWatch() throws Exception {
+        prefs.put("testInt", 11);
+        prefs.put("testString", "Hello, World!");
+        prefs.put("testRemoved", true);
+        Assert.assertEquals(11, prefs.getInt("testInt", 2));
+        ((AutoPreferences) prefs).enableWatch(50, TimeUnit.MILLISECONDS);
+
+        // Another process editing the file.
+        AutoPreferences other = new AutoPreferences(getClass(),
+                ConfigurationType.HOME
+        );
+        other.edit()
+                .put("testInt", 12)
+                .put("testAdded", "Goodnight, moon.")
+                .remove("testRemoved")
+                .commit();
+
+        waitFor(() -> prefs.getInt("testInt", 2) == 12);
+        Assert.assertEquals(12, prefs.getInt("testInt", 2));
+        waitFor(() -> !prefs.getKeys().contains("testRemoved"));
+        Assert.assertFalse(prefs.getKeys().contains("testRemoved"));
+        Assert.assertEquals("Goodnight, moon.",
+                prefs.getString("testAdded", null)
+        );
+        Assert.assertEquals("Hello, World!",
+                prefs.getString("testString", null)
+        );
+    }
+
+    @Test
+    public void testPutWhileWatching() throws Exception {
+        ((AutoPreferences) prefs).enableWatch(1, TimeUnit.MILLISECONDS);
+        File file = new File(System.getProperty("user.home"),
+                "." + getClass().getPackage().getName() + ".xml"
+        );
+        // Touched by hand, so that the file is read again while values are
+        // being put.
+        AtomicBoolean done = new AtomicBoolean();
+        Thread toucher = new Thread(() -> {
+            long time = System.currentTimeMillis();
+            while (!done.get()) {
+                file.setLastModified(time++);
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+        toucher.start();
+        int puts = 1000;
+        try {
+            for (int i = 0; i < puts; i++)
+                prefs.put("testKey" + i, i);
+        } finally {
+            done.set(true);
+            toucher.join();
+        }
+
+        for (int i = 0; i < puts; i++)
+            Assert.assertEquals(i, prefs.getInt("testKey" + i, -1));
+        ((AutoPreferences) prefs).disableWatch();
+        prefs.put("testLast", true);
+        AutoPreferences reopened = new AutoPreferences(getClass(),
+                ConfigurationType.HOME
+        );
+        for (int i = 0; i < puts; i++)
+            Assert.assertEquals(i, reopened.getInt("testKey" + i, -1));
+    }
+
+    @Test
+    public void testGroupCommit() throws Exception {
+        DefaultPreferenceMetrics metrics = new DefaultPreferenceMetrics();
+        ((AutoPreferences) prefs).setMetrics(metrics);
+        int threads = 8;
+        int puts = 50;
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int offset = t * puts;
+            Thread writer = new Thread(() -> {
+                for (int i = offset; i < offset + puts; i++)
+                    prefs.put("testKey" + i, i);
+            });
+            writers.add(writer);
+            writer.start();
+        }
+        for (Thread writer : writers)
+            writer.join();
+
+        // Every change has been written once put() returns, though writes
+        // were shared between threads.
+        long saves = metrics.getSaveCount(ConfigurationType.HOME);
+        Assert.assertTrue(saves > 0 && saves < threads * puts);
+        AutoPreferences reopened = new AutoPreferences(getClass(),
+                ConfigurationType.HOME
+        );
+        for (int i = 0; i < threads * puts; i++)
+            Assert.assertEquals(i, reopened.getInt("testKey" + i, -1));
+
+        File file = new File(System.getProperty("user.home"),
+                "." + getClass().getPackage().getName() + ".xml"
+        );
+        Assert.assertFalse(new File(file.getPath() + ".tmp").exists());
+    }
+
+    @Test
+    public void testFailedWrite() throws Exception {
+        prefs.put("testGood1", 1);
+        File file = new File(System.getProperty("user.home"),
+                "." + getClass().getPackage().getName() + ".xml"
+        );
+        // A directory in the way of the temporary file fails every write.
+        File tmp = new File(file.getPath() + ".tmp");
+        File inside = new File(tmp, "file");
+        Assert.assertTrue(tmp.mkdir());
+        Assert.assertTrue(inside.createNewFile());
+        AtomicInteger failures = new AtomicInteger();
+        try {
+            List<Thread> writers = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                String key = "testFailed" + t;
+                Thread writer = new Thread(() -> {
+                    try {
+                        prefs.put(key, "x");
+                    } catch (ConfigurationRuntimeException e) {
+                        failures.incrementAndGet();
+                    }
+                });
+                writers.add(writer);
+                writer.start();
+            }
+            for (Thread writer : writers)
+                writer.join();
+        } finally {
+            inside.delete();
+            tmp.delete();
+        }
+        Assert.assertEquals(4, failures.get());
+
+        // Written along with the next change.
+        prefs.put("testGood2", "y");
+        AutoPreferences reopened = new AutoPreferences(getClass(),
+                ConfigurationType.HOME
+        );
+        Assert.assertEquals(1, reopened.getInt("testGood1", -1));
+        Assert.assertEquals("y", reopened.getString("testGood2", null));
+        for (int t = 0; t < 4; t++)
+            Assert.assertEquals("x",
+                    reopened.getString("testFailed" + t, null));
+    }
+
+    @Test
+    public void testSnapshot() throws Exception {
+        File file = new File(System.getProperty("user.home"),
+                "." + getClass().getPackage().getName() + ".xml"
+        );
+        File image = new File(file.getPath() + ".snapshot");
+        prefs.put("testString", "Hello, World!");
+        try {
+            AutoPreferences first = AutoPreferences.lazy(getClass(),
+                    ConfigurationType.HOME, FileFormat.XML
+            );
+            first.enableSnapshot();
+            Assert.assertEquals("Hello, World!",
+                    first.getString("testString", null));
+            first.put("testLong", 3000000000L);
+            first.close();
+            Assert.assertTrue(image.exists());
+
+            // Garble the file without changing its length or modification
+            // time, so that it would fail to parse if it were read.
+            long modified = file.lastModified();
+            byte[] garbage = new byte[(int) file.length()];
+            Arrays.fill(garbage, (byte) '<');
+            Files.write(file.toPath(), garbage);
+            Assert.assertTrue(file.setLastModified(modified));
+
+            AutoPreferences second = AutoPreferences.lazy(getClass(),
+                    ConfigurationType.HOME, FileFormat.XML
+            );
+            second.enableSnapshot();
+            Assert.assertEquals(3000000000L, second.getLong("testLong", 2L));
+            Assert.assertEquals("Hello, World!",
+                    second.getString("testString", null));
+            second.put("testInt", 12);
+            second.close();
+
+            // Once the file is changed by other means, it is read again.
+            AutoPreferences other = new AutoPreferences(getClass(),
+                    ConfigurationType.HOME, FileFormat.XML
+            );
+            other.put("testInt", 13);
+            Assert.assertTrue(file.setLastModified(modified - 10000));
+            AutoPreferences third = AutoPreferences.lazy(getClass(),
+                    ConfigurationType.HOME, FileFormat.XML
+            );
+            third.enableSnapshot();
+            Assert.assertEquals(13, third.getInt("testInt", 2));
+            Assert.assertEquals(3000000000L, third.getLong("testLong", 2L));
+            third.close();
+        } finally {
+            image.delete();
+        }
+    }
+
+    @Test
+    public void testMultiProcess() throws Exception {
+        File file = new File(System.getProperty("user.home"),
+                "." + getClass().getPackage().getName() + ".xml"
+        );
+        AutoPreferences first = (AutoPreferences) prefs;
+        AutoPreferences second = new AutoPreferences(getClass(),
+                ConfigurationType.HOME
+        );
+        try {
+            first.enableMultiProcess(0, TimeUnit.MILLISECONDS);
+            second.enableMultiProcess(0, TimeUnit.MILLISECONDS);
+
+            // Neither store overwrites the other's changes.
+            first.put("testFirst", 1);
+            second.put("testSecond", 2);
+            first.put("testInt", 3);
+            Assert.assertEquals(2, first.getInt("testSecond", 0));
+            Assert.assertEquals(3, second.getInt("testInt", 0));
+            AutoPreferences reopened = new AutoPreferences(getClass(),
+                    ConfigurationType.HOME
+            );
+            Assert.assertEquals(1, reopened.getInt("testFirst", 0));
+            Assert.assertEquals(2, reopened.getInt("testSecond", 0));
+            Assert.assertEquals(3, reopened.getInt("testInt", 0));
+
+            second.remove("testFirst");
+            Assert.assertFalse(first.getKeys().contains("testFirst"));
+
+            // Between checks, reads are served from memory, but writes
+            // still take in the other store's changes.
+            first.enableMultiProcess(1, TimeUnit.HOURS);
+            Assert.assertEquals(3, first.getInt("testInt", 0));
+            second.put("testInt", 4);
+            Assert.assertEquals(3, first.getInt("testInt", 0));
+            first.put("testString", "Hello, World!");
+            Assert.assertEquals(4, first.getInt("testInt", 0));
+            Assert.assertEquals("Hello, World!",
+                    second.getString("testString", null));
+
+            first.enableMultiProcess(0, TimeUnit.MILLISECONDS);
+            second.clear();
+            Assert.assertTrue(first.getKeys().isEmpty());
+        } finally {
+            first.disableMultiProcess();
+            second.close();
+            new File(file.getPath() + ".lock").delete();
+        }
+    }
+
+    @Test
+    public void testMetrics() throws Exception {
+        DefaultPreferenceMetrics metrics = new DefaultPreferenceMetrics();
+        ((AutoPreferences) prefs).setMetrics(metrics);
+
+        prefs.put("testInt", 11);
+        prefs.put("testString", "Hello, World!");
+        Assert.assertEquals(11, prefs.getInt("testInt", 2));
+        Assert.assertEquals(11, prefs.getInt("testInt", 2));
+        Assert.assertEquals(2, prefs.getInt("testMissing", 2));
+        prefs.edit().put("testBatch", 1).commit();
+
+        ConfigurationType home = ConfigurationType.HOME;
+        Assert.assertEquals(3, metrics.getOperationCount(home,
+                PreferenceMetrics.Operation.PUT));
+        Assert.assertEquals(3, metrics.getOperationCount(home,
+                PreferenceMetrics.Operation.GET));
+        Assert.assertEquals(1, metrics.getOperationCount(home,
+                PreferenceMetrics.Operation.COMMIT));
+        Assert.assertTrue(metrics.getOperationLatency(home,
+                PreferenceMetrics.Operation.PUT, 99) > 0);
+        // Two automatic saves, and one for the batch.
+        Assert.assertEquals(3, metrics.getSaveCount(home));
+        Assert.assertTrue(metrics.getBytesWritten(home) > 0);
+        Assert.assertEquals(3,
+                metrics.getCacheHits(PreferenceMetrics.Cache.VALUES)
+                        + metrics.getCacheMisses(
+                        PreferenceMetrics.Cache.VALUES));
+        Assert.assertTrue(
+                metrics.getCacheHits(PreferenceMetrics.Cache.VALUES) >= 1);
+        Assert.assertEquals(Long.valueOf(3),
+                metrics.getOperationCounts().get("HOME.PUT"));
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = metrics.registerMBean("testMetrics");
+        try {
+            Assert.assertEquals(0L,
+                    server.getAttribute(name, "SerializationCount"));
+            Assert.assertNotNull(server.getAttribute(name, "OperationCounts"));
+            // No objects have been looked up yet.
+            Assert.assertEquals(0.0,
+                    server.getAttribute(name, "ObjectCacheHitRate"));
+        } finally {
+            server.unregisterMBean(name);
+        }
+
+        // Errors thrown by listeners are reported rather than printed.
+        ChangeListener failing = keys -> {
+            throw new IllegalStateException("Listener failure");
+        };
+        prefs.addChangeListener(failing);
+        prefs.put("testInt", 12);
+        waitFor(() -> metrics.getErrorCount(home) > 0);
+        Assert.assertEquals(1, metrics.getErrorCount(home));
+
+        metrics.reset();
+        Assert.assertEquals(0, metrics.getSaveCount(home));
+        ((AutoPreferences) prefs).setMetrics(PreferenceMetrics.NONE);
+
+        // Without metrics, they are logged.
+        List<LogRecord> logged = new CopyOnWriteArrayList<>();
+        Handler handler = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                logged.add(record);
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        Logger logger = Logger.getLogger(PreferenceMetrics.class.getName());
+        logger.addHandler(handler);
+        try {
+            prefs.put("testInt", 13);
+            waitFor(() -> !logged.isEmpty());
+            Assert.assertEquals(Level.WARNING, logged.get(0).getLevel());
+            Assert.assertTrue(logged.get(0).getThrown()
+                    instanceof IllegalStateException);
+        } finally {
+            logger.removeHandler(handler);
+            prefs.removeChangeListener(failing);
+        }
+    }
+
+    @Test
+    public void testLazy() throws Exception {
+        prefs.put("testInt", 11);
+        AutoPreferences lazy = AutoPreferences.lazy(getClass(),
+                ConfigurationType.HOME
+        );
+        Assert.assertFalse(lazy.isLoaded());
+        lazy.flush();
+        Assert.assertFalse(lazy.isLoaded());
+        Assert.assertEquals(11, lazy.getInt("testInt", 2));
+        Assert.assertTrue(lazy.isLoaded());
+        lazy.close();
+    }
+
+    @Test
+    public void testPreload() throws Exception {
+        prefs.put("testInt", 11);
+        AutoPreferences home = AutoPreferences.lazy(getClass(),
+                ConfigurationType.HOME
+        );
+        AutoPreferences system = AutoPreferences.lazy(getClass(),
+                ConfigurationType.SYSTEM
+        );
+        AutoPreferences.preload(home, system).get(30, TimeUnit.SECONDS);
+        Assert.assertTrue(home.isLoaded());
+        Assert.assertTrue(system.isLoaded());
+        Assert.assertEquals(11, home.getInt("testInt", 2));
+        home.close();
+        system.close();
+    }
+
+    @Test
+    public void testXmlIllegalCharacters() throws Exception {
+        prefs.put("testString", "Hello, World!");
+        try {
+            prefs.put("testString", "Hello,\u0001World!");
+            Assert.fail("Stored a character that XML cannot hold.");
+        } catch (IllegalArgumentException e) {
+            // Expected.
+        }
+        prefs.put("testEmoji", "\uD83D\uDE00");
+        for (String key : new String[]{"test key", "1test", "test.", ""}) {
+            try {
+                prefs.put(key, "x");
+                Assert.fail("Stored a key that XML cannot hold: " + key);
+            } catch (IllegalArgumentException e) {
+                // Expected.
+            }
+        }
+        prefs.put("testAfter", "y");
+
+        AutoPreferences reloaded = new AutoPreferences(getClass(),
+                ConfigurationType.HOME
+        );
+        Assert.assertEquals("Hello, World!",
+                reloaded.getString("testString", null));
+        Assert.assertEquals("\uD83D\uDE00",
+                reloaded.getString("testEmoji", null));
+        Assert.assertEquals("y", reloaded.getString("testAfter", null));
+    }
+
+    @Test
+    public void testXmlCompatibility() throws Exception {
+        File file = new File(System.getProperty("user.home"),
+                "." + getClass().getPackage().getName() + ".xml"
+        );
+        XMLConfiguration written = new XMLConfiguration();
+        written.setDelimiterParsingDisabled(true);
+        written.setProperty("testString", "a, b & <c>");
+        written.setProperty("testNested.inner", "1");
+        written.setProperty("testNested[@attribute]", "x");
+        written.setProperty("testAttributes[@id]", "7");
+        written.addProperty("testList", "first");
+        written.addProperty("testList", "second");
+        written.save(file);
+
+        AutoPreferences ap = new AutoPreferences(getClass(),
+                ConfigurationType.HOME
+        );
+        Assert.assertEquals("a, b & <c>", ap.getString("testString", null));
+        Assert.assertEquals(1, ap.getInt("testNested.inner", 0));
+        Assert.assertEquals("x",
+                ap.getString("testNested[@attribute]", null));
+        Assert.assertEquals(Arrays.asList("first", "second"),
+                ap.getObject("testList", null));
+        List<String> keys = new ArrayList<>();
+        written.getKeys().forEachRemaining(keys::add);
+        List<String> loaded = new ArrayList<>(ap.getKeys());
+        Collections.sort(keys);
+        Collections.sort(loaded);
+        Assert.assertEquals(keys, loaded);
+
+        ap.put("testInt", 5);
+        ap.put("testPadded", "  padded  ");
+        XMLConfiguration read = new XMLConfiguration();
+        read.setDelimiterParsingDisabled(true);
+        read.load(file);
+        Assert.assertEquals("a, b & <c>", read.getString("testString"));
+        Assert.assertEquals(1, read.getInt("testNested.inner"));
+        Assert.assertEquals("x", read.getString("testNested[@attribute]"));
+        Assert.assertEquals(Arrays.asList("first", "second"),
+                read.getList("testList"));
+        Assert.assertEquals(5, read.getInt("testInt"));
+        Assert.assertEquals("  padded  ", read.getString("testPadded"));
+    }
+
+    private static void waitFor(BooleanSupplier condition)
+            throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!condition.getAsBoolean()
+                && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+    }
 }
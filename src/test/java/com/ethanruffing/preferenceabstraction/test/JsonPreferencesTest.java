@@ -0,0 +1,120 @@
+/*
+ * Copyright 2026 Ethan Ruffing
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ethanruffing.preferenceabstraction.test;
+
+import com.ethanruffing.preferenceabstraction.AutoPreferences;
+import com.ethanruffing.preferenceabstraction.ConfigurationType;
+import com.ethanruffing.preferenceabstraction.FileFormat;
+import org.apache.commons.configuration.ConfigurationException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * A class for testing preferences stored in a JSON file in the user's home
+ * directory.
+ *
+ * @author Ethan Ruffing
+ * @since 2026-10-18
+ */
+public class JsonPreferencesTest extends PreferencesTest {
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        prefs = new AutoPreferences(getClass(), ConfigurationType.HOME,
+                FileFormat.JSON
+        );
+        file = new File(System.getProperty("user.home"),
+                "." + getClass().getPackage().getName() + ".json"
+        );
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        prefs.clear();
+        ((AutoPreferences) prefs).close();
+    }
+
+    @Test
+    public void testReopen() throws Exception {
+        String awkward = "\"Quoted\" \\ \t\u00e9\u4e2d\n\u0001";
+        prefs.put("testString", awkward);
+        prefs.put("testNumeric", "42");
+        prefs.put("testInt", 11);
+        prefs.put("testLong", 1L << 40);
+        prefs.put("testDouble", 3.141);
+        prefs.put("testNaN", Double.NaN);
+        prefs.put("testBoolean", true);
+
+        AutoPreferences reopened = new AutoPreferences(getClass(),
+                ConfigurationType.HOME, FileFormat.JSON
+        );
+        Assert.assertEquals(awkward, reopened.getString("testString", ""));
+        Assert.assertEquals(11, reopened.getInt("testInt", 0));
+        Assert.assertEquals(1L << 40, reopened.getLong("testLong", 0));
+        Assert.assertEquals(3.141, reopened.getDouble("testDouble", 0), 0);
+        Assert.assertTrue(Double.isNaN(reopened.getDouble("testNaN", 0)));
+        Assert.assertTrue(reopened.getBoolean("testBoolean", false));
+
+        // Types survive the round trip.
+        Assert.assertEquals("42", reopened.getObject("testNumeric", null));
+        Assert.assertEquals(11, reopened.getObject("testInt", null));
+        Assert.assertEquals(Boolean.TRUE,
+                reopened.getObject("testBoolean", null));
+    }
+
+    @Test
+    public void testNested() throws Exception {
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(("{\"window\": {\"width\": 640, \"title\": \"Main\","
+                    + " \"position\": {\"x\": -1.5e1}},\n"
+                    + " \"recent\": [\"a\", \"b\\u0041\", null],"
+                    + " \"testNull\": null, \"big\": 12345678901234567890}")
+                    .getBytes("UTF-8"));
+        }
+        AutoPreferences reopened = new AutoPreferences(getClass(),
+                ConfigurationType.HOME, FileFormat.JSON
+        );
+        Assert.assertEquals(640, reopened.getInt("window.width", 0));
+        Assert.assertEquals("Main", reopened.getString("window.title", ""));
+        Assert.assertEquals(-15,
+                reopened.getDouble("window.position.x", 0), 0);
+        Assert.assertEquals(Arrays.asList("a", "bA"),
+                reopened.getObject("recent", null));
+        Assert.assertNull(reopened.getObject("testNull", null));
+        Assert.assertEquals("12345678901234567890",
+                reopened.getObject("big", null).toString());
+        Assert.assertEquals(5, reopened.getKeys().size());
+    }
+
+    @Test(expected = ConfigurationException.class)
+    public void testMalformed() throws Exception {
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write("{\"testString\": \"unterminated}".getBytes("UTF-8"));
+        }
+        new AutoPreferences(getClass(), ConfigurationType.HOME,
+                FileFormat.JSON
+        );
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2026 Ethan Ruffing
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ethanruffing.preferenceabstraction.test;
+
+import com.ethanruffing.preferenceabstraction.AutoPreferences;
+import com.ethanruffing.preferenceabstraction.LayeredPreferences;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+/**
+ * A class for testing preferences resolved across the local, home directory
+ * and system stores.
+ *
+ * @author Ethan Ruffing
+ * @since 2026-10-18
+ */
+public class LayeredPreferencesTest extends PreferencesTest {
+    @Before
+    public void setUp() throws Exception {
+        prefs = new LayeredPreferences(getClass());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        prefs.clear();
+        ((LayeredPreferences) prefs).close();
+    }
+
+    @Test
+    public void testLayerPriority() throws Exception {
+        LayeredPreferences layered = (LayeredPreferences) prefs;
+        List<AutoPreferences> layers = layered.getLayers();
+        AutoPreferences home = layers.get(1);
+        AutoPreferences system = layers.get(2);
+
+        // Changes made directly to a store reach the index asynchronously.
+        system.put("testLayerA", 1);
+        system.put("testLayerB", 1);
+        home.put("testLayerA", 2);
+        await(() -> prefs.getInt("testLayerA", 0) == 2
+                && prefs.getInt("testLayerB", 0) == 1);
+        Assert.assertSame(home, layered.getSource("testLayerA"));
+        Assert.assertSame(system, layered.getSource("testLayerB"));
+
+        prefs.put("testLayerA", 3);
+        Assert.assertEquals(3, prefs.getInt("testLayerA", 0));
+        Assert.assertSame(layers.get(0), layered.getSource("testLayerA"));
+        Assert.assertEquals(2, home.getInt("testLayerA", 0));
+        Assert.assertEquals(2, prefs.getKeys().size());
+
+        // Removing a key from the top store uncovers the next one down.
+        layers.get(0).remove("testLayerA");
+        await(() -> prefs.getInt("testLayerA", 0) == 2);
+
+        prefs.remove("testLayerA");
+        Assert.assertEquals(0, prefs.getInt("testLayerA", 0));
+        Assert.assertNull(layered.getSource("testLayerA"));
+        Assert.assertEquals(0, system.getInt("testLayerA", 0));
+        Assert.assertEquals(1, prefs.getInt("testLayerB", 0));
+    }
+
+    @Test
+    public void testStoredValue() throws Exception {
+        // The index holds the value as the store took it, not the caller's.
+        List<String> list = new ArrayList<>(Arrays.asList("a", "b"));
+        prefs.put("testList", (Object) list);
+        list.set(0, "z");
+        Assert.assertEquals(Arrays.asList("a", "b"),
+                prefs.getObject("testList", null));
+
+        list = new ArrayList<>(Arrays.asList("c", "d"));
+        prefs.edit().put("testList", (Object) list).commit();
+        list.add("z");
+        Assert.assertEquals(Arrays.asList("c", "d"),
+                prefs.getObject("testList", null));
+    }
+
+    /**
+     * Waits for a condition to hold, failing after five seconds.
+     *
+     * @param condition The condition.
+     */
+    private static void await(BooleanSupplier condition)
+            throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            Assert.assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+}
@@ -18,9 +18,15 @@ package com.ethanruffing.preferenceabstraction.test;
 
 import com.ethanruffing.preferenceabstraction.AutoPreferences;
 import com.ethanruffing.preferenceabstraction.ConfigurationType;
+import com.ethanruffing.preferenceabstraction.FileFormat;
+import com.ethanruffing.preferenceabstraction.MigrationResult;
+import com.ethanruffing.preferenceabstraction.PreferencesEditor;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * A test class for testing the ability to convert preferences from one storage
  * method to another.
@@ -52,4 +58,105 @@ public class MigrationTest {
         p0.clear();
         p1.clear();
     }
+
+    @Test
+    public void testMigrateObject() throws Exception {
+        AutoPreferences p0 = new AutoPreferences(getClass(),
+                ConfigurationType.SYSTEM
+        );
+        BigDecimal bd = BigDecimal.valueOf(Math.PI);
+        p0.put("testObject", bd);
+        AutoPreferences p1 = p0.convert(ConfigurationType.HOME);
+        Assert.assertEquals(bd, p1.getObject("testObject", BigDecimal.ZERO));
+
+        AutoPreferences p2 = p1.convert(ConfigurationType.SYSTEM);
+        Assert.assertEquals(bd, p2.getObject("testObject", BigDecimal.ZERO));
+
+        p0.clear();
+        p1.clear();
+    }
+
+    @Test
+    public void testMigrateBytes() throws Exception {
+        AutoPreferences p0 = new AutoPreferences(getClass(),
+                ConfigurationType.SYSTEM
+        );
+        byte[] bytes = {1, 2, 3};
+        p0.put("testBytes", bytes);
+        p0.put("testString", "AQID");
+        AutoPreferences p1 = p0.convert(ConfigurationType.HOME);
+        // Written as an array, rather than as the Base64 that SYSTEM keeps.
+        Assert.assertFalse(p1.getObject("testBytes", null) instanceof String);
+        Assert.assertEquals("AQID", p1.getString("testString", null));
+
+        p0.clear();
+        p1.clear();
+    }
+
+    @Test
+    public void testMigrationResult() throws Exception {
+        AutoPreferences p0 = new AutoPreferences(getClass(),
+                ConfigurationType.HOME
+        );
+        p0.clear();
+        PreferencesEditor editor = p0.edit();
+        for (int i = 0; i < 1000; i++)
+            editor.put("testKey" + i, i);
+        editor.commit();
+
+        AtomicInteger calls = new AtomicInteger();
+        MigrationResult result = p0.migrate(ConfigurationType.SYSTEM,
+                (processed, total) -> {
+                    Assert.assertEquals(1000, total);
+                    Assert.assertEquals(calls.incrementAndGet(), processed);
+                }
+        );
+        Assert.assertEquals(1000, calls.get());
+        Assert.assertEquals(1000, result.getCopied());
+        Assert.assertEquals(0, result.getSkipped());
+        Assert.assertEquals(999,
+                result.getDestination().getInt("testKey999", -1)
+        );
+
+        p0.clear();
+        result.getDestination().clear();
+    }
+
+    @Test
+    public void testMigrateFormat() throws Exception {
+        AutoPreferences p0 = new AutoPreferences(getClass(),
+                ConfigurationType.HOME, FileFormat.XML
+        );
+        p0.put("testString", "Hello, World!");
+        p0.put("testDouble", 3.14159);
+        p0.put("testBoolean", true);
+
+        AutoPreferences p1 = p0.convert(ConfigurationType.HOME,
+                FileFormat.JSON
+        );
+        AutoPreferences p2 = p1.convert(ConfigurationType.LOCAL,
+                FileFormat.PROPERTIES
+        );
+        Assert.assertEquals(FileFormat.JSON, p1.getFileFormat());
+        Assert.assertEquals(FileFormat.PROPERTIES, p2.getFileFormat());
+        for (FileFormat format : new FileFormat[]{FileFormat.JSON,
+                FileFormat.PROPERTIES}) {
+            ConfigurationType type = format == FileFormat.JSON
+                    ? ConfigurationType.HOME : ConfigurationType.LOCAL;
+            AutoPreferences reopened = new AutoPreferences(getClass(), type,
+                    format
+            );
+            Assert.assertEquals("Hello, World!",
+                    reopened.getString("testString", "Goodnight, moon.")
+            );
+            Assert.assertEquals(3.14159,
+                    reopened.getDouble("testDouble", 2.5), 0.0001
+            );
+            Assert.assertTrue(reopened.getBoolean("testBoolean", false));
+        }
+
+        p0.clear();
+        p1.clear();
+        p2.clear();
+    }
 }
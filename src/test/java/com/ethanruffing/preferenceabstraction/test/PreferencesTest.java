@@ -16,10 +16,25 @@
 
 package com.ethanruffing.preferenceabstraction.test;
 
+import com.ethanruffing.preferenceabstraction.ChangeListener;
+import com.ethanruffing.preferenceabstraction.FieldCodec;
 import com.ethanruffing.preferenceabstraction.IPreferences;
+import com.ethanruffing.preferenceabstraction.PreferenceKey;
+import com.ethanruffing.preferenceabstraction.PreferencesEditor;
 import org.junit.Assert;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 /**
  * A class for testing preferences
@@ -28,6 +43,15 @@ import java.math.BigDecimal;
  * @since 2016-02-17
  */
 public abstract class PreferencesTest {
+    private static final PreferenceKey.OfInt POOL_SIZE =
+            PreferenceKey.ofInt("testPoolSize", 8);
+    private static final PreferenceKey.OfDouble RATIO =
+            PreferenceKey.ofDouble("testRatio", 0.5);
+    private static final PreferenceKey.OfBoolean ENABLED =
+            PreferenceKey.ofBoolean("testEnabled", false);
+    private static final PreferenceKey.OfString NAME =
+            PreferenceKey.ofString("testName", "Goodnight, moon.");
+
     protected IPreferences prefs;
 
     @org.junit.Test
@@ -97,4 +121,273 @@ public abstract class PreferencesTest {
                 prefs.getObject("testObject2", BigDecimal.ZERO)
         );
     }
+
+    @org.junit.Test
+    public void testRemove() throws Exception {
+        prefs.put("testString", "Hello, World!");
+        prefs.remove("testString");
+        Assert.assertEquals("Goodnight, moon.",
+                prefs.getString("testString", "Goodnight, moon.")
+        );
+        Assert.assertFalse(prefs.getKeys().contains("testString"));
+    }
+
+    @org.junit.Test
+    public void testEdit() throws Exception {
+        prefs.put("testRemoved", true);
+        PreferencesEditor editor = prefs.edit()
+                .put("testInt", 11)
+                .put("testDouble", 3.141)
+                .put("testString", "Hello, World!")
+                .remove("testRemoved");
+        Assert.assertEquals(2, prefs.getInt("testInt", 2));
+
+        editor.commit();
+        Assert.assertEquals(11, prefs.getInt("testInt", 2));
+        Assert.assertEquals(3.141, prefs.getDouble("testDouble", 2.5), 0.001);
+        Assert.assertEquals("Hello, World!",
+                prefs.getString("testString", "Goodnight, moon.")
+        );
+        Assert.assertFalse(prefs.getBoolean("testRemoved", false));
+    }
+
+    @org.junit.Test
+    public void testRepeatedReads() throws Exception {
+        prefs.put("testNumber", 11);
+        Assert.assertEquals(11, prefs.getInt("testNumber", 2));
+        Assert.assertEquals(11, prefs.getInt("testNumber", 2));
+        Assert.assertEquals(11L, prefs.getLong("testNumber", 2L));
+        Assert.assertEquals(11.0, prefs.getDouble("testNumber", 2.5), 0.001);
+
+        prefs.put("testNumber", 3000000000L);
+        Assert.assertEquals(3000000000L, prefs.getLong("testNumber", 2L));
+        prefs.put("testNumber", "42");
+        Assert.assertEquals(42, prefs.getInt("testNumber", 2));
+        Assert.assertEquals(42.0f, prefs.getFloat("testNumber", 2.5f), 0.001f);
+        prefs.edit().put("testNumber", 7).commit();
+        Assert.assertEquals(7, prefs.getInt("testNumber", 2));
+        prefs.remove("testNumber");
+        Assert.assertEquals(2, prefs.getInt("testNumber", 2));
+        Assert.assertEquals(2.5f, prefs.getFloat("testNumber", 2.5f), 0.001f);
+
+        prefs.put("testBool", true);
+        Assert.assertTrue(prefs.getBoolean("testBool", false));
+        prefs.put("testBool", false);
+        Assert.assertFalse(prefs.getBoolean("testBool", true));
+        prefs.clear();
+        Assert.assertTrue(prefs.getBoolean("testBool", true));
+    }
+
+    @org.junit.Test
+    public void testKeys() throws Exception {
+        Assert.assertEquals(8, prefs.get(POOL_SIZE));
+        Assert.assertEquals(0.5, prefs.get(RATIO), 0.001);
+        Assert.assertFalse(prefs.get(ENABLED));
+        Assert.assertEquals("Goodnight, moon.", prefs.get(NAME));
+
+        prefs.put(POOL_SIZE.getName(), 16);
+        prefs.put(RATIO.getName(), 0.75);
+        prefs.put(ENABLED.getName(), true);
+        prefs.put(NAME.getName(), "Hello, World!");
+        Assert.assertEquals(16, prefs.get(POOL_SIZE));
+        Assert.assertEquals(0.75, prefs.get(RATIO), 0.001);
+        Assert.assertTrue(prefs.get(ENABLED));
+        Assert.assertEquals("Hello, World!", prefs.get(NAME));
+        Assert.assertEquals(16, prefs.getInt("testPoolSize", 8));
+
+        prefs.remove(POOL_SIZE.getName());
+        Assert.assertEquals(8, prefs.get(POOL_SIZE));
+
+        prefs.put(POOL_SIZE.getName(), 4);
+        Assert.assertEquals(4, prefs.get(POOL_SIZE));
+        prefs.clear();
+        Assert.assertEquals(8, prefs.get(POOL_SIZE));
+        prefs.put(POOL_SIZE.getName(), 32);
+        Assert.assertEquals(32, prefs.get(POOL_SIZE));
+    }
+
+    @org.junit.Test
+    public void testManyKeys() throws Exception {
+        // More handles than a store remembers the slots of at once.
+        List<PreferenceKey.OfInt> keys = new ArrayList<>();
+        PreferencesEditor editor = prefs.edit();
+        for (int i = 0; i < 200; i++) {
+            keys.add(PreferenceKey.ofInt("testHandle" + i, -1));
+            if (i % 2 == 0)
+                editor.put("testHandle" + i, i);
+        }
+        editor.commit();
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < keys.size(); i++)
+                Assert.assertEquals(i % 2 == 0 ? i : -1,
+                        prefs.get(keys.get(i)));
+        }
+    }
+
+    @org.junit.Test
+    public void testPrefixKeys() throws Exception {
+        Assert.assertTrue(prefs.getKeys("testCache").isEmpty());
+        prefs.put("testCache.size", 10);
+        prefs.put("testCache.ttl", 60L);
+        prefs.put("testCacheless", "Hello, World!");
+        prefs.put("testOther", true);
+        Assert.assertEquals(Arrays.asList("testCache.size", "testCache.ttl"),
+                prefs.getKeys("testCache.")
+        );
+        Assert.assertEquals(3, prefs.getKeys("testCache").size());
+        prefs.remove("testCache.ttl");
+        Assert.assertEquals(Arrays.asList("testCache.size"),
+                prefs.getKeys("testCache.")
+        );
+
+        IPreferences cache = prefs.getSubset("testCache.");
+        Assert.assertEquals(10, cache.getInt("size", 0));
+        cache.put("ttl", 30);
+        Assert.assertEquals(30, prefs.getInt("testCache.ttl", 0));
+        Assert.assertEquals(Arrays.asList("size", "ttl"), cache.getKeys());
+        cache.clear();
+        Assert.assertTrue(prefs.getKeys("testCache.").isEmpty());
+        Assert.assertEquals("Hello, World!",
+                prefs.getString("testCacheless", null)
+        );
+
+        prefs.clear();
+        Assert.assertTrue(prefs.getKeys("").isEmpty());
+    }
+
+    @org.junit.Test
+    public void testEntries() throws Exception {
+        prefs.put("testEntryInt", 12);
+        prefs.put("testEntryString", "Hello, World!");
+        prefs.put("testEntryBool", true);
+        prefs.put("testOther.size", 3L);
+
+        Map<String, String> visited = new TreeMap<>();
+        prefs.forEach((key, value) -> visited.put(key, value.toString()));
+        Map<String, String> expected = new TreeMap<>();
+        expected.put("testEntryInt", "12");
+        expected.put("testEntryString", "Hello, World!");
+        expected.put("testEntryBool", "true");
+        expected.put("testOther.size", "3");
+        Assert.assertEquals(expected, visited);
+
+        Map<String, String> streamed = prefs.entries().collect(
+                Collectors.toMap(Map.Entry::getKey,
+                        e -> e.getValue().toString(), (a, b) -> a, TreeMap::new
+                ));
+        Assert.assertEquals(expected, streamed);
+        Assert.assertEquals(1, prefs.entries()
+                .filter(e -> e.getKey().startsWith("testEntryS")).count());
+
+        Map<String, String> subset = new TreeMap<>();
+        prefs.getSubset("testOther.").forEach((key, value) ->
+                subset.put(key, value.toString()));
+        Assert.assertEquals(Collections.singletonMap("size", "3"), subset);
+    }
+
+    @org.junit.Test
+    public void testChangeListener() throws Exception {
+        List<Set<String>> batches = new ArrayList<>();
+        ChangeListener listener = keys -> {
+            synchronized (batches) {
+                batches.add(new HashSet<>(keys));
+                batches.notifyAll();
+            }
+        };
+        prefs.addChangeListener(listener);
+        try {
+            PreferencesEditor editor = prefs.edit();
+            for (int i = 0; i < 1000; i++)
+                editor.put("testListener" + i, i);
+            editor.commit();
+            List<Set<String>> received = awaitKey(batches, "testListener999");
+            int notified = 0;
+            for (Set<String> batch : received) {
+                if (batch.contains("testListener0")) {
+                    Assert.assertTrue(batch.contains("testListener999"));
+                    notified++;
+                }
+            }
+            Assert.assertEquals(1, notified);
+
+            prefs.remove("testListener0");
+            Assert.assertTrue(awaitKey(batches, "testListener0").stream()
+                    .anyMatch(b -> b.contains("testListener0")));
+        } finally {
+            prefs.removeChangeListener(listener);
+        }
+    }
+
+    /**
+     * Waits for a batch containing the given key to be received.
+     *
+     * @param batches The batches received so far, cleared once one holds the
+     *                key.
+     * @param key     The key to wait for.
+     * @return The batches received.
+     */
+    private static List<Set<String>> awaitKey(List<Set<String>> batches,
+                                              String key)
+            throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        synchronized (batches) {
+            while (batches.stream().noneMatch(b -> b.contains(key))
+                    && System.currentTimeMillis() < deadline)
+                batches.wait(100);
+            List<Set<String>> received = new ArrayList<>(batches);
+            batches.clear();
+            return received;
+        }
+    }
+
+    @org.junit.Test
+    public void testCodec() throws Exception {
+        prefs.registerCodec(Point.class, FieldCodec.of(Point.class));
+        Point p = new Point(3, -4.5, "origin", new byte[] {1, 2},
+                TimeUnit.SECONDS, null
+        );
+        prefs.put("testPoint", p);
+        Assert.assertEquals(p, prefs.getObject("testPoint", null));
+    }
+
+    /**
+     * A value that cannot be stored by Java serialization.
+     */
+    protected static class Point {
+        private int x;
+        private double y;
+        private String label;
+        private byte[] data;
+        private TimeUnit unit;
+        private Long id;
+        private transient int hash;
+
+        private Point() {
+        }
+
+        Point(int x, double y, String label, byte[] data, TimeUnit unit,
+              Long id) {
+            this.x = x;
+            this.y = y;
+            this.label = label;
+            this.data = data;
+            this.unit = unit;
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Point))
+                return false;
+            Point p = (Point) o;
+            return x == p.x && y == p.y && Objects.equals(label, p.label)
+                    && Arrays.equals(data, p.data) && unit == p.unit
+                    && Objects.equals(id, p.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(x, y, label, unit, id);
+        }
+    }
 }
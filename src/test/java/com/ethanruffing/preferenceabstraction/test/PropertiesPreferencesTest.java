@@ -0,0 +1,117 @@
+/*
+ * Copyright 2026 Ethan Ruffing
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ethanruffing.preferenceabstraction.test;
+
+import com.ethanruffing.preferenceabstraction.AutoPreferences;
+import com.ethanruffing.preferenceabstraction.ConfigurationType;
+import com.ethanruffing.preferenceabstraction.FileFormat;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+/**
+ * A class for testing preferences stored in a Java properties file in the
+ * user's home directory.
+ *
+ * @author Ethan Ruffing
+ * @since 2026-10-18
+ */
+public class PropertiesPreferencesTest extends PreferencesTest {
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        prefs = new AutoPreferences(getClass(), ConfigurationType.HOME,
+                FileFormat.PROPERTIES
+        );
+        file = new File(System.getProperty("user.home"),
+                "." + getClass().getPackage().getName() + ".properties"
+        );
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        prefs.clear();
+        ((AutoPreferences) prefs).close();
+    }
+
+    @Test
+    public void testCompatibility() throws Exception {
+        String awkward = " Key = \"value\": #1! \\ \t\u00e9\u4e2d\n";
+        prefs.put("testString", awkward);
+        prefs.put("test key=:#!", "Hello, World!");
+        prefs.put("testInt", 11);
+
+        // Files written here can be read by java.util.Properties...
+        Properties props = new Properties();
+        try (InputStream in = new FileInputStream(file)) {
+            props.load(in);
+        }
+        Assert.assertEquals(awkward, props.getProperty("testString"));
+        Assert.assertEquals("Hello, World!",
+                props.getProperty("test key=:#!"));
+        Assert.assertEquals("11", props.getProperty("testInt"));
+
+        // ...and files written by it can be read here.
+        props.setProperty("testString", "Goodnight, moon.\r\n");
+        props.setProperty("testDouble", "3.141");
+        try (OutputStream out = new FileOutputStream(file)) {
+            props.store(out, "A comment\\");
+        }
+        AutoPreferences reopened = new AutoPreferences(getClass(),
+                ConfigurationType.HOME, FileFormat.PROPERTIES
+        );
+        Assert.assertEquals("Goodnight, moon.\r\n",
+                reopened.getString("testString", ""));
+        Assert.assertEquals("Hello, World!",
+                reopened.getString("test key=:#!", ""));
+        Assert.assertEquals(3.141, reopened.getDouble("testDouble", 0), 0);
+        Assert.assertEquals(11, reopened.getInt("testInt", 0));
+        Assert.assertEquals(4, reopened.getKeys().size());
+    }
+
+    @Test
+    public void testContinuation() throws Exception {
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(("# comment \\\n"
+                    + "  ! another\r\n"
+                    + "testString : Hello, \\\n"
+                    + "    World!\\\\\n"
+                    + "testEmpty\n"
+                    + "testSpace   \\u0041\\\n"
+                    + "\n"
+                    + "testLast=end\\").getBytes("ISO-8859-1"));
+        }
+        AutoPreferences reopened = new AutoPreferences(getClass(),
+                ConfigurationType.HOME, FileFormat.PROPERTIES
+        );
+        Assert.assertEquals("Hello, World!\\",
+                reopened.getString("testString", ""));
+        Assert.assertEquals("", reopened.getString("testEmpty", null));
+        Assert.assertEquals("A", reopened.getString("testSpace", ""));
+        Assert.assertEquals("end", reopened.getString("testLast", ""));
+        Assert.assertEquals(4, reopened.getKeys().size());
+    }
+}
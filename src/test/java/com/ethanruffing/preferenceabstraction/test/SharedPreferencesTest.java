@@ -0,0 +1,85 @@
+/*
+ * Copyright 2026 Ethan Ruffing
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ethanruffing.preferenceabstraction.test;
+
+import com.ethanruffing.preferenceabstraction.AutoPreferences;
+import com.ethanruffing.preferenceabstraction.ConfigurationType;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * A class for testing shared preference stores obtained from the registry.
+ *
+ * @author Ethan Ruffing
+ * @since 2026-10-18
+ */
+public class SharedPreferencesTest extends PreferencesTest {
+    @Before
+    public void setUp() throws Exception {
+        prefs = AutoPreferences.forClass(getClass(), ConfigurationType.HOME);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        prefs.clear();
+        ((AutoPreferences) prefs).close();
+    }
+
+    @Test
+    public void testSameInstance() throws Exception {
+        AutoPreferences other = AutoPreferences.forClass(
+                PreferencesTest.class, ConfigurationType.HOME
+        );
+        Assert.assertSame(prefs, other);
+        AutoPreferences system = AutoPreferences.forClass(getClass(),
+                ConfigurationType.SYSTEM
+        );
+        Assert.assertNotSame(prefs, system);
+        system.close();
+        AutoPreferences detected = AutoPreferences.forClass(getClass());
+        Assert.assertSame(detected, AutoPreferences.forClass(getClass()));
+        detected.close();
+        detected.close();
+
+        other.put("testString", "Hello, World!");
+        Assert.assertEquals("Hello, World!",
+                prefs.getString("testString", "Goodnight, moon.")
+        );
+        other.close();
+    }
+
+    @Test
+    public void testReleased() throws Exception {
+        AutoPreferences other = AutoPreferences.forClass(getClass(),
+                ConfigurationType.HOME
+        );
+        other.close();
+        Assert.assertSame(prefs, AutoPreferences.forClass(getClass(),
+                ConfigurationType.HOME
+        ));
+        ((AutoPreferences) prefs).close();
+        ((AutoPreferences) prefs).close();
+
+        AutoPreferences fresh = AutoPreferences.forClass(getClass(),
+                ConfigurationType.HOME
+        );
+        Assert.assertNotSame(prefs, fresh);
+        prefs = fresh;
+    }
+}
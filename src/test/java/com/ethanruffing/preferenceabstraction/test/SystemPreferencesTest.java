@@ -19,7 +19,21 @@ package com.ethanruffing.preferenceabstraction.test;
 import com.ethanruffing.preferenceabstraction.AutoPreferences;
 import com.ethanruffing.preferenceabstraction.ConfigurationType;
 import org.junit.After;
+import org.junit.Assert;
 import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.prefs.Preferences;
 
 /**
  * A class for testing preferences stored in the system's native settings
@@ -38,4 +52,188 @@ public class SystemPreferencesTest extends PreferencesTest {
     public void tearDown() throws Exception {
         prefs.clear();
     }
+
+    @Test
+    public void testObjectCache() throws Exception {
+        BigDecimal bd = BigDecimal.valueOf(Math.PI);
+        prefs.put("testObject", bd);
+        Object first = prefs.getObject("testObject", null);
+        Assert.assertEquals(bd, first);
+        Assert.assertSame(first, prefs.getObject("testObject", null));
+
+        // Changes that raise no event, as when synced in from another
+        // process, are seen at once; a change made straight to the node is
+        // read before its event arrives.
+        Preferences node = Preferences.userNodeForPackage(getClass());
+        AutoPreferences other = new AutoPreferences(getClass(),
+                ConfigurationType.SYSTEM
+        );
+        other.put("testOther", BigDecimal.TEN);
+        node.put("testObject", node.get("testOther", null));
+        Assert.assertEquals(BigDecimal.TEN,
+                prefs.getObject("testObject", null));
+        other.close();
+
+        prefs.put("testObject", BigDecimal.ONE);
+        Assert.assertEquals(BigDecimal.ONE,
+                prefs.getObject("testObject", null)
+        );
+        prefs.remove("testObject");
+        Assert.assertNull(prefs.getObject("testObject", null));
+    }
+
+    @Test
+    public void testNullObject() throws Exception {
+        prefs.put("testNull", (Object) null);
+        Assert.assertNull(prefs.getObject("testNull", "default"));
+    }
+
+    @Test
+    public void testObjectCacheExternalChange() throws Exception {
+        prefs.put("testObject", BigDecimal.ONE);
+        Assert.assertEquals(BigDecimal.ONE,
+                prefs.getObject("testObject", null)
+        );
+
+        AutoPreferences other = new AutoPreferences(getClass(),
+                ConfigurationType.SYSTEM
+        );
+        other.put("testObject", BigDecimal.TEN);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!BigDecimal.TEN.equals(prefs.getObject("testObject", null))
+                && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+        Assert.assertEquals(BigDecimal.TEN,
+                prefs.getObject("testObject", null)
+        );
+        other.close();
+    }
+
+    @Test
+    public void testExternalChangeBeforeEvent() throws Exception {
+        // Changes synced in from another process raise no events at all; a
+        // change made straight to the node is read before its event arrives.
+        Preferences node = Preferences.userNodeForPackage(getClass());
+        prefs.put("testInt", 1);
+        Assert.assertEquals(1, prefs.getInt("testInt", 0));
+        node.put("testInt", "2");
+        Assert.assertEquals(2, prefs.getInt("testInt", 0));
+        Assert.assertEquals("2", prefs.getString("testInt", null));
+
+        Assert.assertEquals(Collections.singletonList("testInt"),
+                prefs.getKeys("test"));
+        node.put("testAdded", "3");
+        Assert.assertEquals(Arrays.asList("testAdded", "testInt"),
+                prefs.getKeys("test"));
+        node.remove("testInt");
+        Assert.assertEquals(Collections.singletonList("testAdded"),
+                prefs.getKeys("test"));
+    }
+
+    @Test
+    public void testExternalChangeListener() throws Exception {
+        Set<String> changed = ConcurrentHashMap.newKeySet();
+        prefs.addChangeListener(changed::addAll);
+
+        AutoPreferences other = new AutoPreferences(getClass(),
+                ConfigurationType.SYSTEM
+        );
+        other.put("testExternal", 11);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!changed.contains("testExternal")
+                && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+        Assert.assertTrue(changed.contains("testExternal"));
+        Assert.assertEquals(11, prefs.getInt("testExternal", 2));
+        other.close();
+    }
+
+    @Test
+    public void testFailedPutListener() throws Exception {
+        Set<String> changed = ConcurrentHashMap.newKeySet();
+        prefs.addChangeListener(changed::addAll);
+        try {
+            prefs.put("testFailed", (String) null);
+            Assert.fail("Stored a null string.");
+        } catch (NullPointerException e) {
+            // Expected.
+        }
+
+        // The failed put raised no event, so this one is not taken for it.
+        Preferences.userNodeForPackage(getClass()).put("testFailed", "x");
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!changed.contains("testFailed")
+                && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+        Assert.assertTrue(changed.contains("testFailed"));
+    }
+
+    @Test
+    public void testBytesFromOtherInstance() throws Exception {
+        AutoPreferences other = new AutoPreferences(getClass(),
+                ConfigurationType.SYSTEM
+        );
+        Map<String, Object> values = new HashMap<>();
+        prefs.forEach(values::put);
+        Assert.assertTrue(values.isEmpty());
+
+        // Seen at once, though this store has found no byte arrays before.
+        other.put("testBytes", new byte[]{1, 2, 3});
+        prefs.forEach(values::put);
+        Assert.assertArrayEquals(new byte[]{1, 2, 3},
+                (byte[]) values.get("testBytes"));
+
+        prefs.put("testBytes", 5);
+        values.clear();
+        other.forEach(values::put);
+        Assert.assertFalse(values.get("testBytes") instanceof byte[]);
+        Assert.assertEquals(5, other.getInt("testBytes", 0));
+        other.close();
+    }
+
+    @Test
+    public void testLargeValues() throws Exception {
+        Preferences node = Preferences.userNodeForPackage(getClass());
+        byte[] bytes = new byte[100000];
+        new Random(7).nextBytes(bytes);
+        ArrayList<Integer> list = new ArrayList<>();
+        for (int i = 0; i < 20000; i++)
+            list.add(i);
+
+        prefs.put("testBytes", bytes);
+        prefs.put("testList", list);
+        prefs.put("testSmall", new byte[]{1, 2, 3});
+        Assert.assertEquals(list, prefs.getObject("testList", null));
+        Assert.assertTrue(node.nodeExists(".chunks"));
+        Assert.assertEquals(2, node.node(".chunks").childrenNames().length);
+        Assert.assertEquals(Arrays.asList("testBytes", "testList",
+                "testSmall"), prefs.getKeys(""));
+
+        Map<String, Object> values = new HashMap<>();
+        prefs.forEach(values::put);
+        Assert.assertArrayEquals(bytes, (byte[]) values.get("testBytes"));
+        Assert.assertEquals(list, values.get("testList"));
+        Assert.assertEquals(Base64.getEncoder().encodeToString(bytes),
+                prefs.getString("testBytes", null));
+
+        // A string that looks like a pointer is only a string, and cannot
+        // reach another value's chunks.
+        String pointer = node.get("testBytes", null);
+        prefs.put("testPointer", pointer);
+        Assert.assertEquals(pointer, prefs.getString("testPointer", null));
+        Assert.assertNull(prefs.getObject("testPointer", null));
+        prefs.remove("testPointer");
+        Assert.assertEquals(2, node.node(".chunks").childrenNames().length);
+
+        // Replacing or removing a chunked value deletes its chunks.
+        prefs.put("testList", 5);
+        Assert.assertEquals(5, prefs.getInt("testList", 0));
+        prefs.remove("testBytes");
+        Assert.assertEquals(0, node.node(".chunks").childrenNames().length);
+
+        prefs.put("testBytes", bytes);
+        prefs.clear();
+        Assert.assertFalse(node.nodeExists(".chunks"));
+        Assert.assertNull(prefs.getObject("testBytes", null));
+    }
 }
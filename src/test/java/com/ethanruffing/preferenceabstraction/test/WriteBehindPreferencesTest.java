@@ -0,0 +1,120 @@
+/*
+ * Copyright 2026 Ethan Ruffing
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.ethanruffing.preferenceabstraction.test;
+
+import com.ethanruffing.preferenceabstraction.AutoPreferences;
+import com.ethanruffing.preferenceabstraction.ConfigurationType;
+import org.apache.commons.configuration.ConfigurationRuntimeException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A class for testing preferences stored in a file in the user's home
+ * directory with write-behind enabled.
+ *
+ * @author Ethan Ruffing
+ * @since 2026-10-18
+ */
+public class WriteBehindPreferencesTest extends PreferencesTest {
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        AutoPreferences ap = new AutoPreferences(getClass(),
+                ConfigurationType.HOME
+        );
+        ap.enableWriteBehind(1, TimeUnit.HOURS, 10000);
+        prefs = ap;
+        file = new File(System.getProperty("user.home"),
+                "." + getClass().getPackage().getName() + ".xml"
+        );
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        prefs.clear();
+        ((AutoPreferences) prefs).close();
+    }
+
+    @Test
+    public void testCoalescedWrites() throws Exception {
+        for (int i = 0; i < 1000; i++)
+            prefs.put("testKey" + i, i);
+        Assert.assertFalse(file.exists());
+
+        prefs.flush();
+        Assert.assertTrue(file.exists());
+        AutoPreferences reloaded = new AutoPreferences(getClass(),
+                ConfigurationType.HOME
+        );
+        Assert.assertEquals(999, reloaded.getInt("testKey999", -1));
+    }
+
+    @Test
+    public void testDirtyThreshold() throws Exception {
+        ((AutoPreferences) prefs).enableWriteBehind(1, TimeUnit.HOURS, 5);
+        for (int i = 0; i < 5; i++)
+            prefs.put("testKey" + i, i);
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!file.exists() && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+        Assert.assertTrue(file.exists());
+    }
+
+    @Test
+    public void testFailedFlushRetried() throws Exception {
+        // A directory in the way of the temporary file fails the write.
+        File tmp = new File(file.getPath() + ".tmp");
+        Assert.assertTrue(tmp.mkdir());
+        try {
+            prefs.put("testKey", 1);
+            try {
+                prefs.flush();
+                Assert.fail("A failed flush was not reported.");
+            } catch (ConfigurationRuntimeException e) {
+                // Expected.
+            }
+            Assert.assertFalse(file.exists());
+        } finally {
+            tmp.delete();
+        }
+
+        prefs.flush();
+        AutoPreferences reloaded = new AutoPreferences(getClass(),
+                ConfigurationType.HOME
+        );
+        Assert.assertEquals(1, reloaded.getInt("testKey", -1));
+    }
+
+    @Test
+    public void testCloseFlushes() throws Exception {
+        prefs.put("testString", "Hello, World!");
+        ((AutoPreferences) prefs).close();
+        AutoPreferences reloaded = new AutoPreferences(getClass(),
+                ConfigurationType.HOME
+        );
+        Assert.assertEquals("Hello, World!",
+                reloaded.getString("testString", "Goodnight, moon.")
+        );
+    }
+}